@@ -0,0 +1,140 @@
+package ru.javabruse.utils.crawl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.ref.Reference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * VisitedSet против HashSet<String> на заголовках статей: проверка уже известного
+ * и добавление нового заголовка. Память обоих вариантов выводится при запуске:
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=ru.javabruse.utils.crawl.VisitedSetBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class VisitedSetBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int titles;
+
+    private String[] known;
+    private String[] unknown;
+    private Set<String> hashSet;
+    private VisitedSet visitedSet;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        known = new String[titles];
+        unknown = new String[titles];
+        hashSet = new HashSet<>();
+        visitedSet = new VisitedSet(titles * 2L, 0.001, 256L * 1024 * 1024);
+        for (int i = 0; i < titles; i++) {
+            known[i] = title(i);
+            unknown[i] = title(titles + i);
+            hashSet.add(known[i]);
+            visitedSet.add(known[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean hashSetContainsKnown() {
+        return hashSet.contains(known[next()]);
+    }
+
+    @Benchmark
+    public boolean visitedSetContainsKnown() {
+        return visitedSet.contains(known[next()]);
+    }
+
+    @Benchmark
+    public boolean hashSetContainsUnknown() {
+        return hashSet.contains(unknown[next()]);
+    }
+
+    @Benchmark
+    public boolean visitedSetContainsUnknown() {
+        return visitedSet.contains(unknown[next()]);
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == titles ? 0 : index + 1;
+        return index;
+    }
+
+    static String title(int i) {
+        return "https://ru.wikipedia.org/wiki/Статья_номер_" + i;
+    }
+
+    // аргументы - обычные ключи JMH, например -Djmh.args="-p titles=100000 -wi 1 -i 2"
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        printMemory(1_000_000);
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(VisitedSetBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    // удержанная куча после заполнения: грубо, через разницу used после GC
+    private static void printMemory(int count) {
+        long hashSetBytes = retainedBytes(() -> {
+            Set<String> hashSet = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                hashSet.add(title(i));
+            }
+            return hashSet;
+        });
+        VisitedSet[] filled = new VisitedSet[1];
+        long visitedSetBytes = retainedBytes(() -> {
+            filled[0] = new VisitedSet(count, 0.001, 64L * 1024 * 1024);
+            for (int i = 0; i < count; i++) {
+                filled[0].add(title(i));
+            }
+            return filled[0];
+        });
+        System.out.printf("%d заголовков: HashSet<String> ~%d МБ, VisitedSet ~%d МБ (по memoryBytes %d МБ)%n",
+                count, hashSetBytes >> 20, visitedSetBytes >> 20, filled[0].memoryBytes() >> 20);
+    }
+
+    private static long retainedBytes(Supplier<Object> fill) {
+        long before = usedAfterGc();
+        Object filled = fill.get();
+        long bytes = usedAfterGc() - before;
+        Reference.reachabilityFence(filled);
+        return bytes;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,326 @@
+package ru.javabruse.pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ленивый итератор по всем результатам поиска, страница за страницей (offset/limit).
+ * Продолжение берётся из ссылки "следующие" (a.mw-nextlink) на самой странице: сервер
+ * урезает слишком большой limit, поэтому по размеру страницы конец не определить.
+ * Как только страница прочитана, загрузка следующей уже запущена - во фоновой вкладке
+ * браузера или HTTP-запросом, - и пока вызывающий обрабатывает текущую, следующая грузится.
+ * Страница запрашивается только когда до неё дошли: limit()/findFirst() у стрима
+ * останавливают обход, close() закрывает недочитанную фоновую вкладку.
+ */
+class SearchResultPager implements Iterator<WikipediaPage.SearchHit>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultPager.class);
+
+    private static final Pattern NEXT_LINK = Pattern.compile("<a\\b[^>]*\\bmw-nextlink\\b[^>]*>");
+    private static final Pattern HREF = Pattern.compile("href=\"([^\"]*)\"");
+    private static final Pattern OFFSET = Pattern.compile("[?&;]offset=(\\d+)");
+
+    private final PageLoader loader;
+    // -1 - последняя страница прочитана
+    private int nextOffset;
+    private Iterator<WikipediaPage.SearchHit> current = Collections.emptyIterator();
+    private int pagesLoaded;
+
+    SearchResultPager(PageLoader loader) {
+        this.loader = loader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && nextOffset >= 0) {
+            Page page = loader.load(nextOffset);
+            pagesLoaded++;
+            // продолжение только вперёд: ссылка назад или на ту же страницу зациклила бы обход
+            nextOffset = page.nextOffset > nextOffset ? page.nextOffset : -1;
+            if (nextOffset >= 0) {
+                loader.prefetch(nextOffset);
+            }
+            current = page.hits.iterator();
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public WikipediaPage.SearchHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    int getPagesLoaded() {
+        return pagesLoaded;
+    }
+
+    @Override
+    public void close() {
+        loader.close();
+    }
+
+    static int checkPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Размер страницы результатов должен быть не меньше 1: " + pageSize);
+        }
+        return pageSize;
+    }
+
+    // offset из ссылки "следующие" в HTML страницы результатов, -1 - ссылки нет
+    static int nextOffset(String html) {
+        Matcher link = NEXT_LINK.matcher(html);
+        if (!link.find()) {
+            return -1;
+        }
+        Matcher href = HREF.matcher(link.group());
+        return href.find() ? offsetOf(href.group(1)) : -1;
+    }
+
+    static int offsetOf(String href) {
+        if (href == null) {
+            return -1;
+        }
+        Matcher offset = OFFSET.matcher(href);
+        return offset.find() ? Integer.parseInt(offset.group(1)) : -1;
+    }
+
+    static String searchPath(String query, int offset, int limit) {
+        return "/w/index.php?title=Special:Search&fulltext=1&ns0=1"
+                + "&search=" + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                + "&limit=" + limit + "&offset=" + offset;
+    }
+
+    // Источник страниц результатов; prefetch не блокирует, load ждёт страницу
+    interface PageLoader {
+        void prefetch(int offset);
+
+        Page load(int offset);
+
+        void close();
+    }
+
+    // Результаты одной страницы и offset следующей (-1 - страница последняя)
+    static final class Page {
+        private final List<WikipediaPage.SearchHit> hits;
+        private final int nextOffset;
+
+        Page(List<WikipediaPage.SearchHit> hits, int nextOffset) {
+            this.hits = hits;
+            this.nextOffset = nextOffset;
+        }
+    }
+
+    // Страницы грузятся во вкладках того же браузера; текущая вкладка вызывающего не трогается
+    static final class TabPageLoader implements PageLoader {
+
+        private static final String EXTRACT_RESULTS_SCRIPT =
+                "var next = document.querySelector('a.mw-nextlink');" +
+                "return {next: next ? next.href : null," +
+                "  rows: Array.prototype.map.call(document.querySelectorAll('.mw-search-results li')," +
+                "  function (li) {" +
+                "    var link = li.querySelector('.mw-search-result-heading a');" +
+                "    var snippet = li.querySelector('.searchresult');" +
+                "    return {title: link ? link.getAttribute('title') || link.innerText : ''," +
+                "            url: link ? link.href : ''," +
+                "            snippet: snippet ? snippet.innerText.trim() : ''};" +
+                "  })};";
+
+        private final WebDriver driver;
+        private final String baseUrl;
+        private final String query;
+        private final int pageSize;
+        private final String callerHandle;
+        private final Map<Integer, String> prefetchedTabs = new HashMap<>();
+
+        TabPageLoader(WebDriver driver, String baseUrl, String query, int pageSize) {
+            this.pageSize = checkPageSize(pageSize);
+            this.driver = driver;
+            this.baseUrl = baseUrl;
+            this.query = query;
+            this.callerHandle = driver.getWindowHandle();
+        }
+
+        @Override
+        public void prefetch(int offset) {
+            prefetchedTabs.put(offset, openTab(offset));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Page load(int offset) {
+            String handle = prefetchedTabs.remove(offset);
+            if (handle == null) {
+                handle = openTab(offset);
+            }
+            try {
+                driver.switchTo().window(handle);
+                new WebDriverWait(driver, Duration.ofSeconds(30)).until(webDriver -> ((JavascriptExecutor) webDriver)
+                        .executeScript("return document.readyState").equals("complete"));
+                Map<String, Object> page = (Map<String, Object>) ((JavascriptExecutor) driver)
+                        .executeScript(EXTRACT_RESULTS_SCRIPT);
+                List<WikipediaPage.SearchHit> hits = new ArrayList<>();
+                for (Object row : (List<Object>) page.get("rows")) {
+                    Map<String, Object> map = (Map<String, Object>) row;
+                    hits.add(new WikipediaPage.SearchHit(offset + hits.size(), (String) map.get("title"),
+                            (String) map.get("url"), (String) map.get("snippet")));
+                }
+                return new Page(hits, offsetOf((String) page.get("next")));
+            } finally {
+                closeTab(handle);
+            }
+        }
+
+        @Override
+        public void close() {
+            prefetchedTabs.values().forEach(this::closeTab);
+            prefetchedTabs.clear();
+        }
+
+        private String openTab(int offset) {
+            driver.switchTo().window(callerHandle);
+            Set<String> before = driver.getWindowHandles();
+            // window.open не ждёт загрузки: страница грузится, пока вызывающий работает с текущей
+            ((JavascriptExecutor) driver).executeScript("window.open(arguments[0], arguments[1]);",
+                    baseUrl + searchPath(query, offset, pageSize), "search-page-" + offset);
+            Set<String> after = new LinkedHashSet<>(driver.getWindowHandles());
+            after.removeAll(before);
+            driver.switchTo().window(callerHandle);
+            if (after.isEmpty()) {
+                throw new IllegalStateException("Не удалось открыть вкладку результатов поиска");
+            }
+            return after.iterator().next();
+        }
+
+        private void closeTab(String handle) {
+            try {
+                if (driver.getWindowHandles().contains(handle)) {
+                    driver.switchTo().window(handle);
+                    driver.close();
+                }
+            } catch (Exception e) {
+                logger.debug("Не удалось закрыть вкладку результатов: {}", e.getMessage());
+            } finally {
+                driver.switchTo().window(callerHandle);
+            }
+        }
+    }
+
+    // Страницы загружаются HTTP-запросами без браузера: дешевле, когда нужны только заголовки
+    static final class HttpPageLoader implements PageLoader {
+
+        private static final HttpClient CLIENT = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        private static final Pattern HEADING = Pattern.compile(
+                "class=\"mw-search-result-heading\">\\s*<a href=\"([^\"]+)\"(?:[^>]*?title=\"([^\"]*)\")?");
+        private static final Pattern SNIPPET = Pattern.compile("<div class=\"searchresult\">(.*?)</div>", Pattern.DOTALL);
+        private static final Pattern TAG = Pattern.compile("<[^>]+>");
+
+        private final String baseUrl;
+        private final String query;
+        private final int pageSize;
+        private final Map<Integer, CompletableFuture<String>> pending = new HashMap<>();
+
+        HttpPageLoader(String baseUrl, String query, int pageSize) {
+            this.pageSize = checkPageSize(pageSize);
+            this.baseUrl = baseUrl;
+            this.query = query;
+        }
+
+        @Override
+        public void prefetch(int offset) {
+            pending.computeIfAbsent(offset, this::request);
+        }
+
+        @Override
+        public Page load(int offset) {
+            CompletableFuture<String> page = pending.remove(offset);
+            String html;
+            try {
+                html = (page != null ? page : request(offset)).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            return new Page(parse(html, offset), nextOffset(html));
+        }
+
+        @Override
+        public void close() {
+            pending.values().forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+
+        private CompletableFuture<String> request(int offset) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + searchPath(query, offset, pageSize)))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            // страница ошибки разобралась бы как пустая выдача и молча закончила обход
+            return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+                if (response.statusCode() / 100 != 2) {
+                    throw new IllegalStateException("Страница результатов поиска " + request.uri()
+                            + " вернула HTTP " + response.statusCode());
+                }
+                return response.body();
+            });
+        }
+
+        private List<WikipediaPage.SearchHit> parse(String html, int offset) {
+            List<WikipediaPage.SearchHit> hits = new ArrayList<>();
+            String[] items = html.split("<li class=\"mw-search-result");
+            for (int i = 1; i < items.length; i++) {
+                Matcher heading = HEADING.matcher(items[i]);
+                if (!heading.find()) {
+                    continue;
+                }
+                String href = heading.group(1);
+                String title = heading.group(2) != null
+                        ? unescape(heading.group(2))
+                        : URLDecoder.decode(href.substring(href.lastIndexOf('/') + 1), StandardCharsets.UTF_8)
+                        .replace('_', ' ');
+                Matcher snippet = SNIPPET.matcher(items[i]);
+                String text = snippet.find() ? unescape(TAG.matcher(snippet.group(1)).replaceAll("").trim()) : "";
+                hits.add(new WikipediaPage.SearchHit(offset + hits.size(), title,
+                        URI.create(baseUrl).resolve(href).toString(), text));
+            }
+            return hits;
+        }
+
+        private static String unescape(String html) {
+            return html.replace("&quot;", "\"").replace("&#039;", "'").replace("&lt;", "<")
+                    .replace("&gt;", ">").replace("&amp;", "&");
+        }
+    }
+}
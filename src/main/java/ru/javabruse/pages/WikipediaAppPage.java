@@ -12,15 +12,34 @@ import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.ElementListSnapshot;
+import ru.javabruse.utils.WebDriverFactory;
+import ru.javabruse.utils.appperf.AppPerfRecorder;
+import ru.javabruse.utils.metrics.SuiteMetrics;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class WikipediaAppPage {
 
     private static final Logger logger = LoggerFactory.getLogger(WikipediaAppPage.class);
+
+    // -Dapp.navigation=deeplink: openArticle открывает статью интентом, а не через поиск
+    private static final boolean DEEP_LINK_NAVIGATION =
+            "deeplink".equalsIgnoreCase(System.getProperty("app.navigation", "search"));
+    private static final String ARTICLE_BASE_URL =
+            "https://" + System.getProperty("app.wiki.lang", "en") + ".wikipedia.org/wiki/";
+
     private final AndroidDriver driver;
     private final WebDriverWait wait;
+    // deep link не сработал в этой сессии - дальше сразу поиск
+    private boolean deepLinkFailed;
+    // метрики приложения на переходах между экранами (-Dapp.perf=true)
+    private final AppPerfRecorder perf;
 
     @AndroidFindBy(id = "org.wikipedia.alpha:id/search_container")
     private WebElement searchContainer;
@@ -46,12 +65,17 @@ public class WikipediaAppPage {
     @AndroidFindBy(id = "org.wikipedia.alpha:id/view_article_header_title")
     private WebElement articleTitleHeader;
 
+    // снимки списков выше: один findElements на состояние экрана, сброс после действий
+    private final ElementListSnapshot resultTitlesSnapshot = new ElementListSnapshot(() -> resultTitles);
+    private final ElementListSnapshot textViewsSnapshot = new ElementListSnapshot(() -> textViews);
+
     private final By NAVIGATE_UP_BY_ACCESSIBILITY = AppiumBy.accessibilityId("Navigate up");
     private final By NAVIGATE_UP_BY_XPATH = By.xpath("//android.widget.ImageButton[@content-desc='Navigate up']");
 
     public WikipediaAppPage(AndroidDriver driver) {
         this.driver = driver;
         this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        this.perf = AppPerfRecorder.forDriver(driver, WebDriverFactory.WIKIPEDIA_APP_PACKAGE);
 
         PageFactory.initElements(new AppiumFieldDecorator(driver), this);
     }
@@ -101,15 +125,18 @@ public class WikipediaAppPage {
             if (skipBtn.isDisplayed()) {
                 logger.info("Найден онбординг, пропускаем...");
                 skipBtn.click();
+                SuiteMetrics.counter("wiki_app_onboarding_skipped_total", "Пропущенные экраны онбординга").inc();
+                screenChanged();
                 waitForAppToSettle(1000);
             }
         } catch (TimeoutException e) {
-            logger.info("Онбординг не найден, продолжаем...");
+            logger.debug("Онбординг не найден, продолжаем...");
         }
     }
 
     //Универсальный метод для закрытия всплывающих окон
     public void dismissAllPopups() {
+        long start = System.nanoTime();
         try {
             String[] popupSelectors = {
                     "org.wikipedia.alpha:id/view_announcement_action_negative",
@@ -125,14 +152,20 @@ public class WikipediaAppPage {
                     );
 
                     if (!popups.isEmpty() && popups.get(0).isDisplayed()) {
-                        logger.info("Закрываем всплывающее окно с селектором: {}", selector);
+                        logger.debug("Закрываем всплывающее окно с селектором: {}", selector);
                         popups.get(0).click();
+                        SuiteMetrics.counter("wiki_app_popups_dismissed_total", "Закрытые всплывающие окна приложения",
+                                "popup", selector.substring(selector.indexOf('/') + 1)).inc();
+                        screenChanged();
                         waitForAppToSettle(1000);
                     }
                 } catch (Exception e) {}
             }
         } catch (Exception e) {
             logger.warn("Ошибка при закрытии всплывающих окон: {}", e.getMessage());
+        } finally {
+            // проверка без окон - до 6 с ожиданий на каждый вызов
+            SuiteMetrics.waitSeconds("app", "popups").observeSince(start);
         }
     }
 
@@ -141,13 +174,27 @@ public class WikipediaAppPage {
             skipOnboardingIfPresent();
             dismissAllPopups();
 
-            return wait.until(ExpectedConditions.elementToBeClickable(searchContainer)).isDisplayed();
+            boolean loaded = wait.until(ExpectedConditions.elementToBeClickable(searchContainer)).isDisplayed();
+            perf.mark("main");
+            return loaded;
         } catch (Exception e) {
             logger.error("Главный экран не загрузился: {}", e.getMessage());
             return false;
         }
     }
 
+    // поиск на главном экране кликабелен - без обхода онбординга и всплывающих окон, для замера запуска
+    public boolean awaitSearchUsable() {
+        try {
+            new WebDriverWait(driver, Duration.ofSeconds(20), Duration.ofMillis(100)).until(
+                    ExpectedConditions.elementToBeClickable(
+                            AppiumBy.id(WebDriverFactory.WIKIPEDIA_APP_PACKAGE + ":id/search_container")));
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
     public void searchArticle(String query) {
         logger.info("Выполняем поиск статьи: {}", query);
 
@@ -161,11 +208,15 @@ public class WikipediaAppPage {
             wait.until(ExpectedConditions.visibilityOf(searchInputField)).sendKeys(query);
             waitForAppToSettle(1500);
 
-            wait.until(driver -> !resultTitles.isEmpty());
+            wait.until(driver -> !resultTitlesSnapshot.refresh().isEmpty());
 
-            if (!resultTitles.isEmpty()) {
-                logger.info("Найдено результатов: {}", resultTitles.size());
-                resultTitles.get(0).click();
+            perf.mark("search");
+
+            // дальше - тот же снимок, что увидело ожидание, без новых findElements
+            if (!resultTitlesSnapshot.isEmpty()) {
+                logger.debug("Найдено результатов: {}", resultTitlesSnapshot.size());
+                resultTitlesSnapshot.get(0).click();
+                screenChanged();
             } else {
                 logger.warn("Результаты поиска не найдены");
                 throw new RuntimeException("Результаты поиска не найдены для запроса: " + query);
@@ -179,6 +230,60 @@ public class WikipediaAppPage {
         }
     }
 
+    /**
+     * Открыть статью для тестов, которые проверяют сам экран статьи, а не поиск и не возврат
+     * назад: у статьи, открытой интентом, другой стек экранов.
+     * С -Dapp.navigation=deeplink статья открывается интентом ACTION_VIEW на её URL
+     * (mobile: deepLink в пакет приложения) без набора запроса и ожидания выдачи;
+     * если экран статьи не появился, используется обычный поиск через UI.
+     */
+    public void openArticle(String title) {
+        if (DEEP_LINK_NAVIGATION && !deepLinkFailed && openArticleByDeepLink(title)) {
+            return;
+        }
+        searchArticle(title);
+    }
+
+    public boolean openArticleByDeepLink(String title) {
+        long started = System.nanoTime();
+        String url = ARTICLE_BASE_URL
+                + URLEncoder.encode(title.replace(' ', '_'), StandardCharsets.UTF_8).replace("+", "%20");
+        try {
+            Map<String, Object> args = new HashMap<>();
+            args.put("url", url);
+            args.put("package", WebDriverFactory.WIKIPEDIA_APP_PACKAGE);
+            args.put("waitForLaunch", true);
+            driver.executeScript("mobile: deepLink", args);
+            screenChanged();
+
+            new WebDriverWait(driver, Duration.ofSeconds(5)).until(webDriver ->
+                    String.valueOf(driver.currentActivity()).toLowerCase().contains("page"));
+            waitForArticleToLoad();
+            logger.info("Статья '{}' открыта по deep link за {} мс", title, (System.nanoTime() - started) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            deepLinkFailed = true;
+            logger.warn("Deep link {} не открыл статью, дальше через поиск: {}", url, e.getMessage());
+            returnToMainScreen();
+            return false;
+        }
+    }
+
+    // после неудачного deep link приложение может остаться на экране статьи (активность появилась,
+    // статья не дозагрузилась) - поиск для запасного пути должен начинаться с главного экрана
+    private void returnToMainScreen() {
+        try {
+            for (int i = 0; i < 3 && String.valueOf(driver.currentActivity()).toLowerCase().contains("page"); i++) {
+                driver.navigate().back();
+            }
+            // "назад" из статьи, открытой интентом, может выйти из приложения
+            driver.activateApp(WebDriverFactory.WIKIPEDIA_APP_PACKAGE);
+            screenChanged();
+        } catch (Exception e) {
+            logger.warn("Не удалось вернуться на главный экран: {}", e.getMessage());
+        }
+    }
+
     // заголовок статьи
     public String getArticleTitle() {
         try {
@@ -192,8 +297,10 @@ public class WikipediaAppPage {
                 logger.info("Используем альтернативную стратегию поиска заголовка");
             }
 
-            if (!textViews.isEmpty()) {
-                for (WebElement textView : textViews) {
+            // один findElements на текущий экран; повторные обращения до следующей смены экрана - из снимка
+            List<WebElement> views = textViewsSnapshot.get();
+            if (!views.isEmpty()) {
+                for (WebElement textView : views) {
                     if (textView.isDisplayed()) {
                         String text = textView.getText().trim();
                         if (!text.isEmpty() && text.length() > 3 && text.length() < 100) {
@@ -233,32 +340,65 @@ public class WikipediaAppPage {
                 driver.navigate().back();
                 logger.info("Использована системная кнопка 'назад'");
             }
+            screenChanged();
 
             waitForAppToSettle(1500);
             dismissAllPopups();
+            perf.mark("back");
 
         } catch (Exception e) {
             logger.warn("Ошибка при возврате назад: {}", e.getMessage());
             driver.navigate().back();
+            screenChanged();
         }
     }
 
     // загрузка статьи
     private void waitForArticleToLoad() {
+        long start = System.nanoTime();
         try {
             wait.until(driver -> {
                 try {
                     dismissAllPopups();
-                    return !textViews.isEmpty() &&
-                            textViews.stream().anyMatch(WebElement::isDisplayed);
+                    List<WebElement> views = textViewsSnapshot.refresh();
+                    return !views.isEmpty() && views.stream().anyMatch(WebElement::isDisplayed);
                 } catch (Exception e) {
                     return false;
                 }
             });
-            waitForAppToSettle(1000);
+        } catch (TimeoutException e) {
+            SuiteMetrics.waitTimeouts("app", "article").inc();
+            logger.warn("Статья не загрузилась за время ожидания: {}", e.getMessage());
+            return;
         } catch (Exception e) {
+            // не таймаут (например, сессия потеряна) - в счётчик таймаутов не попадает
             logger.warn("Ожидание загрузки статьи завершилось с ошибкой: {}", e.getMessage());
+            return;
+        } finally {
+            // как в InPageWait: медленный хвост (таймауты) тоже попадает в гистограмму
+            SuiteMetrics.waitSeconds("app", "article").observeSince(start);
         }
+        waitForAppToSettle(1000);
+        // за паузу статья дорисовывается: снимок ожидания уже не описывает экран
+        textViewsSnapshot.invalidate();
+        perf.mark("article");
+    }
+
+    // после клика, ввода или навигации найденные списки больше не описывают экран
+    private void screenChanged() {
+        resultTitlesSnapshot.invalidate();
+        textViewsSnapshot.invalidate();
+    }
+
+    // сколько findElements по спискам выполнено и сколько обращений обслужено из снимков
+    public void logElementLookupStats() {
+        logger.info("findElements для списков: выполнено {}, сэкономлено {}",
+                resultTitlesSnapshot.getLookups() + textViewsSnapshot.getLookups(),
+                resultTitlesSnapshot.getSavedLookups() + textViewsSnapshot.getSavedLookups());
+    }
+
+    public AppPerfRecorder getPerf() {
+        return perf;
     }
 
     private void waitForAppToSettle(long millis) {
@@ -271,8 +411,8 @@ public class WikipediaAppPage {
 
     public int getSearchResultsCount() {
         try {
-            wait.until(driver -> !resultTitles.isEmpty());
-            return resultTitles.size();
+            wait.until(driver -> !resultTitlesSnapshot.refresh().isEmpty());
+            return resultTitlesSnapshot.size();
         } catch (Exception e) {
             return 0;
         }
@@ -280,9 +420,10 @@ public class WikipediaAppPage {
 
     public void selectSearchResult(int index) {
         try {
-            wait.until(driver -> resultTitles.size() > index);
-            if (index < resultTitles.size()) {
-                resultTitles.get(index).click();
+            wait.until(driver -> resultTitlesSnapshot.refresh().size() > index);
+            if (index < resultTitlesSnapshot.size()) {
+                resultTitlesSnapshot.get(index).click();
+                screenChanged();
                 waitForArticleToLoad();
             }
         } catch (Exception e) {
@@ -296,6 +437,7 @@ public class WikipediaAppPage {
         try {
             if (searchInputField.isDisplayed()) {
                 searchInputField.clear();
+                screenChanged();
                 waitForAppToSettle(500);
             }
         } catch (Exception e) {
@@ -2,25 +2,39 @@ package ru.javabruse.pages;
 
 import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.BrowserContextIsolation;
+import ru.javabruse.utils.ConcurrencyController;
+import ru.javabruse.utils.InPageWait;
+import ru.javabruse.utils.metrics.SuiteMetrics;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class WikipediaPage {
 
     private static final Logger logger = LoggerFactory.getLogger(WikipediaPage.class);
     protected final WebDriver driver;
-    protected final WebDriverWait wait;
+    protected final InPageWait pageWait;
     protected final Actions actions;
+    // вкладка, в которой страница начала работу: к ней возвращает softReset
+    private String homeHandle;
 
-    // Базовые URL
-    private static final String BASE_URL = "https://ru.wikipedia.org";
+    // Базовые URL; -Dwiki.base.url - зеркало MediaWiki (например, staging для нагрузочных прогонов)
+    private static final String BASE_URL = System.getProperty("wiki.base.url", "https://ru.wikipedia.org");
     private static final String MAIN_PAGE_URL = BASE_URL + "/wiki/Заглавная_страница";
     private static final String RANDOM_PAGE_URL = BASE_URL + "/wiki/Special:Random";
 
@@ -61,14 +75,43 @@ public class WikipediaPage {
     private final By REFERENCES = By.cssSelector(".references");
     private final By IMAGES = By.cssSelector(".image img, .thumb img");
 
+    // Префикс имени вкладки для пакетного чтения статей
+    private static final String ARTICLE_TAB_PREFIX = "article-tab-";
+
+    // Данные статьи одним запросом к браузеру (те же селекторы, что и у методов выше)
+    private static final String EXTRACT_ARTICLE_SCRIPT =
+            "var heading = document.getElementById('firstHeading');" +
+            "var cats = document.querySelectorAll('#catlinks ul li a');" +
+            "return {" +
+            "  name: window.name," +
+            "  url: location.href," +
+            "  title: heading ? heading.innerText.trim() : ''," +
+            "  images: document.querySelectorAll('.image img, .thumb img').length," +
+            "  externalLinks: document.querySelectorAll('a.external').length," +
+            "  hasInfobox: document.querySelector('.infobox') !== null," +
+            "  infoboxRows: document.querySelectorAll('.infobox tr').length," +
+            "  categories: Array.prototype.map.call(cats, function (a) { return a.innerText; })," +
+            "  revision: window.mw && mw.config ? mw.config.get('wgRevisionId') || 0 : 0" +
+            "};";
+
+    // Ссылки на статьи из текста: только основное пространство имён, без якорей и дубликатов
+    private static final String ARTICLE_LINKS_SCRIPT =
+            "var seen = {}, links = [];" +
+            "document.querySelectorAll('#mw-content-text a[href^=\"/wiki/\"]').forEach(function (a) {" +
+            "  var path = a.getAttribute('href').split('#')[0];" +
+            "  if (path.indexOf(':') < 0 && !seen[path]) { seen[path] = true; links.push(a.href.split('#')[0]); }" +
+            "});" +
+            "return links;";
+
     public WikipediaPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        this.pageWait = new InPageWait(driver, Duration.ofSeconds(10));
         this.actions = new Actions(driver);
     }
 
     public void openMainPage() {
         logger.info("Открываем главную страницу Википедии");
+        rememberHomeTab();
         driver.get(MAIN_PAGE_URL);
         waitForPageLoad();
         acceptCookiesIfPresent();
@@ -76,8 +119,8 @@ public class WikipediaPage {
 
     public boolean isMainPageLoaded() {
         try {
-            wait.until(ExpectedConditions.visibilityOfElementLocated(WIKI_LOGO));
-            wait.until(ExpectedConditions.visibilityOfElementLocated(PAGE_HEADING));
+            pageWait.visibilityOfElementLocated(WIKI_LOGO);
+            pageWait.visibilityOfElementLocated(PAGE_HEADING);
             return driver.getCurrentUrl().contains("Заглавная_страница");
         } catch (TimeoutException e) {
             logger.error("Главная страница не загрузилась: {}", e.getMessage());
@@ -90,7 +133,7 @@ public class WikipediaPage {
         logger.info("Выполняем поиск статьи: '{}'", query);
 
         try {
-            WebElement searchInput = wait.until(ExpectedConditions.elementToBeClickable(SEARCH_INPUT));
+            WebElement searchInput = pageWait.elementToBeClickable(SEARCH_INPUT);
             searchInput.clear();
             searchInput.sendKeys(query);
 
@@ -111,7 +154,7 @@ public class WikipediaPage {
 
     public SearchResult selectFirstSearchSuggestion() {
         try {
-            wait.until(ExpectedConditions.visibilityOfElementLocated(SEARCH_SUGGESTIONS));
+            pageWait.visibilityOfElementLocated(SEARCH_SUGGESTIONS);
             List<WebElement> suggestions = driver.findElements(SEARCH_SUGGESTIONS);
 
             if (!suggestions.isEmpty()) {
@@ -129,8 +172,7 @@ public class WikipediaPage {
 
     public boolean areSearchSuggestionsAvailable() {
         try {
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofSeconds(2));
-            return !shortWait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(SEARCH_SUGGESTIONS)).isEmpty();
+            return pageWait.presenceOfElementLocated(SEARCH_SUGGESTIONS, Duration.ofSeconds(2)) != null;
         } catch (TimeoutException e) {
             return false;
         }
@@ -139,10 +181,14 @@ public class WikipediaPage {
     // Рандом страница
     public void goToRandomPage() {
         logger.info("Переходим на случайную страницу");
+        rememberHomeTab();
         try {
             driver.get(RANDOM_PAGE_URL);
             waitForPageLoad();
-            logger.info("Открыта страница: {}", getPageTitle());
+            // getPageTitle() - отдельное ожидание и запрос к браузеру, не делаем его ради выключенного лога
+            if (logger.isInfoEnabled()) {
+                logger.info("Открыта страница: {}", getPageTitle());
+            }
         } catch (Exception e) {
             logger.error("Ошибка при переходе на случайную страницу: {}", e.getMessage());
             // Альтернативный способ через клик по ссылке
@@ -151,10 +197,51 @@ public class WikipediaPage {
         }
     }
 
+    // Сброс состояния между попытками теста без перезапуска браузера: лишние вкладки,
+    // куки и storage Википедии; false - сессия непригодна, нужен новый драйвер.
+    // С -Disolation=context тест живёт во вкладке своего контекста: закрытие вкладок вернуло бы
+    // его в общий контекст по умолчанию, поэтому контекст пересоздаётся целиком
+    public boolean softReset() {
+        try {
+            if (BrowserContextIsolation.isEnabled() && BrowserContextIsolation.resetContext(driver)) {
+                return true;
+            }
+            // порядок getWindowHandles() не гарантирован: первой может оказаться открытая тестом вкладка
+            Set<String> handles = driver.getWindowHandles();
+            String home = homeHandle != null ? homeHandle : driver.getWindowHandle();
+            if (!handles.contains(home)) {
+                logger.warn("Исходная вкладка {} закрыта, мягкий сброс невозможен", home);
+                return false;
+            }
+            for (String handle : handles) {
+                if (!handle.equals(home)) {
+                    driver.switchTo().window(handle);
+                    driver.close();
+                }
+            }
+            driver.switchTo().window(home);
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            driver.navigate().to("about:blank");
+            return true;
+        } catch (WebDriverException e) {
+            logger.warn("Мягкий сброс сессии не удался: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // запоминается при первой навигации: конструктор не обращается к браузеру
+    private void rememberHomeTab() {
+        if (homeHandle == null) {
+            homeHandle = driver.getWindowHandle();
+        }
+    }
+
     // заголовок текущей страницы
     public String getPageTitle() {
         try {
-            return wait.until(ExpectedConditions.visibilityOfElementLocated(PAGE_HEADING)).getText().trim();
+            return pageWait.visibilityOfElementLocated(PAGE_HEADING).getText().trim();
         } catch (Exception e) {
             logger.error("Не удалось получить заголовок страницы: {}", e.getMessage());
             return "";
@@ -163,8 +250,7 @@ public class WikipediaPage {
 
     public boolean hasInfobox() {
         try {
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofSeconds(3));
-            return !shortWait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(INFOBOX)).isEmpty();
+            return pageWait.presenceOfElementLocated(INFOBOX, Duration.ofSeconds(3)) != null;
         } catch (TimeoutException e) {
             return false;
         }
@@ -179,7 +265,7 @@ public class WikipediaPage {
 
     public boolean hasTableOfContents() {
         try {
-            return wait.until(ExpectedConditions.visibilityOfElementLocated(TABLE_OF_CONTENTS)).isDisplayed();
+            return pageWait.visibilityOfElementLocated(TABLE_OF_CONTENTS).isDisplayed();
         } catch (TimeoutException e) {
             return false;
         }
@@ -188,9 +274,9 @@ public class WikipediaPage {
     public void clickTocLink(String linkText) {
         try {
             By tocLink = By.xpath("//div[@id='toc']//a[contains(text(), '" + linkText + "')]");
-            WebElement link = wait.until(ExpectedConditions.elementToBeClickable(tocLink));
+            WebElement link = pageWait.elementToBeClickable(tocLink);
             link.click();
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.id("top")));
+            pageWait.presenceOfElementLocated(By.id("top"));
         } catch (Exception e) {
             logger.error("Не удалось найти ссылку в содержании: {}", linkText);
         }
@@ -212,7 +298,7 @@ public class WikipediaPage {
     private void switchTab(By tabLocator, String tabName) {
         try {
             logger.info("Переключаемся на вкладку: {}", tabName);
-            WebElement tab = wait.until(ExpectedConditions.elementToBeClickable(tabLocator));
+            WebElement tab = pageWait.elementToBeClickable(tabLocator);
             tab.click();
             waitForPageLoad();
         } catch (Exception e) {
@@ -224,10 +310,7 @@ public class WikipediaPage {
     // количество изображений в статье
     public int countImages() {
         try {
-            List<WebElement> images = wait.until(
-                    ExpectedConditions.presenceOfAllElementsLocatedBy(IMAGES)
-            );
-            return images.size();
+            return pageWait.presenceOfAllElementsLocatedBy(IMAGES).size();
         } catch (TimeoutException e) {
             return 0;
         }
@@ -322,6 +405,160 @@ public class WikipediaPage {
         }
     }
 
+    public static String getBaseUrl() {
+        return BASE_URL;
+    }
+
+    // URL статьи по заголовку
+    public static String articleUrl(String title) {
+        return BASE_URL + "/wiki/" + title.trim().replace(' ', '_');
+    }
+
+    /**
+     * Пакетное чтение статей: статьи открываются во вкладках пачками по maxTabs,
+     * грузятся одновременно, затем данные снимаются с каждой вкладки по очереди.
+     * Сеть и рендеринг перекрываются, поэтому K статей стоят примерно одной загрузки.
+     * Результат в порядке входного списка; текущая вкладка остаётся прежней.
+     */
+    public List<ArticleData> readArticlesInTabs(List<String> titles, int maxTabs) {
+        if (maxTabs < 1) {
+            throw new IllegalArgumentException("Число вкладок должно быть не меньше 1: " + maxTabs);
+        }
+        String originalHandle = driver.getWindowHandle();
+        List<ArticleData> results = new ArrayList<>();
+
+        for (int from = 0; from < titles.size(); from += maxTabs) {
+            List<String> batch = titles.subList(from, Math.min(titles.size(), from + maxTabs));
+            logger.info("Открываем {} статей во вкладках", batch.size());
+
+            Set<String> before = driver.getWindowHandles();
+            for (int i = 0; i < batch.size(); i++) {
+                // window.open не ждёт загрузки - все вкладки грузятся параллельно
+                ((JavascriptExecutor) driver).executeScript("window.open(arguments[0], arguments[1]);",
+                        articleUrl(batch.get(i)), ARTICLE_TAB_PREFIX + i);
+            }
+            Set<String> opened = new LinkedHashSet<>(driver.getWindowHandles());
+            opened.removeAll(before);
+
+            ArticleData[] batchResults = new ArticleData[batch.size()];
+            for (String handle : opened) {
+                try {
+                    driver.switchTo().window(handle);
+                    pageWait.documentComplete();
+                    ArticleData data = ArticleData.fromScript(
+                            ((JavascriptExecutor) driver).executeScript(EXTRACT_ARTICLE_SCRIPT));
+                    int index = data.tabIndex();
+                    if (index >= 0 && index < batchResults.length) {
+                        batchResults[index] = data;
+                    }
+                } catch (Exception e) {
+                    logger.warn("Не удалось прочитать статью во вкладке: {}", e.getMessage());
+                }
+                closeTab(handle);
+            }
+            driver.switchTo().window(originalHandle);
+
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(batchResults[i] != null
+                        ? batchResults[i]
+                        : ArticleData.failed(articleUrl(batch.get(i))));
+            }
+        }
+        return results;
+    }
+
+    // Шаги нагрузочного прогона: без паузы на "успокоение" и без перехвата ошибок, чтобы
+    // задержка шага и его неудача попадали в отчёт как есть. Поиск и вкладка истории открываются
+    // по тем же URL, что форма и ссылка: после клика тело старой страницы ещё на месте
+    public void loadMainPage() {
+        loadPage(MAIN_PAGE_URL);
+    }
+
+    public void loadSearchResults(String query) {
+        loadPage(BASE_URL + "/w/index.php?search=" + URLEncoder.encode(query, StandardCharsets.UTF_8));
+    }
+
+    public void loadRandomPage() {
+        loadPage(RANDOM_PAGE_URL);
+    }
+
+    public void loadHistoryTab() {
+        loadPage(pageWait.presenceOfElementLocated(HISTORY_TAB).findElement(By.tagName("a")).getAttribute("href"));
+    }
+
+    private void loadPage(String url) {
+        rememberHomeTab();
+        driver.get(url);
+        awaitPageLoaded();
+    }
+
+    private void awaitPageLoaded() {
+        pageWait.presenceOfElementLocated(BODY_CONTENT);
+        pageWait.documentComplete();
+    }
+
+    // Переход по URL статьи без паузы на "успокоение" страницы - для обхода большого числа статей
+    public void openArticle(String url) {
+        rememberHomeTab();
+        driver.get(url);
+        pageWait.documentComplete();
+    }
+
+    // данные открытой статьи одним запросом к браузеру
+    public ArticleData readCurrentArticle() {
+        return ArticleData.fromScript(((JavascriptExecutor) driver).executeScript(EXTRACT_ARTICLE_SCRIPT));
+    }
+
+    // абсолютные URL статей, на которые ссылается текст открытой страницы
+    @SuppressWarnings("unchecked")
+    public List<String> getArticleLinks() {
+        Object links = ((JavascriptExecutor) driver).executeScript(ARTICLE_LINKS_SCRIPT);
+        List<String> result = new ArrayList<>();
+        if (links instanceof List) {
+            for (Object link : (List<Object>) links) {
+                result.add(String.valueOf(link));
+            }
+        }
+        return result;
+    }
+
+    // URL текущей страницы (после редиректа Special:Random - адрес статьи)
+    public String getCurrentUrl() {
+        return driver.getCurrentUrl();
+    }
+
+    private void closeTab(String handle) {
+        try {
+            if (driver.getWindowHandles().contains(handle)) {
+                driver.switchTo().window(handle);
+                driver.close();
+            }
+        } catch (Exception e) {
+            logger.warn("Не удалось закрыть вкладку: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Все результаты поиска лениво, страницами по pageSize: страница читается одним
+     * скриптом, следующая в это время грузится в фоновой вкладке. Стрим нужно закрыть
+     * (try-with-resources), чтобы убрать недочитанную вкладку при раннем выходе.
+     */
+    public Stream<SearchHit> searchResults(String query, int pageSize) {
+        return toStream(new SearchResultPager(
+                new SearchResultPager.TabPageLoader(driver, BASE_URL, query, pageSize)));
+    }
+
+    // То же без браузера: страницы результатов запрашиваются по HTTP, следующая - асинхронно
+    public static Stream<SearchHit> searchResultsOverHttp(String query, int pageSize) {
+        return toStream(new SearchResultPager(
+                new SearchResultPager.HttpPageLoader(BASE_URL, query, pageSize)));
+    }
+
+    static Stream<SearchHit> toStream(SearchResultPager pager) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pager,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(pager::close);
+    }
+
     // скриншот страницы
     public byte[] takeScreenshot() {
         return ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
@@ -329,7 +566,7 @@ public class WikipediaPage {
 
     public boolean isSearchInputAvailable() {
         try {
-            WebElement searchInput = wait.until(ExpectedConditions.visibilityOfElementLocated(SEARCH_INPUT));
+            WebElement searchInput = pageWait.visibilityOfElementLocated(SEARCH_INPUT);
             return searchInput.isDisplayed() && searchInput.isEnabled();
         } catch (Exception e) {
             return false;
@@ -337,15 +574,22 @@ public class WikipediaPage {
     }
 
     private void waitForPageLoad() {
+        long start = System.nanoTime();
         try {
-            wait.until(ExpectedConditions.presenceOfElementLocated(BODY_CONTENT));
-            wait.until(webDriver ->
-                    ((JavascriptExecutor) webDriver).executeScript("return document.readyState").equals("complete")
-            );
-            waitForPageSettle(1000);
+            awaitPageLoaded();
         } catch (TimeoutException e) {
+            SuiteMetrics.waitTimeouts("web", "page_load").inc();
             logger.warn("Страница загрузилась не полностью: {}", e.getMessage());
+            return;
+        } finally {
+            // таймауты - самый медленный хвост и самый сильный сигнал перегрузки, учитываются наравне
+            SuiteMetrics.waitSeconds("web", "page_load").observeSince(start);
+            if (ConcurrencyController.isEnabled()) {
+                ConcurrencyController.getInstance()
+                        .recordPageLoad(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
         }
+        waitForPageSettle(1000);
     }
 
     private void waitForPageSettle(long millis) {
@@ -360,8 +604,7 @@ public class WikipediaPage {
     private void acceptCookiesIfPresent() {
         try {
             By cookieBanner = By.cssSelector(".mw-cookiewarning-container, .cookie-banner");
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofSeconds(2));
-            WebElement banner = shortWait.until(ExpectedConditions.visibilityOfElementLocated(cookieBanner));
+            WebElement banner = pageWait.visibilityOfElementLocated(cookieBanner, Duration.ofSeconds(2));
 
             if (banner.isDisplayed()) {
                 WebElement acceptButton = banner.findElement(By.tagName("button"));
@@ -373,6 +616,154 @@ public class WikipediaPage {
         }
     }
 
+    // данные статьи, прочитанной во вкладке
+    public static class ArticleData {
+        private final String tabName;
+        private final String url;
+        private final String title;
+        private final int imageCount;
+        private final int externalLinksCount;
+        private final boolean infobox;
+        private final int infoboxRows;
+        private final List<String> categories;
+        private final long revisionId;
+
+        public ArticleData(String tabName, String url, String title, int imageCount,
+                           int externalLinksCount, boolean infobox, int infoboxRows, List<String> categories) {
+            this(tabName, url, title, imageCount, externalLinksCount, infobox, infoboxRows, categories, 0);
+        }
+
+        public ArticleData(String tabName, String url, String title, int imageCount, int externalLinksCount,
+                           boolean infobox, int infoboxRows, List<String> categories, long revisionId) {
+            this.tabName = tabName;
+            this.url = url;
+            this.title = title;
+            this.imageCount = imageCount;
+            this.externalLinksCount = externalLinksCount;
+            this.infobox = infobox;
+            this.infoboxRows = infoboxRows;
+            this.categories = categories;
+            this.revisionId = revisionId;
+        }
+
+        @SuppressWarnings("unchecked")
+        static ArticleData fromScript(Object scriptResult) {
+            Map<String, Object> map = (Map<String, Object>) scriptResult;
+            List<String> categories = new ArrayList<>();
+            for (Object category : (List<Object>) map.get("categories")) {
+                categories.add(String.valueOf(category));
+            }
+            return new ArticleData(
+                    (String) map.get("name"),
+                    (String) map.get("url"),
+                    (String) map.get("title"),
+                    ((Number) map.get("images")).intValue(),
+                    ((Number) map.get("externalLinks")).intValue(),
+                    Boolean.TRUE.equals(map.get("hasInfobox")),
+                    map.get("infoboxRows") instanceof Number ? ((Number) map.get("infoboxRows")).intValue() : 0,
+                    categories,
+                    map.get("revision") instanceof Number ? ((Number) map.get("revision")).longValue() : 0);
+        }
+
+        static ArticleData failed(String url) {
+            return new ArticleData("", url, "", 0, 0, false, 0, new ArrayList<>());
+        }
+
+        int tabIndex() {
+            if (tabName == null || !tabName.startsWith(ARTICLE_TAB_PREFIX)) {
+                return -1;
+            }
+            return Integer.parseInt(tabName.substring(ARTICLE_TAB_PREFIX.length()));
+        }
+
+        public boolean isLoaded() {
+            return !title.isEmpty();
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public int getImageCount() {
+            return imageCount;
+        }
+
+        public int getExternalLinksCount() {
+            return externalLinksCount;
+        }
+
+        public boolean hasInfobox() {
+            return infobox;
+        }
+
+        public int getInfoboxRows() {
+            return infoboxRows;
+        }
+
+        public List<String> getCategories() {
+            return categories;
+        }
+
+        // id ревизии (wgRevisionId), 0 - неизвестна
+        public long getRevisionId() {
+            return revisionId;
+        }
+
+        @Override
+        public String toString() {
+            return "ArticleData{" +
+                    "title='" + title + '\'' +
+                    ", images=" + imageCount +
+                    ", externalLinks=" + externalLinksCount +
+                    ", infobox=" + infobox +
+                    ", categories=" + categories.size() +
+                    '}';
+        }
+    }
+
+    // один результат поиска: позиция в общей выдаче, заголовок, URL и фрагмент текста
+    public static class SearchHit {
+        private final int position;
+        private final String title;
+        private final String url;
+        private final String snippet;
+
+        public SearchHit(int position, String title, String url, String snippet) {
+            this.position = position;
+            this.title = title;
+            this.url = url;
+            this.snippet = snippet;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getSnippet() {
+            return snippet;
+        }
+
+        @Override
+        public String toString() {
+            return "SearchHit{" +
+                    "position=" + position +
+                    ", title='" + title + '\'' +
+                    '}';
+        }
+    }
+
     // результаты поиска
     public static class SearchResult {
         private final int resultsCount;
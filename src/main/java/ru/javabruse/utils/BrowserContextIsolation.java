@@ -0,0 +1,247 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.wire.WireTraffic;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Изоляция тестов контекстами браузера вместо отдельных процессов Chrome.
+ * На каждый рабочий поток один долгоживущий Chromium; каждый тест получает новый
+ * incognito-подобный контекст (DevTools Target.createBrowserContext) со своими
+ * cookies и storage и работает во вкладке этого контекста. При закрытии теста
+ * контекст уничтожается, процесс браузера остаётся для следующего теста.
+ * Объект драйвера у всех тестов потока один и тот же, поэтому учёт, привязанный
+ * к драйверу, на границе теста переключается явно: ResourceSampler и WireTraffic
+ * начинают новый тест в openContext и закрывают его в WebDriverFactory.quitDriver.
+ * Остальные ключи по драйверу (открытые сессии, слоты ConcurrencyController)
+ * видят один объект на поток - это верно, пока поток ведёт один тест за раз.
+ * Включается через -Disolation=context, работает только для Chromium-браузеров.
+ */
+public final class BrowserContextIsolation {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrowserContextIsolation.class);
+
+    private static final boolean ENABLED = "context".equalsIgnoreCase(System.getProperty("isolation", "process"));
+
+    private static final ThreadLocal<WorkerBrowser> workerBrowser = new ThreadLocal<>();
+    private static final Set<WorkerBrowser> allBrowsers = ConcurrentHashMap.newKeySet();
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(BrowserContextIsolation::quitAll, "browser-context-shutdown"));
+        }
+    }
+
+    private BrowserContextIsolation() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Новый контекст в браузере текущего потока; браузер создаётся при первом обращении
+    public static ChromiumDriver openContext(Supplier<? extends ChromiumDriver> browserFactory) {
+        WorkerBrowser worker = workerBrowser.get();
+        if (worker != null && worker.isAlive()) {
+            // следующий тест в том же браузере: учёт по драйверу переходит к нему
+            ResourceSampler.beginTest(worker.driver);
+            WireTraffic.beginTest(worker.driver);
+        } else {
+            if (worker != null) {
+                release(worker);
+            }
+            worker = new WorkerBrowser(browserFactory.get());
+            // команды создания браузера попадут в запись каждого теста этого браузера
+            WireTraffic.markPrologue(worker.driver);
+            workerBrowser.set(worker);
+            allBrowsers.add(worker);
+        }
+        worker.openContext();
+        return worker.driver;
+    }
+
+    // true - драйвер из общего браузера, закрывать нужно контекст, а не сессию
+    public static boolean isShared(WebDriver driver) {
+        return find(driver) != null;
+    }
+
+    // true - драйвер общий, закрыт только контекст теста; false - обычный драйвер
+    public static boolean closeContext(WebDriver driver) {
+        WorkerBrowser worker = find(driver);
+        if (worker == null) {
+            return false;
+        }
+        worker.closeContext();
+        return true;
+    }
+
+    // Свежий контекст вместо текущего в том же браузере (сброс сессии между попытками теста);
+    // false - драйвер не из общего браузера
+    public static boolean resetContext(WebDriver driver) {
+        WorkerBrowser worker = find(driver);
+        if (worker == null) {
+            return false;
+        }
+        worker.openContext();
+        return true;
+    }
+
+    // Закрыть браузер текущего потока (по завершении прогона это делает shutdown hook)
+    public static void quitWorkerBrowser() {
+        WorkerBrowser worker = workerBrowser.get();
+        workerBrowser.remove();
+        if (worker != null) {
+            quit(worker);
+        }
+    }
+
+    private static WorkerBrowser find(WebDriver driver) {
+        for (WorkerBrowser worker : allBrowsers) {
+            if (worker.driver == driver) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    private static void quitAll() {
+        allBrowsers.forEach(BrowserContextIsolation::quit);
+    }
+
+    private static void quit(WorkerBrowser worker) {
+        release(worker);
+        try {
+            worker.driver.quit();
+        } catch (Exception e) {
+            logger.debug("Ошибка при закрытии общего браузера: {}", e.getMessage());
+        }
+    }
+
+    // учёт по драйверу больше не нужен: браузер закрыт или умер
+    private static void release(WorkerBrowser worker) {
+        allBrowsers.remove(worker);
+        ResourceSampler.untrack(worker.driver);
+        WireTraffic.finish(worker.driver);
+    }
+
+    // Долгоживущий браузер одного рабочего потока
+    private static final class WorkerBrowser {
+        private final ChromiumDriver driver;
+        private final String baseHandle;
+        private String contextId;
+        private String contextHandle;
+
+        WorkerBrowser(ChromiumDriver driver) {
+            this.driver = driver;
+            this.baseHandle = driver.getWindowHandle();
+        }
+
+        boolean isAlive() {
+            try {
+                driver.getWindowHandles();
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        void openContext() {
+            if (contextHandle != null) {
+                closeContext();
+            }
+            try {
+                Map<String, Object> params = new HashMap<>();
+                params.put("disposeOnDetach", false);
+                contextId = (String) driver.executeCdpCommand("Target.createBrowserContext", params)
+                        .get("browserContextId");
+
+                Map<String, Object> target = new HashMap<>();
+                target.put("url", "about:blank");
+                target.put("browserContextId", contextId);
+                // id цели DevTools совпадает с window handle в chromedriver
+                contextHandle = (String) driver.executeCdpCommand("Target.createTarget", target).get("targetId");
+                driver.switchTo().window(contextHandle);
+                logger.debug("Открыт контекст браузера {}", contextId);
+            } catch (Exception e) {
+                // без доступа к Target.* - новая вкладка в общем контексте, данные прошлого теста
+                // очищены в closeContext; cookies и кэш чистим целиком
+                logger.warn("Target.createBrowserContext недоступен ({}), очищаем данные сайтов", e.getMessage());
+                contextId = null;
+                contextHandle = driver.switchTo().newWindow(WindowType.TAB).getWindowHandle();
+                driver.executeCdpCommand("Network.clearBrowserCookies", new HashMap<>());
+                driver.executeCdpCommand("Network.clearBrowserCache", new HashMap<>());
+            }
+            try {
+                driver.manage().window().maximize();
+            } catch (Exception e) {
+                logger.debug("Не удалось развернуть окно контекста: {}", e.getMessage());
+            }
+        }
+
+        void closeContext() {
+            try {
+                if (contextId != null) {
+                    Map<String, Object> params = new HashMap<>();
+                    params.put("browserContextId", contextId);
+                    // закрывает все вкладки контекста вместе с его cookies и storage
+                    driver.executeCdpCommand("Target.disposeBrowserContext", params);
+                } else if (contextHandle != null) {
+                    closeTabsAndClearOrigins();
+                }
+            } catch (Exception e) {
+                logger.warn("Ошибка при закрытии контекста браузера: {}", e.getMessage());
+            } finally {
+                contextId = null;
+                contextHandle = null;
+            }
+            driver.switchTo().window(baseHandle);
+        }
+
+        // Общий контекст: закрываем вкладки теста и стираем данные их сайтов
+        // (localStorage, IndexedDB, service worker'ы, кэш) - сайтов, открытых в момент закрытия
+        private void closeTabsAndClearOrigins() {
+            Set<String> origins = new LinkedHashSet<>();
+            for (String handle : driver.getWindowHandles()) {
+                if (handle.equals(baseHandle)) {
+                    continue;
+                }
+                driver.switchTo().window(handle);
+                String origin = originOf(driver.getCurrentUrl());
+                if (origin != null) {
+                    origins.add(origin);
+                }
+                driver.close();
+            }
+            for (String origin : origins) {
+                Map<String, Object> params = new HashMap<>();
+                params.put("origin", origin);
+                params.put("storageTypes", "all");
+                driver.executeCdpCommand("Storage.clearDataForOrigin", params);
+            }
+        }
+    }
+
+    // scheme://host[:port] для http(s), иначе null (about:blank, data:)
+    static String originOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null || !uri.getScheme().startsWith("http")) {
+                return null;
+            }
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() < 0 ? "" : ":" + uri.getPort());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
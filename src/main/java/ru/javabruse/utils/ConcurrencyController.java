@@ -0,0 +1,216 @@
+package ru.javabruse.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.metrics.Histogram;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Адаптивный лимит одновременно живых браузерных сессий.
+ * Стартует с небольшого лимита и раз в окно наблюдения сравнивает пропускную способность
+ * (завершённых сессий в минуту) с предыдущим окном: пока она растёт, а нагрузка на систему,
+ * свободная память и время загрузки страниц в норме, лимит увеличивается на 1.
+ * При выходе за любую из границ лимит уменьшается вдвое (AIMD).
+ * Включается через -Dconcurrency.adaptive=true.
+ */
+public final class ConcurrencyController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyController.class);
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("concurrency.adaptive", "false"));
+
+    // рост пропускной способности меньше этого порога считаем шумом
+    static final double MIN_THROUGHPUT_GAIN = 0.05;
+
+    private static final ConcurrencyController INSTANCE = new ConcurrencyController(
+            Integer.getInteger("concurrency.initial", 2),
+            Integer.getInteger("concurrency.min", 1),
+            Integer.getInteger("concurrency.max", Runtime.getRuntime().availableProcessors()),
+            Long.getLong("concurrency.window.seconds", 60),
+            Double.parseDouble(System.getProperty("concurrency.max.load", "1.0")),
+            Long.getLong("concurrency.min.free.mb", 1024),
+            Long.getLong("concurrency.max.pageload.ms", 5000));
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final double maxLoadPerCpu;
+    private final long minFreeMemoryMb;
+    private final long maxPageLoadMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    // загрузки страниц за текущее окно
+    private Histogram pageLoads = new Histogram();
+    private int limit;
+    private int live;
+    private int completedInWindow;
+    private long windowStart = System.nanoTime();
+    private double previousThroughput;
+
+    ConcurrencyController(int initialLimit, int minLimit, int maxLimit, long windowSeconds,
+                          double maxLoadPerCpu, long minFreeMemoryMb, long maxPageLoadMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.maxLoadPerCpu = maxLoadPerCpu;
+        this.minFreeMemoryMb = minFreeMemoryMb;
+        this.maxPageLoadMillis = maxPageLoadMillis;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static ConcurrencyController getInstance() {
+        return INSTANCE;
+    }
+
+    // Ждёт свободный слот под новую сессию
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (live >= limit) {
+                slotFreed.await();
+            }
+            live++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Сессия закрыта; completed=false - сессия не отработала (ошибка создания)
+    public void release(boolean completed) {
+        lock.lock();
+        try {
+            live = Math.max(0, live - 1);
+            if (completed) {
+                completedInWindow++;
+            }
+            long now = System.nanoTime();
+            if (now - windowStart >= windowNanos && completedInWindow > 0) {
+                evaluate(now);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Время загрузки страницы - один из сигналов перегрузки
+    public void recordPageLoad(long millis) {
+        lock.lock();
+        try {
+            pageLoads.observe(millis / 1000.0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evaluate(long now) {
+        double minutes = (now - windowStart) / (double) TimeUnit.MINUTES.toNanos(1);
+        double throughput = completedInWindow / minutes;
+        double loadPerCpu = systemLoadPerCpu();
+        long freeMb = freeMemoryMb();
+        long p90PageLoad = pageLoadPercentile(0.9);
+
+        boolean overloaded = (loadPerCpu >= 0 && loadPerCpu > maxLoadPerCpu)
+                || (freeMb >= 0 && freeMb < minFreeMemoryMb)
+                || p90PageLoad > maxPageLoadMillis;
+
+        int next = nextLimit(limit, throughput, previousThroughput, overloaded, minLimit, maxLimit);
+        logger.info("Параллельность: {} -> {} (тестов/мин {}, load/cpu {}, свободно {} МБ, p90 загрузки {} мс)",
+                limit, next, String.format("%.1f", throughput), String.format("%.2f", loadPerCpu),
+                freeMb, p90PageLoad);
+
+        limit = next;
+        previousThroughput = throughput;
+        completedInWindow = 0;
+        pageLoads = new Histogram();
+        windowStart = now;
+    }
+
+    // AIMD: +1 пока растёт пропускная способность, /2 при перегрузке, иначе держим
+    static int nextLimit(int current, double throughput, double previousThroughput,
+                         boolean overloaded, int minLimit, int maxLimit) {
+        if (overloaded) {
+            return Math.max(minLimit, current / 2);
+        }
+        if (previousThroughput <= 0 || throughput > previousThroughput * (1 + MIN_THROUGHPUT_GAIN)) {
+            return Math.min(maxLimit, current + 1);
+        }
+        return current;
+    }
+
+    // квантиль времени загрузки за текущее окно, мс
+    long pageLoadPercentile(double quantile) {
+        lock.lock();
+        try {
+            return Math.round(pageLoads.percentileMillis(quantile));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // -1, если ОС не отдаёт load average (Windows)
+    private static double systemLoadPerCpu() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage();
+        return load < 0 ? -1 : load / os.getAvailableProcessors();
+    }
+
+    // MemAvailable учитывает освобождаемый кэш, в отличие от MemFree
+    private static long freeMemoryMb() {
+        Path meminfo = Paths.get("/proc/meminfo");
+        try (Stream<String> lines = Files.lines(meminfo)) {
+            return lines.filter(line -> line.startsWith("MemAvailable:"))
+                    .map(line -> line.replaceAll("[^0-9]", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1024L) / 1024;
+        } catch (IOException | RuntimeException e) {
+            return freeMemoryFromMxBean();
+        }
+    }
+
+    // Без /proc: getFreeMemorySize появился в JDK 14, на JDK 11 есть только устаревший
+    // getFreePhysicalMemorySize, поэтому метод ищется по имени
+    private static long freeMemoryFromMxBean() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (!(os instanceof com.sun.management.OperatingSystemMXBean)) {
+            return -1;
+        }
+        for (String name : new String[]{"getFreeMemorySize", "getFreePhysicalMemorySize"}) {
+            try {
+                Method method = com.sun.management.OperatingSystemMXBean.class.getMethod(name);
+                return ((Number) method.invoke(os)).longValue() / (1024 * 1024);
+            } catch (ReflectiveOperationException ignored) {
+                // следующий вариант
+            }
+        }
+        return -1;
+    }
+}
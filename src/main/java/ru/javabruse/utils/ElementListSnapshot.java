@@ -0,0 +1,70 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Снимок списка элементов для одного состояния экрана.
+ * Поле-список PageFactory - прокси: каждый isEmpty()/size()/get(i)/итерация делает новый
+ * findElements по всей иерархии. Снимок разрешает список один раз и отдаёт его, пока
+ * страница не вызовет invalidate() (после клика, ввода, навигации). В ожиданиях
+ * используется refresh(): один findElements на опрос вместо нескольких.
+ * Считает выполненные поиски и обращения, которые иначе были бы поисками.
+ */
+public class ElementListSnapshot {
+
+    private final Supplier<List<WebElement>> lookup;
+    private List<WebElement> elements;
+    private int lookups;
+    private int reads;
+
+    // lookup - поле-прокси PageFactory: копирование в ArrayList делает ровно один findElements
+    public ElementListSnapshot(Supplier<List<WebElement>> lookup) {
+        this.lookup = lookup;
+    }
+
+    // текущий снимок; если он сброшен - новый поиск
+    public List<WebElement> get() {
+        reads++;
+        if (elements == null) {
+            lookups++;
+            elements = Collections.unmodifiableList(new ArrayList<>(lookup.get()));
+        }
+        return elements;
+    }
+
+    // новый поиск, например на каждом опросе ожидания
+    public List<WebElement> refresh() {
+        invalidate();
+        return get();
+    }
+
+    public void invalidate() {
+        elements = null;
+    }
+
+    public int size() {
+        return get().size();
+    }
+
+    public boolean isEmpty() {
+        return get().isEmpty();
+    }
+
+    public WebElement get(int index) {
+        return get().get(index);
+    }
+
+    public int getLookups() {
+        return lookups;
+    }
+
+    // обращения, обслуженные без findElements
+    public int getSavedLookups() {
+        return reads - lookups;
+    }
+}
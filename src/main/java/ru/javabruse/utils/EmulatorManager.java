@@ -0,0 +1,264 @@
+package ru.javabruse.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Жизненный цикл Android-эмулятора для мобильного набора.
+ * AVD поднимается в фоне из quick-boot снапшота ещё до первого теста и живёт весь прогон,
+ * поэтому холодная загрузка не попадает в setup первого теста.
+ * Если устройство "испачкано" (упавший тест), перед следующей сессией снапшот
+ * восстанавливается командой консоли эмулятора вместо полного сброса.
+ * Включается через -Demulator.manage=true, время загрузки и восстановления пишется
+ * в target/emulator-timings.csv.
+ */
+public final class EmulatorManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmulatorManager.class);
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("emulator.manage", "false"));
+    private static final Path TIMINGS_PATH = Paths.get("target/emulator-timings.csv");
+
+    private static final EmulatorManager INSTANCE = new EmulatorManager(
+            System.getProperty("avd.name", System.getenv().getOrDefault("ANDROID_AVD_NAME", "")),
+            System.getProperty("emulator.snapshot", "default_boot"),
+            Integer.getInteger("emulator.port", 5554),
+            Boolean.parseBoolean(System.getProperty("avd.headless", "false")),
+            Long.getLong("emulator.boot.timeout.seconds", 180),
+            EmulatorManager::runAdb);
+
+    private final String avdName;
+    private final String snapshotName;
+    private final String serial;
+    private final int port;
+    private final boolean headless;
+    private final long bootTimeoutSeconds;
+    // аргументы adb -> вывод; в тестах подменяется без устройства
+    private final Function<List<String>, String> adb;
+
+    private CompletableFuture<String> ready;
+    private Process emulatorProcess;
+    private volatile boolean dirty;
+
+    EmulatorManager(String avdName, String snapshotName, int port, boolean headless,
+                    long bootTimeoutSeconds, Function<List<String>, String> adb) {
+        this.avdName = avdName;
+        this.snapshotName = snapshotName;
+        this.port = port;
+        this.serial = "emulator-" + port;
+        this.headless = headless;
+        this.bootTimeoutSeconds = bootTimeoutSeconds;
+        this.adb = adb;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static EmulatorManager getInstance() {
+        return INSTANCE;
+    }
+
+    // Запуск загрузки в фоне; повторные вызовы ничего не делают
+    public synchronized void prelaunch() {
+        if (ready != null) {
+            return;
+        }
+        ready = CompletableFuture.supplyAsync(this::bootIfNeeded);
+    }
+
+    // UDID готового устройства; при необходимости сначала восстанавливает снапшот
+    public String awaitReady() {
+        prelaunch();
+        try {
+            ready.get(bootTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Прервано ожидание эмулятора " + serial, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("Эмулятор " + serial + " не загрузился", e);
+        }
+
+        if (dirty) {
+            restoreSnapshot();
+        }
+        return serial;
+    }
+
+    // Пометить устройство как испачканное - перед следующей сессией будет откат к снапшоту
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public synchronized void restoreSnapshot() {
+        long start = System.nanoTime();
+        logger.info("Восстанавливаем снапшот '{}' на {}", snapshotName, serial);
+        String output = adb("-s", serial, "emu", "avd", "snapshot", "load", snapshotName);
+        if (!isConsoleOk(output)) {
+            throw new RuntimeException("Не удалось восстановить снапшот " + snapshotName + ": " + output.trim());
+        }
+        waitForBootCompleted();
+        dirty = false;
+        recordTiming("restore", start);
+    }
+
+    private String bootIfNeeded() {
+        if (isDeviceOnline()) {
+            logger.info("Эмулятор {} уже запущен, используем его", serial);
+            return serial;
+        }
+        if (avdName.isEmpty()) {
+            throw new IllegalStateException("Не задано имя AVD (-Davd.name или ANDROID_AVD_NAME)");
+        }
+
+        long start = System.nanoTime();
+        List<String> command = new ArrayList<>(Arrays.asList(
+                sdkTool("emulator", "emulator"),
+                "-avd", avdName,
+                "-port", Integer.toString(port),
+                "-snapshot", snapshotName,
+                "-no-snapshot-save",
+                "-no-boot-anim"));
+        if (headless) {
+            command.add("-no-window");
+            command.add("-no-audio");
+        }
+
+        logger.info("Запускаем AVD {} из снапшота '{}'", avdName, snapshotName);
+        try {
+            File log = Paths.get("target", "logs", "emulator.log").toFile();
+            log.getParentFile().mkdirs();
+            emulatorProcess = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log)
+                    .start();
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось запустить эмулятор", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "emulator-shutdown"));
+
+        adb("-s", serial, "wait-for-device");
+        waitForBootCompleted();
+        recordTiming("boot", start);
+        return serial;
+    }
+
+    void waitForBootCompleted() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(bootTimeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (isBootCompleted(adb("-s", serial, "shell", "getprop", "sys.boot_completed"))) {
+                return;
+            }
+            if (emulatorProcess != null && !emulatorProcess.isAlive()) {
+                throw new IllegalStateException("Процесс эмулятора завершился во время загрузки");
+            }
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Прервано ожидание загрузки эмулятора", e);
+            }
+        }
+        throw new RuntimeException("Эмулятор " + serial + " не загрузился за " + bootTimeoutSeconds + " с");
+    }
+
+    boolean isDeviceOnline() {
+        return isDeviceOnline(adb("devices"), serial);
+    }
+
+    // строки "adb devices": "<serial>\t<состояние>"; offline и unauthorized не подходят
+    static boolean isDeviceOnline(String devicesOutput, String serial) {
+        return devicesOutput.lines()
+                .map(line -> line.trim().split("\\s+"))
+                .anyMatch(fields -> fields.length >= 2 && fields[0].equals(serial) && fields[1].equals("device"));
+    }
+
+    // getprop sys.boot_completed: "1" после загрузки, пусто до неё
+    static boolean isBootCompleted(String getpropOutput) {
+        return "1".equals(getpropOutput.trim());
+    }
+
+    // консоль эмулятора завершает успешную команду строкой OK, ошибку - "KO: ..."
+    static boolean isConsoleOk(String output) {
+        return output.lines().map(String::trim).anyMatch("OK"::equals);
+    }
+
+    // Эмулятор, запущенный нами, гасим при завершении JVM (если не просили оставить)
+    private void shutdown() {
+        if (emulatorProcess == null || Boolean.parseBoolean(System.getProperty("emulator.keep", "false"))) {
+            return;
+        }
+        adb("-s", serial, "emu", "kill");
+        emulatorProcess.destroy();
+    }
+
+    private String adb(String... args) {
+        return adb.apply(Arrays.asList(args));
+    }
+
+    private static String runAdb(List<String> args) {
+        List<String> command = new ArrayList<>();
+        command.add(sdkTool("platform-tools", "adb"));
+        command.addAll(args);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            process.waitFor();
+            return output;
+        } catch (IOException e) {
+            logger.debug("adb {} завершился с ошибкой: {}", args, e.getMessage());
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+
+    // Путь к утилите SDK: $ANDROID_SDK_ROOT / $ANDROID_HOME, иначе из PATH
+    private static String sdkTool(String dir, String name) {
+        String sdk = System.getenv().getOrDefault("ANDROID_SDK_ROOT", System.getenv("ANDROID_HOME"));
+        if (sdk != null) {
+            File tool = Paths.get(sdk, dir, name).toFile();
+            if (tool.canExecute()) {
+                return tool.getAbsolutePath();
+            }
+        }
+        return name;
+    }
+
+    private void recordTiming(String event, long startNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        logger.info("Эмулятор {}: {} за {} мс", serial, event, millis);
+        try {
+            Files.createDirectories(TIMINGS_PATH.getParent());
+            boolean newFile = Files.notExists(TIMINGS_PATH);
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(TIMINGS_PATH, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (newFile) {
+                    writer.println("event,avd,snapshot,millis");
+                }
+                writer.println(event + "," + avdName + "," + snapshotName + "," + millis);
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось записать время эмулятора: {}", e.getMessage());
+        }
+    }
+}
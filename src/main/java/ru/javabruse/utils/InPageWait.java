@@ -0,0 +1,285 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.metrics.SuiteMetrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ожидание элементов внутри страницы.
+ * Вместо опроса из JVM каждые 500 мс в страницу ставится MutationObserver, и один
+ * вызов executeAsyncScript возвращает элемент сразу, как только условие выполнилось.
+ * Семантика как у ExpectedConditions: presence / visibility / clickable (видим и enabled),
+ * presenceOfAll; готовность документа ждётся по событию load, а не опросом readyState;
+ * по истечении таймаута - TimeoutException с фактически прошедшим временем.
+ * Драйвер обрывает асинхронный скрипт по своему script timeout (15 с в WebDriverFactory),
+ * поэтому ожидание длиннее делится на несколько вызовов скрипта, каждый короче этого таймаута.
+ * Локаторы, которые нельзя вычислить в странице, и ошибки скрипта (например, переход
+ * на другую страницу во время ожидания) обрабатываются обычным WebDriverWait на оставшееся время.
+ * Отключается через -Dwait.inpage=false.
+ */
+public class InPageWait {
+
+    private static final Logger logger = LoggerFactory.getLogger(InPageWait.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("wait.inpage", "true"));
+
+    // запасной опрос внутри страницы: изменения стилей без мутаций DOM observer не видит
+    private static final long IN_PAGE_POLL_MS = 100;
+
+    private static final String WAIT_SCRIPT =
+            "var using = arguments[0], value = arguments[1], condition = arguments[2], timeout = arguments[3];" +
+            "var done = arguments[arguments.length - 1];" +
+            "function findAll() {" +
+            "  if (using === 'xpath') {" +
+            "    var snapshot = document.evaluate(value, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);" +
+            "    var nodes = [];" +
+            "    for (var i = 0; i < snapshot.snapshotLength; i++) { nodes.push(snapshot.snapshotItem(i)); }" +
+            "    return nodes;" +
+            "  }" +
+            "  if (using === 'tag name') { return Array.prototype.slice.call(document.getElementsByTagName(value)); }" +
+            "  return Array.prototype.slice.call(document.querySelectorAll(value));" +
+            "}" +
+            "function find() {" +
+            "  if (using === 'xpath') {" +
+            "    return document.evaluate(value, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null)" +
+            "        .singleNodeValue;" +
+            "  }" +
+            "  if (using === 'tag name') { return document.getElementsByTagName(value)[0] || null; }" +
+            "  return document.querySelector(value);" +
+            "}" +
+            "function visible(el) {" +
+            "  var style = window.getComputedStyle(el);" +
+            "  return style.visibility !== 'hidden' && style.display !== 'none' && style.opacity !== '0'" +
+            "      && el.getClientRects().length > 0 && (el.offsetWidth > 0 || el.offsetHeight > 0);" +
+            "}" +
+            "function check() {" +
+            "  if (condition === 'presence_all') { var all = findAll(); return all.length ? all : null; }" +
+            "  var el = find();" +
+            "  if (!el) { return null; }" +
+            "  if (condition === 'presence') { return el; }" +
+            "  if (!visible(el)) { return null; }" +
+            "  if (condition === 'clickable' && el.disabled) { return null; }" +
+            "  return el;" +
+            "}" +
+            "var found = check();" +
+            "if (found) { done(found); return; }" +
+            "var finished = false, observer, timer, poll;" +
+            "function finish(el) {" +
+            "  if (finished) { return; }" +
+            "  finished = true; observer.disconnect(); clearTimeout(timer); clearInterval(poll); done(el);" +
+            "}" +
+            "function recheck() { var el = check(); if (el) { finish(el); } }" +
+            "observer = new MutationObserver(recheck);" +
+            "observer.observe(document.documentElement || document," +
+            "    {childList: true, subtree: true, attributes: true});" +
+            "poll = setInterval(recheck, arguments[4]);" +
+            "timer = setTimeout(function () { finish(null); }, timeout);";
+
+    // readyState меняется без мутаций DOM, поэтому ждём событие load
+    private static final String DOCUMENT_READY_SCRIPT =
+            "var done = arguments[arguments.length - 1];" +
+            "if (document.readyState === 'complete') { done(true); return; }" +
+            "var timer = setTimeout(function () { done(false); }, arguments[0]);" +
+            "window.addEventListener('load', function () { clearTimeout(timer); done(true); });";
+
+    // запас на обмен с драйвером внутри script timeout
+    private static final Duration DEFAULT_CHUNK = Duration.ofSeconds(WebDriverFactory.SCRIPT_TIMEOUT_SECONDS - 1);
+
+    private final WebDriver driver;
+    private final Duration timeout;
+    private final long chunkMillis;
+
+    public InPageWait(WebDriver driver, Duration timeout) {
+        this(driver, timeout, DEFAULT_CHUNK);
+    }
+
+    // chunk - наибольшая длительность одного вызова скрипта
+    InPageWait(WebDriver driver, Duration timeout, Duration chunk) {
+        this.driver = driver;
+        this.timeout = timeout;
+        this.chunkMillis = Math.max(1, chunk.toMillis());
+    }
+
+    public WebElement presenceOfElementLocated(By locator) {
+        return await(locator, "presence", timeout);
+    }
+
+    public WebElement presenceOfElementLocated(By locator, Duration customTimeout) {
+        return await(locator, "presence", customTimeout);
+    }
+
+    public WebElement visibilityOfElementLocated(By locator) {
+        return await(locator, "visibility", timeout);
+    }
+
+    public WebElement visibilityOfElementLocated(By locator, Duration customTimeout) {
+        return await(locator, "visibility", customTimeout);
+    }
+
+    public WebElement elementToBeClickable(By locator) {
+        return await(locator, "clickable", timeout);
+    }
+
+    // как presenceOfAllElementsLocatedBy: хотя бы один элемент, возвращаются все найденные
+    public List<WebElement> presenceOfAllElementsLocatedBy(By locator) {
+        return await(locator, "presence_all", timeout);
+    }
+
+    // document.readyState == complete
+    public void documentComplete() {
+        long start = System.nanoTime();
+        try {
+            awaitDocumentComplete(start + timeout.toNanos());
+        } catch (TimeoutException e) {
+            SuiteMetrics.waitTimeouts("web", "document_ready").inc();
+            throw e;
+        } finally {
+            SuiteMetrics.waitSeconds("web", "document_ready").observeSince(start);
+        }
+    }
+
+    private void awaitDocumentComplete(long deadline) {
+        if (ENABLED && driver instanceof JavascriptExecutor) {
+            long start = System.nanoTime();
+            try {
+                long chunk;
+                while ((chunk = nextChunkMillis(deadline)) > 0) {
+                    if (Boolean.TRUE.equals(runChunk(DOCUMENT_READY_SCRIPT, chunk))) {
+                        return;
+                    }
+                }
+                throw new TimeoutException(String.format(Locale.ROOT, "Expected condition failed: waiting for document "
+                        + "readyState complete (tried for %.1f second(s) in page)", elapsedSeconds(start)));
+            } catch (TimeoutException e) {
+                throw e;
+            } catch (WebDriverException e) {
+                // скрипт выполнялся в документе, который уже выгружается
+                logger.debug("Ожидание загрузки в странице прервано ({}), продолжаем через WebDriverWait",
+                        e.getClass().getSimpleName());
+            }
+        }
+
+        long remainingNanos = Math.max(0, deadline - System.nanoTime());
+        new WebDriverWait(driver, Duration.ofNanos(remainingNanos)).until(webDriver ->
+                "complete".equals(((JavascriptExecutor) webDriver).executeScript("return document.readyState")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(By locator, String condition, Duration waitTimeout) {
+        long start = System.nanoTime();
+        try {
+            return (T) awaitElement(locator, condition, start + waitTimeout.toNanos());
+        } catch (TimeoutException e) {
+            SuiteMetrics.waitTimeouts("web", condition).inc();
+            throw e;
+        } finally {
+            SuiteMetrics.waitSeconds("web", condition).observeSince(start);
+        }
+    }
+
+    private Object awaitElement(By locator, String condition, long deadline) {
+        String[] jsLocator = toJsLocator(locator);
+
+        if (ENABLED && jsLocator != null && driver instanceof JavascriptExecutor) {
+            long start = System.nanoTime();
+            try {
+                long chunk;
+                while ((chunk = nextChunkMillis(deadline)) > 0) {
+                    Object result = runChunk(WAIT_SCRIPT, jsLocator[0], jsLocator[1], condition, chunk, IN_PAGE_POLL_MS);
+                    if (result instanceof WebElement || (result instanceof List && !((List<?>) result).isEmpty())) {
+                        return result;
+                    }
+                }
+                throw timeout(locator, condition, elapsedSeconds(start));
+            } catch (TimeoutException e) {
+                throw e;
+            } catch (WebDriverException e) {
+                logger.debug("Ожидание в странице прервано ({}), продолжаем через WebDriverWait",
+                        e.getClass().getSimpleName());
+            }
+        }
+
+        long remainingNanos = Math.max(0, deadline - System.nanoTime());
+        return new WebDriverWait(driver, Duration.ofNanos(remainingNanos))
+                .until(fallbackCondition(locator, condition));
+    }
+
+    private static ExpectedCondition<?> fallbackCondition(By locator, String condition) {
+        switch (condition) {
+            case "presence":
+                return ExpectedConditions.presenceOfElementLocated(locator);
+            case "presence_all":
+                return ExpectedConditions.presenceOfAllElementsLocatedBy(locator);
+            case "clickable":
+                return ExpectedConditions.elementToBeClickable(locator);
+            case "visibility":
+            default:
+                return ExpectedConditions.visibilityOfElementLocated(locator);
+        }
+    }
+
+    // Один вызов скрипта; обрыв драйвером по script timeout (драйвер с таймаутом короче куска) -
+    // просто конец куска, ожидание продолжается до дедлайна
+    private Object runChunk(String script, Object... args) {
+        try {
+            return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+        } catch (ScriptTimeoutException e) {
+            return null;
+        }
+    }
+
+    // длительность следующего вызова скрипта: остаток до дедлайна, не больше куска; 0 - время вышло
+    private long nextChunkMillis(long deadline) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return remaining <= 0 ? 0 : Math.min(remaining, chunkMillis);
+    }
+
+    private static double elapsedSeconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    private static TimeoutException timeout(By locator, String condition, double elapsedSeconds) {
+        return new TimeoutException(String.format(Locale.ROOT, "Expected condition failed: waiting for %s of element "
+                + "located by %s (tried for %.1f second(s) in page)", condition, locator, elapsedSeconds));
+    }
+
+    // By.id/css/className/name сводятся к CSS, xpath и tag name вычисляем отдельно
+    private static String[] toJsLocator(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            return null;
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        String using = parameters.using();
+        Object value = parameters.value();
+        if (value instanceof Map) {
+            value = ((Map<?, ?>) value).get("value");
+        }
+        if (!(value instanceof String)) {
+            return null;
+        }
+        switch (using) {
+            case "css selector":
+            case "xpath":
+            case "tag name":
+                return new String[]{using, (String) value};
+            default:
+                return null;
+        }
+    }
+}
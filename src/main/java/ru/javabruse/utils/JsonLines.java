@@ -0,0 +1,27 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+
+import java.util.Map;
+
+// Компактный JSON в одну строку для JSONL-файлов (на JSON-кодеке Selenium, без лишних зависимостей)
+public final class JsonLines {
+
+    private static final Json JSON = new Json();
+
+    private JsonLines() {
+    }
+
+    public static String toLine(Object value) {
+        StringBuilder line = new StringBuilder();
+        try (JsonOutput output = JSON.newOutput(line)) {
+            output.setPrettyPrint(false).write(value);
+        }
+        return line.toString();
+    }
+
+    public static Map<String, Object> parse(String line) {
+        return JSON.toType(line, Json.MAP_TYPE);
+    }
+}
@@ -0,0 +1,298 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Сэмплер потребления ресурсов браузером по тестам.
+ * Для каждого драйвера находит процесс driver-сервиса (chromedriver/geckodriver/msedgedriver)
+ * среди дочерних процессов JVM по его порту, дальше берёт всех потомков (сам браузер, рендереры)
+ * и с фиксированным интервалом читает CPU time и RSS из /proc.
+ * Включается через -Dresources.sampling=true, отчёт пишется в target/resource-usage.csv.
+ * Без сэмплирования запоминается только сам сервис; процесс по нему ищется при первом
+ * вызове browserRssKb() (режим soak), а не при создании каждого драйвера.
+ * Браузер, общий для тестов потока (-Disolation=context), делится на тесты через
+ * beginTest/endTest, процесс сервиса забывается только в untrack.
+ */
+public final class ResourceSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceSampler.class);
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("resources.sampling", "false"));
+    private static final long INTERVAL_MS =
+            Long.parseLong(System.getProperty("resources.sample.interval.ms", "1000"));
+    private static final Path REPORT_PATH =
+            Paths.get(System.getProperty("resources.report", "target/resource-usage.csv"));
+
+    // USER_HZ в Linux практически всегда 100
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    private static final Path PROC = Paths.get("/proc");
+
+    private static final Map<WebDriver, SessionUsage> sessions = new ConcurrentHashMap<>();
+    private static final Map<WebDriver, DriverService> services = new ConcurrentHashMap<>();
+    private static final Map<WebDriver, ProcessHandle> serviceProcesses = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService scheduler;
+    private static boolean reportHeaderWritten;
+
+    private ResourceSampler() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Начать учёт процессов драйвера; тест берётся из текущего TestLogContext
+    public static void track(WebDriver driver, DriverService service) {
+        if (driver == null || service == null) {
+            return;
+        }
+        services.put(driver, service);
+        if (!ENABLED) {
+            return;
+        }
+
+        Optional<ProcessHandle> serviceProcess = findServiceProcess(service);
+        if (serviceProcess.isEmpty()) {
+            logger.warn("Не удалось найти процесс driver-сервиса {}, ресурсы не учитываются", service.getUrl());
+            return;
+        }
+        serviceProcesses.put(driver, serviceProcess.get());
+
+        String testName = Optional.ofNullable(TestLogContext.currentTestId()).orElse("unknown");
+        SessionUsage usage = new SessionUsage(testName, serviceProcess.get());
+        sessions.put(driver, usage);
+        ensureStarted();
+        sample(usage);
+
+        logger.debug("Учёт ресурсов: тест {}, pid сервиса {}", testName, serviceProcess.get().pid());
+    }
+
+    // Завершить учёт: последний замер до закрытия браузера и строка в отчёт
+    public static void untrack(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        endTest(driver);
+        services.remove(driver);
+        serviceProcesses.remove(driver);
+    }
+
+    // Общий браузер (-Disolation=context): следующий тест на том же драйвере - новая строка отчёта
+    public static void beginTest(WebDriver driver) {
+        ProcessHandle root = serviceProcesses.get(driver);
+        if (!ENABLED || root == null) {
+            return;
+        }
+        String testName = Optional.ofNullable(TestLogContext.currentTestId()).orElse("unknown");
+        SessionUsage usage = new SessionUsage(testName, root);
+        sessions.put(driver, usage);
+        sample(usage);
+    }
+
+    // Итог теста без отказа от процесса драйвера: браузер может остаться для следующего теста
+    public static void endTest(WebDriver driver) {
+        if (!ENABLED || driver == null) {
+            return;
+        }
+        SessionUsage usage = sessions.remove(driver);
+        if (usage == null) {
+            return;
+        }
+        sample(usage);
+        writeReportLine(usage);
+        logger.info("Ресурсы теста {}: {}", usage.testName, usage);
+    }
+
+    // Текущий RSS браузера драйвера (все процессы под driver-сервисом), -1 - процесс не найден
+    public static long browserRssKb(WebDriver driver) {
+        ProcessHandle root = serviceProcesses.get(driver);
+        if (root == null) {
+            DriverService service = services.get(driver);
+            root = service == null ? null : findServiceProcess(service).orElse(null);
+            if (root == null) {
+                return -1;
+            }
+            serviceProcesses.put(driver, root);
+        }
+        return Stream.concat(Stream.of(root), root.descendants())
+                .filter(ProcessHandle::isAlive)
+                .mapToLong(process -> readRssKb(PROC, process.pid()))
+                .sum();
+    }
+
+    // chromedriver и остальные запускаются с аргументом --port=<порт сервиса>
+    private static Optional<ProcessHandle> findServiceProcess(DriverService service) {
+        String portArg = "--port=" + service.getUrl().getPort();
+        return ProcessHandle.current().children()
+                .filter(p -> p.info().arguments()
+                        .map(args -> Stream.of(args).anyMatch(portArg::equals))
+                        .orElse(false))
+                .findFirst();
+    }
+
+    private static synchronized void ensureStarted() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "resource-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> sessions.values().forEach(ResourceSampler::sample),
+                INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void sample(SessionUsage usage) {
+        try {
+            List<Long> tree = Stream.concat(Stream.of(usage.root), usage.root.descendants())
+                    .filter(ProcessHandle::isAlive)
+                    .map(ProcessHandle::pid)
+                    .collect(Collectors.toList());
+            addSample(usage, PROC, tree, System.nanoTime());
+        } catch (Exception e) {
+            logger.debug("Ошибка замера ресурсов для {}: {}", usage.testName, e.getMessage());
+        }
+    }
+
+    // один замер: CPU и RSS всех процессов дерева складываются
+    static void addSample(SessionUsage usage, Path proc, List<Long> pids, long nanos) {
+        long cpuTicks = 0;
+        long rssKb = 0;
+        for (long pid : pids) {
+            cpuTicks += readCpuTicks(proc, pid);
+            rssKb += readRssKb(proc, pid);
+        }
+        usage.add(nanos, cpuTicks, rssKb);
+    }
+
+    // utime + stime из /proc/<pid>/stat; вне Linux - через ProcessHandle
+    static long readCpuTicks(Path proc, long pid) {
+        Path stat = proc.resolve(Long.toString(pid)).resolve("stat");
+        try {
+            String content = Files.readString(stat);
+            // имя процесса в скобках может содержать пробелы - парсим после последней ')'
+            String[] fields = content.substring(content.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (IOException | RuntimeException e) {
+            return ProcessHandle.of(pid)
+                    .flatMap(process -> process.info().totalCpuDuration())
+                    .map(d -> d.toMillis() * CLOCK_TICKS_PER_SECOND / 1000)
+                    .orElse(0L);
+        }
+    }
+
+    static long readRssKb(Path proc, long pid) {
+        Path status = proc.resolve(Long.toString(pid)).resolve("status");
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("[^0-9]", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(0L);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static synchronized void writeReportLine(SessionUsage usage) {
+        try {
+            if (REPORT_PATH.getParent() != null) {
+                Files.createDirectories(REPORT_PATH.getParent());
+            }
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(REPORT_PATH, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    reportHeaderWritten ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING))) {
+                if (!reportHeaderWritten) {
+                    writer.println("test,samples,peak_rss_mb,mean_rss_mb,cpu_seconds,mean_cpu_percent,duration_seconds");
+                    reportHeaderWritten = true;
+                }
+                writer.println(usage.toCsv());
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось записать отчёт по ресурсам: {}", e.getMessage());
+        }
+    }
+
+    // накопленная статистика одной сессии
+    static final class SessionUsage {
+        private final String testName;
+        private final ProcessHandle root;
+
+        private int samples;
+        private long peakRssKb;
+        private long rssKbSum;
+        private long firstNanos;
+        private long lastNanos;
+        private long firstCpuTicks;
+        private long lastCpuTicks;
+
+        SessionUsage(String testName, ProcessHandle root) {
+            this.testName = testName;
+            this.root = root;
+        }
+
+        synchronized void add(long nanos, long cpuTicks, long rssKb) {
+            if (samples == 0) {
+                firstNanos = nanos;
+                firstCpuTicks = cpuTicks;
+            }
+            samples++;
+            lastNanos = nanos;
+            // процессы могут завершиться - суммарное CPU не должно уменьшаться
+            lastCpuTicks = Math.max(lastCpuTicks, cpuTicks);
+            rssKbSum += rssKb;
+            peakRssKb = Math.max(peakRssKb, rssKb);
+        }
+
+        synchronized double cpuSeconds() {
+            return (double) (lastCpuTicks - firstCpuTicks) / CLOCK_TICKS_PER_SECOND;
+        }
+
+        synchronized double durationSeconds() {
+            return (lastNanos - firstNanos) / 1e9;
+        }
+
+        synchronized double meanRssMb() {
+            return samples == 0 ? 0 : rssKbSum / 1024.0 / samples;
+        }
+
+        synchronized double meanCpuPercent() {
+            double duration = durationSeconds();
+            return duration <= 0 ? 0 : cpuSeconds() / duration * 100;
+        }
+
+        synchronized String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%.2f,%.1f,%.1f",
+                    testName, samples, peakRssKb / 1024.0, meanRssMb(),
+                    cpuSeconds(), meanCpuPercent(), durationSeconds());
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.ROOT, "пик RSS %.1f МБ, средний RSS %.1f МБ, CPU %.2f с (%.1f%%), замеров %d",
+                    peakRssKb / 1024.0, meanRssMb(), cpuSeconds(), meanCpuPercent(), samples);
+        }
+    }
+}
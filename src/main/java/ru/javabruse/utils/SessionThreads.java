@@ -0,0 +1,84 @@
+package ru.javabruse.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Потоки для сценариев, которые почти всё время ждут ответа WebDriver/Appium.
+ * На JDK 21+ это виртуальные потоки (executor "поток на задачу"), на JDK 11-20 -
+ * обычные потоки-демоны. Проект собирается под 11, поэтому API 21 берётся через MethodHandle.
+ * -Drunner.threads=platform принудительно включает обычные потоки.
+ *
+ * Виртуальный поток, заблокированный внутри synchronized, держит поток-носитель (pinning),
+ * поэтому ожидание свободной сессии в VirtualSessionRunner сделано на Semaphore.
+ */
+public final class SessionThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionThreads.class);
+
+    private static final MethodHandle NEW_VIRTUAL_EXECUTOR = lookupVirtualExecutor();
+    private static final MethodHandle IS_VIRTUAL = lookupIsVirtual();
+
+    private SessionThreads() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null
+                && !"platform".equalsIgnoreCase(System.getProperty("runner.threads", "virtual"));
+    }
+
+    // Executor "поток на задачу": виртуальные потоки, если доступны, иначе обычные
+    public static ExecutorService newPerTaskExecutor(String name) {
+        if (virtualThreadsAvailable()) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invokeExact();
+            } catch (Throwable e) {
+                logger.warn("Не удалось создать executor виртуальных потоков: {}", e.getMessage());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle lookupVirtualExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle lookupIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+                    MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
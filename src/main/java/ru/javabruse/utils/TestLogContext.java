@@ -0,0 +1,38 @@
+package ru.javabruse.utils;
+
+import org.slf4j.MDC;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Контекст текущего теста для логов: correlation id кладётся в MDC потока теста
+public final class TestLogContext {
+
+    public static final String TEST_ID_KEY = "testId";
+    public static final String TEST_NAME_KEY = "testName";
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private TestLogContext() {
+    }
+
+    // Начало теста: имя вида Class.method, id уникален в рамках запуска
+    public static String start(String testName) {
+        String testId = testName + "#" + SEQUENCE.incrementAndGet();
+        MDC.put(TEST_NAME_KEY, testName);
+        MDC.put(TEST_ID_KEY, testId);
+        return testId;
+    }
+
+    public static String currentTestId() {
+        return MDC.get(TEST_ID_KEY);
+    }
+
+    public static String currentTestName() {
+        return MDC.get(TEST_NAME_KEY);
+    }
+
+    public static void clear() {
+        MDC.remove(TEST_ID_KEY);
+        MDC.remove(TEST_NAME_KEY);
+    }
+}
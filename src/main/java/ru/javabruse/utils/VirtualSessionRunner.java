@@ -0,0 +1,63 @@
+package ru.javabruse.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запуск множества сценариев с удалёнными/мобильными сессиями, каждый в своём потоке
+ * из SessionThreads (виртуальном на JDK 21+). Число одновременно живых сессий
+ * ограничено семафором: ожидающий сценарий паркуется, не занимая поток ОС.
+ */
+public class VirtualSessionRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualSessionRunner.class);
+
+    private final Semaphore liveSessions;
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    public VirtualSessionRunner(int maxLiveSessions) {
+        this.liveSessions = new Semaphore(maxLiveSessions, true);
+    }
+
+    // Все сценарии выполняются до конца; результаты и ошибки - в Future в исходном порядке
+    public <T> List<Future<T>> runAll(List<? extends Callable<T>> flows) throws InterruptedException {
+        List<Callable<T>> limited = new ArrayList<>();
+        for (Callable<T> flow : flows) {
+            limited.add(() -> withSessionSlot(flow));
+        }
+        logger.info("Запуск {} сценариев на {} потоках, не больше {} живых сессий", flows.size(),
+                SessionThreads.virtualThreadsAvailable() ? "виртуальных" : "обычных",
+                liveSessions.availablePermits());
+
+        ExecutorService executor = SessionThreads.newPerTaskExecutor("session-flow");
+        try {
+            return executor.invokeAll(limited);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public int getPeakLiveSessions() {
+        return peak.get();
+    }
+
+    private <T> T withSessionSlot(Callable<T> flow) throws Exception {
+        liveSessions.acquire();
+        try {
+            peak.accumulateAndGet(live.incrementAndGet(), Math::max);
+            return flow.call();
+        } finally {
+            live.decrementAndGet();
+            liveSessions.release();
+        }
+    }
+}
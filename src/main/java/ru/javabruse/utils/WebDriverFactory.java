@@ -3,24 +3,45 @@ package ru.javabruse.utils;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.options.UiAutomator2Options;
 import io.appium.java_client.remote.AutomationName;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.Proxy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.ChromiumDriver;
 import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
 import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.remote.AbstractDriverOptions;
 import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.HttpCommandExecutor;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
 import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.safari.SafariOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.impact.ImpactRecorder;
+import ru.javabruse.utils.metrics.Counter;
+import ru.javabruse.utils.metrics.SuiteMetrics;
+import ru.javabruse.utils.proxy.CachingProxy;
+import ru.javabruse.utils.remote.PooledHttpClientFactory;
+import ru.javabruse.utils.wire.WireRecorder;
+import ru.javabruse.utils.wire.WireReplay;
+import ru.javabruse.utils.wire.WireTraffic;
 
 import java.net.URL;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -30,13 +51,29 @@ public class WebDriverFactory {
 
     // Константы для Appium
     private static final String APPIUM_SERVER_URL = "http://127.0.0.1:4723";
-    private static final String WIKIPEDIA_APP_PACKAGE = "org.wikipedia.alpha";
-    private static final String WIKIPEDIA_MAIN_ACTIVITY = "org.wikipedia.main.MainActivity";
+    public static final String WIKIPEDIA_APP_PACKAGE = "org.wikipedia.alpha";
+    public static final String WIKIPEDIA_MAIN_ACTIVITY = "org.wikipedia.main.MainActivity";
 
     // Константы для конфы
     private static final long IMPLICIT_WAIT_SECONDS = 10;
     private static final long PAGE_LOAD_TIMEOUT_SECONDS = 30;
-    private static final long SCRIPT_TIMEOUT_SECONDS = 15;
+    // InPageWait делит долгие ожидания на куски короче этого таймаута
+    static final long SCRIPT_TIMEOUT_SECONDS = 15;
+
+    // Сессии, занявшие слот ConcurrencyController
+    private static final Set<WebDriver> limitedSessions = ConcurrentHashMap.newKeySet();
+
+    // Все созданные и ещё не закрытые сессии - для метрики wiki_sessions_active
+    private static final Set<WebDriver> openSessions = ConcurrentHashMap.newKeySet();
+
+    private static final Counter RETRY_ATTEMPTS = SuiteMetrics.counter("wiki_retry_attempts_total",
+            "Повторные попытки executeWithRetry после ошибки");
+    private static final Counter RETRY_EXHAUSTED = SuiteMetrics.counter("wiki_retry_exhausted_total",
+            "Вызовы executeWithRetry, не удавшиеся ни с одной попытки");
+
+    static {
+        SuiteMetrics.gauge("wiki_sessions_active", "Созданные и ещё не закрытые сессии", openSessions::size);
+    }
 
     public static WebDriver createWebDriver() {
         String browser = System.getProperty("browser", "chrome").toLowerCase();
@@ -44,26 +81,86 @@ public class WebDriverFactory {
 
         logger.info("Драйвер для браузера: {} (headless: {})", browser, headless);
 
-        WebDriver driver;
-
-        switch (browser) {
-            case "firefox":
-                driver = createFirefoxDriver(headless);
-                break;
-            case "edge":
-                driver = createEdgeDriver(headless);
-                break;
-            case "safari":
-                driver = createSafariDriver();
-                break;
-            case "chrome":
-            default:
-                driver = createChromeDriver(headless);
-                break;
+        return createLimited(browser, () -> {
+            WebDriver driver;
+
+            if (WireTraffic.isReplaying()) {
+                driver = createReplayDriver(browser);
+                configureDriver(driver);
+                return driver;
+            }
+
+            // Один Chromium на поток, тесту - отдельный контекст браузера
+            if (BrowserContextIsolation.isEnabled() && ("chrome".equals(browser) || "edge".equals(browser))) {
+                return BrowserContextIsolation.openContext(() -> {
+                    ChromiumDriver shared = "edge".equals(browser)
+                            ? createEdgeDriver(headless)
+                            : createChromeDriver(headless);
+                    configureDriver(shared);
+                    return shared;
+                });
+            }
+
+            switch (browser) {
+                case "firefox":
+                    driver = createFirefoxDriver(headless);
+                    break;
+                case "edge":
+                    driver = createEdgeDriver(headless);
+                    break;
+                case "safari":
+                    driver = createSafariDriver();
+                    break;
+                case "chrome":
+                default:
+                    driver = createChromeDriver(headless);
+                    break;
+            }
+
+            configureDriver(driver);
+            return driver;
+        });
+    }
+
+    // Создание сессии с учётом адаптивного лимита параллельности
+    private static <T extends WebDriver> T createLimited(String kind, Supplier<T> creator) {
+        if (!ConcurrencyController.isEnabled()) {
+            return recordCreation(kind, creator);
         }
 
-        configureDriver(driver);
-        return driver;
+        ConcurrencyController controller = ConcurrencyController.getInstance();
+        try {
+            controller.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Прервано ожидание слота для новой сессии", e);
+        }
+
+        try {
+            T driver = recordCreation(kind, creator);
+            limitedSessions.add(driver);
+            return driver;
+        } catch (RuntimeException e) {
+            controller.release(false);
+            throw e;
+        }
+    }
+
+    // Время создания сессии и число созданных/неудавшихся по виду драйвера
+    private static <T extends WebDriver> T recordCreation(String kind, Supplier<T> creator) {
+        long start = System.nanoTime();
+        try {
+            T driver = creator.get();
+            SuiteMetrics.histogram("wiki_driver_create_seconds", "Время создания сессии драйвера", "kind", kind)
+                    .observeSince(start);
+            SuiteMetrics.counter("wiki_sessions_created_total", "Созданные сессии драйвера", "kind", kind).inc();
+            openSessions.add(driver);
+            return driver;
+        } catch (RuntimeException e) {
+            SuiteMetrics.counter("wiki_driver_create_failures_total", "Неудачные попытки создать сессию",
+                    "kind", kind).inc();
+            throw e;
+        }
     }
 
     // ChromeDriver с расширенными опциями
@@ -103,7 +200,15 @@ public class WebDriverFactory {
             // options.addExtensions(new File("path/to/extension.crx"));
         }
 
-        return new ChromeDriver(options);
+        applyCachingProxy(options);
+
+        // Сервис создаём явно, чтобы по его порту найти процессы драйвера и браузера
+        ChromeDriverService service = ChromeDriverService.createDefaultService();
+        WireRecorder recorder = newRecorderIfEnabled();
+        ChromeDriver driver = new ChromeDriver(service, options, sessionClientConfig(recorder));
+        attachRecorder(driver, recorder);
+        ResourceSampler.track(driver, service);
+        return driver;
     }
 
     // FirefoxDriver с расширенными опциями
@@ -118,8 +223,14 @@ public class WebDriverFactory {
         options.addPreference("dom.webnotifications.enabled", false);
         options.addPreference("browser.cache.disk.enable", false);
         options.addPreference("browser.cache.memory.enable", false);
+        applyCachingProxy(options);
 
-        return new FirefoxDriver(options);
+        GeckoDriverService service = GeckoDriverService.createDefaultService();
+        WireRecorder recorder = newRecorderIfEnabled();
+        FirefoxDriver driver = new FirefoxDriver(service, options, sessionClientConfig(recorder));
+        attachRecorder(driver, recorder);
+        ResourceSampler.track(driver, service);
+        return driver;
     }
 
     // EdgeDriver с расширенными опциями
@@ -136,7 +247,14 @@ public class WebDriverFactory {
             logger.info("Запуск Edge в headless режиме");
         }
 
-        return new EdgeDriver(options);
+        applyCachingProxy(options);
+
+        EdgeDriverService service = EdgeDriverService.createDefaultService();
+        WireRecorder recorder = newRecorderIfEnabled();
+        EdgeDriver driver = new EdgeDriver(service, options, sessionClientConfig(recorder));
+        attachRecorder(driver, recorder);
+        ResourceSampler.track(driver, service);
+        return driver;
     }
 
     // SafariDriver
@@ -146,6 +264,54 @@ public class WebDriverFactory {
         return new SafariDriver(options);
     }
 
+    // Драйвер без браузера: ответы берутся из записи сессии (-Dwire.replay)
+    private static RemoteWebDriver createReplayDriver(String browser) {
+        WireReplay replay = WireTraffic.openReplay();
+        RemoteWebDriver driver = new RemoteWebDriver(
+                new HttpCommandExecutor(Collections.emptyMap(), WireTraffic.replayUrl(),
+                        ImpactRecorder.instrument(replay)),
+                new ImmutableCapabilities("browserName", browser));
+        WireTraffic.attach(driver, replay);
+        return driver;
+    }
+
+    // Статика всех сессий идёт через общий кэширующий прокси (-Dproxy.cache=true)
+    private static void applyCachingProxy(AbstractDriverOptions<?> options) {
+        if (!CachingProxy.isEnabled()) {
+            return;
+        }
+        String address = CachingProxy.shared().getAddress();
+        Proxy proxy = new Proxy();
+        proxy.setHttpProxy(address);
+        proxy.setSslProxy(address);
+        options.setProxy(proxy);
+        // HTTPS терминируется в прокси самоподписанным сертификатом
+        options.setAcceptInsecureCerts(true);
+    }
+
+    private static WireRecorder newRecorderIfEnabled() {
+        return WireTraffic.isRecording() ? WireTraffic.newRecorder() : null;
+    }
+
+    // ClientConfig сессии: при записи трафика в цепочку фильтров добавляется WireRecorder,
+    // при записи карты влияния (-Dimpact.record) - ImpactRecorder
+    private static ClientConfig sessionClientConfig(WireRecorder recorder) {
+        ClientConfig config = ImpactRecorder.instrument(ClientConfig.defaultConfig());
+        return recorder == null ? config : config.withFilter(recorder);
+    }
+
+    // Фабрика HTTP-клиентов для Appium/remote с учётом записи и воспроизведения
+    private static HttpClient.Factory sessionClientFactory(WireRecorder recorder) {
+        HttpClient.Factory factory = ImpactRecorder.instrument(HttpClient.Factory.createDefault());
+        return recorder == null ? factory : recorder.wrap(factory);
+    }
+
+    private static void attachRecorder(WebDriver driver, WireRecorder recorder) {
+        if (recorder != null) {
+            WireTraffic.attach(driver, recorder);
+        }
+    }
+
     // общие параметры драйвера
     private static void configureDriver(WebDriver driver) {
         driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(IMPLICIT_WAIT_SECONDS));
@@ -167,6 +333,10 @@ public class WebDriverFactory {
         try {
             logger.info("Создаем AndroidDriver для приложения Wikipedia");
 
+            // Эмулятор уже поднят из снапшота EmulatorManager - Appium не должен запускать AVD сам
+            boolean managedEmulator = EmulatorManager.isEnabled();
+            String udid = managedEmulator ? EmulatorManager.getInstance().awaitReady() : getDeviceUdid();
+
             UiAutomator2Options options = new UiAutomator2Options()
                     .setPlatformName("Android")
                     .setAutomationName(AutomationName.ANDROID_UIAUTOMATOR2)
@@ -175,14 +345,17 @@ public class WebDriverFactory {
                     .setNoReset(false)
                     .setFullReset(false)
                     .setAutoGrantPermissions(true)
-                    .setUdid(getDeviceUdid())
+                    .setUdid(udid)
                     .setDeviceName(getDeviceName())
                     .setPlatformVersion(getPlatformVersion())
-                    .setAvd(getAvdName())
-                    .setAvdLaunchTimeout(Duration.ofSeconds(120))
-                    .setAvdReadyTimeout(Duration.ofSeconds(120))
-                    .setNewCommandTimeout(Duration.ofSeconds(60))
-                    .setIsHeadless(isHeadlessEmulator());
+                    .setNewCommandTimeout(Duration.ofSeconds(60));
+
+            if (!managedEmulator) {
+                options.setAvd(getAvdName())
+                        .setAvdLaunchTimeout(Duration.ofSeconds(120))
+                        .setAvdReadyTimeout(Duration.ofSeconds(120))
+                        .setIsHeadless(isHeadlessEmulator());
+            }
 
             Map<String, Object> additionalCaps = new HashMap<>();
             additionalCaps.put("unicodeKeyboard", true);
@@ -193,9 +366,18 @@ public class WebDriverFactory {
             options.setCapability("appium:options", additionalCaps);
 
             logger.info("Подключаемся к Appium серверу: {}", APPIUM_SERVER_URL);
-            logger.info("Параметры подключения: {}", options.asMap());
+            // asMap() копирует все capabilities - строим только при включённом DEBUG
+            if (logger.isDebugEnabled()) {
+                logger.debug("Параметры подключения: {}", options.asMap());
+            }
 
-            AndroidDriver driver = new AndroidDriver(new URL(APPIUM_SERVER_URL), options);
+            AndroidDriver driver = recordCreation("android", () -> {
+                try {
+                    return createAndroidSession(options);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
 
             driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(IMPLICIT_WAIT_SECONDS));
 
@@ -223,7 +405,13 @@ public class WebDriverFactory {
                     .setUdid(getDeviceUdid())
                     .setDeviceName(getDeviceName());
 
-            return new AndroidDriver(new URL(APPIUM_SERVER_URL), options);
+            return recordCreation("android", () -> {
+                try {
+                    return createAndroidSession(options);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
 
         } catch (Exception e) {
             logger.error("Ошибка при создании AndroidDriver с APK: {}", e.getMessage(), e);
@@ -231,15 +419,49 @@ public class WebDriverFactory {
         }
     }
 
+    // Сессия Appium: обычная, с записью трафика или воспроизведение записи
+    private static AndroidDriver createAndroidSession(UiAutomator2Options options) throws Exception {
+        if (WireTraffic.isReplaying()) {
+            WireReplay replay = WireTraffic.openReplay();
+            AndroidDriver driver = new AndroidDriver(WireTraffic.replayUrl(), ImpactRecorder.instrument(replay), options);
+            WireTraffic.attach(driver, replay);
+            return driver;
+        }
+
+        WireRecorder recorder = newRecorderIfEnabled();
+        AndroidDriver driver = new AndroidDriver(new URL(APPIUM_SERVER_URL), sessionClientFactory(recorder), options);
+        attachRecorder(driver, recorder);
+        return driver;
+    }
+
     // RemoteWebDriver для запуска в  облачных сервисах
     public static RemoteWebDriver createRemoteDriver(String hubUrl, DesiredCapabilities capabilities) {
-        try {
-            logger.info("Создаем RemoteWebDriver для hub: {}", hubUrl);
-            return new RemoteWebDriver(new URL(hubUrl), capabilities);
-        } catch (Exception e) {
-            logger.error("Ошибка при создании RemoteWebDriver: {}", e.getMessage(), e);
-            throw new RuntimeException("Не удалось создать RemoteWebDriver", e);
-        }
+        return createLimited("remote", () -> {
+            try {
+                logger.info("Создаем RemoteWebDriver для hub: {}", hubUrl);
+                if (WireTraffic.isReplaying()) {
+                    return createReplayDriver(capabilities.getBrowserName());
+                }
+                WireRecorder recorder = newRecorderIfEnabled();
+                HttpCommandExecutor executor;
+                if (PooledHttpClientFactory.isEnabled()) {
+                    // общий пул keep-alive соединений к хабу вместо клиента на каждую сессию
+                    HttpClient.Factory pooled = ImpactRecorder.instrument(PooledHttpClientFactory.shared());
+                    executor = new HttpCommandExecutor(Collections.emptyMap(),
+                            PooledHttpClientFactory.clientConfig(new URL(hubUrl).toURI()),
+                            recorder == null ? pooled : recorder.wrap(pooled));
+                } else {
+                    executor = new HttpCommandExecutor(Collections.emptyMap(), new URL(hubUrl),
+                            sessionClientFactory(recorder));
+                }
+                RemoteWebDriver driver = new RemoteWebDriver(executor, capabilities);
+                attachRecorder(driver, recorder);
+                return driver;
+            } catch (Exception e) {
+                logger.error("Ошибка при создании RemoteWebDriver: {}", e.getMessage(), e);
+                throw new RuntimeException("Не удалось создать RemoteWebDriver", e);
+            }
+        });
     }
 
     // Получает UDID устройства
@@ -273,12 +495,32 @@ public class WebDriverFactory {
     // закрыть
     public static void quitDriver(WebDriver driver) {
         if (driver != null) {
+            openSessions.remove(driver);
+            boolean shared = BrowserContextIsolation.isShared(driver);
             try {
-                logger.info("Закрываем драйвер");
-                driver.quit();
-                logger.info("Драйвер успешно закрыт");
+                // итог теста по ресурсам снимается первым, пока процессы браузера живы
+                if (shared) {
+                    ResourceSampler.endTest(driver);
+                    BrowserContextIsolation.closeContext(driver);
+                    logger.info("Контекст браузера закрыт, процесс браузера остаётся для следующих тестов");
+                } else {
+                    logger.info("Закрываем драйвер");
+                    ResourceSampler.untrack(driver);
+                    driver.quit();
+                    logger.info("Драйвер успешно закрыт");
+                }
             } catch (Exception e) {
                 logger.warn("Ошибка при закрытии драйвера: {}", e.getMessage());
+            } finally {
+                // запись теста сохраняется и для общего браузера, и когда закрытие не удалось
+                if (shared) {
+                    WireTraffic.finishTest(driver);
+                } else {
+                    WireTraffic.finish(driver);
+                }
+                if (limitedSessions.remove(driver)) {
+                    ConcurrencyController.getInstance().release(true);
+                }
             }
         }
     }
@@ -304,12 +546,14 @@ public class WebDriverFactory {
                         retries + 1, maxRetries + 1, e.getMessage());
 
                 if (retries == maxRetries) {
+                    RETRY_EXHAUSTED.inc();
                     throw new RuntimeException("Не удалось выполнить операцию после " +
                             (maxRetries + 1) + " попыток", e);
                 }
 
                 quitDriver(driver);
                 retries++;
+                RETRY_ATTEMPTS.inc();
 
                 try {
                     Thread.sleep(2000);
@@ -0,0 +1,96 @@
+package ru.javabruse.utils.appperf;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор ответов Appium getPerformanceData и вывода dumpsys gfxinfo в метрики замера:
+ * cpu (user + kernel, %), pssMb, frames, jankyFrames, jankyPercent, p90FrameMs.
+ */
+public final class AppMetrics {
+
+    public static final String CPU = "cpu";
+    public static final String PSS_MB = "pssMb";
+    public static final String FRAMES = "frames";
+    public static final String JANKY_FRAMES = "jankyFrames";
+    public static final String JANKY_PERCENT = "jankyPercent";
+    public static final String P90_FRAME_MS = "p90FrameMs";
+
+    // все метрики замера: бюджет на другое имя ничего бы не проверял
+    public static final Set<String> NAMES = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            CPU, PSS_MB, FRAMES, JANKY_FRAMES, JANKY_PERCENT, P90_FRAME_MS)));
+
+    private static final Pattern TOTAL_FRAMES = Pattern.compile("Total frames rendered:\\s*(\\d+)");
+    private static final Pattern JANKY = Pattern.compile("Janky frames:\\s*(\\d+)\\s*\\(([\\d.]+)%\\)");
+    private static final Pattern P90 = Pattern.compile("90th percentile:\\s*(\\d+)ms");
+
+    private AppMetrics() {
+    }
+
+    // getPerformanceData возвращает строку заголовков и строку значений
+    public static Map<String, String> table(List<List<Object>> data) {
+        Map<String, String> values = new HashMap<>();
+        if (data == null || data.size() < 2) {
+            return values;
+        }
+        List<Object> header = data.get(0);
+        List<Object> row = data.get(1);
+        for (int i = 0; i < header.size() && i < row.size(); i++) {
+            values.put(String.valueOf(header.get(i)), String.valueOf(row.get(i)));
+        }
+        return values;
+    }
+
+    public static void putCpu(Map<String, Double> metrics, Map<String, String> cpuinfo) {
+        double user = number(cpuinfo.get("user"));
+        double kernel = number(cpuinfo.get("kernel"));
+        if (user >= 0 && kernel >= 0) {
+            metrics.put(CPU, user + kernel);
+        }
+    }
+
+    // totalPss в килобайтах
+    public static void putMemory(Map<String, Double> metrics, Map<String, String> memoryinfo) {
+        double pssKb = number(memoryinfo.get("totalPss"));
+        if (pssKb >= 0) {
+            metrics.put(PSS_MB, pssKb / 1024);
+        }
+    }
+
+    public static void putFrames(Map<String, Double> metrics, String gfxinfo) {
+        if (gfxinfo == null) {
+            return;
+        }
+        Matcher total = TOTAL_FRAMES.matcher(gfxinfo);
+        if (total.find()) {
+            metrics.put(FRAMES, Double.parseDouble(total.group(1)));
+        }
+        Matcher janky = JANKY.matcher(gfxinfo);
+        if (janky.find()) {
+            metrics.put(JANKY_FRAMES, Double.parseDouble(janky.group(1)));
+            metrics.put(JANKY_PERCENT, Double.parseDouble(janky.group(2)));
+        }
+        Matcher p90 = P90.matcher(gfxinfo);
+        if (p90.find()) {
+            metrics.put(P90_FRAME_MS, Double.parseDouble(p90.group(1)));
+        }
+    }
+
+    private static double number(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ru.javabruse.utils.appperf;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+import ru.javabruse.utils.TestLogContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Метрики приложения на переходах между экранами (главный, поиск, статья, назад).
+ * CPU и память - через getPerformanceData Appium, кадры - dumpsys gfxinfo через
+ * mobile: shell (Appium с --allow-insecure=adb_shell); после замера gfxinfo сбрасывается,
+ * и следующий замер видит только кадры своего перехода.
+ *
+ * Включается -Dapp.perf=true. По окончании теста ряд замеров пишется одной строкой
+ * (по столбцам) в target/app-perf.jsonl, а по строке на экран - в target/app-perf-trend.csv,
+ * который не перезаписывается между прогонами; в лог выводится изменение к прошлому прогону.
+ */
+public class AppPerfRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppPerfRecorder.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("app.perf", "false"));
+    private static final Path SERIES_PATH = Paths.get(System.getProperty("app.perf.report", "target/app-perf.jsonl"));
+    private static final Path TREND_PATH = Paths.get(System.getProperty("app.perf.trend", "target/app-perf-trend.csv"));
+    private static final List<String> TREND_METRICS = Arrays.asList(AppMetrics.CPU, AppMetrics.PSS_MB,
+            AppMetrics.FRAMES, AppMetrics.JANKY_FRAMES, AppMetrics.JANKY_PERCENT, AppMetrics.P90_FRAME_MS);
+    private static final String RUN_ID = String.valueOf(System.currentTimeMillis());
+
+    private static final AppPerfRecorder DISABLED = new AppPerfRecorder(null, null);
+
+    private final AndroidDriver driver;
+    private final String appPackage;
+    private final long started = System.nanoTime();
+    private final List<ScreenSample> samples = new ArrayList<>();
+    private boolean gfxUnavailable;
+
+    private AppPerfRecorder(AndroidDriver driver, String appPackage) {
+        this.driver = driver;
+        this.appPackage = appPackage;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static AppPerfRecorder forDriver(AndroidDriver driver, String appPackage) {
+        return ENABLED ? new AppPerfRecorder(driver, appPackage) : DISABLED;
+    }
+
+    // замер на переходе к экрану; ошибки замера тест не роняют
+    public void mark(String screen) {
+        if (driver == null) {
+            return;
+        }
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        try {
+            AppMetrics.putCpu(metrics, AppMetrics.table(driver.getPerformanceData(appPackage, "cpuinfo", 5)));
+            AppMetrics.putMemory(metrics, AppMetrics.table(driver.getPerformanceData(appPackage, "memoryinfo", 5)));
+        } catch (Exception e) {
+            logger.debug("Нет данных CPU/памяти для экрана {}: {}", screen, e.getMessage());
+        }
+        if (!gfxUnavailable) {
+            try {
+                AppMetrics.putFrames(metrics, shell("dumpsys", "gfxinfo", appPackage));
+                shell("dumpsys", "gfxinfo", appPackage, "reset");
+            } catch (Exception e) {
+                gfxUnavailable = true;
+                logger.warn("dumpsys gfxinfo недоступен (нужен Appium с --allow-insecure=adb_shell): {}", e.getMessage());
+            }
+        }
+        ScreenSample sample = new ScreenSample(screen, (System.nanoTime() - started) / 1_000_000, metrics);
+        samples.add(sample);
+        logger.debug("Замер приложения: {}", sample);
+    }
+
+    public List<ScreenSample> getSamples() {
+        return samples;
+    }
+
+    public List<String> budgetViolations(PerfBudgets budgets) {
+        return budgets.violations(samples);
+    }
+
+    // бюджеты из -Dapp.perf.budgets
+    public static PerfBudgets configuredBudgets() {
+        return PerfBudgets.parse(System.getProperty("app.perf.budgets", "article.jankyFrames<30"));
+    }
+
+    public List<String> budgetViolations() {
+        return budgetViolations(configuredBudgets());
+    }
+
+    // бюджеты, которые в этом тесте нечем проверить
+    public List<String> unmeasuredBudgets() {
+        return configuredBudgets().unmeasured(samples);
+    }
+
+    // ряд теста в отчёт и строки тренда
+    public void finish() {
+        if (driver == null || samples.isEmpty()) {
+            return;
+        }
+        String test = Optional.ofNullable(TestLogContext.currentTestId()).orElse("unknown");
+        try {
+            Files.createDirectories(SERIES_PATH.toAbsolutePath().getParent());
+            Files.write(SERIES_PATH, (JsonLines.toLine(series(test)) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            appendTrend(test);
+        } catch (IOException e) {
+            logger.warn("Не удалось записать метрики приложения: {}", e.getMessage());
+        }
+    }
+
+    // столбцы вместо объектов на замер: имена метрик не повторяются в каждой точке
+    private Map<String, Object> series(String test) {
+        Map<String, Object> series = new LinkedHashMap<>();
+        series.put("test", test);
+        series.put("run", RUN_ID);
+        List<String> screens = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        for (ScreenSample sample : samples) {
+            screens.add(sample.getScreen());
+            times.add(sample.getElapsedMillis());
+        }
+        series.put("screen", screens);
+        series.put("ms", times);
+        for (String metric : TREND_METRICS) {
+            List<Double> column = new ArrayList<>();
+            for (ScreenSample sample : samples) {
+                column.add(sample.get(metric));
+            }
+            series.put(metric, column);
+        }
+        return series;
+    }
+
+    private void appendTrend(String test) throws IOException {
+        Map<String, String[]> previous = previousTrend(test);
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(TREND_PATH)) {
+            lines.add("run,test,screen," + String.join(",", TREND_METRICS));
+        }
+        for (ScreenSample sample : samples) {
+            StringBuilder line = new StringBuilder(RUN_ID).append(',').append(test).append(',').append(sample.getScreen());
+            for (String metric : TREND_METRICS) {
+                line.append(',').append(String.format(Locale.ROOT, "%.1f", sample.get(metric)));
+            }
+            lines.add(line.toString());
+
+            String[] before = previous.get(sample.getScreen());
+            if (before != null) {
+                logger.info("Тренд {} / {}: jankyFrames {} -> {}, pssMb {} -> {}", test, sample.getScreen(),
+                        before[3 + TREND_METRICS.indexOf(AppMetrics.JANKY_FRAMES)],
+                        String.format(Locale.ROOT, "%.1f", sample.get(AppMetrics.JANKY_FRAMES)),
+                        before[3 + TREND_METRICS.indexOf(AppMetrics.PSS_MB)],
+                        String.format(Locale.ROOT, "%.1f", sample.get(AppMetrics.PSS_MB)));
+            }
+        }
+        Files.write(TREND_PATH, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // последние строки этого теста из прошлых прогонов: экран -> столбцы
+    private static Map<String, String[]> previousTrend(String test) throws IOException {
+        Map<String, String[]> previous = new HashMap<>();
+        if (!Files.exists(TREND_PATH)) {
+            return previous;
+        }
+        for (String line : Files.readAllLines(TREND_PATH, StandardCharsets.UTF_8)) {
+            String[] columns = line.split(",");
+            if (columns.length == 3 + TREND_METRICS.size() && columns[1].equals(test) && !columns[0].equals(RUN_ID)) {
+                previous.put(columns[2], columns);
+            }
+        }
+        return previous;
+    }
+
+    private String shell(String command, String... args) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("command", command);
+        params.put("args", Arrays.asList(args));
+        return String.valueOf(driver.executeScript("mobile: shell", params));
+    }
+}
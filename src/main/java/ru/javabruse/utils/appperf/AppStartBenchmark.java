@@ -0,0 +1,130 @@
+package ru.javabruse.utils.appperf;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Замер холодного, тёплого и горячего запуска активности приложения в сессии Appium.
+ * Перед каждым запуском состояние готовится через mobile: shell (нужен Appium
+ * с --allow-insecure=adb_shell): cold - am force-stop, warm - процесс жив, но активность
+ * закрыта кнопкой "назад", hot - приложение свёрнуто кнопкой "домой". Запуск -
+ * am start -W, время берётся из TotalTime, состояние - из LaunchState (если Android
+ * запустил не тем способом, замер записывается под фактическим). Отдельно меряется
+ * время от команды запуска до кликабельного поиска.
+ */
+public class AppStartBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppStartBenchmark.class);
+
+    private static final Pattern TOTAL_TIME = Pattern.compile("TotalTime:\\s*(\\d+)");
+    private static final Pattern LAUNCH_STATE = Pattern.compile("LaunchState:\\s*(\\w+)");
+
+    public enum StartMode { COLD, WARM, HOT }
+
+    private final AndroidDriver driver;
+    private final String appPackage;
+    private final String activity;
+    private final BooleanSupplier searchUsable;
+
+    // searchUsable - ожидание кликабельного поиска на главном экране, например page::awaitSearchUsable
+    public AppStartBenchmark(AndroidDriver driver, String appPackage, String activity, BooleanSupplier searchUsable) {
+        this.driver = driver;
+        this.appPackage = appPackage;
+        this.activity = activity;
+        this.searchUsable = searchUsable;
+    }
+
+    public AppStartReport run(String label, int iterations, int warmup) {
+        AppStartReport report = new AppStartReport(label);
+        for (int i = 0; i < warmup; i++) {
+            startOnce(StartMode.COLD, null);
+        }
+        // режимы чередуются, чтобы дрейф устройства (нагрев, фон) не попал целиком в один режим
+        for (int i = 0; i < iterations; i++) {
+            for (StartMode mode : StartMode.values()) {
+                startOnce(mode, report);
+            }
+        }
+        logger.info("{}", report);
+        return report;
+    }
+
+    private void startOnce(StartMode mode, AppStartReport report) {
+        prepare(mode);
+        long started = System.nanoTime();
+        String output = shell("am", "start", "-W", "-n", appPackage + "/" + activity);
+        boolean usable = searchUsable.getAsBoolean();
+        long usableMillis = (System.nanoTime() - started) / 1_000_000;
+
+        long totalTime = parseTotalTime(output);
+        String state = parseLaunchState(output, mode);
+        if (!state.equalsIgnoreCase(mode.name())) {
+            logger.warn("Запуск {} выполнен как {}", mode, state);
+        }
+        if (report == null) {
+            return;
+        }
+        String prefix = state.toLowerCase(Locale.ROOT);
+        if (totalTime >= 0) {
+            report.record(prefix + ".total", totalTime);
+        } else {
+            logger.warn("В выводе am start нет TotalTime: {}", output);
+        }
+        if (usable) {
+            report.record(prefix + ".usable", usableMillis);
+        } else {
+            logger.warn("Поиск не стал доступен после запуска {}", mode);
+        }
+    }
+
+    private void prepare(StartMode mode) {
+        switch (mode) {
+            case COLD:
+                shell("am", "force-stop", appPackage);
+                break;
+            case WARM:
+                // закрыть активность, оставив процесс: "назад" до выхода на рабочий стол
+                shell("input", "keyevent", "KEYCODE_BACK");
+                shell("input", "keyevent", "KEYCODE_BACK");
+                break;
+            case HOT:
+                shell("input", "keyevent", "KEYCODE_HOME");
+                break;
+            default:
+                break;
+        }
+        // дать системе завершить переход, иначе он попадёт в замер
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static long parseTotalTime(String output) {
+        Matcher matcher = TOTAL_TIME.matcher(output);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    // LaunchState есть с Android 10; на старых версиях считаем, что запуск был запрошенного вида
+    static String parseLaunchState(String output, StartMode requested) {
+        Matcher matcher = LAUNCH_STATE.matcher(output);
+        return matcher.find() ? matcher.group(1).toUpperCase(Locale.ROOT) : requested.name();
+    }
+
+    private String shell(String command, String... args) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("command", command);
+        params.put("args", Arrays.asList(args));
+        return String.valueOf(driver.executeScript("mobile: shell", params));
+    }
+}
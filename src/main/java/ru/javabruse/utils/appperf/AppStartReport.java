@@ -0,0 +1,134 @@
+package ru.javabruse.utils.appperf;
+
+import ru.javabruse.utils.JsonLines;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Замеры запуска одной сборки приложения: "cold.total" (TotalTime из am start -W),
+ * "cold.usable" (до кликабельного поиска) и то же для warm/hot. Сохраняется в JSON,
+ * чтобы сравнивать сборки между прогонами.
+ */
+public class AppStartReport {
+
+    private final String label;
+    private final Map<String, List<Long>> samples = new TreeMap<>();
+
+    public AppStartReport(String label) {
+        this.label = label;
+    }
+
+    public void record(String metric, long millis) {
+        samples.computeIfAbsent(metric, key -> new ArrayList<>()).add(millis);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Map<String, StartStats> stats() {
+        Map<String, StartStats> stats = new TreeMap<>();
+        samples.forEach((metric, values) -> stats.put(metric, new StartStats(values)));
+        return stats;
+    }
+
+    /**
+     * Регрессии кандидата относительно базовой сборки: медиана выросла больше чем на
+     * maxSlowdown (0.1 = 10%) и рост статистически значим - односторонний U-критерий
+     * Манна-Уитни, p < 0.05. Разброс запусков на эмуляторе велик, одной медианы мало.
+     */
+    public static List<String> regressions(AppStartReport baseline, AppStartReport candidate, double maxSlowdown) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> entry : candidate.samples.entrySet()) {
+            List<Long> before = baseline.samples.get(entry.getKey());
+            if (before == null || before.size() < 3 || entry.getValue().size() < 3) {
+                continue;
+            }
+            double baseMedian = new StartStats(before).median();
+            double candidateMedian = new StartStats(entry.getValue()).median();
+            double p = mannWhitneyGreaterP(entry.getValue(), before);
+            if (candidateMedian > baseMedian * (1 + maxSlowdown) && p < 0.05) {
+                regressions.add(String.format(Locale.ROOT, "%s: медиана %.0f -> %.0f мс (+%.0f%%), p=%.3f",
+                        entry.getKey(), baseMedian, candidateMedian,
+                        (candidateMedian / baseMedian - 1) * 100, p));
+            }
+        }
+        return regressions;
+    }
+
+    // p-значение гипотезы "x больше y": нормальное приближение U со средними рангами для связей
+    static double mannWhitneyGreaterP(List<Long> x, List<Long> y) {
+        List<long[]> all = new ArrayList<>();
+        for (long value : x) {
+            all.add(new long[]{value, 0});
+        }
+        for (long value : y) {
+            all.add(new long[]{value, 1});
+        }
+        all.sort((a, b) -> Long.compare(a[0], b[0]));
+        double rankSumX = 0;
+        for (int i = 0; i < all.size(); ) {
+            int j = i;
+            while (j < all.size() && all.get(j)[0] == all.get(i)[0]) {
+                j++;
+            }
+            double rank = (i + 1 + j) / 2.0;
+            for (int k = i; k < j; k++) {
+                if (all.get(k)[1] == 0) {
+                    rankSumX += rank;
+                }
+            }
+            i = j;
+        }
+        double n1 = x.size();
+        double n2 = y.size();
+        double u = rankSumX - n1 * (n1 + 1) / 2;
+        double sigma = Math.sqrt(n1 * n2 * (n1 + n2 + 1) / 12);
+        double z = (u - n1 * n2 / 2) / sigma;
+        return 1 - normalCdf(z);
+    }
+
+    // Абрамовиц-Стиган 7.1.26, погрешность < 1.5e-7
+    private static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - ((((1.061405429 * t - 1.453152027) * t + 1.421413741) * t - 0.284496736) * t
+                + 0.254829592) * t * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+
+    public void save(Path file) throws IOException {
+        Map<String, Object> json = new TreeMap<>();
+        json.put("label", label);
+        json.put("samples", samples);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, JsonLines.toLine(json).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static AppStartReport load(Path file) throws IOException {
+        Map<String, Object> json = JsonLines.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        AppStartReport report = new AppStartReport((String) json.get("label"));
+        ((Map<String, List<Object>>) json.get("samples")).forEach((metric, values) -> {
+            for (Object value : values) {
+                report.record(metric, ((Number) value).longValue());
+            }
+        });
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Запуск приложения [" + label + "]");
+        stats().forEach((metric, stats) -> text.append("\n  ").append(metric).append(": ").append(stats));
+        return text.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.javabruse.utils.appperf;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Бюджеты производительности по экранам: "article.jankyFrames<30,article.pssMb<=400,*.cpu<90".
+ * Экран "*" - любой, метрика - одна из AppMetrics.NAMES. Недоступная в замере метрика (-1)
+ * бюджет не нарушает, но и не проверяет: такие бюджеты возвращает unmeasured().
+ */
+public class PerfBudgets {
+
+    private static final Pattern RULE = Pattern.compile("\\s*([\\w*]+)\\.(\\w+)\\s*(<=|<)\\s*([\\d.]+)\\s*");
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    public static PerfBudgets parse(String spec) {
+        PerfBudgets budgets = new PerfBudgets();
+        for (String part : spec.split(",")) {
+            if (part.trim().isEmpty()) {
+                continue;
+            }
+            Matcher matcher = RULE.matcher(part);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Некорректный бюджет '" + part + "', ожидается экран.метрика<число");
+            }
+            if (!AppMetrics.NAMES.contains(matcher.group(2))) {
+                throw new IllegalArgumentException("Неизвестная метрика в бюджете '" + part.trim()
+                        + "', доступны " + AppMetrics.NAMES);
+            }
+            budgets.rules.add(new Rule(matcher.group(1), matcher.group(2), "<=".equals(matcher.group(3)),
+                    Double.parseDouble(matcher.group(4))));
+        }
+        return budgets;
+    }
+
+    public List<String> violations(List<ScreenSample> samples) {
+        List<String> violations = new ArrayList<>();
+        for (ScreenSample sample : samples) {
+            for (Rule rule : rules) {
+                if (!rule.appliesTo(sample)) {
+                    continue;
+                }
+                double value = sample.get(rule.metric);
+                if (value < 0) {
+                    continue;
+                }
+                boolean within = rule.inclusive ? value <= rule.limit : value < rule.limit;
+                if (!within) {
+                    violations.add(String.format(Locale.ROOT, "%s.%s = %.1f, бюджет %s %.1f",
+                            sample.getScreen(), rule.metric, value, rule.inclusive ? "<=" : "<", rule.limit));
+                }
+            }
+        }
+        return violations;
+    }
+
+    // бюджеты "экран.метрика", для которых ни в одном замере нет значения (gfxinfo недоступен, экран не снят)
+    public List<String> unmeasured(List<ScreenSample> samples) {
+        LinkedHashSet<String> unmeasured = new LinkedHashSet<>();
+        for (Rule rule : rules) {
+            boolean measured = samples.stream().anyMatch(sample -> rule.appliesTo(sample) && sample.get(rule.metric) >= 0);
+            if (!measured) {
+                unmeasured.add(rule.screen + "." + rule.metric);
+            }
+        }
+        return new ArrayList<>(unmeasured);
+    }
+
+    private static final class Rule {
+        private final String screen;
+        private final String metric;
+        private final boolean inclusive;
+        private final double limit;
+
+        private Rule(String screen, String metric, boolean inclusive, double limit) {
+            this.screen = screen;
+            this.metric = metric;
+            this.inclusive = inclusive;
+            this.limit = limit;
+        }
+
+        boolean appliesTo(ScreenSample sample) {
+            return screen.equals("*") || screen.equals(sample.getScreen());
+        }
+    }
+}
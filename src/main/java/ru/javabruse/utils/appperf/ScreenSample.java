@@ -0,0 +1,43 @@
+package ru.javabruse.utils.appperf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Замер приложения на переходе к экрану. Кадры - за окно с предыдущего перехода
+ * (gfxinfo сбрасывается после каждого замера), CPU и память - на момент перехода.
+ * Недоступная метрика хранится как -1.
+ */
+public class ScreenSample {
+
+    private final String screen;
+    private final long elapsedMillis;
+    private final Map<String, Double> metrics;
+
+    public ScreenSample(String screen, long elapsedMillis, Map<String, Double> metrics) {
+        this.screen = screen;
+        this.elapsedMillis = elapsedMillis;
+        this.metrics = new LinkedHashMap<>(metrics);
+    }
+
+    public String getScreen() {
+        return screen;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double get(String metric) {
+        return metrics.getOrDefault(metric, -1.0);
+    }
+
+    public Map<String, Double> getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return screen + "@" + elapsedMillis + "ms" + metrics;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.javabruse.utils.appperf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Сводка по повторам замера времени запуска, мс
+public class StartStats {
+
+    private final List<Long> sorted;
+    private final double mean;
+    private final double stdDev;
+
+    public StartStats(List<Long> samples) {
+        this.sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        double sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        this.mean = sorted.isEmpty() ? 0 : sum / sorted.size();
+        double squares = 0;
+        for (long sample : sorted) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        this.stdDev = sorted.size() < 2 ? 0 : Math.sqrt(squares / (sorted.size() - 1));
+    }
+
+    public int count() {
+        return sorted.size();
+    }
+
+    public long min() {
+        return sorted.isEmpty() ? 0 : sorted.get(0);
+    }
+
+    public long max() {
+        return sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1);
+    }
+
+    public double median() {
+        return percentile(0.5);
+    }
+
+    // линейная интерполяция между соседними рангами
+    public double percentile(double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        double rank = quantile * (sorted.size() - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return sorted.get(lower) + (sorted.get(upper) - sorted.get(lower)) * (rank - lower);
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double stdDev() {
+        return stdDev;
+    }
+
+    public List<Long> samples() {
+        return sorted;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "n=%d min=%d p50=%.0f p90=%.0f max=%d mean=%.1f sd=%.1f",
+                count(), min(), median(), percentile(0.9), max(), mean, stdDev);
+    }
+}
@@ -0,0 +1,179 @@
+package ru.javabruse.utils.crawl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Параллельный обход статей для проверки инвариантов на тысячах страниц.
+ * URL раздаются пулу сессий из ограниченной очереди (при переполнении новые ссылки
+ * отбрасываются), повторы отсекаются VisitedUrls, результат каждой статьи сразу
+ * дописывается строкой в JSONL. Прогресс периодически пишется в лог.
+ */
+public class ArticleCrawler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArticleCrawler.class);
+
+    private static final long POLL_MILLIS = 200;
+
+    private final Supplier<? extends CrawlSession> sessionFactory;
+    private final int sessions;
+    private final int maxArticles;
+    private final Path output;
+    private final BlockingQueue<String> frontier;
+    private final VisitedUrls visited = new VisitedUrls();
+    private final AtomicInteger claimed = new AtomicInteger();
+    // URL в очереди плюс обрабатываемые; ссылки статьи ставятся в очередь до уменьшения
+    // счётчика, поэтому 0 означает, что обход закончен
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean finished;
+    private long reportIntervalSeconds = 10;
+
+    public ArticleCrawler(Supplier<? extends CrawlSession> sessionFactory, int sessions,
+                          int frontierCapacity, int maxArticles, Path output) {
+        this.sessionFactory = sessionFactory;
+        this.sessions = sessions;
+        this.maxArticles = maxArticles;
+        this.output = output;
+        this.frontier = new ArrayBlockingQueue<>(frontierCapacity);
+    }
+
+    public ArticleCrawler reportEvery(long seconds) {
+        this.reportIntervalSeconds = seconds;
+        return this;
+    }
+
+    public CrawlReport crawl(Collection<String> seeds) throws IOException, InterruptedException {
+        CrawlReport report = new CrawlReport();
+        seeds.forEach(seed -> enqueue(seed, report));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+
+        ExecutorService workers = Executors.newFixedThreadPool(sessions);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            progress.scheduleAtFixedRate(() -> logger.info("Обход: {}, в очереди {}, известно URL {} ({} КБ)", report,
+                            frontier.size(), visited.size(), visited.memoryBytes() / 1024),
+                    reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                futures.add(workers.submit(() -> {
+                    work(writer, report);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    logger.error("Рабочий поток обхода завершился с ошибкой: {}", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            progress.shutdownNow();
+            workers.shutdownNow();
+        }
+        logger.info("Обход завершён: {}, результаты в {}", report, output);
+        return report;
+    }
+
+    private void work(Writer writer, CrawlReport report) throws InterruptedException, IOException {
+        try (CrawlSession session = sessionFactory.get()) {
+            while (!finished) {
+                String url = frontier.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (url == null) {
+                    if (pending.get() == 0) {
+                        finished = true;
+                    }
+                    continue;
+                }
+                try {
+                    if (claimed.incrementAndGet() > maxArticles) {
+                        finished = true;
+                        return;
+                    }
+                    visit(session, url, writer, report);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void visit(CrawlSession session, String url, Writer writer, CrawlReport report) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("url", url);
+        long start = System.nanoTime();
+        try {
+            CrawledPage page = session.visit(url);
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            WikipediaPage.ArticleData article = page.getArticle();
+            List<String> violations = ArticleInvariants.violations(article);
+
+            line.put("title", article.getTitle());
+            line.put("categories", article.getCategories().size());
+            line.put("infobox", article.hasInfobox());
+            line.put("links", page.getLinks().size());
+            line.put("latencyMs", latencyMs);
+            line.put("violations", violations);
+            report.recordVisit(latencyMs, false, !violations.isEmpty());
+
+            for (String link : page.getLinks()) {
+                enqueue(link, report);
+            }
+        } catch (Exception e) {
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            line.put("latencyMs", latencyMs);
+            line.put("error", String.valueOf(e.getMessage()));
+            report.recordVisit(latencyMs, true, false);
+            logger.debug("Ошибка при чтении {}: {}", url, e.getMessage());
+        }
+
+        String json = JsonLines.toLine(line);
+        synchronized (writer) {
+            writer.write(json);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    // URL запоминается только после того, как попал в очередь: отброшенная при переполнении
+    // ссылка может встретиться на другой статье и попасть в обход позже.
+    // synchronized - чтобы между проверкой и offer тот же URL не поставил другой поток
+    private synchronized void enqueue(String url, CrawlReport report) {
+        String normalized = VisitedUrls.normalize(url);
+        if (visited.contains(normalized)) {
+            return;
+        }
+        pending.incrementAndGet();
+        if (frontier.offer(normalized)) {
+            visited.add(normalized);
+        } else {
+            pending.decrementAndGet();
+            report.recordDroppedLink();
+        }
+    }
+}
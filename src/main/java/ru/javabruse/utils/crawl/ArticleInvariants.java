@@ -0,0 +1,27 @@
+package ru.javabruse.utils.crawl;
+
+import ru.javabruse.pages.WikipediaPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Инварианты, которые должны выполняться для любой статьи
+public final class ArticleInvariants {
+
+    private ArticleInvariants() {
+    }
+
+    public static List<String> violations(WikipediaPage.ArticleData article) {
+        List<String> violations = new ArrayList<>();
+        if (article.getTitle() == null || article.getTitle().isEmpty()) {
+            violations.add("нет заголовка");
+        }
+        if (article.getCategories().isEmpty()) {
+            violations.add("нет категорий");
+        }
+        if (article.hasInfobox() && article.getInfoboxRows() == 0) {
+            violations.add("пустой инфобокс");
+        }
+        return violations;
+    }
+}
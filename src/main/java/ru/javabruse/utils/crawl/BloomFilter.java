@@ -0,0 +1,83 @@
+package ru.javabruse.utils.crawl;
+
+/**
+ * Фильтр Блума над 64-битными хэшами. Размер битового массива и число хэш-функций
+ * считаются по ожидаемому числу элементов и допустимой доле ложных срабатываний;
+ * k позиций получаются двойным хэшированием из двух половин перемешанного хэша
+ * и переводятся в номер бита умножением со сдвигом вместо деления по модулю.
+ * Не потокобезопасен: синхронизацию обеспечивает VisitedSet.
+ */
+public class BloomFilter {
+
+    // 2^32 бит (512 МБ): больше не нужно, и номер бита укладывается в умножение со сдвигом
+    private static final int MAX_WORDS = 1 << 26;
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    public BloomFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Некорректные параметры фильтра: " + expectedItems + ", " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.min(MAX_WORDS, Math.max(1, (bits + 63) / 64));
+        this.words = new long[wordCount];
+        this.bitCount = (long) wordCount * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedItems * ln2));
+    }
+
+    // true - хотя бы один бит был сброшен, т.е. элемента точно не было
+    public boolean put(long hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = bitIndex(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public boolean mightContain(long hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = bitIndex(h1 + i * h2);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    public long memoryBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    private long bitIndex(int combined) {
+        return ((combined & 0xffffffffL) * bitCount) >>> 32;
+    }
+
+    // финализатор MurmurHash3: FNV-1a плохо распределяет младшие биты
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.javabruse.utils.crawl;
+
+import org.openqa.selenium.WebDriver;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.WebDriverFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Сессия обхода на браузере из WebDriverFactory, статьи читаются через WikipediaPage
+public class BrowserCrawlSession implements CrawlSession {
+
+    private final WebDriver driver;
+    private final WikipediaPage page;
+
+    public BrowserCrawlSession() {
+        this.driver = WebDriverFactory.createWebDriver();
+        this.page = new WikipediaPage(driver);
+    }
+
+    @Override
+    public CrawledPage visit(String url) {
+        page.openArticle(url);
+        return new CrawledPage(page.readCurrentArticle(), page.getArticleLinks());
+    }
+
+    // Стартовые URL: разные случайные статьи через Special:Random, повторы пропускаются
+    public List<String> randomSeeds(int count) {
+        VisitedUrls seen = new VisitedUrls(new VisitedSet(Math.max(count, 16), 0.001, count * 16L));
+        List<String> seeds = new ArrayList<>();
+        for (int attempt = 0; seeds.size() < count && attempt < count * 3; attempt++) {
+            page.goToRandomPage();
+            String url = page.getCurrentUrl();
+            if (seen.add(url)) {
+                seeds.add(url);
+            }
+        }
+        return seeds;
+    }
+
+    @Override
+    public void close() {
+        WebDriverFactory.quitDriver(driver);
+    }
+}
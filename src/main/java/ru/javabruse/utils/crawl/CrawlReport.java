@@ -0,0 +1,72 @@
+package ru.javabruse.utils.crawl;
+
+import ru.javabruse.utils.metrics.Histogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счётчики обхода: пропускная способность, доля ошибок, задержки чтения статьи
+public class CrawlReport {
+
+    private final long startedNanos = System.nanoTime();
+    private final AtomicLong visited = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong violations = new AtomicLong();
+    private final AtomicLong droppedLinks = new AtomicLong();
+    private final Histogram latencies = new Histogram();
+
+    void recordVisit(long latencyMs, boolean error, boolean violated) {
+        visited.incrementAndGet();
+        latencies.observe(latencyMs / 1000.0);
+        if (error) {
+            errors.incrementAndGet();
+        }
+        if (violated) {
+            violations.incrementAndGet();
+        }
+    }
+
+    void recordDroppedLink() {
+        droppedLinks.incrementAndGet();
+    }
+
+    public long getVisited() {
+        return visited.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getViolations() {
+        return violations.get();
+    }
+
+    // ссылки, не попавшие в заполненную очередь обхода
+    public long getDroppedLinks() {
+        return droppedLinks.get();
+    }
+
+    public double errorRate() {
+        long total = visited.get();
+        return total == 0 ? 0 : (double) errors.get() / total;
+    }
+
+    public double articlesPerSecond() {
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        return seconds <= 0 ? 0 : visited.get() / seconds;
+    }
+
+    public long latencyPercentile(double q) {
+        return Math.round(latencies.percentileMillis(q));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "статей %d (%.2f/с), ошибок %d (%.1f%%), нарушений %d, отброшено ссылок %d, "
+                        + "задержка p50 %d мс, p95 %d мс",
+                visited.get(), articlesPerSecond(), errors.get(), errorRate() * 100, violations.get(),
+                droppedLinks.get(), latencyPercentile(0.50), latencyPercentile(0.95));
+    }
+}
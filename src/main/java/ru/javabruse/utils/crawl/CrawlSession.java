@@ -0,0 +1,10 @@
+package ru.javabruse.utils.crawl;
+
+// Один рабочий сеанс обхода (браузер или другой источник страниц); используется одним потоком
+public interface CrawlSession extends AutoCloseable {
+
+    CrawledPage visit(String url) throws Exception;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,24 @@
+package ru.javabruse.utils.crawl;
+
+import ru.javabruse.pages.WikipediaPage;
+
+import java.util.List;
+
+// Прочитанная статья и ссылки с неё на другие статьи
+public class CrawledPage {
+    private final WikipediaPage.ArticleData article;
+    private final List<String> links;
+
+    public CrawledPage(WikipediaPage.ArticleData article, List<String> links) {
+        this.article = article;
+        this.links = links;
+    }
+
+    public WikipediaPage.ArticleData getArticle() {
+        return article;
+    }
+
+    public List<String> getLinks() {
+        return links;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.javabruse.utils.crawl;
+
+/**
+ * Множество long на открытой адресации с линейным пробированием: 8 байт на ячейку
+ * вместо ~60 байт на элемент у HashSet<Long> и сотен у HashSet<String>.
+ * Ноль служит пустой ячейкой, сам ноль хранится отдельным флагом. Таблица растёт
+ * вдвое при заполнении наполовину, но не больше maxTableBytes - дальше isFull().
+ * Не потокобезопасен: синхронизацию обеспечивает VisitedSet.
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final long maxCapacity;
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet(int initialCapacity, long maxTableBytes) {
+        long limit = Math.min(1L << 30, Long.highestOneBit(Math.max(MIN_CAPACITY, maxTableBytes / Long.BYTES)));
+        this.maxCapacity = limit;
+        int capacity = (int) Math.min(limit, tableSizeFor(Math.max(MIN_CAPACITY, initialCapacity * 2L)));
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        for (int i = index(value); ; i = (i + 1) & mask) {
+            long slot = table[i];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+    }
+
+    // true - значение добавлено; при isFull() новые значения не добавляются
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero || isFull()) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int i = index(value);
+        for (; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return false;
+            }
+        }
+        if (isFull()) {
+            return false;
+        }
+        table[i] = value;
+        size++;
+        if (size > table.length / 2 && table.length < maxCapacity) {
+            resize(table.length * 2);
+        }
+        return true;
+    }
+
+    // таблица достигла предела памяти и заполнена наполовину
+    public boolean isFull() {
+        return table.length >= maxCapacity && size >= table.length / 2;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int i = index(value);
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    private int index(long value) {
+        return (int) BloomFilter.mix(value) & mask;
+    }
+
+    private static long tableSizeFor(long capacity) {
+        return Long.highestOneBit(capacity - 1) << 1;
+    }
+}
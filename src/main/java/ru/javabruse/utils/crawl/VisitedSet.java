@@ -0,0 +1,101 @@
+package ru.javabruse.utils.crawl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Компактное множество уже встреченных статей для длинных прогонов и обходов.
+ * Ключ хранится как 64-битный FNV-1a хэш символов строки. Фильтр Блума отвечает первым: "нет" у него
+ * точное, и новый ключ не требует поиска в таблице. На "возможно" проверяется точное
+ * множество хэшей. Когда таблица упирается в предел памяти, новые хэши в неё больше
+ * не пишутся и ответ даёт только фильтр - с заданной долей ложных срабатываний.
+ *
+ * Память ограничена размером фильтра плюс maxExactBytes, что бы ни случилось с числом
+ * ключей; memoryBytes() показывает фактически занятое.
+ */
+public class VisitedSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitedSet.class);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final BloomFilter bloom;
+    private final LongHashSet exact;
+    private long size;
+    private boolean saturationLogged;
+
+    public VisitedSet(long expectedItems, double falsePositiveRate, long maxExactBytes) {
+        this.bloom = new BloomFilter(expectedItems, falsePositiveRate);
+        this.exact = new LongHashSet((int) Math.min(expectedItems, 1 << 16), maxExactBytes);
+    }
+
+    // -Dvisited.expected (1 000 000), -Dvisited.fpp (0.001), -Dvisited.max.mb (64)
+    public static VisitedSet fromSystemProperties() {
+        return new VisitedSet(Long.getLong("visited.expected", 1_000_000L),
+                Double.parseDouble(System.getProperty("visited.fpp", "0.001")),
+                Long.getLong("visited.max.mb", 64L) * 1024 * 1024);
+    }
+
+    // true - ключ встретился впервые (после насыщения таблицы - с вероятностью ошибки fpp)
+    public boolean add(String key) {
+        return addHash(hash(key));
+    }
+
+    public boolean contains(String key) {
+        return containsHash(hash(key));
+    }
+
+    public synchronized boolean addHash(long hash) {
+        if (bloom.put(hash)) {
+            exact.add(hash);
+            size++;
+            return true;
+        }
+        if (exact.contains(hash)) {
+            return false;
+        }
+        if (exact.isFull()) {
+            if (!saturationLogged) {
+                saturationLogged = true;
+                logger.warn("Точное множество заполнено ({} хэшей, {} КБ), дальше повторы определяет только фильтр Блума",
+                        exact.size(), exact.memoryBytes() / 1024);
+            }
+            return false;
+        }
+        // ложное срабатывание фильтра: ключ новый
+        exact.add(hash);
+        size++;
+        return true;
+    }
+
+    public synchronized boolean containsHash(long hash) {
+        if (!bloom.mightContain(hash)) {
+            return false;
+        }
+        return exact.isFull() || exact.contains(hash);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    // false - таблица заполнена, ответы "уже было" могут быть ложными
+    public synchronized boolean isExact() {
+        return !exact.isFull();
+    }
+
+    public synchronized long memoryBytes() {
+        return bloom.memoryBytes() + exact.memoryBytes();
+    }
+
+    public static long hash(String value) {
+        // по символам, без промежуточного массива байт
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.javabruse.utils.crawl;
+
+/**
+ * Множество уже поставленных в обход URL.
+ * Хранится 64-битный FNV-1a хэш нормализованного URL вместо строки (см. VisitedSet):
+ * на миллионах статей это десятки мегабайт вместо гигабайт.
+ */
+public class VisitedUrls {
+
+    private final VisitedSet hashes;
+
+    public VisitedUrls() {
+        this(VisitedSet.fromSystemProperties());
+    }
+
+    public VisitedUrls(VisitedSet hashes) {
+        this.hashes = hashes;
+    }
+
+    // true - URL встретился впервые
+    public boolean add(String url) {
+        return hashes.add(normalize(url));
+    }
+
+    public boolean contains(String url) {
+        return hashes.contains(normalize(url));
+    }
+
+    public long size() {
+        return hashes.size();
+    }
+
+    public long memoryBytes() {
+        return hashes.memoryBytes();
+    }
+
+    // без якоря и завершающего слэша, пробелы как в адресах Википедии
+    static String normalize(String url) {
+        String normalized = url.trim();
+        int fragment = normalized.indexOf('#');
+        if (fragment >= 0) {
+            normalized = normalized.substring(0, fragment);
+        }
+        if (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized.replace(' ', '_');
+    }
+}
@@ -0,0 +1,226 @@
+package ru.javabruse.utils.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.annotations.Listeners;
+import ru.javabruse.utils.impact.ImpactRecorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Порядок тестов "сначала то, что вероятнее упадёт быстрее" и остановка после N падений.
+ * История (вероятность падения с затуханием, средняя длительность вместе с @BeforeMethod)
+ * пишется всегда в failfast.history (.test-history/test-history.json - вне target/,
+ * чтобы история копилась между прогонами и переживала mvn clean).
+ * -Dfailfast=true - тесты упорядочиваются по убыванию p * (1 + покрытие) / длительность:
+ * так минимизируется ожидаемое время до первого падения, а на зелёном прогоне
+ * выполняются те же тесты. Покрытие - доля методов основного кода из карты влияния
+ * (ImpactRecorder) относительно самого широкого теста. Тесты без истории получают
+ * априорную вероятность и медианную длительность.
+ * -Dfailfast.max.failures=N - после N падений (тестов или @BeforeMethod) остальные тесты пропускаются.
+ * Попытка, за которой следует повтор (SessionRetry), падением не считается; тест,
+ * прошедший на повторе, записывается в историю как нестабильный.
+ * TestNG применяет перехватчик и слушатель ко всему прогону, поэтому, как и ImpactSelector,
+ * они действуют только на классы, объявившие FailFastScheduler в @Listeners: unit-тесты,
+ * обход и нагрузка не переставляются, не останавливаются и не пишутся в историю.
+ */
+public class FailFastScheduler implements IMethodInterceptor, IInvokedMethodListener, ISuiteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailFastScheduler.class);
+
+    private static final double PRIOR = 0.2;
+    // длительность теста без истории и без соседей с историей
+    private static final double DEFAULT_SECONDS = 30;
+
+    static final String DEFAULT_HISTORY = ".test-history/test-history.json";
+
+    // TestNG держит один экземпляр слушателя на класс, даже если он объявлен на нескольких тестовых классах
+    private final boolean reorder;
+    private final int maxFailures;
+    private final Path historyFile;
+    private final TestHistory history;
+    private final Predicate<Class<?>> scope;
+
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong suiteStart = new AtomicLong();
+    private final AtomicLong firstFailure = new AtomicLong();
+    // начало @BeforeMethod текущего теста в потоке: длительность считается вместе с подготовкой
+    private final ThreadLocal<Long> testStart = new ThreadLocal<>();
+
+    public FailFastScheduler() {
+        this(Boolean.parseBoolean(System.getProperty("failfast", "false")),
+                Integer.getInteger("failfast.max.failures", 0),
+                historyFile(), testClass -> declares(testClass, FailFastScheduler.class));
+    }
+
+    FailFastScheduler(boolean reorder, int maxFailures, Path historyFile, Predicate<Class<?>> scope) {
+        this.reorder = reorder;
+        this.maxFailures = maxFailures;
+        this.historyFile = historyFile;
+        this.history = TestHistory.load(historyFile);
+        this.scope = scope;
+    }
+
+    // -Dfailfast.history
+    static Path historyFile() {
+        return Paths.get(System.getProperty("failfast.history", DEFAULT_HISTORY));
+    }
+
+    static boolean declares(Class<?> testClass, Class<?> listener) {
+        Listeners listeners = testClass.getAnnotation(Listeners.class);
+        return listeners != null && Arrays.asList(listeners.value()).contains(listener);
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!reorder) {
+            return methods;
+        }
+        Map<String, Double> coverage = coverageShare();
+        double defaultSeconds = history.medianSeconds(DEFAULT_SECONDS);
+        Map<IMethodInstance, Double> scores = new HashMap<>();
+        for (IMethodInstance instance : methods) {
+            if (inScope(instance.getMethod())) {
+                String test = testName(instance.getMethod());
+                scores.put(instance, score(history.get(test), coverage.getOrDefault(test, 0.0), defaultSeconds));
+            }
+        }
+        if (scores.isEmpty()) {
+            return methods;
+        }
+        List<IMethodInstance> sorted = new ArrayList<>(scores.keySet());
+        sorted.sort(Comparator.comparingInt(methods::indexOf));
+        // сортировка устойчивая: при равных оценках сохраняется исходный порядок (priority)
+        sorted.sort(Comparator.comparingDouble((IMethodInstance instance) -> scores.get(instance)).reversed());
+        // методы других классов остаются на своих местах, переставляются только свои
+        List<IMethodInstance> ordered = new ArrayList<>(methods.size());
+        Iterator<IMethodInstance> next = sorted.iterator();
+        for (IMethodInstance instance : methods) {
+            ordered.add(scores.containsKey(instance) ? next.next() : instance);
+        }
+        if (logger.isInfoEnabled()) {
+            StringBuilder order = new StringBuilder();
+            for (IMethodInstance instance : sorted) {
+                order.append(String.format(Locale.ROOT, "%n  %-55s %.4f", testName(instance.getMethod()),
+                        scores.get(instance)));
+            }
+            logger.info("Порядок тестов по вероятности раннего падения:{}", order);
+        }
+        return ordered;
+    }
+
+    // вероятность падения на секунду работы, с поправкой на покрытие
+    static double score(TestRecord record, double coverageShare, double defaultSeconds) {
+        double probability = record == null ? PRIOR : record.failureProbability(PRIOR);
+        double seconds = record == null || record.getMeanSeconds() <= 0 ? defaultSeconds : record.getMeanSeconds();
+        return probability * (1 + coverageShare) / Math.max(0.1, seconds);
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        ITestNGMethod testMethod = method.getTestMethod();
+        if (!method.isTestMethod() && !testMethod.isBeforeMethodConfiguration() || !inScope(testMethod)) {
+            return;
+        }
+        suiteStart.compareAndSet(0, System.currentTimeMillis());
+        if (maxFailures > 0 && failures.get() >= maxFailures) {
+            // без @BeforeMethod пропущенный тест не создаёт браузер
+            throw new SkipException("Прогон остановлен после " + failures.get() + " падений (failfast.max.failures)");
+        }
+        if (testMethod.isBeforeMethodConfiguration() || testStart.get() == null) {
+            testStart.set(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!inScope(method.getTestMethod())) {
+            return;
+        }
+        if (method.isTestMethod()) {
+            Long start = testStart.get();
+            testStart.remove();
+            int status = testResult.getStatus();
+            if (status == ITestResult.SUCCESS || status == ITestResult.FAILURE) {
+                double seconds = (System.nanoTime() - (start == null ? System.nanoTime() : start)) / 1e9;
+                boolean failed = status == ITestResult.FAILURE;
+                history.record(testName(method.getTestMethod()), failed,
+                        !failed && SessionRetry.attempts(testResult) > 0, seconds);
+            }
+            if (status == ITestResult.FAILURE) {
+                failed();
+            }
+        } else if (method.getTestMethod().isBeforeMethodConfiguration()
+                && testResult.getStatus() == ITestResult.FAILURE) {
+            testStart.remove();
+            failed();
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (firstFailure.get() > 0) {
+            logger.info("Первое падение через {} с после начала прогона, всего падений: {}",
+                    (firstFailure.get() - suiteStart.get()) / 1000, failures.get());
+        }
+        try {
+            history.save(historyFile);
+        } catch (IOException e) {
+            logger.warn("Не удалось сохранить историю тестов {}: {}", historyFile, e.getMessage());
+        }
+    }
+
+    // имя как в TestLogContext: Класс.метод
+    static String testName(ITestNGMethod method) {
+        return method.getRealClass().getSimpleName() + "." + method.getMethodName();
+    }
+
+    private boolean inScope(ITestNGMethod method) {
+        return scope.test(method.getRealClass());
+    }
+
+    private void failed() {
+        firstFailure.compareAndSet(0, System.currentTimeMillis());
+        if (failures.incrementAndGet() == maxFailures) {
+            logger.warn("Достигнут порог failfast.max.failures={}, остальные тесты будут пропущены", maxFailures);
+        }
+    }
+
+    private static Map<String, Double> coverageShare() {
+        Map<String, Double> shares = new HashMap<>();
+        try {
+            Map<String, Set<String>> usage = ImpactRecorder.load(ImpactRecorder.mapFile());
+            int widest = usage.values().stream().mapToInt(Set::size).max().orElse(0);
+            if (widest > 0) {
+                usage.forEach((test, methods) -> shares.put(test, (double) methods.size() / widest));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Карта влияния недоступна, покрытие не учитывается: {}", e.getMessage());
+        }
+        return shares;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.javabruse.utils.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Повторы и карантин нестабильных тестов.
+ * -Dretry.max=N - тестам без собственного retryAnalyzer назначается SessionRetry.
+ * -Dlane=main - тесты в карантине (по истории failfast.history) не запускаются;
+ * -Dlane=quarantine - запускаются только они, отдельным необязательным шагом CI,
+ * и их результаты продолжают писаться в историю, пока тест не выйдет из карантина.
+ * Без lane запускается всё.
+ * Как и FailFastScheduler, действует только на классы, объявившие FlakeControl в @Listeners:
+ * тесты остальных классов идут без повторов и без фильтра по линии.
+ */
+public class FlakeControl implements IMethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlakeControl.class);
+
+    // значение @Test(retryAnalyzer) по умолчанию - "повторов нет"; берётся из самой аннотации,
+    // без ссылки на внутренний класс TestNG
+    private static final Class<?> DEFAULT_ANALYZER = defaultAnalyzer();
+
+    private final String lane;
+    private final TestHistory history;
+    private final Predicate<Class<?>> scope;
+
+    public FlakeControl() {
+        this(System.getProperty("lane"), FailFastScheduler.historyFile(),
+                testClass -> FailFastScheduler.declares(testClass, FlakeControl.class));
+    }
+
+    FlakeControl(String lane, Path historyFile, Predicate<Class<?>> scope) {
+        this.lane = lane;
+        this.history = TestHistory.load(historyFile);
+        this.scope = scope;
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        List<IMethodInstance> kept = new ArrayList<>();
+        List<String> quarantined = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            if (!scope.test(method.getRealClass())) {
+                kept.add(instance);
+                continue;
+            }
+            String test = FailFastScheduler.testName(method);
+            boolean inQuarantine = history.isQuarantined(test);
+            if (inQuarantine) {
+                quarantined.add(test);
+            }
+            if ("main".equals(lane) && inQuarantine || "quarantine".equals(lane) && !inQuarantine) {
+                continue;
+            }
+            if (SessionRetry.isEnabled() && (method.getRetryAnalyzerClass() == null
+                    || method.getRetryAnalyzerClass() == DEFAULT_ANALYZER)) {
+                method.setRetryAnalyzerClass(SessionRetry.class);
+            }
+            kept.add(instance);
+        }
+        if (!quarantined.isEmpty()) {
+            logger.info("Тесты в карантине ({}): {}", lane == null ? "линия не задана, запускаются" : "линия " + lane,
+                    quarantined);
+        }
+        return kept;
+    }
+
+    private static Class<?> defaultAnalyzer() {
+        try {
+            return (Class<?>) Test.class.getMethod("retryAnalyzer").getDefaultValue();
+        } catch (NoSuchMethodException e) {
+            return IRetryAnalyzer.class;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.javabruse.utils.history;
+
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+import ru.javabruse.utils.metrics.Counter;
+import ru.javabruse.utils.metrics.SuiteMetrics;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Немедленный повтор упавшего теста, до retry.max раз (-Dretry.max=1).
+ * Повторяются только сбои среды: исключения WebDriver (таймауты ожиданий, устаревшие
+ * элементы, потерянная или не созданная сессия) и TimeoutException. Проваленная проверка
+ * (AssertionError) и прочие ошибки теста не повторяются: иначе регрессия прошла бы на
+ * повторе как нестабильность и завысила бы долю нестабильных прогонов.
+ * TestNG создаёт анализатор на каждый тестовый метод и вызывает @AfterMethod упавшей
+ * попытки уже зная о повторе: тестовый класс проверяет willRetry(), сбрасывает состояние
+ * браузера мягко и отдаёт ту же сессию следующему @BeforeMethod вместо нового драйвера.
+ * Тест, прошедший только на повторе, попадает в историю как нестабильный (FailFastScheduler).
+ */
+public class SessionRetry implements IRetryAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRetry.class);
+
+    private static final Counter RETRIES = SuiteMetrics.counter("wiki_test_retries_total",
+            "Повторы упавших тестов в той же сессии");
+
+    private final int maxRetries = Integer.getInteger("retry.max", 0);
+    private int attempts;
+
+    @Override
+    public boolean retry(ITestResult result) {
+        Throwable error = result.getThrowable();
+        if (attempts >= maxRetries || !isTransient(error)) {
+            return false;
+        }
+        attempts++;
+        RETRIES.inc();
+        logger.warn("Повтор {} из {} теста {}: {}", attempts, maxRetries, result.getMethod().getMethodName(),
+                error == null ? "" : error.getClass().getSimpleName() + ": " + error.getMessage());
+        return true;
+    }
+
+    // сбой среды где-то в цепочке причин; AssertionError - всегда ошибка теста
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AssertionError) {
+                return false;
+            }
+            if (cause instanceof WebDriverException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public static boolean isEnabled() {
+        return Integer.getInteger("retry.max", 0) > 0;
+    }
+
+    // в @AfterMethod: эта попытка упала, и тест сейчас будет повторён
+    public static boolean willRetry(ITestResult result) {
+        return result != null && result.wasRetried();
+    }
+
+    // сколько повторов уже было у теста этого результата
+    public static int attempts(ITestResult result) {
+        IRetryAnalyzer analyzer = result.getMethod().getRetryAnalyzer(result);
+        return analyzer instanceof SessionRetry ? ((SessionRetry) analyzer).attempts : 0;
+    }
+}
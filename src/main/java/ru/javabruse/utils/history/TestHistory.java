@@ -0,0 +1,82 @@
+package ru.javabruse.utils.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Локальная история результатов тестов между прогонами: тест (Класс.метод) -> TestRecord.
+ * Файл - один JSON-объект, перезаписывается атомарно в конце прогона.
+ */
+public class TestHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestHistory.class);
+
+    private final Map<String, TestRecord> records = new TreeMap<>();
+
+    @SuppressWarnings("unchecked")
+    public static TestHistory load(Path file) {
+        TestHistory history = new TestHistory();
+        if (!Files.exists(file)) {
+            return history;
+        }
+        try {
+            String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            if (!json.isEmpty()) {
+                JsonLines.parse(json).forEach((test, record) ->
+                        history.records.put(test, TestRecord.fromJson((Map<String, Object>) record)));
+            }
+        } catch (IOException | RuntimeException e) {
+            // испорченная история не должна ронять прогон - начнём заново
+            logger.warn("Не удалось прочитать историю тестов {}: {}", file, e.getMessage());
+        }
+        return history;
+    }
+
+    public synchronized void record(String test, boolean failed, double seconds) {
+        record(test, failed, false, seconds);
+    }
+
+    public synchronized void record(String test, boolean failed, boolean flaky, double seconds) {
+        records.computeIfAbsent(test, key -> new TestRecord()).record(failed, flaky, seconds);
+    }
+
+    public synchronized boolean isQuarantined(String test) {
+        TestRecord record = records.get(test);
+        return record != null && record.isQuarantined();
+    }
+
+    public synchronized TestRecord get(String test) {
+        return records.get(test);
+    }
+
+    public synchronized int size() {
+        return records.size();
+    }
+
+    // медиана длительностей известных тестов - оценка для тестов без истории
+    public synchronized double medianSeconds(double fallback) {
+        double[] durations = records.values().stream().mapToDouble(TestRecord::getMeanSeconds)
+                .filter(seconds -> seconds > 0).sorted().toArray();
+        return durations.length == 0 ? fallback : durations[durations.length / 2];
+    }
+
+    public synchronized void save(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Map<String, Object> json = new TreeMap<>();
+        records.forEach((test, record) -> json.put(test, record.toJson()));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, (JsonLines.toLine(json) + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.javabruse.utils.history;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * История одного теста между прогонами. Счётчики затухают: каждый новый результат
+ * умножает старые на DECAY, поэтому недавнее падение весит больше давнего.
+ * Нестабильный прогон - тест упал и прошёл на повторе (SessionRetry). Тест уходит
+ * в карантин, когда доля таких прогонов достигает quarantine.flake.rate (0.3) хотя бы
+ * за три прогона, и возвращается, когда она падает ниже половины порога.
+ */
+public class TestRecord {
+
+    // вес прогона пятиразовой давности - 0.8^5 ~ 0.33
+    static final double DECAY = 0.8;
+    // доля нового замера в скользящем среднем длительности
+    private static final double DURATION_WEIGHT = 0.3;
+    private static final double QUARANTINE_RATE = Double.parseDouble(System.getProperty("quarantine.flake.rate", "0.3"));
+    // три прогона в затухающих единицах: 1 + 0.8 + 0.64
+    private static final double QUARANTINE_MIN_RUNS = 1 + DECAY + DECAY * DECAY - 1e-9;
+
+    private double runs;
+    private double failures;
+    private double flakes;
+    private double meanSeconds;
+    private boolean lastFailed;
+    private boolean quarantined;
+
+    void record(boolean failed, double seconds) {
+        record(failed, false, seconds);
+    }
+
+    // flaky - тест прошёл только на повторе
+    void record(boolean failed, boolean flaky, double seconds) {
+        runs = runs * DECAY + 1;
+        failures = failures * DECAY + (failed ? 1 : 0);
+        flakes = flakes * DECAY + (flaky ? 1 : 0);
+        meanSeconds = meanSeconds == 0 ? seconds : meanSeconds + DURATION_WEIGHT * (seconds - meanSeconds);
+        lastFailed = failed;
+        // порог входа выше порога выхода: тест не скачет между линиями от прогона к прогону
+        if (!quarantined && runs >= QUARANTINE_MIN_RUNS && getFlakeRate() >= QUARANTINE_RATE) {
+            quarantined = true;
+        } else if (quarantined && getFlakeRate() < QUARANTINE_RATE / 2) {
+            quarantined = false;
+        }
+    }
+
+    // оценка с априорной вероятностью prior весом в один прогон: новый тест не равен ни 0, ни 1
+    public double failureProbability(double prior) {
+        return (failures + prior) / (runs + 1);
+    }
+
+    public double getRuns() {
+        return runs;
+    }
+
+    public double getFailures() {
+        return failures;
+    }
+
+    public double getFlakes() {
+        return flakes;
+    }
+
+    public double getFlakeRate() {
+        return runs == 0 ? 0 : flakes / runs;
+    }
+
+    public boolean isQuarantined() {
+        return quarantined;
+    }
+
+    public double getMeanSeconds() {
+        return meanSeconds;
+    }
+
+    public boolean isLastFailed() {
+        return lastFailed;
+    }
+
+    Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("runs", runs);
+        json.put("failures", failures);
+        json.put("flakes", flakes);
+        json.put("meanSeconds", meanSeconds);
+        json.put("lastFailed", lastFailed);
+        json.put("quarantined", quarantined);
+        return json;
+    }
+
+    static TestRecord fromJson(Map<String, Object> json) {
+        TestRecord record = new TestRecord();
+        record.runs = ((Number) json.get("runs")).doubleValue();
+        record.failures = ((Number) json.get("failures")).doubleValue();
+        record.meanSeconds = ((Number) json.get("meanSeconds")).doubleValue();
+        // история, записанная до учёта повторов
+        record.flakes = json.get("flakes") instanceof Number ? ((Number) json.get("flakes")).doubleValue() : 0;
+        record.lastFailed = Boolean.TRUE.equals(json.get("lastFailed"));
+        record.quarantined = Boolean.TRUE.equals(json.get("quarantined"));
+        return record;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.javabruse.utils.impact;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Какие тесты затрагивает изменение исходников, по карте "тест -> методы" из ImpactRecorder.
+ * Изменённая строка внутри метода выбирает тесты, вызывавшие этот метод. Строка вне
+ * методов (поле, локатор, импорт), удалённый файл или метод, которого нет в карте
+ * (он мог не выполнять команд драйвера), выбирают все тесты, касавшиеся класса.
+ * Класс, которого не касался ни один записанный тест (хелпер без команд драйвера на стеке:
+ * JsonLines, PerfBudgets, ...), попадает в getUntouchedClasses() и включает запуск всех
+ * тестов: по карте нельзя сказать, кого затронет регрессия в нём.
+ * Изменение тестового класса из src/test/java, тесты которого есть в карте, тоже включает
+ * запуск всех тестов: карта описывает их старый код. Тестовые классы не из карты (новые,
+ * unit-тесты) выбор не меняют - их тесты неизвестны карте и запускаются и так.
+ */
+public class ImpactAnalysis {
+
+    private static final String SOURCE_ROOT = "src/main/java/";
+    private static final String TEST_ROOT = "src/test/java/";
+
+    private final Map<String, Set<String>> usage;
+
+    public ImpactAnalysis(Map<String, Set<String>> usage) {
+        this.usage = usage;
+    }
+
+    // sources: путь файла -> текущий текст (null, если не прочитать - тогда весь класс)
+    public Result select(SourceDiff diff, Function<String, String> sources) {
+        Result result = new Result();
+        diff.getChangedLines().forEach((path, lines) -> {
+            if (isTestSource(path)) {
+                selectTestClass(path, result);
+                return;
+            }
+            String className = className(path);
+            if (className == null) {
+                result.runAll = true;
+                return;
+            }
+            String source = sources.apply(path);
+            if (source == null) {
+                selectClass(className, result);
+                return;
+            }
+            MethodIndex index = new MethodIndex(source);
+            Set<String> methods = new LinkedHashSet<>();
+            boolean classLevel = false;
+            for (int line : lines) {
+                String method = index.methodAt(line);
+                if (method == null) {
+                    classLevel = true;
+                } else {
+                    methods.add(className + "#" + method);
+                }
+            }
+            if (classLevel) {
+                selectClass(className, result);
+            }
+            for (String method : methods) {
+                if (!selectMethod(method, result)) {
+                    selectClass(className, result);
+                }
+            }
+        });
+        for (String path : diff.getDeletedFiles()) {
+            if (isTestSource(path)) {
+                selectTestClass(path, result);
+                continue;
+            }
+            String className = className(path);
+            if (className == null) {
+                result.runAll = true;
+            } else {
+                selectClass(className, result);
+            }
+        }
+        return result;
+    }
+
+    public boolean isKnown(String test) {
+        return usage.containsKey(test);
+    }
+
+    private boolean selectMethod(String methodKey, Result result) {
+        boolean found = false;
+        for (Map.Entry<String, Set<String>> entry : usage.entrySet()) {
+            if (entry.getValue().contains(methodKey)) {
+                result.select(entry.getKey(), methodKey);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    private void selectClass(String className, Result result) {
+        String prefix = className + "#";
+        boolean found = false;
+        for (Map.Entry<String, Set<String>> entry : usage.entrySet()) {
+            for (String method : entry.getValue()) {
+                if (method.startsWith(prefix)) {
+                    result.select(entry.getKey(), className);
+                    found = true;
+                    break;
+                }
+            }
+        }
+        if (!found) {
+            result.untouchedClasses.add(className);
+            result.runAll = true;
+        }
+    }
+
+    // тесты в карте записаны как Класс.метод, без пакета
+    private void selectTestClass(String path, Result result) {
+        String className = path.substring(path.lastIndexOf('/') + 1, path.length() - ".java".length());
+        String prefix = className + ".";
+        for (String test : usage.keySet()) {
+            if (test.startsWith(prefix)) {
+                result.changedTests.add(className);
+                result.runAll = true;
+                return;
+            }
+        }
+    }
+
+    private static boolean isTestSource(String path) {
+        return path.contains(TEST_ROOT) && path.endsWith(".java");
+    }
+
+    // src/main/java/ru/javabruse/pages/WikipediaPage.java -> ru.javabruse.pages.WikipediaPage
+    static String className(String path) {
+        int root = path.indexOf(SOURCE_ROOT);
+        if (root < 0 || !path.endsWith(".java")) {
+            return null;
+        }
+        return path.substring(root + SOURCE_ROOT.length(), path.length() - ".java".length()).replace('/', '.');
+    }
+
+    public static class Result {
+        // тест -> первое изменение, из-за которого он выбран
+        private final Map<String, String> selected = new LinkedHashMap<>();
+        private final Set<String> untouchedClasses = new TreeSet<>();
+        private final Set<String> changedTests = new TreeSet<>();
+        private boolean runAll;
+
+        private void select(String test, String reason) {
+            selected.putIfAbsent(test, reason);
+        }
+
+        public Map<String, String> getSelected() {
+            return selected;
+        }
+
+        public Set<String> getUntouchedClasses() {
+            return untouchedClasses;
+        }
+
+        // изменённые тестовые классы, тесты которых есть в карте
+        public Set<String> getChangedTests() {
+            return changedTests;
+        }
+
+        // изменились файлы, которые нельзя сопоставить с классами, или классы, которых нет в карте
+        public boolean isRunAll() {
+            return runAll;
+        }
+    }
+}
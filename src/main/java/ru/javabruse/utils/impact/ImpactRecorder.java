@@ -0,0 +1,157 @@
+package ru.javabruse.utils.impact;
+
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.wire.WireRecorder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запись того, какие методы основного кода вызывает каждый тест (-Dimpact.record=true).
+ * Фильтр HTTP-клиента сессии видит каждую команду WebDriver/Appium в потоке теста;
+ * на команде по стеку собираются кадры классов из src/main/java - page object'ы,
+ * WebDriverFactory, ожидания - и добавляются к тесту из TestLogContext.
+ * Методы без команд драйвера (геттеры, разбор данных) так не видны; ImpactSelector
+ * учитывает это, откатываясь на уровень класса.
+ * При завершении прогона карта "тест -> методы" сливается с файлом impact.map:
+ * записи тестов этого прогона заменяются, остальные остаются.
+ */
+public final class ImpactRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImpactRecorder.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("impact.record", "false"));
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private static final CodeSource MAIN_CODE = ImpactRecorder.class.getProtectionDomain().getCodeSource();
+
+    // классы из того же каталога/jar, что и основной код, кроме самой записи
+    private static final ClassValue<Boolean> MAIN_CLASS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            CodeSource source = type.getProtectionDomain().getCodeSource();
+            return MAIN_CODE != null && source != null
+                    && MAIN_CODE.getLocation().equals(source.getLocation())
+                    && !type.getPackageName().equals(ImpactRecorder.class.getPackageName());
+        }
+    };
+
+    private static final Map<String, Set<String>> usage = new ConcurrentHashMap<>();
+
+    private static final Filter FILTER = next -> request -> {
+        record();
+        return next.execute(request);
+    };
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    save(mapFile());
+                } catch (IOException e) {
+                    logger.warn("Не удалось сохранить карту влияния тестов: {}", e.getMessage());
+                }
+            }, "impact-map-save"));
+        }
+    }
+
+    private ImpactRecorder() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // -Dimpact.map (.test-history/test-impact.json - вне target/, чтобы карта переживала mvn clean)
+    public static Path mapFile() {
+        return Paths.get(System.getProperty("impact.map", ".test-history/test-impact.json"));
+    }
+
+    public static ClientConfig instrument(ClientConfig config) {
+        return ENABLED ? config.withFilter(FILTER) : config;
+    }
+
+    public static HttpClient.Factory instrument(HttpClient.Factory factory) {
+        return ENABLED ? WireRecorder.wrap(FILTER, factory) : factory;
+    }
+
+    // команда вне теста (например, в общем @BeforeClass) никуда не записывается
+    static void record() {
+        String test = TestLogContext.currentTestName();
+        if (test == null) {
+            return;
+        }
+        Set<String> methods = usage.computeIfAbsent(test, key -> ConcurrentHashMap.newKeySet());
+        WALKER.forEach(frame -> {
+            if (MAIN_CLASS.get(frame.getDeclaringClass())) {
+                methods.add(methodKey(frame.getClassName(), frame.getMethodName()));
+            }
+        });
+    }
+
+    /**
+     * Ключ метода: класс верхнего уровня и имя метода без перегрузок.
+     * Лямбда lambda$searchArticle$2 относится к searchArticle, метод вложенного
+     * или анонимного класса - к файлу внешнего класса, как и в MethodIndex.
+     */
+    static String methodKey(String className, String methodName) {
+        int nested = className.indexOf('$');
+        String topLevel = nested < 0 ? className : className.substring(0, nested);
+        String method = methodName;
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', "lambda$".length());
+            method = method.substring("lambda$".length(), end < 0 ? method.length() : end);
+        }
+        return topLevel + "#" + method;
+    }
+
+    static Map<String, Set<String>> recorded() {
+        return usage;
+    }
+
+    static synchronized void save(Path file) throws IOException {
+        if (usage.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> merged = load(file);
+        usage.forEach((test, methods) -> merged.put(test, new TreeSet<>(methods)));
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.write(file, (JsonLines.toLine(merged) + "\n").getBytes(StandardCharsets.UTF_8));
+        logger.info("Карта влияния: {} тестов записано, всего в {} - {}", usage.size(), file, merged.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Set<String>> load(Path file) throws IOException {
+        Map<String, Set<String>> map = new TreeMap<>();
+        if (!Files.exists(file)) {
+            return map;
+        }
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        if (json.isEmpty()) {
+            return map;
+        }
+        JsonLines.parse(json).forEach((test, methods) ->
+                map.put(test, new TreeSet<>((Collection<String>) methods)));
+        return map;
+    }
+}
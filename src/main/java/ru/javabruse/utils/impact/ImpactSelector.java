@@ -0,0 +1,136 @@
+package ru.javabruse.utils.impact;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.annotations.Listeners;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Запуск только тестов, затронутых изменениями (-Dimpact.base=<коммит или ветка>).
+ * Изменения берутся из git diff рабочей копии против base по src/main/java и src/test/java,
+ * затронутые тесты - по карте impact.map. Тест, которого нет в карте (новый или
+ * ещё не записанный), запускается всегда; без карты, без git, при изменении класса,
+ * которого нет в карте, или тестового класса из карты запускается всё.
+ * Подключается к тестовому классу через @Listeners. TestNG применяет такой перехватчик
+ * ко всему прогону, поэтому фильтруются только методы классов, которые сами объявили его
+ * в @Listeners; остальные классы (обход, нагрузка, снимки) идут без изменений.
+ */
+public class ImpactSelector implements IMethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImpactSelector.class);
+
+    private static final String BASE = System.getProperty("impact.base");
+
+    // выбор считается один раз на прогон; null - запускать всё
+    private static Selection selection;
+    private static boolean computed;
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (BASE == null) {
+            return methods;
+        }
+        Selection current = selection();
+        if (current == null) {
+            return methods;
+        }
+        List<IMethodInstance> kept = new ArrayList<>();
+        int candidates = 0;
+        for (IMethodInstance instance : methods) {
+            String test = testName(instance);
+            if (!declaresSelector(instance.getMethod().getRealClass())) {
+                kept.add(instance);
+                continue;
+            }
+            candidates++;
+            if (!current.analysis.isKnown(test)) {
+                logger.debug("Тест {} ещё не записан в карте влияния - запускается", test);
+                kept.add(instance);
+            } else if (current.result.getSelected().containsKey(test)) {
+                logger.info("Тест {} затронут изменением {}", test, current.result.getSelected().get(test));
+                kept.add(instance);
+            }
+        }
+        logger.info("Выбор по изменениям против {}: {} из {} тестов", BASE,
+                candidates - (methods.size() - kept.size()), candidates);
+        return kept;
+    }
+
+    static boolean declaresSelector(Class<?> testClass) {
+        Listeners listeners = testClass.getAnnotation(Listeners.class);
+        return listeners != null && Arrays.asList(listeners.value()).contains(ImpactSelector.class);
+    }
+
+    // имя как в TestLogContext: Класс.метод
+    static String testName(IMethodInstance instance) {
+        return instance.getMethod().getRealClass().getSimpleName() + "." + instance.getMethod().getMethodName();
+    }
+
+    private static synchronized Selection selection() {
+        if (computed) {
+            return selection;
+        }
+        computed = true;
+        Path map = ImpactRecorder.mapFile();
+        try {
+            Map<String, Set<String>> usage = ImpactRecorder.load(map);
+            if (usage.isEmpty()) {
+                logger.warn("Карта влияния {} пуста или не найдена, запускаются все тесты; запишите её с -Dimpact.record=true", map);
+                return null;
+            }
+            Path repository = Paths.get("").toAbsolutePath();
+            SourceDiff diff = SourceDiff.fromGit(repository, BASE, "src/main/java", "src/test/java");
+            ImpactAnalysis analysis = new ImpactAnalysis(usage);
+            ImpactAnalysis.Result result = analysis.select(diff, path -> read(repository.resolve(path)));
+            if (!result.getChangedTests().isEmpty()) {
+                logger.warn("Изменены тестовые классы из карты влияния: {}; запускаются все тесты",
+                        result.getChangedTests());
+                return null;
+            }
+            if (!result.getUntouchedClasses().isEmpty()) {
+                logger.warn("Изменены классы, которых не касался ни один записанный тест: {}; запускаются все тесты",
+                        result.getUntouchedClasses());
+                return null;
+            }
+            if (result.isRunAll()) {
+                logger.warn("Изменения вне Java-классов, запускаются все тесты");
+                return null;
+            }
+            selection = new Selection(analysis, result);
+        } catch (IOException e) {
+            logger.warn("Не удалось выбрать тесты по изменениям ({}), запускаются все", e.getMessage());
+        }
+        return selection;
+    }
+
+    private static String read(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static final class Selection {
+        private final ImpactAnalysis analysis;
+        private final ImpactAnalysis.Result result;
+
+        Selection(ImpactAnalysis analysis, ImpactAnalysis.Result result) {
+            this.analysis = analysis;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.javabruse.utils.impact;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Диапазоны строк методов в исходнике - чтобы сопоставить изменённые строки с методами.
+ * Без полноценного парсера: комментарии, строки и символьные литералы вырезаются,
+ * скобки считаются, а заголовок метода или конструктора узнаётся по тексту перед "{".
+ * Строка внутри лямбды или анонимного класса относится к ближайшему объявленному
+ * методу - так же ImpactRecorder называет кадры стека.
+ */
+public class MethodIndex {
+
+    // имя(...) [throws ...] перед "{"; управляющие конструкции отсекаются отдельно
+    private static final Pattern HEADER = Pattern.compile(
+            "(\\w+)\\s*\\([^;{}]*\\)\\s*(throws\\s+[\\w.,\\s]+)?$");
+    private static final List<String> NOT_METHODS = List.of(
+            "if", "for", "while", "switch", "catch", "synchronized", "try", "return", "new", "else");
+
+    private final List<Range> methods = new ArrayList<>();
+
+    public MethodIndex(String source) {
+        String code = stripCommentsAndLiterals(source);
+        Deque<Range> open = new ArrayDeque<>();
+        Deque<Boolean> braceIsMethod = new ArrayDeque<>();
+        int line = 1;
+        int statementStart = 0;
+        int statementLine = 1;
+        boolean statementHasCode = false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '\n') {
+                line++;
+                continue;
+            }
+            if (c == '{') {
+                String header = code.substring(statementStart, i).trim();
+                String name = methodName(header);
+                if (name != null) {
+                    Range range = new Range(name, statementLine);
+                    open.push(range);
+                    braceIsMethod.push(true);
+                } else {
+                    braceIsMethod.push(false);
+                }
+            } else if (c == '}') {
+                if (!braceIsMethod.isEmpty() && braceIsMethod.pop()) {
+                    Range range = open.pop();
+                    range.end = line;
+                    methods.add(range);
+                }
+            }
+            if (c == '{' || c == '}' || c == ';') {
+                statementStart = i + 1;
+                statementHasCode = false;
+            } else if (!statementHasCode && !Character.isWhitespace(c)) {
+                statementHasCode = true;
+                statementLine = line;
+            }
+        }
+    }
+
+    // самый вложенный метод, содержащий строку; null - строка вне методов (поля, импорты, объявления)
+    public String methodAt(int line) {
+        Range best = null;
+        for (Range range : methods) {
+            if (range.start <= line && line <= range.end && (best == null || range.start >= best.start)) {
+                best = range;
+            }
+        }
+        return best == null ? null : best.name;
+    }
+
+    static String methodName(String header) {
+        // аннотации с аргументами перед заголовком
+        String withoutAnnotations = header.replaceAll("@\\w+(\\s*\\([^)]*\\))?", " ").trim();
+        Matcher matcher = HEADER.matcher(withoutAnnotations);
+        if (!matcher.find()) {
+            return null;
+        }
+        String name = matcher.group(1);
+        if (NOT_METHODS.contains(name)) {
+            return null;
+        }
+        String before = withoutAnnotations.substring(0, matcher.start()).trim();
+        // new Foo() { ... }, вызов с лямбдой-блоком и т.п.
+        if (before.endsWith("new") || before.endsWith("=") || before.endsWith("(") || before.endsWith(",")
+                || before.endsWith(".") || before.endsWith("->")) {
+            return null;
+        }
+        return name;
+    }
+
+    // содержимое комментариев и литералов заменяется пробелами, переводы строк сохраняются
+    static String stripCommentsAndLiterals(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            char next = i + 1 < source.length() ? source.charAt(i + 1) : 0;
+            if (c == '/' && next == '/') {
+                while (i < source.length() && source.charAt(i) != '\n') {
+                    out.append(' ');
+                    i++;
+                }
+            } else if (c == '/' && next == '*') {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? source.length() : end + 2;
+                blank(source, i, end, out);
+                i = end;
+            } else if (c == '"' && source.startsWith("\"\"\"", i)) {
+                int end = source.indexOf("\"\"\"", i + 3);
+                end = end < 0 ? source.length() : end + 3;
+                blank(source, i, end, out);
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < source.length() && source.charAt(end) != c && source.charAt(end) != '\n') {
+                    end += source.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(source.length(), end + 1);
+                blank(source, i, end, out);
+                i = end;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static void blank(String source, int from, int to, StringBuilder out) {
+        for (int j = from; j < to; j++) {
+            out.append(source.charAt(j) == '\n' ? '\n' : ' ');
+        }
+    }
+
+    private static final class Range {
+        private final String name;
+        private final int start;
+        private int end;
+
+        Range(String name, int start) {
+            this.name = name;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ru.javabruse.utils.impact;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Изменённые строки исходников по `git diff -U0`: для каждого файла - номера строк
+ * в текущей версии. Удаление без добавления отмечается строками по обе стороны от места
+ * удаления, чтобы попасть в тот же метод.
+ */
+public class SourceDiff {
+
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private final Map<String, TreeSet<Integer>> changedLines = new LinkedHashMap<>();
+    private final List<String> deletedFiles = new ArrayList<>();
+
+    // изменения рабочей копии относительно base (коммит, ветка) в каталогах paths
+    public static SourceDiff fromGit(Path repository, String base, String... paths) throws IOException {
+        List<String> command = new ArrayList<>(List.of("git", "diff", "-U0", "--no-color", "--no-renames", base, "--"));
+        command.addAll(List.of(paths));
+        Process process = new ProcessBuilder(command)
+                .directory(repository.toFile())
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            in.transferTo(buffer);
+            output = buffer.toString(StandardCharsets.UTF_8);
+        }
+        try {
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("git diff " + base + " завершился с ошибкой: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Прервано ожидание git diff", e);
+        }
+        return parse(output);
+    }
+
+    public static SourceDiff parse(String diff) {
+        SourceDiff result = new SourceDiff();
+        String oldPath = null;
+        String current = null;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("--- ")) {
+                oldPath = stripPrefix(line.substring(4));
+            } else if (line.startsWith("+++ ")) {
+                current = stripPrefix(line.substring(4));
+                if (current == null && oldPath != null) {
+                    result.deletedFiles.add(oldPath);
+                } else if (current != null) {
+                    result.changedLines.computeIfAbsent(current, key -> new TreeSet<>());
+                }
+            } else if (current != null && line.startsWith("@@")) {
+                Matcher matcher = HUNK.matcher(line);
+                if (!matcher.find()) {
+                    continue;
+                }
+                int start = Integer.parseInt(matcher.group(1));
+                int count = matcher.group(2) == null ? 1 : Integer.parseInt(matcher.group(2));
+                TreeSet<Integer> lines = result.changedLines.get(current);
+                if (count == 0) {
+                    // строки удалены после строки start
+                    lines.add(Math.max(1, start));
+                    lines.add(start + 1);
+                } else {
+                    for (int i = start; i < start + count; i++) {
+                        lines.add(i);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // путь -> изменённые строки текущей версии (для новых файлов - все строки)
+    public Map<String, TreeSet<Integer>> getChangedLines() {
+        return changedLines;
+    }
+
+    public List<String> getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    public boolean isEmpty() {
+        return changedLines.isEmpty() && deletedFiles.isEmpty();
+    }
+
+    // "a/src/..." -> "src/...", "/dev/null" -> null
+    private static String stripPrefix(String path) {
+        String trimmed = path.trim();
+        if (trimmed.equals("/dev/null")) {
+            return null;
+        }
+        return trimmed.startsWith("a/") || trimmed.startsWith("b/") ? trimmed.substring(2) : trimmed;
+    }
+}
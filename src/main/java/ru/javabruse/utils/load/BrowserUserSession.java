@@ -0,0 +1,43 @@
+package ru.javabruse.utils.load;
+
+import org.openqa.selenium.WebDriver;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.WebDriverFactory;
+
+// Пользователь в браузере: те же переходы, что в UI-тестах, через WikipediaPage - без паузы
+// на "успокоение" страницы; ошибки шага не перехватываются и попадают в LoadRecorder
+public class BrowserUserSession implements WikiUserSession {
+
+    private final WebDriver driver;
+    private final WikipediaPage page;
+
+    public BrowserUserSession() {
+        this.driver = WebDriverFactory.createWebDriver();
+        this.page = new WikipediaPage(driver);
+    }
+
+    @Override
+    public void openMainPage() {
+        page.loadMainPage();
+    }
+
+    @Override
+    public void searchArticle(String query) {
+        page.loadSearchResults(query);
+    }
+
+    @Override
+    public void goToRandomPage() {
+        page.loadRandomPage();
+    }
+
+    @Override
+    public void switchToHistoryTab() {
+        page.loadHistoryTab();
+    }
+
+    @Override
+    public void close() {
+        WebDriverFactory.quitDriver(driver);
+    }
+}
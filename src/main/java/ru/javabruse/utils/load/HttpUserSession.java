@@ -0,0 +1,69 @@
+package ru.javabruse.utils.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Дешёвый пользователь без браузера: те же переходы, что у WikipediaPage, обычными
+ * HTTP-запросами за HTML страниц (без статики и JS). Клиент общий на всех пользователей.
+ */
+public class HttpUserSession implements WikiUserSession {
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String baseUrl;
+    private String currentTitle = "Заглавная_страница";
+
+    public HttpUserSession(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public void openMainPage() throws Exception {
+        get("/wiki/" + URLEncoder.encode("Заглавная_страница", StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void searchArticle(String query) throws Exception {
+        get("/w/index.php?search=" + URLEncoder.encode(query, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void goToRandomPage() throws Exception {
+        get("/wiki/Special:Random");
+    }
+
+    @Override
+    public void switchToHistoryTab() throws Exception {
+        get("/w/index.php?title=" + URLEncoder.encode(currentTitle, StandardCharsets.UTF_8) + "&action=history");
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        HttpResponse<byte[]> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IOException("HTTP " + response.statusCode() + " для " + path);
+        }
+        // после редиректа (случайная статья, точное совпадение поиска) запоминаем статью
+        String finalPath = response.uri().getRawPath();
+        if (finalPath != null && finalPath.startsWith("/wiki/")) {
+            currentTitle = URLDecoder.decode(finalPath.substring("/wiki/".length()), StandardCharsets.UTF_8);
+        }
+    }
+}
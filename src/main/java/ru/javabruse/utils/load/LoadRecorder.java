@@ -0,0 +1,80 @@
+package ru.javabruse.utils.load;
+
+import ru.javabruse.utils.metrics.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Задержки по шагам сценария ("http/search", "browser/flow", ...).
+ * Для каждого шага две гистограммы: исправленная от запланированного момента старта
+ * (учитывает ожидание в очереди, когда система не успевает - coordinated omission)
+ * и неисправленная от фактического старта шага, для сравнения.
+ */
+public class LoadRecorder {
+
+    private final Map<String, StepStats> steps = new ConcurrentHashMap<>();
+
+    public void record(String step, long serviceNanos, long correctedNanos, boolean success) {
+        StepStats stats = steps.computeIfAbsent(step, k -> new StepStats());
+        stats.corrected.observeNanos(correctedNanos);
+        stats.uncorrected.observeNanos(serviceNanos);
+        if (!success) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    public Histogram corrected(String step) {
+        StepStats stats = steps.get(step);
+        return stats == null ? new Histogram() : stats.corrected;
+    }
+
+    public Histogram uncorrected(String step) {
+        StepStats stats = steps.get(step);
+        return stats == null ? new Histogram() : stats.uncorrected;
+    }
+
+    public long errors(String step) {
+        StepStats stats = steps.get(step);
+        return stats == null ? 0 : stats.errors.get();
+    }
+
+    // Таблица по шагам: число, ошибки, p50/p90/p99/max исправленные и p99 без исправления, мс
+    public String summary() {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "%-22s %8s %7s %9s %9s %9s %9s %12s%n",
+                "шаг", "всего", "ошибок", "p50", "p90", "p99", "max", "p99 (неиспр)"));
+        new TreeMap<>(steps).forEach((step, stats) -> table.append(String.format(Locale.ROOT,
+                "%-22s %8d %7d %9.1f %9.1f %9.1f %9.1f %12.1f%n",
+                step, stats.corrected.count(), stats.errors.get(),
+                stats.corrected.percentileMillis(0.50), stats.corrected.percentileMillis(0.90),
+                stats.corrected.percentileMillis(0.99), stats.corrected.maxMillis(),
+                stats.uncorrected.percentileMillis(0.99))));
+        return table.toString();
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        StringBuilder csv = new StringBuilder("step,count,errors,p50_ms,p90_ms,p99_ms,max_ms,p99_uncorrected_ms\n");
+        new TreeMap<>(steps).forEach((step, stats) -> csv.append(String.format(Locale.ROOT,
+                "%s,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f%n",
+                step, stats.corrected.count(), stats.errors.get(),
+                stats.corrected.percentileMillis(0.50), stats.corrected.percentileMillis(0.90),
+                stats.corrected.percentileMillis(0.99), stats.corrected.maxMillis(),
+                stats.uncorrected.percentileMillis(0.99))));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class StepStats {
+        private final Histogram corrected = new Histogram();
+        private final Histogram uncorrected = new Histogram();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,208 @@
+package ru.javabruse.utils.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Генератор нагрузки по открытой модели: пользователи приходят с заданной интенсивностью
+ * (RampProfile) независимо от того, успевает ли система обслужить предыдущих.
+ * Каждый пользователь проходит сценарий главная -> поиск -> случайная статья -> история.
+ * Большинство пользователей - дешёвые HTTP-сессии, доля browserShare - настоящие браузеры
+ * (не больше maxBrowsers одновременно, браузеры переиспользуются между пользователями).
+ * Задержки шагов считаются от запланированного момента прихода, поэтому очередь
+ * перед перегруженной системой попадает в результат, а не прячется (coordinated omission).
+ */
+public class OpenModelLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenModelLoadGenerator.class);
+
+    private final RampProfile profile;
+    private final Supplier<? extends WikiUserSession> httpUsers;
+    private final LoadRecorder recorder = new LoadRecorder();
+    private final AtomicLong arrivals = new AtomicLong();
+
+    private Supplier<? extends WikiUserSession> browserUsers;
+    private double browserShare;
+    private Semaphore browserSlots = new Semaphore(0);
+    private final Queue<WikiUserSession> idleBrowsers = new ConcurrentLinkedQueue<>();
+    private int maxConcurrentUsers = 200;
+    private boolean poissonArrivals = true;
+    private List<String> queries = Collections.singletonList("Selenium");
+
+    public OpenModelLoadGenerator(RampProfile profile, Supplier<? extends WikiUserSession> httpUsers) {
+        this.profile = profile;
+        this.httpUsers = httpUsers;
+    }
+
+    public OpenModelLoadGenerator withBrowsers(Supplier<? extends WikiUserSession> browserUsers,
+                                               double share, int maxBrowsers) {
+        this.browserUsers = browserUsers;
+        this.browserShare = share;
+        this.browserSlots = new Semaphore(maxBrowsers);
+        return this;
+    }
+
+    // потоки обслуживания; пришедшие сверх лимита ждут в очереди, и это ожидание учитывается
+    public OpenModelLoadGenerator maxConcurrentUsers(int maxConcurrentUsers) {
+        this.maxConcurrentUsers = maxConcurrentUsers;
+        return this;
+    }
+
+    // false - равномерные интервалы между приходами вместо пуассоновского потока
+    public OpenModelLoadGenerator poissonArrivals(boolean poissonArrivals) {
+        this.poissonArrivals = poissonArrivals;
+        return this;
+    }
+
+    public OpenModelLoadGenerator queries(List<String> queries) {
+        this.queries = queries;
+        return this;
+    }
+
+    public long getArrivals() {
+        return arrivals.get();
+    }
+
+    public LoadRecorder run() throws InterruptedException {
+        double duration = profile.durationSeconds();
+        logger.info("Нагрузка: {} с, ожидается около {} пользователей", duration, Math.round(profile.expectedArrivals()));
+
+        ExecutorService users = Executors.newFixedThreadPool(maxConcurrentUsers);
+        long start = System.nanoTime();
+        double t = 0;
+        try {
+            while (true) {
+                t = nextArrival(t, arrivals.get(), ThreadLocalRandom.current());
+                if (t >= duration) {
+                    break;
+                }
+                long intended = start + (long) (t * 1_000_000_000L);
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                arrivals.incrementAndGet();
+                users.execute(() -> runUser(intended));
+            }
+        } finally {
+            users.shutdown();
+            if (!users.awaitTermination(Math.max(60, (long) duration), TimeUnit.SECONDS)) {
+                logger.warn("Не все пользователи завершились, прерываем");
+                users.shutdownNow();
+            }
+            WikiUserSession browser;
+            while ((browser = idleBrowsers.poll()) != null) {
+                browser.close();
+            }
+        }
+
+        logger.info("Нагрузка завершена: пришло {} пользователей{}{}", arrivals.get(), System.lineSeparator(),
+                recorder.summary());
+        return recorder;
+    }
+
+    /*
+     * Момент прихода следующего пользователя (секунды от старта) после previous,
+     * когда уже пришло arrived. Интервал нельзя считать от интенсивности в начале
+     * интервала: на разгоне с нуля она почти нулевая, и первый приход улетел бы за разгон.
+     * Пуассоновский поток с переменной интенсивностью - прореживанием: кандидаты идут
+     * с максимальной интенсивностью профиля, кандидат в момент t принимается
+     * с вероятностью rateAt(t) / maxRate. Равномерный поток: n-й приход там,
+     * где площадь под кривой интенсивности равна n.
+     */
+    double nextArrival(double previous, long arrived, Random random) {
+        if (!poissonArrivals) {
+            return profile.timeOfArrivals(arrived + 1);
+        }
+        double maxRate = profile.maxRate();
+        if (maxRate <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double duration = profile.durationSeconds();
+        double t = previous;
+        while (true) {
+            t += -Math.log(1 - random.nextDouble()) / maxRate;
+            if (t >= duration || random.nextDouble() * maxRate < profile.rateAt(t)) {
+                return t;
+            }
+        }
+    }
+
+    private void runUser(long intendedStart) {
+        long actualStart = System.nanoTime();
+        boolean browser = browserUsers != null
+                && ThreadLocalRandom.current().nextDouble() < browserShare
+                && browserSlots.tryAcquire();
+        String engine = browser ? "browser" : "http";
+
+        WikiUserSession session = null;
+        long stepIntended = intendedStart;
+        boolean success = false;
+        try {
+            session = browser ? borrowBrowser() : httpUsers.get();
+            WikiUserSession user = session;
+            String query = queries.get(ThreadLocalRandom.current().nextInt(queries.size()));
+
+            stepIntended = step(engine + "/main", stepIntended, user::openMainPage);
+            stepIntended = step(engine + "/search", stepIntended, () -> user.searchArticle(query));
+            stepIntended = step(engine + "/random", stepIntended, user::goToRandomPage);
+            stepIntended = step(engine + "/history", stepIntended, user::switchToHistoryTab);
+            success = true;
+        } catch (Exception e) {
+            logger.debug("Пользователь {} завершился с ошибкой: {}", engine, e.getMessage());
+        } finally {
+            long end = System.nanoTime();
+            recorder.record(engine + "/flow", end - actualStart, end - intendedStart, success);
+            if (browser) {
+                // браузер после ошибки не переиспользуем - состояние страницы неизвестно
+                if (session != null && success) {
+                    idleBrowsers.add(session);
+                } else if (session != null) {
+                    session.close();
+                }
+                browserSlots.release();
+            } else if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    // Шаг сценария: первая задержка включает ожидание в очереди, следующие стартуют сразу за предыдущим
+    private long step(String name, long intendedStart, UserAction action) throws Exception {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (Exception e) {
+            long end = System.nanoTime();
+            recorder.record(name, end - start, end - intendedStart, false);
+            throw e;
+        }
+        long end = System.nanoTime();
+        recorder.record(name, end - start, end - intendedStart, true);
+        return end;
+    }
+
+    private WikiUserSession borrowBrowser() {
+        WikiUserSession idle = idleBrowsers.poll();
+        return idle != null ? idle : browserUsers.get();
+    }
+
+    @FunctionalInterface
+    private interface UserAction {
+        void run() throws Exception;
+    }
+}
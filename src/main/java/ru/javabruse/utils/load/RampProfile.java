@@ -0,0 +1,117 @@
+package ru.javabruse.utils.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Профиль интенсивности прихода пользователей во времени.
+ * Формат: "30s:0-10,120s:10,30s:10-0" - этапы через запятую, у каждого длительность
+ * (s/m) и интенсивность в пользователях в секунду: постоянная или линейный переход "от-до".
+ */
+public class RampProfile {
+
+    private final List<Stage> stages;
+
+    private RampProfile(List<Stage> stages) {
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    public static RampProfile parse(String spec) {
+        List<Stage> stages = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String stage = part.trim();
+            if (stage.isEmpty()) {
+                continue;
+            }
+            String[] durationAndRate = stage.split(":");
+            if (durationAndRate.length != 2) {
+                throw new IllegalArgumentException("Этап профиля должен быть вида 60s:5 или 30s:0-10: " + stage);
+            }
+            String[] rates = durationAndRate[1].split("-");
+            double from = Double.parseDouble(rates[0]);
+            double to = rates.length > 1 ? Double.parseDouble(rates[1]) : from;
+            stages.add(new Stage(parseSeconds(durationAndRate[0]), from, to));
+        }
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("Пустой профиль нагрузки: " + spec);
+        }
+        return new RampProfile(stages);
+    }
+
+    public static RampProfile constant(double usersPerSecond, double seconds) {
+        return new RampProfile(Collections.singletonList(new Stage(seconds, usersPerSecond, usersPerSecond)));
+    }
+
+    public double durationSeconds() {
+        return stages.stream().mapToDouble(stage -> stage.seconds).sum();
+    }
+
+    // Интенсивность (пользователей в секунду) в момент elapsedSeconds от старта
+    public double rateAt(double elapsedSeconds) {
+        double stageStart = 0;
+        for (Stage stage : stages) {
+            if (elapsedSeconds < stageStart + stage.seconds) {
+                double progress = (elapsedSeconds - stageStart) / stage.seconds;
+                return stage.from + (stage.to - stage.from) * progress;
+            }
+            stageStart += stage.seconds;
+        }
+        return 0;
+    }
+
+    // Ожидаемое число прибытий за весь профиль - площадь под кривой интенсивности
+    public double expectedArrivals() {
+        return stages.stream().mapToDouble(stage -> (stage.from + stage.to) / 2 * stage.seconds).sum();
+    }
+
+    public double maxRate() {
+        return stages.stream().mapToDouble(stage -> Math.max(stage.from, stage.to)).max().orElse(0);
+    }
+
+    // Момент, к которому площадь под кривой интенсивности достигает arrivals;
+    // за концом профиля - Double.POSITIVE_INFINITY
+    public double timeOfArrivals(double arrivals) {
+        double stageStart = 0;
+        double before = 0;
+        for (Stage stage : stages) {
+            double area = (stage.from + stage.to) / 2 * stage.seconds;
+            if (arrivals <= before + area && area > 0) {
+                double rest = arrivals - before;
+                if (stage.from == stage.to) {
+                    return stageStart + rest / stage.from;
+                }
+                // from*x + (to-from)/(2*seconds)*x^2 = rest
+                double a = (stage.to - stage.from) / (2 * stage.seconds);
+                double x = (-stage.from + Math.sqrt(stage.from * stage.from + 4 * a * rest)) / (2 * a);
+                return stageStart + Math.min(Math.max(x, 0), stage.seconds);
+            }
+            before += area;
+            stageStart += stage.seconds;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static double parseSeconds(String duration) {
+        String value = duration.trim();
+        if (value.endsWith("m")) {
+            return Double.parseDouble(value.substring(0, value.length() - 1)) * 60;
+        }
+        if (value.endsWith("s")) {
+            return Double.parseDouble(value.substring(0, value.length() - 1));
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static final class Stage {
+        private final double seconds;
+        private final double from;
+        private final double to;
+
+        Stage(double seconds, double from, double to) {
+            this.seconds = seconds;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.javabruse.utils.load;
+
+// Действия виртуального пользователя; реализованы через HTTP (дёшево) и через браузер (реалистично)
+public interface WikiUserSession extends AutoCloseable {
+
+    void openMainPage() throws Exception;
+
+    void searchArticle(String query) throws Exception;
+
+    void goToRandomPage() throws Exception;
+
+    void switchToHistoryTab() throws Exception;
+
+    @Override
+    void close();
+}
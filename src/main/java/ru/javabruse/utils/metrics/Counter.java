@@ -0,0 +1,24 @@
+package ru.javabruse.utils.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Монотонный счётчик; LongAdder раскладывает запись по ячейкам, потоки не конкурируют за одну
+public class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Счётчик не уменьшается: " + amount);
+        }
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.javabruse.utils.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Текущее значение: выставляется явно или читается из supplier в момент выгрузки
+public class Gauge {
+
+    private final AtomicLong value = new AtomicLong();
+    private final LongSupplier supplier;
+
+    Gauge() {
+        this(null);
+    }
+
+    Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public void inc() {
+        value.incrementAndGet();
+    }
+
+    public void dec() {
+        value.decrementAndGet();
+    }
+
+    public long get() {
+        return supplier != null ? supplier.getAsLong() : value.get();
+    }
+}
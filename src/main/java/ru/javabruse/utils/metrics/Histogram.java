@@ -0,0 +1,146 @@
+package ru.javabruse.utils.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма длительностей в секундах с фиксированными верхними границами корзин,
+ * как у Prometheus. Каждая корзина - свой LongAdder, запись без блокировок;
+ * при выгрузке счётчики складываются в накопительные значения le.
+ * Для квантилей в отчётах (p50/p95/p99) рядом ведутся мелкие корзины в микросекундах
+ * с относительной точностью около 1.5%: до 128 мкс точно, дальше по 64 корзины
+ * на каждую степень двойки (как в HdrHistogram). Память фиксирована и не растёт
+ * с числом наблюдений. Экземпляр вне реестра - для отчётов, которые не выгружаются в Prometheus.
+ */
+public class Histogram {
+
+    // от 5 мс до минуты: ожидания элементов, загрузки страниц, старт драйвера
+    static final double[] DEFAULT_BOUNDS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private static final int LINEAR = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BITS = 6;
+    // до 2^42 мкс - с запасом на любые таймауты
+    private static final int MAX_EXPONENT = 42;
+
+    private final double[] bounds;
+    // последняя корзина - +Inf
+    private final LongAdder[] buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+    private final LongAdder count = new LongAdder();
+    private final AtomicLongArray fineCounts = new AtomicLongArray(LINEAR + (MAX_EXPONENT - 6) * SUB_BUCKETS);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public Histogram() {
+        this(DEFAULT_BOUNDS);
+    }
+
+    Histogram(double[] bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Границы корзин должны возрастать");
+            }
+        }
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double seconds) {
+        int bucket = 0;
+        while (bucket < bounds.length && seconds > bounds[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(seconds);
+        count.increment();
+
+        long micros = Math.max(0, Math.round(seconds * 1e6));
+        fineCounts.incrementAndGet(index(micros));
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    // длительность от start, полученного из System.nanoTime()
+    public void observeSince(long startNanos) {
+        observeNanos(System.nanoTime() - startNanos);
+    }
+
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sum() {
+        return sum.sum();
+    }
+
+    public double meanMillis() {
+        long total = count.sum();
+        return total == 0 ? 0 : sum.sum() * 1000 / total;
+    }
+
+    public double maxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    // Значение квантиля q (0..1) в миллисекундах - верхняя граница мелкой корзины
+    public double percentileMillis(double q) {
+        long total = 0;
+        for (int i = 0; i < fineCounts.length(); i++) {
+            total += fineCounts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < fineCounts.length(); i++) {
+            seen += fineCounts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMillis();
+    }
+
+    double[] bounds() {
+        return bounds;
+    }
+
+    // накопительные значения: i-й элемент - число наблюдений <= bounds[i], последний - все
+    long[] cumulativeCounts() {
+        long[] cumulative = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+    static int index(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int sub = (int) ((micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+        return LINEAR + (exponent - 7) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 7;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        long step = 1L << (exponent - SUB_BITS);
+        return (1L << exponent) + (sub + 1) * step - 1;
+    }
+}
@@ -0,0 +1,173 @@
+package ru.javabruse.utils.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр метрик прогона: семейство - имя, описание и тип, внутри - ряды по набору меток.
+ * Метрика создаётся при первом обращении и дальше возвращается та же, поиск - чтение
+ * из ConcurrentHashMap без блокировок. Выгрузка - текстовый формат Prometheus 0.0.4.
+ */
+public class MetricsRegistry {
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    // labels - пары имя, значение: "kind", "chrome"
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, Type.COUNTER).series(labels, key -> new Counter());
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return family(name, help, Type.GAUGE).series(labels, key -> new Gauge());
+    }
+
+    // значение читается при каждой выгрузке
+    public Gauge gauge(String name, String help, LongSupplier supplier) {
+        return family(name, help, Type.GAUGE).series(new String[0], key -> new Gauge(supplier));
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return histogram(name, help, Histogram.DEFAULT_BOUNDS, labels);
+    }
+
+    public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+        return family(name, help, Type.HISTOGRAM).series(labels, key -> new Histogram(bounds));
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Family family : new TreeMap<>(families).values()) {
+            family.write(out);
+        }
+        return out.toString();
+    }
+
+    // снимок целиком или никак: во временный файл и атомарная подмена
+    public void writeSnapshot(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(scrape());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована как " + family.type);
+        }
+        return family;
+    }
+
+    static String labelString(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами имя, значение");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            out.append(i == 0 ? "" : ",").append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    out.append('\\').append(c);
+                } else if (c == '\n') {
+                    out.append("\\n");
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private static String number(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%s", value);
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T series(String[] labels, Function<String, T> factory) {
+            String key = labelString(labels);
+            Object metric = series.get(key);
+            if (metric == null) {
+                metric = series.computeIfAbsent(key, factory);
+            }
+            return (T) metric;
+        }
+
+        void write(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ')
+                    .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type.name().toLowerCase(Locale.ROOT)).append('\n');
+            for (Map.Entry<String, Object> entry : new TreeMap<>(series).entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter) {
+                    line(out, name, labels, Long.toString(((Counter) metric).get()));
+                } else if (metric instanceof Gauge) {
+                    line(out, name, labels, Long.toString(((Gauge) metric).get()));
+                } else {
+                    Histogram histogram = (Histogram) metric;
+                    double[] bounds = histogram.bounds();
+                    long[] cumulative = histogram.cumulativeCounts();
+                    String prefix = labels.isEmpty() ? "" : labels + ",";
+                    for (int i = 0; i < bounds.length; i++) {
+                        line(out, name + "_bucket", prefix + "le=\"" + number(bounds[i]) + "\"",
+                                Long.toString(cumulative[i]));
+                    }
+                    line(out, name + "_bucket", prefix + "le=\"+Inf\"", Long.toString(cumulative[bounds.length]));
+                    line(out, name + "_sum", labels, number(histogram.sum()));
+                    // count из корзин: согласован с +Inf даже при записи во время выгрузки
+                    line(out, name + "_count", labels, Long.toString(cumulative[bounds.length]));
+                }
+            }
+        }
+
+        private static void line(StringBuilder out, String name, String labels, String value) {
+            out.append(name);
+            if (!labels.isEmpty()) {
+                out.append('{').append(labels).append('}');
+            }
+            out.append(' ').append(value).append('\n');
+        }
+    }
+}
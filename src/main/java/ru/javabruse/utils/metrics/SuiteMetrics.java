@@ -0,0 +1,111 @@
+package ru.javabruse.utils.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.LongSupplier;
+
+/**
+ * Общий реестр метрик прогона: создание драйверов, живые сессии, ожидания, повторы,
+ * закрытые всплывающие окна приложения. Метрики пишутся всегда (запись - LongAdder),
+ * наружу они видны только по настройке:
+ * -Dmetrics.port - HTTP /metrics на localhost в формате Prometheus на время прогона;
+ * -Dmetrics.file - итоговый снимок в том же формате при завершении прогона.
+ */
+public final class SuiteMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuiteMetrics.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    static {
+        startExport();
+    }
+
+    private SuiteMetrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return REGISTRY.counter(name, help, labels);
+    }
+
+    public static Gauge gauge(String name, String help, LongSupplier supplier) {
+        return REGISTRY.gauge(name, help, supplier);
+    }
+
+    public static Histogram histogram(String name, String help, String... labels) {
+        return REGISTRY.histogram(name, help, labels);
+    }
+
+    // Ожидания page object'ов: page - web/app, condition - чего ждали; таймауты входят в гистограмму
+    public static Histogram waitSeconds(String page, String condition) {
+        return histogram("wiki_wait_seconds", "Длительность ожиданий page object'ов",
+                "page", page, "condition", condition);
+    }
+
+    public static Counter waitTimeouts(String page, String condition) {
+        return counter("wiki_wait_timeouts_total", "Ожидания, закончившиеся таймаутом",
+                "page", page, "condition", condition);
+    }
+
+    // сервер на заданном порту (0 - свободный), отдаёт текущую выгрузку реестра
+    public static HttpServer startEndpoint(MetricsRegistry registry, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void startExport() {
+        Integer port = Integer.getInteger("metrics.port");
+        String file = System.getProperty("metrics.file");
+        HttpServer server = null;
+        if (port != null) {
+            try {
+                server = startEndpoint(REGISTRY, port);
+                logger.info("Метрики прогона: http://localhost:{}/metrics", server.getAddress().getPort());
+            } catch (IOException e) {
+                logger.warn("Не удалось открыть порт метрик {}: {}", port, e.getMessage());
+            }
+        }
+        if (server == null && file == null) {
+            return;
+        }
+        HttpServer endpoint = server;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (file != null) {
+                Path snapshot = Paths.get(file);
+                try {
+                    REGISTRY.writeSnapshot(snapshot);
+                    logger.info("Снимок метрик прогона записан в {}", snapshot);
+                } catch (IOException e) {
+                    logger.warn("Не удалось записать снимок метрик {}: {}", snapshot, e.getMessage());
+                }
+            }
+            if (endpoint != null) {
+                endpoint.stop(0);
+            }
+        }, "suite-metrics-shutdown"));
+    }
+}
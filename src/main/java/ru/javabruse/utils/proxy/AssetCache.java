@@ -0,0 +1,291 @@
+package ru.javabruse.utils.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Двухуровневый LRU-кэш ответов прокси.
+ * Память ограничена по байтам и держит горячие записи; каждая новая или обновлённая
+ * (после 304) запись сразу пишется и на диск, поэтому дисковый уровень переживает
+ * перезапуск JVM и следующий прогон начинает со свежими сроками. Диск тоже ограничен по размеру.
+ */
+public class AssetCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetCache.class);
+
+    private static final String FILE_SUFFIX = ".entry";
+
+    private final long memoryLimitBytes;
+    private final long diskLimitBytes;
+    private final Path diskDir;
+
+    // accessOrder=true: итерация начинается с давно не использованных записей
+    private final LinkedHashMap<String, CachedResponse> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesFromCache = new AtomicLong();
+    private final AtomicLong bytesFromNetwork = new AtomicLong();
+
+    public AssetCache(long memoryLimitBytes, long diskLimitBytes, Path diskDir) {
+        this.memoryLimitBytes = memoryLimitBytes;
+        this.diskLimitBytes = diskLimitBytes;
+        this.diskDir = diskDir;
+        if (diskDir != null) {
+            loadDiskIndex();
+        }
+    }
+
+    public synchronized CachedResponse get(String key) {
+        CachedResponse response = memory.get(key);
+        if (response != null) {
+            return response;
+        }
+        DiskEntry entry = disk.get(key);
+        if (entry == null) {
+            return null;
+        }
+        response = readFromDisk(entry.file);
+        if (response == null) {
+            removeFromDisk(key);
+            return null;
+        }
+        // горячая запись поднимается обратно в память
+        putInMemory(key, response);
+        return response;
+    }
+
+    public synchronized void put(String key, CachedResponse response) {
+        writeToDisk(key, response);
+        if (response.weight() <= memoryLimitBytes) {
+            putInMemory(key, response);
+        }
+    }
+
+    // откуда пришёл ответ - для статистики
+    public void recordMemoryHit(long bytes) {
+        memoryHits.incrementAndGet();
+        bytesFromCache.addAndGet(bytes);
+    }
+
+    public void recordDiskHit(long bytes) {
+        diskHits.incrementAndGet();
+        bytesFromCache.addAndGet(bytes);
+    }
+
+    public void recordRevalidation(long bytes) {
+        revalidations.incrementAndGet();
+        bytesFromCache.addAndGet(bytes);
+    }
+
+    public void recordMiss(long bytes) {
+        misses.incrementAndGet();
+        bytesFromNetwork.addAndGet(bytes);
+    }
+
+    public synchronized boolean isInMemory(String key) {
+        return memory.containsKey(key);
+    }
+
+    public double hitRatio() {
+        long hits = memoryHits.get() + diskHits.get() + revalidations.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getBytesFromCache() {
+        return bytesFromCache.get();
+    }
+
+    public long getBytesFromNetwork() {
+        return bytesFromNetwork.get();
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.ROOT,
+                "hit ratio %.1f%% (память %d, диск %d, 304 %d, промахи %d), из кэша %.1f МБ, из сети %.1f МБ, "
+                        + "в памяти %d записей / %.1f МБ, на диске %d записей / %.1f МБ",
+                hitRatio() * 100, memoryHits.get(), diskHits.get(), revalidations.get(), misses.get(),
+                bytesFromCache.get() / 1048576.0, bytesFromNetwork.get() / 1048576.0,
+                memory.size(), memoryBytes / 1048576.0, disk.size(), diskBytes / 1048576.0);
+    }
+
+    private void putInMemory(String key, CachedResponse response) {
+        CachedResponse previous = memory.put(key, response);
+        if (previous != null) {
+            memoryBytes -= previous.weight();
+        }
+        memoryBytes += response.weight();
+
+        Iterator<Map.Entry<String, CachedResponse>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryLimitBytes && eldest.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            eldest.remove();
+            memoryBytes -= entry.getValue().weight();
+            // копия на диске уже есть, если её не вытеснил лимит диска
+            if (!disk.containsKey(entry.getKey())) {
+                writeToDisk(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void writeToDisk(String key, CachedResponse response) {
+        if (diskDir == null || diskLimitBytes <= 0) {
+            return;
+        }
+        Path file = diskDir.resolve(fileName(key));
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("key", key);
+        meta.put("status", response.getStatus());
+        meta.put("freshUntil", response.getFreshUntilMillis());
+        meta.put("headers", response.getHeaders());
+        byte[] metaBytes = JsonLines.toLine(meta).getBytes(StandardCharsets.UTF_8);
+
+        try (OutputStream out = Files.newOutputStream(file);
+             DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(metaBytes.length);
+            data.write(metaBytes);
+            data.write(response.getBody());
+        } catch (IOException e) {
+            logger.debug("Не удалось сохранить запись кэша на диск: {}", e.getMessage());
+            return;
+        }
+
+        long size = metaBytes.length + response.getBody().length + 4L;
+        DiskEntry previous = disk.put(key, new DiskEntry(file, size));
+        if (previous != null) {
+            diskBytes -= previous.size;
+        }
+        diskBytes += size;
+
+        Iterator<Map.Entry<String, DiskEntry>> eldest = disk.entrySet().iterator();
+        while (diskBytes > diskLimitBytes && eldest.hasNext()) {
+            Map.Entry<String, DiskEntry> entry = eldest.next();
+            eldest.remove();
+            diskBytes -= entry.getValue().size;
+            deleteQuietly(entry.getValue().file);
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        DiskEntry entry = disk.remove(key);
+        if (entry != null) {
+            diskBytes -= entry.size;
+            deleteQuietly(entry.file);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CachedResponse readFromDisk(Path file) {
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(in)) {
+            byte[] metaBytes = new byte[data.readInt()];
+            data.readFully(metaBytes);
+            Map<String, Object> meta = JsonLines.parse(new String(metaBytes, StandardCharsets.UTF_8));
+
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            ((Map<String, Object>) meta.get("headers")).forEach((name, values) -> {
+                List<String> list = new ArrayList<>();
+                for (Object value : (List<Object>) values) {
+                    list.add(String.valueOf(value));
+                }
+                headers.put(name, list);
+            });
+            return new CachedResponse(((Number) meta.get("status")).intValue(), headers,
+                    data.readAllBytes(), ((Number) meta.get("freshUntil")).longValue());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Индекс дискового уровня восстанавливается из заголовков файлов прошлых запусков
+    private void loadDiskIndex() {
+        try {
+            Files.createDirectories(diskDir);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDir, "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    String key = readKey(file);
+                    if (key == null) {
+                        deleteQuietly(file);
+                        continue;
+                    }
+                    long size = Files.size(file);
+                    disk.put(key, new DiskEntry(file, size));
+                    diskBytes += size;
+                }
+            }
+            logger.info("Дисковый кэш прокси: {} записей, {} МБ", disk.size(), diskBytes / 1048576);
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать дисковый кэш {}: {}", diskDir, e.getMessage());
+        }
+    }
+
+    private static String readKey(Path file) {
+        try (DataInputStream data = new DataInputStream(Files.newInputStream(file))) {
+            byte[] metaBytes = new byte[data.readInt()];
+            data.readFully(metaBytes);
+            return (String) JsonLines.parse(new String(metaBytes, StandardCharsets.UTF_8)).get("key");
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            return name.append(FILE_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Не удалось удалить {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class DiskEntry {
+        private final Path file;
+        private final long size;
+
+        DiskEntry(Path file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.javabruse.utils.proxy;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Закэшированный ответ: статус, заголовки, тело и срок свежести по Cache-Control/Expires
+public class CachedResponse {
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:s-maxage|max-age)\\s*=\\s*(\\d+)");
+
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private volatile long freshUntilMillis;
+
+    public CachedResponse(int status, Map<String, List<String>> headers, byte[] body, long freshUntilMillis) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.freshUntilMillis = freshUntilMillis;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public long getFreshUntilMillis() {
+        return freshUntilMillis;
+    }
+
+    public boolean isFresh(long nowMillis) {
+        return nowMillis < freshUntilMillis;
+    }
+
+    // 304 Not Modified продлевает свежесть без перекачки тела
+    public void refresh(Map<String, List<String>> revalidationHeaders, long nowMillis) {
+        freshUntilMillis = freshUntil(revalidationHeaders, nowMillis);
+    }
+
+    public String header(String name) {
+        return header(headers, name);
+    }
+
+    // Оценка в байтах для ограничения памяти
+    public long weight() {
+        long size = body.length + 64;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                size += header.getKey().length() + value.length();
+            }
+        }
+        return size;
+    }
+
+    // Ответ можно класть в кэш: успешный, не private/no-store и с ненулевым сроком жизни
+    public static boolean isCacheable(int status, Map<String, List<String>> headers, long nowMillis) {
+        if (status != 200) {
+            return false;
+        }
+        String cacheControl = lower(header(headers, "Cache-Control"));
+        if (cacheControl.contains("no-store") || cacheControl.contains("private")) {
+            return false;
+        }
+        if (header(headers, "Set-Cookie") != null || "*".equals(header(headers, "Vary"))) {
+            return false;
+        }
+        return freshUntil(headers, nowMillis) > nowMillis
+                || header(headers, "ETag") != null
+                || header(headers, "Last-Modified") != null;
+    }
+
+    // Срок свежести: max-age минус Age, иначе Expires; no-cache - сразу на ревалидацию
+    public static long freshUntil(Map<String, List<String>> headers, long nowMillis) {
+        String cacheControl = lower(header(headers, "Cache-Control"));
+        if (cacheControl.contains("no-cache")) {
+            return nowMillis;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        if (maxAge.find()) {
+            long age = parseLong(header(headers, "Age"));
+            return nowMillis + Math.max(0, Long.parseLong(maxAge.group(1)) - age) * 1000;
+        }
+        String expires = header(headers, "Expires");
+        if (expires != null) {
+            try {
+                return ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (RuntimeException e) {
+                return nowMillis;
+            }
+        }
+        return nowMillis;
+    }
+
+    // заголовки без учёта регистра имени
+    static String header(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    static Map<String, List<String>> copyHeaders(Map<String, List<String>> source) {
+        Map<String, List<String>> copy = new LinkedHashMap<>();
+        source.forEach((name, values) -> copy.put(name, new ArrayList<>(values)));
+        return copy;
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? 0 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
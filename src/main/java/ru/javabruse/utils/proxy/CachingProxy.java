@@ -0,0 +1,364 @@
+package ru.javabruse.utils.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Общий для всех браузерных сессий кэширующий прокси внутри JVM.
+ * HTTP обслуживается напрямую, HTTPS - через CONNECT с терминацией TLS самоподписанным
+ * сертификатом (браузеры запускаются с acceptInsecureCerts), после чего запросы уходят
+ * в сеть обычным HttpClient с полноценной проверкой сертификатов.
+ * GET-ответы кэшируются в AssetCache с учётом Cache-Control/Expires/ETag.
+ * Включается через -Dproxy.cache=true.
+ */
+public class CachingProxy implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingProxy.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("proxy.cache", "false"));
+
+    // заголовки соединения и те, что HttpClient выставляет сам
+    private static final Set<String> HOP_BY_HOP_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "proxy-connection", "keep-alive", "transfer-encoding", "te", "trailer",
+            "upgrade", "content-length", "host", "expect", "date", "from", "via", "warning", "http2-settings"));
+
+    private static volatile CachingProxy shared;
+
+    private final int requestedPort;
+    private final AssetCache cache;
+    private final SSLContext tlsContext;
+    private final HttpClient upstream;
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "caching-proxy-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ServerSocket serverSocket;
+
+    public CachingProxy(int port, AssetCache cache, SSLContext tlsContext) {
+        this(port, cache, tlsContext, HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build());
+    }
+
+    // upstream - клиент к сайтам; в тестах - с доверием к сертификату локального HTTPS-сервера
+    CachingProxy(int port, AssetCache cache, SSLContext tlsContext, HttpClient upstream) {
+        this.requestedPort = port;
+        this.cache = cache;
+        this.tlsContext = tlsContext;
+        this.upstream = upstream;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Прокси на весь прогон: поднимается при первом обращении, статистика - в лог при выходе
+    public static CachingProxy shared() {
+        if (shared == null) {
+            synchronized (CachingProxy.class) {
+                if (shared == null) {
+                    shared = startShared();
+                }
+            }
+        }
+        return shared;
+    }
+
+    private static CachingProxy startShared() {
+        long memoryMb = Long.getLong("proxy.cache.memory.mb", 128);
+        long diskMb = Long.getLong("proxy.cache.disk.mb", 1024);
+        AssetCache cache = new AssetCache(memoryMb * 1024 * 1024, diskMb * 1024 * 1024,
+                Paths.get(System.getProperty("proxy.cache.dir", "target/proxy-cache")));
+        try {
+            CachingProxy proxy = new CachingProxy(Integer.getInteger("proxy.cache.port", 0), cache,
+                    ProxyCertificates.serverContext(Paths.get("target", "proxy-keystore.p12")));
+            proxy.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                logger.info("Кэширующий прокси: {}", cache.stats());
+                proxy.close();
+            }, "caching-proxy-shutdown"));
+            return proxy;
+        } catch (Exception e) {
+            throw new RuntimeException("Не удалось запустить кэширующий прокси", e);
+        }
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(requestedPort, 100, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "caching-proxy-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Кэширующий прокси слушает {}", getAddress());
+    }
+
+    public String getAddress() {
+        return "localhost:" + serverSocket.getLocalPort();
+    }
+
+    public AssetCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Ошибка при остановке прокси: {}", e.getMessage());
+        }
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handleConnection(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Ошибка приёма соединения прокси: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        try (Socket client = socket) {
+            InputStream rawIn = client.getInputStream();
+            // первую строку читаем без буфера: после CONNECT поток переходит в TLS
+            String requestLine = readLine(rawIn);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return;
+            }
+
+            if (requestLine.startsWith("CONNECT ")) {
+                String authority = requestLine.split(" ")[1];
+                while (!readLine(rawIn).isEmpty()) {
+                    // заголовки CONNECT не нужны
+                }
+                OutputStream rawOut = client.getOutputStream();
+                rawOut.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                rawOut.flush();
+
+                SSLSocket tls = (SSLSocket) tlsContext.getSocketFactory()
+                        .createSocket(client, authority.split(":")[0], client.getPort(), false);
+                tls.setUseClientMode(false);
+                tls.startHandshake();
+                String origin = authority.endsWith(":443")
+                        ? "https://" + authority.substring(0, authority.length() - 4)
+                        : "https://" + authority;
+                serve(new BufferedInputStream(tls.getInputStream()),
+                        new BufferedOutputStream(tls.getOutputStream()), origin, null);
+            } else {
+                serve(new BufferedInputStream(rawIn), new BufferedOutputStream(client.getOutputStream()),
+                        "", requestLine);
+            }
+        } catch (SocketException e) {
+            logger.trace("Соединение прокси закрыто: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.debug("Ошибка соединения прокси: {}", e.getMessage());
+        }
+    }
+
+    // Цикл keep-alive: запросы одного соединения обслуживаются по очереди
+    private void serve(InputStream in, OutputStream out, String origin, String firstLine) throws Exception {
+        String requestLine = firstLine;
+        while (true) {
+            if (requestLine == null) {
+                requestLine = readLine(in);
+            }
+            if (requestLine == null || requestLine.isEmpty()) {
+                return;
+            }
+
+            String[] parts = requestLine.split(" ");
+            String method = parts[0];
+            String target = parts[1];
+            Map<String, List<String>> headers = readHeaders(in);
+            byte[] body = readBody(in, headers);
+            String url = target.startsWith("http://") || target.startsWith("https://") ? target : origin + target;
+
+            CachedResponse response = fetch(method, url, headers, body);
+            writeResponse(out, method, response);
+
+            boolean close = "close".equalsIgnoreCase(CachedResponse.header(headers, "Connection"))
+                    || "close".equalsIgnoreCase(CachedResponse.header(headers, "Proxy-Connection"));
+            if (close) {
+                return;
+            }
+            requestLine = null;
+        }
+    }
+
+    CachedResponse fetch(String method, String url, Map<String, List<String>> headers, byte[] body) throws Exception {
+        long now = System.currentTimeMillis();
+        boolean cacheableRequest = "GET".equals(method);
+        String key = url + "|" + CachedResponse.header(headers, "Accept-Encoding");
+
+        CachedResponse cached = null;
+        if (cacheableRequest) {
+            boolean inMemory = cache.isInMemory(key);
+            cached = cache.get(key);
+            if (cached != null && cached.isFresh(now)) {
+                if (inMemory) {
+                    cache.recordMemoryHit(cached.getBody().length);
+                } else {
+                    cache.recordDiskHit(cached.getBody().length);
+                }
+                return cached;
+            }
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .method(method, body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> request.header(name, value));
+            }
+        });
+
+        // устаревшую запись проверяем условным запросом
+        if (cached != null) {
+            String etag = cached.header("ETag");
+            String lastModified = cached.header("Last-Modified");
+            if (etag != null) {
+                request.setHeader("If-None-Match", etag);
+            } else if (lastModified != null) {
+                request.setHeader("If-Modified-Since", lastModified);
+            }
+        }
+
+        HttpResponse<byte[]> upstreamResponse = upstream.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        Map<String, List<String>> responseHeaders = new LinkedHashMap<>();
+        upstreamResponse.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":") && !HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                responseHeaders.put(name, values);
+            }
+        });
+
+        if (cached != null && upstreamResponse.statusCode() == 304) {
+            cached.refresh(responseHeaders, now);
+            // новый срок свежести - и в дисковый уровень, иначе следующий прогон снова ревалидирует
+            cache.put(key, cached);
+            cache.recordRevalidation(cached.getBody().length);
+            return cached;
+        }
+
+        CachedResponse fresh = new CachedResponse(upstreamResponse.statusCode(),
+                CachedResponse.copyHeaders(responseHeaders), upstreamResponse.body(),
+                CachedResponse.freshUntil(responseHeaders, now));
+        cache.recordMiss(fresh.getBody().length);
+        if (cacheableRequest && CachedResponse.isCacheable(fresh.getStatus(), responseHeaders, now)) {
+            cache.put(key, fresh);
+        }
+        return fresh;
+    }
+
+    private static void writeResponse(OutputStream out, String method, CachedResponse response) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(response.getStatus()).append(' ')
+                .append(response.getStatus() < 400 ? "OK" : "Error").append("\r\n");
+        response.getHeaders().forEach((name, values) ->
+                values.forEach(value -> head.append(name).append(": ").append(value).append("\r\n")));
+
+        boolean hasBody = !"HEAD".equals(method) && response.getStatus() != 204 && response.getStatus() != 304;
+        head.append("Content-Length: ").append(hasBody ? response.getBody().length : 0).append("\r\n");
+        head.append("Connection: keep-alive\r\n\r\n");
+
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (hasBody) {
+            out.write(response.getBody());
+        }
+        out.flush();
+    }
+
+    private static Map<String, List<String>> readHeaders(InputStream in) throws IOException {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.computeIfAbsent(line.substring(0, colon).trim(), k -> new ArrayList<>())
+                        .add(line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static byte[] readBody(InputStream in, Map<String, List<String>> headers) throws IOException {
+        String length = CachedResponse.header(headers, "Content-Length");
+        if (length != null) {
+            return in.readNBytes(Integer.parseInt(length.trim()));
+        }
+        if ("chunked".equalsIgnoreCase(CachedResponse.header(headers, "Transfer-Encoding"))) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                int size = Integer.parseInt(readLine(in).split(";")[0].trim(), 16);
+                if (size == 0) {
+                    readHeaders(in);
+                    return body.toByteArray();
+                }
+                body.write(in.readNBytes(size));
+                readLine(in);
+            }
+        }
+        return new byte[0];
+    }
+
+    // Строка HTTP до CRLF; null - соединение закрыто
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+}
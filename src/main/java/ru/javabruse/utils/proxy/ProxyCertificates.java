@@ -0,0 +1,63 @@
+package ru.javabruse.utils.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Самоподписанный сертификат для терминации TLS в прокси.
+ * Keystore создаётся один раз утилитой keytool из текущего JDK и переиспользуется;
+ * браузеры принимают его благодаря acceptInsecureCerts.
+ */
+final class ProxyCertificates {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProxyCertificates.class);
+
+    private static final char[] PASSWORD = "caching-proxy".toCharArray();
+    private static final String ALIAS = "proxy";
+
+    private ProxyCertificates() {
+    }
+
+    static SSLContext serverContext(Path keystore) throws Exception {
+        if (!Files.exists(keystore)) {
+            generate(keystore);
+        }
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            store.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(store, PASSWORD);
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), null, null);
+        return context;
+    }
+
+    private static void generate(Path keystore) throws IOException, InterruptedException {
+        Files.createDirectories(keystore.toAbsolutePath().getParent());
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", ALIAS, "-keyalg", "RSA", "-keysize", "2048", "-validity", "3650",
+                "-dname", "CN=test-automation caching proxy",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+        if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+            throw new IOException("keytool завершился с ошибкой: " + output.trim());
+        }
+        logger.info("Создан сертификат прокси {}", keystore);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.javabruse.utils.remote;
+
+import ru.javabruse.utils.metrics.Histogram;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Время выполнения команд WebDriver на стороне клиента, по шаблону команды.
+ * id сессии и элементов в пути заменяются на {id}, чтобы одинаковые команды
+ * разных сессий попадали в одну строку отчёта. На команду - гистограмма
+ * фиксированного размера, поэтому память не растёт с числом сессий и длиной прогона.
+ */
+public class CommandLatency {
+
+    private static final Pattern SESSION_ID = Pattern.compile("/session/[^/]+");
+    private static final Pattern ELEMENT_ID = Pattern.compile("/(element|shadow|window|frame)/[^/]+");
+
+    private final Map<String, Histogram> commands = new ConcurrentHashMap<>();
+
+    public void record(String method, String path, long nanos) {
+        commands.computeIfAbsent(method + " " + template(path), k -> new Histogram()).observeNanos(nanos);
+    }
+
+    public long count(String command) {
+        Histogram histogram = commands.get(command);
+        return histogram == null ? 0 : histogram.count();
+    }
+
+    public long totalCount() {
+        return commands.values().stream().mapToLong(Histogram::count).sum();
+    }
+
+    // Средняя задержка по всем командам, мс
+    public double meanMillis() {
+        long count = 0;
+        double sum = 0;
+        for (Histogram histogram : commands.values()) {
+            sum += histogram.meanMillis() * histogram.count();
+            count += histogram.count();
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    // Таблица: команда, число вызовов, p50 / p95 / max в мс
+    public String summary() {
+        StringBuilder report = new StringBuilder();
+        new TreeMap<>(commands).forEach((command, histogram) -> {
+            if (histogram.count() == 0) {
+                return;
+            }
+            report.append(String.format(Locale.ROOT, "%n  %-45s %6d  p50 %7.1f  p95 %7.1f  max %7.1f",
+                    command, histogram.count(), histogram.percentileMillis(0.50),
+                    histogram.percentileMillis(0.95), histogram.maxMillis()));
+        });
+        return report.toString();
+    }
+
+    static String template(String path) {
+        String withoutQuery = path.contains("?") ? path.substring(0, path.indexOf('?')) : path;
+        String session = SESSION_ID.matcher(withoutQuery).replaceFirst("/session/{id}");
+        return ELEMENT_ID.matcher(session).replaceAll("/$1/{id}");
+    }
+}
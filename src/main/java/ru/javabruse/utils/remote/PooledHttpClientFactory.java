@@ -0,0 +1,216 @@
+package ru.javabruse.utils.remote;
+
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.Message;
+import org.openqa.selenium.remote.http.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP-клиент для удалённых сессий (grid, облака) с общим пулом соединений.
+ * Все сессии работают через один java.net.http.HttpClient: keep-alive соединения
+ * к хабу переиспользуются между командами и сессиями, ответы запрашиваются в gzip,
+ * таймауты подключения и чтения настраиваются. Время каждой команды попадает в CommandLatency.
+ * Включается через -Dremote.pool=true.
+ */
+public class PooledHttpClientFactory implements HttpClient.Factory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledHttpClientFactory.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("remote.pool", "false"));
+
+    // HttpClient выставляет их сам и не даёт переопределять
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "date", "expect", "from", "host", "upgrade", "via", "warning"));
+
+    private static volatile PooledHttpClientFactory shared;
+
+    private final java.net.http.HttpClient pool;
+    private final CommandLatency latency = new CommandLatency();
+
+    public PooledHttpClientFactory(Duration connectTimeout) {
+        // HTTP/1.1: grid-хабы обычно без h2c, а попытка апгрейда стоит лишнего раунда
+        this.pool = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Фабрика на весь прогон; сводка задержек команд - в лог при выходе
+    public static PooledHttpClientFactory shared() {
+        if (shared == null) {
+            synchronized (PooledHttpClientFactory.class) {
+                if (shared == null) {
+                    PooledHttpClientFactory factory = new PooledHttpClientFactory(connectTimeout());
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        if (factory.latency.totalCount() > 0) {
+                            logger.info("Задержки команд удалённых сессий, мс:{}", factory.latency.summary());
+                        }
+                    }, "remote-latency-report"));
+                    shared = factory;
+                }
+            }
+        }
+        return shared;
+    }
+
+    // ClientConfig удалённой сессии с таймаутами из -Dremote.connect.timeout.seconds / -Dremote.read.timeout.seconds
+    public static ClientConfig clientConfig(URI hubUri) {
+        return ClientConfig.defaultConfig()
+                .baseUri(hubUri)
+                .connectionTimeout(connectTimeout())
+                .readTimeout(Duration.ofSeconds(Long.getLong("remote.read.timeout.seconds", 180)));
+    }
+
+    public CommandLatency getLatency() {
+        return latency;
+    }
+
+    @Override
+    public HttpClient createClient(ClientConfig config) {
+        return new PooledClient(config);
+    }
+
+    private static Duration connectTimeout() {
+        return Duration.ofSeconds(Long.getLong("remote.connect.timeout.seconds", 10));
+    }
+
+    private final class PooledClient implements HttpClient {
+        private final ClientConfig config;
+        private final HttpHandler handler;
+
+        PooledClient(ClientConfig config) {
+            this.config = config;
+            this.handler = config.filter().andFinally(this::send);
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            return handler.execute(request);
+        }
+
+        @Override
+        public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+            // веб-сокеты (BiDi/CDP) пулом не обслуживаются; отдельный клиент живёт, пока открыт сокет
+            HttpClient client = HttpClient.Factory.createDefault().createClient(config);
+            WebSocket socket;
+            try {
+                socket = client.openSocket(request, listener);
+            } catch (RuntimeException e) {
+                client.close();
+                throw e;
+            }
+            return new WebSocket() {
+                @Override
+                public WebSocket send(Message message) {
+                    socket.send(message);
+                    return this;
+                }
+
+                @Override
+                public void close() {
+                    try {
+                        socket.close();
+                    } finally {
+                        client.close();
+                    }
+                }
+            };
+        }
+
+        private HttpResponse send(HttpRequest request) {
+            byte[] body = Contents.bytes(request.getContent());
+            java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(toUri(request))
+                    .timeout(config.readTimeout())
+                    .method(request.getMethod().name(), body.length == 0
+                            ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                            : java.net.http.HttpRequest.BodyPublishers.ofByteArray(body));
+            for (String name : request.getHeaderNames()) {
+                if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    for (String value : request.getHeaders(name)) {
+                        builder.header(name, value);
+                    }
+                }
+            }
+            builder.setHeader("Accept-Encoding", "gzip");
+
+            long started = System.nanoTime();
+            java.net.http.HttpResponse<byte[]> response;
+            try {
+                response = pool.send(builder.build(), java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException(e.getMessage()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                latency.record(request.getMethod().name(), request.getUri(), System.nanoTime() - started);
+            }
+
+            HttpResponse result = new HttpResponse();
+            result.setStatus(response.statusCode());
+            boolean gzip = response.headers().firstValue("Content-Encoding")
+                    .map(value -> value.equalsIgnoreCase("gzip")).orElse(false);
+            response.headers().map().forEach((name, values) -> {
+                if (!(gzip && (name.equalsIgnoreCase("Content-Encoding") || name.equalsIgnoreCase("Content-Length")))) {
+                    values.forEach(value -> result.addHeader(name, value));
+                }
+            });
+            result.setContent(Contents.bytes(gzip ? gunzip(response.body()) : response.body()));
+            result.setTargetHost(response.uri().getHost());
+            return result;
+        }
+
+        private URI toUri(HttpRequest request) {
+            String base = config.baseUri().toString();
+            String path = request.getUri();
+            if (base.endsWith("/") && path.startsWith("/")) {
+                path = path.substring(1);
+            }
+            StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+            for (String name : request.getQueryParameterNames()) {
+                for (String value : request.getQueryParameters(name)) {
+                    query.add(URLEncoder.encode(name, StandardCharsets.UTF_8) + "="
+                            + URLEncoder.encode(value, StandardCharsets.UTF_8));
+                }
+            }
+            return URI.create(path.startsWith("http") ? path + query : base + path + query);
+        }
+    }
+
+    private static byte[] gunzip(byte[] compressed) {
+        if (compressed.length == 0) {
+            return compressed;
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
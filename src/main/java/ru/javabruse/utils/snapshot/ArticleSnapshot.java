@@ -0,0 +1,138 @@
+package ru.javabruse.utils.snapshot;
+
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.JsonLines;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Проверенное состояние статьи: версия (ревизия и touched), извлечённые значения и хэш от них.
+ * Значения хранятся в отсортированной карте, поэтому одинаковое содержимое
+ * всегда даёт одинаковый хэш.
+ */
+public class ArticleSnapshot {
+
+    private final String title;
+    private final long revisionId;
+    private final String touched;
+    private final String contentHash;
+    private final Map<String, Object> values;
+    private final long checkedAt;
+
+    public ArticleSnapshot(String title, PageVersion version, Map<String, Object> values, long checkedAt) {
+        this.title = title;
+        this.revisionId = version.getRevisionId();
+        this.touched = version.getTouched();
+        this.values = new TreeMap<>(values);
+        this.contentHash = hash(this.values);
+        this.checkedAt = checkedAt;
+    }
+
+    // title - ключ, под которым статья запрашивалась (заголовок на странице может отличаться регистром)
+    public static ArticleSnapshot of(String title, PageVersion version, WikipediaPage.ArticleData article) {
+        Map<String, Object> values = new TreeMap<>();
+        values.put("title", article.getTitle());
+        values.put("images", article.getImageCount());
+        values.put("externalLinks", article.getExternalLinksCount());
+        values.put("infobox", article.hasInfobox());
+        values.put("infoboxRows", article.getInfoboxRows());
+        values.put("categories", new ArrayList<>(article.getCategories()));
+        return new ArticleSnapshot(title, version, values, System.currentTimeMillis());
+    }
+
+    // поля, значения которых отличаются от предыдущего снимка
+    public List<String> changedFields(ArticleSnapshot previous) {
+        List<String> changed = new ArrayList<>();
+        if (previous == null) {
+            changed.addAll(values.keySet());
+            return changed;
+        }
+        if (previous.contentHash.equals(contentHash)) {
+            return changed;
+        }
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object before = previous.values.get(entry.getKey());
+            if (before == null || !JsonLines.toLine(before).equals(JsonLines.toLine(entry.getValue()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getRevisionId() {
+        return revisionId;
+    }
+
+    public PageVersion getVersion() {
+        return new PageVersion(revisionId, touched);
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Map<String, Object> getValues() {
+        return values;
+    }
+
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+
+    Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("title", title);
+        json.put("revision", revisionId);
+        if (touched != null) {
+            json.put("touched", touched);
+        }
+        json.put("hash", contentHash);
+        json.put("checkedAt", checkedAt);
+        json.put("values", values);
+        return json;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ArticleSnapshot fromJson(Map<String, Object> json) {
+        // у снимков без touched (сделанных до его учёта) версия неполная - статья перечитается один раз
+        PageVersion version = new PageVersion(((Number) json.get("revision")).longValue(), (String) json.get("touched"));
+        return new ArticleSnapshot((String) json.get("title"), version,
+                (Map<String, Object>) json.get("values"), ((Number) json.get("checkedAt")).longValue());
+    }
+
+    // JSON-кодек возвращает числа как Long, поэтому хэш считается по JSON-строке
+    private static String hash(Map<String, Object> values) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(JsonLines.toLine(values).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ArticleSnapshot{" +
+                "title='" + title + '\'' +
+                ", revision=" + revisionId +
+                ", touched=" + touched +
+                ", hash=" + contentHash +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package ru.javabruse.utils.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.crawl.ArticleInvariants;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Инкрементальная проверка статей: сначала одним API-запросом на 50 статей узнаются
+ * текущие версии, в браузере открываются только статьи без снимка или с новой ревизией
+ * либо новым touched (правка шаблона или категорий меняет страницу без новой ревизии).
+ * У открытых сравниваются извлечённые значения со снимком: если хэш не изменился
+ * (правка не затронула проверяемое), инварианты не перепроверяются. Снимок
+ * сохраняется только для статьи без нарушений, так что упавшая проверка повторится
+ * в следующем прогоне. Время прогона растёт с числом правок, а не с числом статей.
+ */
+public class IncrementalValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalValidator.class);
+
+    private final SnapshotStore store;
+    private final RevisionLookup revisions;
+    private final Function<List<String>, List<WikipediaPage.ArticleData>> reader;
+
+    // reader - пакетное чтение статей, например titles -> page.readArticlesInTabs(titles, 5)
+    public IncrementalValidator(SnapshotStore store, RevisionLookup revisions,
+                                Function<List<String>, List<WikipediaPage.ArticleData>> reader) {
+        this.store = store;
+        this.revisions = revisions;
+        this.reader = reader;
+    }
+
+    public Result validate(List<String> titles) throws IOException, InterruptedException {
+        Map<String, PageVersion> current;
+        try {
+            current = revisions.currentVersions(titles);
+        } catch (IOException e) {
+            logger.warn("Ревизии недоступны, проверяются все статьи: {}", e.getMessage());
+            current = Collections.emptyMap();
+        }
+
+        Result result = new Result();
+        List<String> toRead = new ArrayList<>();
+        for (String title : titles) {
+            PageVersion version = current.get(title);
+            if (version != null && store.isCurrent(title, version)) {
+                result.skipped.add(title);
+            } else {
+                toRead.add(title);
+            }
+        }
+        logger.info("Снимки: {} статей без изменений, {} к проверке", result.skipped.size(), toRead.size());
+        if (toRead.isEmpty()) {
+            return result;
+        }
+
+        List<WikipediaPage.ArticleData> articles = reader.apply(toRead);
+        for (int i = 0; i < toRead.size(); i++) {
+            String title = toRead.get(i);
+            WikipediaPage.ArticleData article = articles.get(i);
+            if (!article.isLoaded()) {
+                result.violations.put(title, Collections.singletonList("статья не загрузилась"));
+                continue;
+            }
+            // с isCurrent в следующем прогоне сравнивается версия из API, её и храним;
+            // без API - ревизия со страницы, такой снимок в следующий раз не пропустит статью
+            PageVersion version = current.getOrDefault(title, new PageVersion(article.getRevisionId(), null));
+            ArticleSnapshot previous = store.get(title);
+            ArticleSnapshot snapshot = ArticleSnapshot.of(title, version, article);
+            List<String> changed = snapshot.changedFields(previous);
+            result.changedFields.put(title, changed);
+
+            if (!changed.isEmpty()) {
+                List<String> violations = ArticleInvariants.violations(article);
+                if (!violations.isEmpty()) {
+                    result.violations.put(title, violations);
+                    continue;
+                }
+            }
+            store.put(snapshot);
+        }
+        return result;
+    }
+
+    public static class Result {
+        private final List<String> skipped = new ArrayList<>();
+        private final Map<String, List<String>> changedFields = new LinkedHashMap<>();
+        private final Map<String, List<String>> violations = new LinkedHashMap<>();
+
+        // статьи, не открывавшиеся в браузере: версия та же, что в снимке
+        public List<String> getSkipped() {
+            return skipped;
+        }
+
+        // открытые статьи -> изменившиеся поля (пустой список - правка не затронула проверяемое)
+        public Map<String, List<String>> getChangedFields() {
+            return changedFields;
+        }
+
+        public Map<String, List<String>> getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("пропущено %d, проверено %d, нарушений %d",
+                    skipped.size(), changedFields.size(), violations.size());
+        }
+    }
+}
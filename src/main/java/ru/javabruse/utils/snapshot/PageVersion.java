@@ -0,0 +1,56 @@
+package ru.javabruse.utils.snapshot;
+
+import java.util.Objects;
+
+/**
+ * Версия статьи по API MediaWiki (prop=info): lastrevid и touched.
+ * Ревизия меняется только с правкой самой статьи; touched сдвигается и тогда,
+ * когда меняется включённое в неё без новой ревизии - шаблоны (инфобокс),
+ * категории из шаблонов, - поэтому снимок актуален, только если совпали оба.
+ */
+public final class PageVersion {
+
+    private final long revisionId;
+    // ISO-время из API, null - неизвестно (API недоступен)
+    private final String touched;
+
+    public PageVersion(long revisionId, String touched) {
+        this.revisionId = revisionId;
+        this.touched = touched;
+    }
+
+    public long getRevisionId() {
+        return revisionId;
+    }
+
+    public String getTouched() {
+        return touched;
+    }
+
+    // по неизвестной версии статью нельзя пропустить
+    public boolean isKnown() {
+        return revisionId > 0 && touched != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PageVersion)) {
+            return false;
+        }
+        PageVersion other = (PageVersion) o;
+        return revisionId == other.revisionId && Objects.equals(touched, other.touched);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(revisionId, touched);
+    }
+
+    @Override
+    public String toString() {
+        return revisionId + "@" + touched;
+    }
+}
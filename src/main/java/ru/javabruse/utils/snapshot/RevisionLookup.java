@@ -0,0 +1,103 @@
+package ru.javabruse.utils.snapshot;
+
+import ru.javabruse.utils.JsonLines;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Текущие версии статей (ревизия и touched) через API MediaWiki (action=query&prop=info),
+ * по 50 заголовков за запрос и без браузера: по ним решается, какие статьи вообще нужно открывать.
+ * Перенаправления разрешаются (redirects=1): для заголовка-редиректа возвращается версия
+ * целевой статьи - той, которую показывает браузер.
+ */
+public class RevisionLookup {
+
+    private static final int TITLES_PER_REQUEST = 50;
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String baseUrl;
+
+    public RevisionLookup(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    // заголовок (как передан) -> lastrevid и touched; отсутствующих статей в ответе нет
+    public Map<String, PageVersion> currentVersions(List<String> titles) throws IOException, InterruptedException {
+        Map<String, PageVersion> versions = new LinkedHashMap<>();
+        for (int from = 0; from < titles.size(); from += TITLES_PER_REQUEST) {
+            versions.putAll(query(titles.subList(from, Math.min(titles.size(), from + TITLES_PER_REQUEST))));
+        }
+        return versions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, PageVersion> query(List<String> titles) throws IOException, InterruptedException {
+        String url = baseUrl + "/w/api.php?action=query&prop=info&redirects=1&format=json&formatversion=2&titles="
+                + URLEncoder.encode(String.join("|", titles), StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("User-Agent", "test_automation snapshot check")
+                .build();
+        HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("API вернул " + response.statusCode() + " для " + url);
+        }
+
+        Map<String, Object> query = (Map<String, Object>) JsonLines.parse(response.body()).get("query");
+        // API нормализует заголовки ("математика" -> "Математика") и разрешает редиректы,
+        // ответ сопоставляется с запрошенными; на одну статью могут вести несколько заголовков
+        Map<String, List<String>> requestedByTitle = new HashMap<>();
+        for (String title : titles) {
+            requestedByTitle.computeIfAbsent(title, k -> new ArrayList<>()).add(title);
+        }
+        remap(requestedByTitle, query, "normalized");
+        remap(requestedByTitle, query, "redirects");
+
+        Map<String, PageVersion> versions = new HashMap<>();
+        if (query != null && query.get("pages") instanceof List) {
+            for (Object item : (List<Object>) query.get("pages")) {
+                Map<String, Object> page = (Map<String, Object>) item;
+                List<String> requested = requestedByTitle.get((String) page.get("title"));
+                if (requested != null && page.get("lastrevid") instanceof Number) {
+                    PageVersion version = new PageVersion(((Number) page.get("lastrevid")).longValue(),
+                            (String) page.get("touched"));
+                    for (String title : requested) {
+                        versions.put(title, version);
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
+    // пары from -> to из ответа: запрошенные заголовки переезжают к новому имени
+    @SuppressWarnings("unchecked")
+    private static void remap(Map<String, List<String>> requestedByTitle, Map<String, Object> query, String key) {
+        if (query == null || !(query.get(key) instanceof List)) {
+            return;
+        }
+        for (Object item : (List<Object>) query.get(key)) {
+            Map<String, Object> pair = (Map<String, Object>) item;
+            List<String> requested = requestedByTitle.remove((String) pair.get("from"));
+            if (requested != null) {
+                requestedByTitle.computeIfAbsent((String) pair.get("to"), k -> new ArrayList<>()).addAll(requested);
+            }
+        }
+    }
+}
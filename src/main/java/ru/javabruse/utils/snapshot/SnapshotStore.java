@@ -0,0 +1,146 @@
+package ru.javabruse.utils.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Локальное хранилище снимков статей между прогонами.
+ * На диске - журнал JSONL, в который только дописываются строки; в памяти - индекс
+ * "заголовок -> последний снимок", восстанавливаемый чтением журнала при открытии
+ * (последняя запись побеждает, оборванная последняя строка пропускается).
+ * Когда устаревших строк в журнале становится больше живых, он переписывается
+ * во временный файл с одной строкой на статью и атомарно подменяется.
+ */
+public class SnapshotStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final int MIN_LINES_TO_COMPACT = 1000;
+
+    private final Path file;
+    private final Map<String, ArticleSnapshot> index = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+    private long logLines;
+
+    private SnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    public static SnapshotStore open(Path file) throws IOException {
+        SnapshotStore store = new SnapshotStore(file);
+        store.load();
+        return store;
+    }
+
+    public ArticleSnapshot get(String title) {
+        return index.get(title);
+    }
+
+    // снимок есть и сделан на той же версии: ревизия и touched (правки шаблонов) совпадают
+    public boolean isCurrent(String title, PageVersion version) {
+        ArticleSnapshot snapshot = index.get(title);
+        return snapshot != null && version.isKnown() && snapshot.getVersion().equals(version);
+    }
+
+    public synchronized void put(ArticleSnapshot snapshot) throws IOException {
+        writer.write(JsonLines.toLine(snapshot.toJson()));
+        writer.write('\n');
+        writer.flush();
+        index.put(snapshot.getTitle(), snapshot);
+        logLines++;
+        if (logLines >= MIN_LINES_TO_COMPACT && logLines > 2L * index.size()) {
+            compact();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public synchronized long getLogLines() {
+        return logLines;
+    }
+
+    // журнал переписывается по индексу: одна строка на статью
+    public synchronized void compact() throws IOException {
+        long before = logLines;
+        writer.close();
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (ArticleSnapshot snapshot : index.values()) {
+                out.write(JsonLines.toLine(snapshot.toJson()));
+                out.write('\n');
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = index.size();
+        openWriter();
+        logger.info("Журнал снимков {} сжат: {} -> {} строк", file, before, logLines);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void load() throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        ArticleSnapshot snapshot = ArticleSnapshot.fromJson(JsonLines.parse(line));
+                        index.put(snapshot.getTitle(), snapshot);
+                        logLines++;
+                    } catch (RuntimeException e) {
+                        // прогон мог оборваться посреди записи строки
+                        logger.warn("Пропущена повреждённая строка журнала снимков: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+        openWriter();
+        if (!endsWithNewline()) {
+            // новая запись не должна склеиться с оборванной строкой
+            writer.write('\n');
+        }
+        logger.info("Журнал снимков {}: {} статей, {} строк", file, index.size(), logLines);
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void openWriter() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,78 @@
+package ru.javabruse.utils.soak;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.ResourceSampler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сессия WikipediaPage для soak: случайные статьи, каждая searchEvery-я навигация - поиск.
+ * JS-куча снимается после принудительной сборки мусора (CDP HeapProfiler.collectGarbage,
+ * иначе window.gc, если браузер запущен с --js-flags=--expose-gc): без неё тренд кучи
+ * показывает в основном, когда сработал GC, а не утечку. Значение - через CDP
+ * Performance.getMetrics у Chrome/Edge, иначе performance.memory;
+ * RSS - по дереву процессов driver-сервиса (ResourceSampler).
+ */
+public class BrowserSoakTarget implements SoakTarget {
+
+    private final WebDriver driver;
+    private final WikipediaPage page;
+    private final List<String> queries;
+    private final int searchEvery;
+    private boolean cdpEnabled;
+
+    public BrowserSoakTarget(WebDriver driver, List<String> queries, int searchEvery) {
+        this.driver = driver;
+        this.page = new WikipediaPage(driver);
+        this.queries = queries;
+        this.searchEvery = searchEvery;
+    }
+
+    @Override
+    public void navigate(int i) {
+        if (searchEvery > 0 && i % searchEvery == searchEvery - 1 && !queries.isEmpty()) {
+            page.searchArticle(queries.get((i / searchEvery) % queries.size()), false);
+        } else {
+            page.goToRandomPage();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public long jsHeapBytes() {
+        if (driver instanceof ChromiumDriver) {
+            try {
+                ChromiumDriver chromium = (ChromiumDriver) driver;
+                if (!cdpEnabled) {
+                    chromium.executeCdpCommand("Performance.enable", Collections.emptyMap());
+                    cdpEnabled = true;
+                }
+                chromium.executeCdpCommand("HeapProfiler.collectGarbage", Collections.emptyMap());
+                Map<String, Object> result = chromium.executeCdpCommand("Performance.getMetrics", Collections.emptyMap());
+                for (Object item : (List<Object>) result.get("metrics")) {
+                    Map<String, Object> metric = (Map<String, Object>) item;
+                    if ("JSHeapUsedSize".equals(metric.get("name"))) {
+                        return ((Number) metric.get("value")).longValue();
+                    }
+                }
+            } catch (RuntimeException e) {
+                // ниже - performance.memory
+            }
+        }
+        Object used = ((JavascriptExecutor) driver).executeScript(
+                "if (typeof window.gc === 'function') { window.gc(); }" +
+                "return window.performance && performance.memory ? performance.memory.usedJSHeapSize : -1;");
+        return used instanceof Number ? ((Number) used).longValue() : -1;
+    }
+
+    @Override
+    public long rssBytes() {
+        long rssKb = ResourceSampler.browserRssKb(driver);
+        return rssKb < 0 ? -1 : rssKb * 1024;
+    }
+}
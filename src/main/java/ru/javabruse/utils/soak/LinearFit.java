@@ -0,0 +1,70 @@
+package ru.javabruse.utils.soak;
+
+import java.util.Locale;
+
+// Прямая методом наименьших квадратов: y = intercept + slope * x, с R^2
+public class LinearFit {
+
+    private final double slope;
+    private final double intercept;
+    private final double rSquared;
+
+    private LinearFit(double slope, double intercept, double rSquared) {
+        this.slope = slope;
+        this.intercept = intercept;
+        this.rSquared = rSquared;
+    }
+
+    // точки с y < 0 (метрика недоступна) пропускаются
+    public static LinearFit of(double[] x, double[] y) {
+        double n = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (y[i] >= 0) {
+                n++;
+                sumX += x[i];
+                sumY += y[i];
+            }
+        }
+        if (n < 2) {
+            return new LinearFit(0, n == 1 ? sumY : 0, 0);
+        }
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+        double sxx = 0;
+        double sxy = 0;
+        double syy = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (y[i] >= 0) {
+                sxx += (x[i] - meanX) * (x[i] - meanX);
+                sxy += (x[i] - meanX) * (y[i] - meanY);
+                syy += (y[i] - meanY) * (y[i] - meanY);
+            }
+        }
+        double slope = sxx == 0 ? 0 : sxy / sxx;
+        double rSquared = sxx == 0 || syy == 0 ? 0 : (sxy * sxy) / (sxx * syy);
+        return new LinearFit(slope, meanY - slope * meanX, rSquared);
+    }
+
+    public double slope() {
+        return slope;
+    }
+
+    public double intercept() {
+        return intercept;
+    }
+
+    public double rSquared() {
+        return rSquared;
+    }
+
+    public double at(double x) {
+        return intercept + slope * x;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.4f/нав (R²=%.2f)", slope, rSquared);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.javabruse.utils.soak;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Прогоняет одну сессию через navigations навигаций и каждые sampleEvery снимает
+ * JS-кучу, RSS браузера и среднее время навигации за интервал.
+ * Ошибка отдельной навигации считается и не прерывает прогон: долгая сессия
+ * обязательно встретит битую статью или таймаут.
+ */
+public class SessionSoak {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionSoak.class);
+
+    private final SoakTarget target;
+    private final int navigations;
+    private final int sampleEvery;
+    private int failures;
+
+    public SessionSoak(SoakTarget target, int navigations, int sampleEvery) {
+        if (navigations <= 0 || sampleEvery <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры soak: " + navigations + ", " + sampleEvery);
+        }
+        this.target = target;
+        this.navigations = navigations;
+        this.sampleEvery = sampleEvery;
+    }
+
+    public List<SoakSample> run() {
+        List<SoakSample> samples = new ArrayList<>();
+        samples.add(sample(0, Double.NaN));
+        long intervalNanos = 0;
+        int intervalCount = 0;
+        for (int i = 0; i < navigations; i++) {
+            long start = System.nanoTime();
+            try {
+                target.navigate(i);
+            } catch (Exception e) {
+                failures++;
+                logger.warn("Soak: навигация {} не удалась: {}", i, e.getMessage());
+            }
+            intervalNanos += System.nanoTime() - start;
+            intervalCount++;
+            if ((i + 1) % sampleEvery == 0 || i + 1 == navigations) {
+                SoakSample sample = sample(i + 1, intervalNanos / 1e6 / intervalCount);
+                samples.add(sample);
+                logger.info("Soak {}/{}: JS-куча {} МБ, RSS {} МБ, навигация {} мс", i + 1, navigations,
+                        round1(sample.getJsHeapMb()), round1(sample.getRssMb()), Math.round(sample.getMeanLatencyMs()));
+                intervalNanos = 0;
+                intervalCount = 0;
+            }
+        }
+        return samples;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    private SoakSample sample(int navigation, double meanLatencyMs) {
+        return new SoakSample(navigation, toMb(target.jsHeapBytes()), toMb(target.rssBytes()), meanLatencyMs);
+    }
+
+    private static double round1(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static double toMb(long bytes) {
+        return bytes < 0 ? -1 : bytes / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.javabruse.utils.soak;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Тренды soak-прогона и точка, после которой сессию выгоднее пересоздать.
+ * Если навигация дорожает линейно, t(n) = t0 + b*n, то цикл из N навигаций плюс
+ * пересоздание стоимостью R в среднем стоит t0 + b*N/2 + R/N на навигацию;
+ * минимум - при N* = sqrt(2R/b). Если задан бюджет памяти, N* дополнительно
+ * ограничивается моментом, когда тренд RSS (или JS-кучи, если RSS неизвестен) его достигнет.
+ */
+public class SoakReport {
+
+    private final List<SoakSample> samples;
+    private final double recycleCostMs;
+    private final double memoryBudgetMb;
+    private final LinearFit jsHeap;
+    private final LinearFit rss;
+    private final LinearFit latency;
+
+    // memoryBudgetMb <= 0 - без бюджета
+    public SoakReport(List<SoakSample> samples, double recycleCostMs, double memoryBudgetMb) {
+        this.samples = samples;
+        this.recycleCostMs = recycleCostMs;
+        this.memoryBudgetMb = memoryBudgetMb;
+        double[] x = new double[samples.size()];
+        double[] heap = new double[samples.size()];
+        double[] resident = new double[samples.size()];
+        double[] time = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            SoakSample sample = samples.get(i);
+            x[i] = sample.getNavigation();
+            heap[i] = sample.getJsHeapMb();
+            resident[i] = sample.getRssMb();
+            // у начального замера навигаций ещё не было
+            time[i] = Double.isNaN(sample.getMeanLatencyMs()) ? -1 : sample.getMeanLatencyMs();
+        }
+        this.jsHeap = LinearFit.of(x, heap);
+        this.rss = LinearFit.of(x, resident);
+        this.latency = LinearFit.of(x, time);
+    }
+
+    public LinearFit getJsHeap() {
+        return jsHeap;
+    }
+
+    public LinearFit getRss() {
+        return rss;
+    }
+
+    public LinearFit getLatency() {
+        return latency;
+    }
+
+    // -1 - рост не обнаружен, пересоздавать сессию незачем
+    public long recommendedRecycleInterval() {
+        double byLatency = latency.slope() > 0 && recycleCostMs > 0
+                ? Math.sqrt(2 * recycleCostMs / latency.slope()) : Double.POSITIVE_INFINITY;
+        double byMemory = Double.POSITIVE_INFINITY;
+        LinearFit memory = hasRss() ? rss : jsHeap;
+        if (memoryBudgetMb > 0 && memory.slope() > 0) {
+            byMemory = Math.max(1, (memoryBudgetMb - memory.intercept()) / memory.slope());
+        }
+        double best = Math.min(byLatency, byMemory);
+        return Double.isInfinite(best) ? -1 : Math.max(1, Math.round(best));
+    }
+
+    public String summary() {
+        long interval = recommendedRecycleInterval();
+        return String.format(Locale.ROOT,
+                "навигаций %d; JS-куча %s МБ; RSS %s МБ; время навигации %s мс; пересоздание %.0f мс; %s",
+                samples.isEmpty() ? 0 : samples.get(samples.size() - 1).getNavigation(),
+                jsHeap, rss, latency, recycleCostMs,
+                interval < 0 ? "рост не обнаружен" : "пересоздавать сессию каждые " + interval + " навигаций");
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("navigation,jsHeapMb,rssMb,meanLatencyMs");
+            for (SoakSample sample : samples) {
+                out.println(String.format(Locale.ROOT, "%d,%.2f,%.2f,%.1f", sample.getNavigation(),
+                        sample.getJsHeapMb(), sample.getRssMb(), sample.getMeanLatencyMs()));
+            }
+        }
+    }
+
+    private boolean hasRss() {
+        for (SoakSample sample : samples) {
+            if (sample.getRssMb() >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.javabruse.utils.soak;
+
+// Замер после navigation навигаций; память -1 - метрика недоступна
+public class SoakSample {
+
+    private final int navigation;
+    private final double jsHeapMb;
+    private final double rssMb;
+    private final double meanLatencyMs;
+
+    public SoakSample(int navigation, double jsHeapMb, double rssMb, double meanLatencyMs) {
+        this.navigation = navigation;
+        this.jsHeapMb = jsHeapMb;
+        this.rssMb = rssMb;
+        this.meanLatencyMs = meanLatencyMs;
+    }
+
+    public int getNavigation() {
+        return navigation;
+    }
+
+    public double getJsHeapMb() {
+        return jsHeapMb;
+    }
+
+    public double getRssMb() {
+        return rssMb;
+    }
+
+    // среднее время навигации с предыдущего замера
+    public double getMeanLatencyMs() {
+        return meanLatencyMs;
+    }
+}
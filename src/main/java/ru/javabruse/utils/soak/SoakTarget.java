@@ -0,0 +1,14 @@
+package ru.javabruse.utils.soak;
+
+// Долгоживущая сессия под нагрузкой: одна навигация за вызов и текущая память
+public interface SoakTarget {
+
+    // i - номер навигации с нуля
+    void navigate(int i) throws Exception;
+
+    // используемая JS-куча страницы, байты; -1 - браузер не отдаёт
+    long jsHeapBytes();
+
+    // RSS всех процессов браузера, байты; -1 - процесс не найден
+    long rssBytes();
+}
@@ -0,0 +1,88 @@
+package ru.javabruse.utils.wire;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Один HTTP-обмен клиента WebDriver/Appium с драйвером: запрос и ответ
+public class WireExchange {
+
+    private final String method;
+    private final String uri;
+    private final String requestBody;
+    private final int status;
+    private final String contentType;
+    private final String responseBody;
+    private final long millis;
+
+    public WireExchange(String method, String uri, String requestBody, int status,
+                        String contentType, String responseBody, long millis) {
+        this.method = method;
+        this.uri = uri;
+        this.requestBody = requestBody;
+        this.status = status;
+        this.contentType = contentType;
+        this.responseBody = responseBody;
+        this.millis = millis;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getRequestBody() {
+        return requestBody;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    // Ключ сопоставления при воспроизведении. Тело new session не учитываем:
+    // capabilities при записи и воспроизведении могут отличаться
+    public String matchKey() {
+        if ("POST".equals(method) && "/session".equals(uri)) {
+            return method + " " + uri;
+        }
+        return method + " " + uri + " " + requestBody;
+    }
+
+    // короткие имена полей - файл записи должен быть компактным
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("m", method);
+        map.put("u", uri);
+        map.put("b", requestBody);
+        map.put("s", status);
+        map.put("t", contentType);
+        map.put("r", responseBody);
+        map.put("d", millis);
+        return map;
+    }
+
+    static WireExchange fromMap(Map<String, Object> map) {
+        return new WireExchange(
+                (String) map.get("m"),
+                (String) map.get("u"),
+                (String) map.getOrDefault("b", ""),
+                ((Number) map.get("s")).intValue(),
+                (String) map.get("t"),
+                (String) map.getOrDefault("r", ""),
+                ((Number) map.getOrDefault("d", 0)).longValue());
+    }
+}
@@ -0,0 +1,143 @@
+package ru.javabruse.utils.wire;
+
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Запись HTTP-обменов W3C WebDriver / Appium одной сессии.
+ * Подключается как Filter в ClientConfig (локальные драйверы) или оборачивает
+ * HttpClient.Factory (Appium, remote). Файл - JSONL в gzip, одна строка на команду.
+ */
+public class WireRecorder implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireRecorder.class);
+
+    private final List<WireExchange> exchanges = new ArrayList<>();
+    private Path file;
+    // первые prologue обменов сохраняются при restart - команды создания сессии
+    private int prologue;
+    private boolean unsaved;
+
+    public WireRecorder(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public HttpHandler apply(HttpHandler next) {
+        return request -> {
+            // тела читаем один раз и подкладываем обратно, чтобы их увидел и драйвер
+            String requestBody = Contents.utf8String(request.getContent());
+            request.setContent(Contents.utf8String(requestBody));
+
+            long start = System.nanoTime();
+            HttpResponse response = next.execute(request);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            byte[] responseBody = Contents.bytes(response.getContent());
+            response.setContent(Contents.bytes(responseBody));
+
+            record(new WireExchange(request.getMethod().name(), request.getUri(), requestBody,
+                    response.getStatus(), response.getHeader("Content-Type"),
+                    new String(responseBody, StandardCharsets.UTF_8), millis));
+            return response;
+        };
+    }
+
+    // Для драйверов, которые принимают фабрику HTTP-клиентов, а не ClientConfig
+    public HttpClient.Factory wrap(HttpClient.Factory delegate) {
+        return wrap(this, delegate);
+    }
+
+    // Фабрика, клиенты которой пропускают команды через filter; WebSocket - напрямую
+    public static HttpClient.Factory wrap(Filter filter, HttpClient.Factory delegate) {
+        return new HttpClient.Factory() {
+            @Override
+            public HttpClient createClient(ClientConfig config) {
+                HttpClient client = delegate.createClient(config);
+                HttpHandler recording = filter.apply(client);
+                return new HttpClient() {
+                    @Override
+                    public HttpResponse execute(HttpRequest request) {
+                        return recording.execute(request);
+                    }
+
+                    @Override
+                    public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+                        return client.openSocket(request, listener);
+                    }
+
+                    @Override
+                    public void close() {
+                        client.close();
+                    }
+                };
+            }
+
+            @Override
+            public void cleanupIdleClients() {
+                delegate.cleanupIdleClients();
+            }
+        };
+    }
+
+    private synchronized void record(WireExchange exchange) {
+        exchanges.add(exchange);
+        unsaved = true;
+    }
+
+    // всё записанное до этого момента повторяется в начале каждого следующего файла
+    public synchronized void markPrologue() {
+        prologue = exchanges.size();
+    }
+
+    // продолжить запись в новый файл: от прежнего остаётся только пролог
+    public synchronized void restart(Path nextFile) {
+        exchanges.subList(prologue, exchanges.size()).clear();
+        file = nextFile;
+        unsaved = false;
+    }
+
+    public synchronized boolean hasUnsaved() {
+        return unsaved;
+    }
+
+    public synchronized int size() {
+        return exchanges.size();
+    }
+
+    public synchronized void save() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8))) {
+            for (WireExchange exchange : exchanges) {
+                writer.write(JsonLines.toLine(exchange.toMap()));
+                writer.write('\n');
+            }
+        }
+        unsaved = false;
+        logger.info("Записано {} команд WebDriver в {} ({} байт)", exchanges.size(), file, Files.size(file));
+    }
+}
@@ -0,0 +1,136 @@
+package ru.javabruse.utils.wire;
+
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Воспроизведение записанной сессии без браузера и устройства.
+ * Фабрика HTTP-клиентов, которая на каждый запрос отдаёт записанный ответ с тем же
+ * методом, путём и телом (в порядке записи). Задержка ответа настраивается:
+ * 0 - без задержки, N - фиксированные N мс, -1 - исходное время из записи.
+ */
+public class WireReplay implements HttpClient.Factory {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireReplay.class);
+
+    public static final long RECORDED_LATENCY = -1;
+
+    private final Path file;
+    private final Map<String, Deque<WireExchange>> responses = new HashMap<>();
+    private final long latencyMillis;
+
+    private int served;
+    private long clientNanos;
+    private long lastServedAt;
+
+    private WireReplay(Path file, long latencyMillis) {
+        this.file = file;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public static WireReplay load(Path file, long latencyMillis) throws IOException {
+        WireReplay replay = new WireReplay(file, latencyMillis);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    WireExchange exchange = WireExchange.fromMap(JsonLines.parse(line));
+                    replay.responses.computeIfAbsent(exchange.matchKey(), k -> new ArrayDeque<>()).add(exchange);
+                }
+            }
+        }
+        return replay;
+    }
+
+    @Override
+    public HttpClient createClient(ClientConfig config) {
+        return new HttpClient() {
+            @Override
+            public HttpResponse execute(HttpRequest request) {
+                return serve(request);
+            }
+
+            @Override
+            public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+                throw new UnsupportedOperationException("WebSocket не поддерживается в режиме воспроизведения");
+            }
+        };
+    }
+
+    private synchronized WireExchange next(HttpRequest request) {
+        long now = System.nanoTime();
+        // время между ответами - это работа клиентского кода page object'ов
+        if (lastServedAt != 0) {
+            clientNanos += now - lastServedAt;
+        }
+
+        String body = Contents.utf8String(request.getContent());
+        WireExchange probe = new WireExchange(request.getMethod().name(), request.getUri(), body, 0, null, null, 0);
+        Deque<WireExchange> candidates = responses.get(probe.matchKey());
+        if (candidates == null || candidates.isEmpty()) {
+            throw new IllegalStateException("Нет записанного ответа для " + probe.getMethod() + " "
+                    + probe.getUri() + " в " + file + ". Тело запроса: " + body);
+        }
+
+        return candidates.size() > 1 ? candidates.poll() : candidates.peek();
+    }
+
+    // Задержка выдерживается вне монитора: иначе параллельные команды ждали бы друг друга,
+    // а виртуальный поток во сне под synchronized держал бы поток-носитель
+    private HttpResponse serve(HttpRequest request) {
+        WireExchange exchange = next(request);
+        simulateLatency(exchange);
+
+        HttpResponse response = new HttpResponse().setStatus(exchange.getStatus());
+        if (exchange.getContentType() != null) {
+            response.setHeader("Content-Type", exchange.getContentType());
+        }
+        response.setContent(Contents.utf8String(exchange.getResponseBody()));
+        markServed();
+        return response;
+    }
+
+    private synchronized void markServed() {
+        served++;
+        lastServedAt = System.nanoTime();
+    }
+
+    private void simulateLatency(WireExchange exchange) {
+        long millis = latencyMillis == RECORDED_LATENCY ? exchange.getMillis() : latencyMillis;
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Итог: сколько команд отдано и сколько времени занял клиентский код между ними
+    public synchronized void logSummary() {
+        logger.info("Воспроизведено {} команд из {}, клиентское время {} мс",
+                served, file, TimeUnit.NANOSECONDS.toMillis(clientNanos));
+    }
+}
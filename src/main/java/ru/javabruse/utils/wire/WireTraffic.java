@@ -0,0 +1,135 @@
+package ru.javabruse.utils.wire;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.javabruse.utils.TestLogContext;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Режимы записи/воспроизведения трафика WebDriver для WebDriverFactory.
+ * -Dwire.record=<каталог> - писать каждую сессию в отдельный файл;
+ * -Dwire.replay=<каталог> - вместо браузера/устройства отдавать ответы из записи,
+ * задержка -Dwire.replay.latency.ms (0 по умолчанию, -1 - как при записи).
+ * Файл сессии называется по тесту (Class.method) и порядковому номеру сессии в нём,
+ * поэтому запись и воспроизведение одного набора тестов находят одинаковые файлы.
+ */
+public final class WireTraffic {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireTraffic.class);
+
+    private static final String RECORD_DIR = System.getProperty("wire.record");
+    private static final String REPLAY_DIR = System.getProperty("wire.replay");
+    private static final long REPLAY_LATENCY_MS = Long.getLong("wire.replay.latency.ms", 0);
+
+    // адрес-заглушка: в режиме воспроизведения сеть не используется
+    private static final String REPLAY_URL = "http://replay.invalid:4444";
+
+    private static final Map<String, Integer> sessionCounters = new ConcurrentHashMap<>();
+    private static final Map<WebDriver, WireRecorder> recorders = new ConcurrentHashMap<>();
+    private static final Map<WebDriver, WireReplay> replays = new ConcurrentHashMap<>();
+
+    private WireTraffic() {
+    }
+
+    public static boolean isRecording() {
+        return RECORD_DIR != null && REPLAY_DIR == null;
+    }
+
+    public static boolean isReplaying() {
+        return REPLAY_DIR != null;
+    }
+
+    public static URL replayUrl() {
+        try {
+            return new URL(REPLAY_URL);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static WireRecorder newRecorder() {
+        return new WireRecorder(Paths.get(RECORD_DIR).resolve(nextSessionFile()));
+    }
+
+    public static WireReplay openReplay() {
+        Path file = Paths.get(REPLAY_DIR).resolve(nextSessionFile());
+        try {
+            logger.info("Воспроизводим сессию из {}", file);
+            return WireReplay.load(file, REPLAY_LATENCY_MS);
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось прочитать запись сессии " + file, e);
+        }
+    }
+
+    public static void attach(WebDriver driver, WireRecorder recorder) {
+        recorders.put(driver, recorder);
+    }
+
+    public static void attach(WebDriver driver, WireReplay replay) {
+        replays.put(driver, replay);
+    }
+
+    // Вызывается после quit(): сохраняет запись или выводит итог воспроизведения
+    public static void finish(WebDriver driver) {
+        WireRecorder recorder = recorders.remove(driver);
+        if (recorder != null && recorder.hasUnsaved()) {
+            save(recorder);
+        }
+        WireReplay replay = replays.remove(driver);
+        if (replay != null) {
+            replay.logSummary();
+        }
+    }
+
+    /*
+     * Браузер, общий для тестов потока (-Disolation=context): драйвер и его фильтр записи
+     * одни, поэтому запись делится на файлы по тестам. Команды до первого контекста
+     * (создание сессии, таймауты) - пролог, с него начинается файл каждого теста,
+     * чтобы запись воспроизводилась отдельным драйвером.
+     */
+    public static void markPrologue(WebDriver driver) {
+        WireRecorder recorder = recorders.get(driver);
+        if (recorder != null) {
+            recorder.markPrologue();
+        }
+    }
+
+    public static void beginTest(WebDriver driver) {
+        WireRecorder recorder = recorders.get(driver);
+        if (recorder != null) {
+            recorder.restart(Paths.get(RECORD_DIR).resolve(nextSessionFile()));
+        }
+    }
+
+    // Конец теста в общем браузере: запись сохраняется, драйвер остаётся
+    public static void finishTest(WebDriver driver) {
+        WireRecorder recorder = recorders.get(driver);
+        if (recorder != null) {
+            save(recorder);
+        }
+    }
+
+    private static void save(WireRecorder recorder) {
+        try {
+            recorder.save();
+        } catch (IOException e) {
+            logger.warn("Не удалось сохранить запись сессии: {}", e.getMessage());
+        }
+    }
+
+    private static String nextSessionFile() {
+        String test = Optional.ofNullable(TestLogContext.currentTestName()).orElse("session")
+                .replaceAll("[^A-Za-z0-9._-]", "_");
+        int number = sessionCounters.merge(test, 1, Integer::sum);
+        return test + "-" + number + ".wire.jsonl.gz";
+    }
+}
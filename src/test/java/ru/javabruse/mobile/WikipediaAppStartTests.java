@@ -0,0 +1,96 @@
+package ru.javabruse.mobile;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaAppPage;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.WebDriverFactory;
+import ru.javabruse.utils.appperf.AppStartBenchmark;
+import ru.javabruse.utils.appperf.AppStartReport;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+// Замер запуска приложения; только с -Dapp.start.benchmark=true
+public class WikipediaAppStartTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WikipediaAppStartTests.class);
+
+    private static final int ITERATIONS = Integer.getInteger("app.start.iterations", 10);
+    private static final int WARMUP = Integer.getInteger("app.start.warmup", 1);
+    private static final double MAX_SLOWDOWN = Double.parseDouble(System.getProperty("app.start.max.slowdown", "0.1"));
+
+    @Test(description = "Холодный, тёплый и горячий запуск установленного приложения")
+    public void testInstalledAppStart() throws Exception {
+        skipUnlessEnabled();
+        TestLogContext.start(getClass().getSimpleName() + ".testInstalledAppStart");
+        AndroidDriver driver = WebDriverFactory.createAndroidDriver();
+        try {
+            AppStartReport report = measure(driver, "installed");
+            report.save(Paths.get("target/app-start-installed.json"));
+
+            // сравнение с сохранённым замером прошлой сборки, если он указан
+            String baselinePath = System.getProperty("app.start.baseline.report", "");
+            if (!baselinePath.isEmpty()) {
+                assertNoRegressions(AppStartReport.load(Paths.get(baselinePath)), report);
+            }
+        } finally {
+            WebDriverFactory.quitDriver(driver);
+            TestLogContext.clear();
+        }
+    }
+
+    @Test(description = "Запуск сборки-кандидата не медленнее базовой")
+    public void testApkStartRegression() throws Exception {
+        skipUnlessEnabled();
+        String baselineApk = System.getProperty("app.start.baseline.apk", "");
+        String candidateApk = System.getProperty("app.start.candidate.apk", "");
+        if (baselineApk.isEmpty() || candidateApk.isEmpty()) {
+            throw new SkipException("Задайте -Dapp.start.baseline.apk и -Dapp.start.candidate.apk");
+        }
+        TestLogContext.start(getClass().getSimpleName() + ".testApkStartRegression");
+        try {
+            AppStartReport baseline = measureApk(baselineApk);
+            AppStartReport candidate = measureApk(candidateApk);
+            assertNoRegressions(baseline, candidate);
+        } finally {
+            TestLogContext.clear();
+        }
+    }
+
+    private static AppStartReport measureApk(String apk) throws Exception {
+        AndroidDriver driver = WebDriverFactory.createAndroidDriverWithApk(apk);
+        try {
+            AppStartReport report = measure(driver, Paths.get(apk).getFileName().toString());
+            report.save(Paths.get("target", "app-start-" + Paths.get(apk).getFileName() + ".json"));
+            return report;
+        } finally {
+            WebDriverFactory.quitDriver(driver);
+        }
+    }
+
+    private static AppStartReport measure(AndroidDriver driver, String label) {
+        WikipediaAppPage page = new WikipediaAppPage(driver);
+        // онбординг проходится один раз до замеров: флаг сохраняется и после force-stop
+        Assert.assertTrue(page.isMainScreenLoaded(), "Главный экран должен загрузиться перед замером");
+        return new AppStartBenchmark(driver, WebDriverFactory.WIKIPEDIA_APP_PACKAGE,
+                WebDriverFactory.WIKIPEDIA_MAIN_ACTIVITY, page::awaitSearchUsable).run(label, ITERATIONS, WARMUP);
+    }
+
+    private static void assertNoRegressions(AppStartReport baseline, AppStartReport candidate) {
+        List<String> regressions = AppStartReport.regressions(baseline, candidate, MAX_SLOWDOWN);
+        logger.info("Сравнение запуска {} -> {}: {}", baseline.getLabel(), candidate.getLabel(),
+                regressions.isEmpty() ? "без регрессий" : regressions);
+        Assert.assertTrue(regressions.isEmpty(), "Запуск стал медленнее: " + regressions);
+    }
+
+    private static void skipUnlessEnabled() {
+        if (!Boolean.parseBoolean(System.getProperty("app.start.benchmark", "false"))) {
+            throw new SkipException("Замер запуска выключен, задайте -Dapp.start.benchmark=true");
+        }
+    }
+}
@@ -2,15 +2,25 @@ package ru.javabruse.mobile;
 
 import io.appium.java_client.android.AndroidDriver;
 import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.SkipException;
 import org.testng.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.javabruse.pages.WikipediaAppPage;
+import ru.javabruse.utils.EmulatorManager;
+import ru.javabruse.utils.TestLogContext;
 import ru.javabruse.utils.WebDriverFactory;
+import ru.javabruse.utils.appperf.AppPerfRecorder;
+import ru.javabruse.utils.history.FailFastScheduler;
+import ru.javabruse.utils.history.FlakeControl;
+import ru.javabruse.utils.impact.ImpactSelector;
 
 import java.lang.reflect.Method;
+import java.util.List;
 
 
+@Listeners({ImpactSelector.class, FlakeControl.class, FailFastScheduler.class})
 public class WikipediaMobileTests {
 
     private static final Logger logger = LoggerFactory.getLogger(WikipediaMobileTests.class);
@@ -18,8 +28,17 @@ public class WikipediaMobileTests {
     private AndroidDriver driver;
     private WikipediaAppPage appPage;
 
+    // Эмулятор начинает грузиться из снапшота ещё до первого теста
+    @BeforeClass(alwaysRun = true)
+    public void prelaunchEmulator() {
+        if (EmulatorManager.isEnabled()) {
+            EmulatorManager.getInstance().prelaunch();
+        }
+    }
+
     @BeforeMethod
     public void setup(Method method) {
+        TestLogContext.start(getClass().getSimpleName() + "." + method.getName());
         logger.info("Запуск теста: {}", method.getName());
         try {
             driver = WebDriverFactory.createAndroidDriver();
@@ -34,19 +53,29 @@ public class WikipediaMobileTests {
     }
 
     @AfterMethod
-    public void tearDown(Method method) {
+    public void tearDown(Method method, ITestResult result) {
         logger.info("Завершение теста: {}", method.getName());
         try {
+            // после упавшего теста состояние устройства не гарантировано - откатим снапшот
+            if (EmulatorManager.isEnabled() && !result.isSuccess()) {
+                EmulatorManager.getInstance().markDirty();
+            }
+            if (appPage != null) {
+                appPage.logElementLookupStats();
+                appPage.getPerf().finish();
+            }
             if (driver != null) {
                 // Делаем скриншот перед закрытием при неудачном тесте
                 if (isTestFailed()) {
                     takeScreenshot(method.getName() + "_failed");
                 }
-                driver.quit();
+                WebDriverFactory.quitDriver(driver);
                 logger.info("Драйвер закрыт");
             }
         } catch (Exception e) {
             logger.warn("Ошибка при завершении теста: {}", e.getMessage());
+        } finally {
+            TestLogContext.clear();
         }
     }
 
@@ -212,6 +241,52 @@ public class WikipediaMobileTests {
         }
     }
 
+    @Test(priority = 8, description = "Бюджеты производительности: главный экран, поиск, статья, назад")
+    public void testArticleOpenPerformanceBudget() {
+        if (!AppPerfRecorder.isEnabled()) {
+            throw new SkipException("Замер производительности выключен, задайте -Dapp.perf=true");
+        }
+        Assert.assertTrue(appPage.isMainScreenLoaded(), "Главный экран должен быть загружен");
+        appPage.searchArticle("Appium");
+        Assert.assertFalse(appPage.getArticleTitle().isEmpty(), "Статья должна открыться");
+        appPage.goBack();
+
+        logger.info("Замеры приложения: {}", appPage.getPerf().getSamples());
+        // без значений метрики бюджет ничего не проверил бы, а тест прошёл бы
+        List<String> unmeasured = appPage.getPerf().unmeasuredBudgets();
+        if (!unmeasured.isEmpty()) {
+            throw new SkipException("Нет замеров для бюджетов " + unmeasured
+                    + " (dumpsys gfxinfo недоступен или экран не снят)");
+        }
+        List<String> violations = appPage.getPerf().budgetViolations();
+        Assert.assertTrue(violations.isEmpty(), "Превышены бюджеты: " + violations);
+    }
+
+    @Test(priority = 9, description = "Экран статьи, открытой по заголовку (deep link или поиск)",
+            dataProvider = "articleTitles")
+    public void testArticleScreenOpenedByTitle(String title) {
+        logger.info("Тест: экран статьи '{}'", title);
+
+        // проверяется только экран статьи: с -Dapp.navigation=deeplink поиск пропускается
+        appPage.openArticle(title);
+        String articleTitle = appPage.getArticleTitle();
+        logger.info("Открыта статья: '{}'", articleTitle);
+
+        Assert.assertFalse(articleTitle.isEmpty(),
+                String.format("Статья '%s' должна открыться", title));
+        Assert.assertTrue(articleTitle.toLowerCase().contains(title.toLowerCase()),
+                String.format("Заголовок должен содержать '%s'. Фактический: %s", title, articleTitle));
+    }
+
+    @DataProvider(name = "articleTitles")
+    public Object[][] provideArticleTitles() {
+        return new Object[][] {
+                {"Appium"},
+                {"Kotlin (programming language)"},
+                {"Selenium (software)"}
+        };
+    }
+
     @DataProvider(name = "searchQueries")
     public Object[][] provideSearchQueries() {
         return new Object[][] {
@@ -0,0 +1,285 @@
+package ru.javabruse.pages;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Постраничный обход результатов поиска против локального заменителя Special:Search
+public class SearchResultPagerTest {
+
+    private static final int TOTAL_RESULTS = 95;
+    // как у MediaWiki: больший limit сервер молча урезает
+    private static final int SERVER_LIMIT_CAP = 50;
+    private static final long PAGE_DELAY_MILLIS = 150;
+    private static final String FAILING_QUERY = "сбой";
+
+    private final AtomicInteger pageRequests = new AtomicInteger();
+    private HttpServer mirror;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startMirror() throws Exception {
+        mirror = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mirror.createContext("/w/index.php", exchange -> {
+            pageRequests.incrementAndGet();
+            Map<String, String> params = new HashMap<>();
+            for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+                String[] parts = pair.split("=", 2);
+                params.put(parts[0], parts.length > 1 ? parts[1] : "");
+            }
+            int offset = Integer.parseInt(params.get("offset"));
+            int limit = Math.min(Integer.parseInt(params.get("limit")), SERVER_LIMIT_CAP);
+            try {
+                Thread.sleep(PAGE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            boolean failing = URLEncoder.encode(FAILING_QUERY, StandardCharsets.UTF_8).equals(params.get("search"));
+            StringBuilder html = new StringBuilder("<html><ul class=\"mw-search-results\">");
+            for (int i = offset; i < Math.min(offset + limit, TOTAL_RESULTS) && !failing; i++) {
+                html.append("<li class=\"mw-search-result mw-search-result-ns-0\">")
+                        .append("<div class=\"mw-search-result-heading\"><a href=\"/wiki/Article_").append(i)
+                        .append("\" title=\"Article ").append(i).append("\">Article ").append(i).append("</a></div>")
+                        .append("<div class=\"searchresult\">Текст <span class=\"searchmatch\">статьи</span> ")
+                        .append(i).append("</div></li>");
+            }
+            html.append("</ul>");
+            if (offset > 0) {
+                html.append(pageLink("mw-prevlink", Math.max(0, offset - limit), limit));
+            }
+            if (offset + limit < TOTAL_RESULTS) {
+                html.append(pageLink("mw-nextlink", offset + limit, limit));
+            }
+            html.append("</html>");
+            byte[] body = html.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(failing ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        mirror.setExecutor(Executors.newFixedThreadPool(4));
+        mirror.start();
+        baseUrl = "http://127.0.0.1:" + mirror.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopMirror() {
+        mirror.stop(0);
+    }
+
+    private static String pageLink(String cssClass, int offset, int limit) {
+        return "<a href=\"/w/index.php?title=Special:Search&amp;limit=" + limit + "&amp;offset=" + offset
+                + "&amp;search=x\" class=\"" + cssClass + "\">" + limit + "</a>";
+    }
+
+    @Test(description = "Все страницы результатов обходятся по порядку, последняя неполная")
+    public void testAllPagesInOrder() {
+        SearchResultPager pager = new SearchResultPager(
+                new SearchResultPager.HttpPageLoader(baseUrl, "статья", 20));
+        List<WikipediaPage.SearchHit> hits;
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(pager)) {
+            hits = stream.collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(hits.size(), TOTAL_RESULTS);
+        Assert.assertEquals(pager.getPagesLoaded(), 5);
+        for (int i = 0; i < hits.size(); i++) {
+            Assert.assertEquals(hits.get(i).getPosition(), i);
+            Assert.assertEquals(hits.get(i).getTitle(), "Article " + i);
+        }
+        Assert.assertEquals(hits.get(7).getUrl(), baseUrl + "/wiki/Article_7");
+        Assert.assertEquals(hits.get(7).getSnippet(), "Текст статьи 7");
+    }
+
+    @Test(description = "limit() останавливает обход: лишние страницы не запрашиваются")
+    public void testEarlyTermination() {
+        int before = pageRequests.get();
+        SearchResultPager pager = new SearchResultPager(
+                new SearchResultPager.HttpPageLoader(baseUrl, "статья", 20));
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(pager)) {
+            Assert.assertEquals(stream.limit(25).count(), 25);
+        }
+
+        Assert.assertEquals(pager.getPagesLoaded(), 2);
+        // две прочитанные страницы и не больше одной предзагруженной
+        Assert.assertTrue(pageRequests.get() - before <= 3, "запросов " + (pageRequests.get() - before));
+    }
+
+    @Test(description = "Следующая страница грузится, пока обрабатывается текущая")
+    public void testPrefetchOverlapsProcessing() {
+        long started = System.nanoTime();
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(new SearchResultPager(
+                new SearchResultPager.HttpPageLoader(baseUrl, "статья", 20)))) {
+            stream.filter(hit -> hit.getPosition() % 20 == 19).forEach(hit -> {
+                try {
+                    Thread.sleep(PAGE_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // последовательно: 5 загрузок + 4 обработки по 150 мс = 1350 мс; с предзагрузкой около 750 мс
+        Assert.assertTrue(elapsedMillis < 9 * PAGE_DELAY_MILLIS * 0.85, "обход занял " + elapsedMillis + " мс");
+    }
+
+    @Test(description = "Размер страницы больше серверного лимита: обход идёт по ссылке на следующую страницу")
+    public void testPageSizeAboveServerCap() {
+        SearchResultPager pager = new SearchResultPager(
+                new SearchResultPager.HttpPageLoader(baseUrl, "статья", 500));
+        List<WikipediaPage.SearchHit> hits;
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(pager)) {
+            hits = stream.collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(hits.size(), TOTAL_RESULTS);
+        Assert.assertEquals(pager.getPagesLoaded(), 2);
+        Assert.assertEquals(hits.get(SERVER_LIMIT_CAP).getTitle(), "Article " + SERVER_LIMIT_CAP);
+        Assert.assertEquals(hits.get(SERVER_LIMIT_CAP).getPosition(), SERVER_LIMIT_CAP);
+    }
+
+    @Test(description = "Размер страницы меньше 1 отвергается")
+    public void testNonPositivePageSizeRejected() {
+        for (int pageSize : new int[]{0, -20}) {
+            Assert.expectThrows(IllegalArgumentException.class,
+                    () -> new SearchResultPager.HttpPageLoader(baseUrl, "статья", pageSize));
+        }
+    }
+
+    @Test(description = "Ответ сервера с ошибкой прерывает обход, а не выглядит пустой выдачей")
+    public void testHttpErrorFailsStream() {
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(new SearchResultPager(
+                new SearchResultPager.HttpPageLoader(baseUrl, FAILING_QUERY, 20)))) {
+            IllegalStateException error = Assert.expectThrows(IllegalStateException.class, stream::count);
+            Assert.assertTrue(error.getMessage().contains("503"), error.getMessage());
+        }
+    }
+
+    @Test(description = "Вкладки браузера: страницы по ссылке на следующую, вкладка вызывающего не меняется")
+    public void testTabLoaderReadsAllPagesAndClosesTabs() {
+        FakeTabs tabs = new FakeTabs();
+        WebDriver driver = tabs.driver();
+        List<WikipediaPage.SearchHit> hits;
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(new SearchResultPager(
+                new SearchResultPager.TabPageLoader(driver, baseUrl, "статья", 20)))) {
+            hits = stream.collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(hits.size(), TOTAL_RESULTS);
+        Assert.assertEquals(hits.get(41).getTitle(), "Article 41");
+        Assert.assertEquals(hits.get(41).getPosition(), 41);
+        Assert.assertEquals(tabs.opened, 5);
+        Assert.assertEquals(driver.getWindowHandles().size(), 1, "вкладки результатов закрыты");
+        Assert.assertEquals(driver.getWindowHandle(), "caller");
+    }
+
+    @Test(description = "Вкладки браузера: ранний выход закрывает предзагруженную вкладку")
+    public void testTabLoaderClosesPrefetchedTabOnEarlyExit() {
+        FakeTabs tabs = new FakeTabs();
+        WebDriver driver = tabs.driver();
+        try (Stream<WikipediaPage.SearchHit> stream = WikipediaPage.toStream(new SearchResultPager(
+                new SearchResultPager.TabPageLoader(driver, baseUrl, "статья", 20)))) {
+            Assert.assertEquals(stream.limit(5).count(), 5);
+        }
+
+        Assert.assertEquals(tabs.opened, 2, "первая страница и предзагрузка второй");
+        Assert.assertEquals(driver.getWindowHandles().size(), 1);
+        Assert.assertEquals(driver.getWindowHandle(), "caller");
+    }
+
+    /*
+     * Браузер из вкладок без Chrome: window.open заводит вкладку с адресом,
+     * скрипт разбора страницы отдаёт строки и ссылку на следующую по offset/limit из адреса.
+     */
+    private static final class FakeTabs {
+        private final Map<String, String> urls = new LinkedHashMap<>();
+        private String current = "caller";
+        private int opened;
+
+        FakeTabs() {
+            urls.put("caller", "about:blank");
+        }
+
+        WebDriver driver() {
+            return (WebDriver) Proxy.newProxyInstance(SearchResultPagerTest.class.getClassLoader(),
+                    new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getWindowHandle":
+                                return current;
+                            case "getWindowHandles":
+                                return new LinkedHashSet<>(urls.keySet());
+                            case "close":
+                                urls.remove(current);
+                                return null;
+                            case "switchTo":
+                                return Proxy.newProxyInstance(SearchResultPagerTest.class.getClassLoader(),
+                                        new Class<?>[]{WebDriver.TargetLocator.class}, (locator, call, handle) -> {
+                                            Assert.assertEquals(call.getName(), "window");
+                                            Assert.assertTrue(urls.containsKey((String) handle[0]), "нет вкладки " + handle[0]);
+                                            current = (String) handle[0];
+                                            return proxy;
+                                        });
+                            case "executeScript":
+                                return executeScript((String) args[0], (Object[]) args[1]);
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return "FakeTabs";
+                            default:
+                                throw new AssertionError("команда браузеру: " + method.getName());
+                        }
+                    });
+        }
+
+        private Object executeScript(String script, Object[] args) {
+            if (script.startsWith("window.open")) {
+                opened++;
+                urls.put("tab-" + opened, (String) args[0]);
+                return null;
+            }
+            if (script.contains("readyState")) {
+                return "complete";
+            }
+            Assert.assertTrue(script.contains("mw-nextlink"), script);
+            String url = urls.get(current);
+            int offset = Integer.parseInt(url.replaceAll(".*[?&]offset=(\\d+).*", "$1"));
+            int limit = Integer.parseInt(url.replaceAll(".*[?&]limit=(\\d+).*", "$1"));
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = offset; i < Math.min(offset + limit, TOTAL_RESULTS); i++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("title", "Article " + i);
+                row.put("url", "/wiki/Article_" + i);
+                row.put("snippet", "Текст статьи " + i);
+                rows.add(row);
+            }
+            Map<String, Object> page = new HashMap<>();
+            page.put("rows", rows);
+            page.put("next", offset + limit < TOTAL_RESULTS
+                    ? "https://ru.wikipedia.org/w/index.php?limit=" + limit + "&offset=" + (offset + limit) : null);
+            return page;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.javabruse.pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// Проверки аргументов WikipediaPage до первой команды браузеру и мягкий сброс сессии на модели вкладок
+public class WikipediaPageTest {
+
+    @Test(description = "Пакетное чтение во вкладках отвергает maxTabs < 1 вместо бесконечного цикла")
+    public void testReadArticlesInTabsRejectsNonPositiveTabs() {
+        WikipediaPage page = new WikipediaPage(noBrowser());
+
+        for (int maxTabs : new int[]{0, -1}) {
+            IllegalArgumentException error = Assert.expectThrows(IllegalArgumentException.class,
+                    () -> page.readArticlesInTabs(Arrays.asList("Java", "Selenium"), maxTabs));
+            Assert.assertTrue(error.getMessage().contains(Integer.toString(maxTabs)), error.getMessage());
+        }
+    }
+
+    @Test(description = "Мягкий сброс закрывает лишние вкладки и возвращается в исходную, "
+            + "даже если getWindowHandles() перечисляет её не первой")
+    public void testSoftResetReturnsToOriginalTab() {
+        Tabs browser = new Tabs();
+        WikipediaPage page = new WikipediaPage(browser.driver());
+        page.openArticle("https://ru.wikipedia.org/wiki/Java");
+        // тест открыл вкладку, она оказалась первой в наборе и стала текущей
+        browser.handles.add(0, "popup");
+        browser.current = "popup";
+
+        Assert.assertTrue(page.softReset());
+        Assert.assertEquals(browser.handles, List.of("home"));
+        Assert.assertEquals(browser.current, "home");
+        Assert.assertEquals(browser.closed, List.of("popup"));
+
+        browser.handles.clear();
+        browser.handles.add("other");
+        browser.current = "other";
+        Assert.assertFalse(page.softReset(), "без исходной вкладки нужен новый драйвер");
+    }
+
+    // вкладки браузера: handles в порядке, который вернёт getWindowHandles()
+    private static final class Tabs {
+        private final List<String> handles = new ArrayList<>(List.of("home"));
+        private final List<String> closed = new ArrayList<>();
+        private String current = "home";
+
+        WebDriver driver() {
+            return proxy(WebDriver.class, (name, args) -> {
+                switch (name) {
+                    case "getWindowHandle":
+                        return current;
+                    case "getWindowHandles":
+                        return new LinkedHashSet<>(handles);
+                    case "close":
+                        handles.remove(current);
+                        closed.add(current);
+                        return null;
+                    case "switchTo":
+                        return proxy(WebDriver.TargetLocator.class, (locatorName, locatorArgs) -> {
+                            current = (String) locatorArgs[0];
+                            return null;
+                        });
+                    case "manage":
+                        return proxy(WebDriver.Options.class, (optionsName, optionsArgs) -> null);
+                    case "navigate":
+                        return proxy(WebDriver.Navigation.class, (navigationName, navigationArgs) -> null);
+                    case "executeScript":
+                    case "executeAsyncScript":
+                        return Boolean.TRUE;
+                    default:
+                        return null;
+                }
+            });
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> handler) {
+        Class<?>[] interfaces = type == WebDriver.class
+                ? new Class<?>[]{WebDriver.class, JavascriptExecutor.class} : new Class<?>[]{type};
+        return type.cast(Proxy.newProxyInstance(WikipediaPageTest.class.getClassLoader(), interfaces,
+                (self, method, args) -> method.getDeclaringClass() == Object.class
+                        ? (method.getName().equals("equals") ? self == args[0]
+                        : method.getName().equals("hashCode") ? System.identityHashCode(self) : type.getSimpleName())
+                        : handler.apply(method.getName(), args)));
+    }
+
+    // драйвер, который падает на любой команде: проверка должна сработать раньше
+    private static WebDriver noBrowser() {
+        return (WebDriver) Proxy.newProxyInstance(WikipediaPageTest.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.getName().equals("equals") ? proxy == args[0]
+                                : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "noBrowser";
+                    }
+                    throw new AssertionError("команда браузеру: " + method.getName());
+                });
+    }
+}
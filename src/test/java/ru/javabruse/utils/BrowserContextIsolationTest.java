@@ -0,0 +1,212 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Контексты общего браузера на модели Chromium: команды WebDriver и CDP исполняет FakeBrowser
+public class BrowserContextIsolationTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void quitWorkerBrowser() {
+        BrowserContextIsolation.quitWorkerBrowser();
+    }
+
+    @Test(description = "Тесты потока получают по своему контексту в одном браузере")
+    public void testContextPerTestInOneBrowser() {
+        FakeBrowser browser = new FakeBrowser(true);
+        AtomicInteger launches = new AtomicInteger();
+
+        ChromiumDriver first = BrowserContextIsolation.openContext(() -> {
+            launches.incrementAndGet();
+            return browser.driver();
+        });
+        String firstContext = browser.contextOf(first.getWindowHandle());
+        WebDriverFactory.quitDriver(first);
+
+        Assert.assertTrue(BrowserContextIsolation.isShared(first));
+        Assert.assertEquals(browser.disposed, Collections.singletonList(firstContext));
+        Assert.assertFalse(browser.quit, "процесс браузера должен остаться");
+
+        ChromiumDriver second = BrowserContextIsolation.openContext(() -> {
+            launches.incrementAndGet();
+            return browser.driver();
+        });
+        Assert.assertSame(second, first);
+        Assert.assertEquals(launches.get(), 1);
+        Assert.assertNotEquals(browser.contextOf(second.getWindowHandle()), firstContext);
+    }
+
+    @Test(description = "Сброс между попытками теста заменяет контекст, не закрывая браузер")
+    public void testResetContext() {
+        FakeBrowser browser = new FakeBrowser(true);
+        ChromiumDriver driver = BrowserContextIsolation.openContext(browser::driver);
+        String before = browser.contextOf(driver.getWindowHandle());
+
+        Assert.assertTrue(BrowserContextIsolation.resetContext(driver));
+
+        Assert.assertEquals(browser.disposed, Collections.singletonList(before));
+        Assert.assertNotEquals(browser.contextOf(driver.getWindowHandle()), before);
+        Assert.assertFalse(BrowserContextIsolation.resetContext(new FakeBrowser(true).driver()));
+    }
+
+    @Test(description = "Без Target.createBrowserContext вкладки теста закрываются, а данные их сайтов стираются")
+    public void testFallbackClearsSiteData() {
+        FakeBrowser browser = new FakeBrowser(false);
+        ChromiumDriver driver = BrowserContextIsolation.openContext(browser::driver);
+        driver.get("https://ru.wikipedia.org/wiki/Java");
+        driver.switchTo().newWindow(org.openqa.selenium.WindowType.TAB);
+        driver.get("https://en.wikipedia.org:443/wiki/Selenium");
+
+        WebDriverFactory.quitDriver(driver);
+
+        Assert.assertEquals(browser.tabs.keySet(), Collections.singleton(FakeBrowser.BASE));
+        Assert.assertEquals(browser.clearedOrigins, List.of("https://ru.wikipedia.org", "https://en.wikipedia.org:443"));
+        Assert.assertFalse(browser.quit);
+    }
+
+    @Test(description = "Браузер потока закрывается целиком и больше не считается общим")
+    public void testQuitWorkerBrowser() {
+        FakeBrowser browser = new FakeBrowser(true);
+        ChromiumDriver driver = BrowserContextIsolation.openContext(browser::driver);
+
+        BrowserContextIsolation.quitWorkerBrowser();
+
+        Assert.assertTrue(browser.quit);
+        Assert.assertFalse(BrowserContextIsolation.isShared(driver));
+    }
+
+    @Test(description = "Origin для Storage.clearDataForOrigin")
+    public void testOriginOf() {
+        Assert.assertEquals(BrowserContextIsolation.originOf("https://ru.wikipedia.org/wiki/Java?x=1#a"),
+                "https://ru.wikipedia.org");
+        Assert.assertEquals(BrowserContextIsolation.originOf("http://127.0.0.1:8080/"), "http://127.0.0.1:8080");
+        Assert.assertNull(BrowserContextIsolation.originOf("about:blank"));
+        Assert.assertNull(BrowserContextIsolation.originOf("data:text/html,<p>"));
+        Assert.assertNull(BrowserContextIsolation.originOf("not a url"));
+    }
+
+    // Модель браузера: вкладки (handle -> контекст, URL), контексты и команды DevTools
+    private static final class FakeBrowser implements CommandExecutor {
+        static final String BASE = "base";
+
+        private final boolean contextsSupported;
+        private final Map<String, String[]> tabs = new LinkedHashMap<>();
+        private final List<String> disposed = new ArrayList<>();
+        private final List<String> clearedOrigins = new ArrayList<>();
+        private int ids;
+        private String current = BASE;
+        private boolean quit;
+
+        FakeBrowser(boolean contextsSupported) {
+            this.contextsSupported = contextsSupported;
+            tabs.put(BASE, new String[]{"default", "about:blank"});
+        }
+
+        ChromiumDriver driver() {
+            // CDP-команды идут той же командой executeCdpCommand, что и у ChromeDriver
+            return new ChromiumDriver(this, new ImmutableCapabilities("browserName", "chrome"), "goog:chromeOptions") {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Map<String, Object> executeCdpCommand(String commandName, Map<String, Object> parameters) {
+                    return (Map<String, Object>) execute("executeCdpCommand",
+                            Map.of("cmd", commandName, "params", parameters)).getValue();
+                }
+            };
+        }
+
+        String contextOf(String handle) {
+            return tabs.get(handle)[0];
+        }
+
+        @Override
+        public Response execute(Command command) {
+            Map<String, ?> params = command.getParameters();
+            Object value = null;
+            switch (command.getName()) {
+                case "newSession":
+                    Map<String, Object> session = new HashMap<>();
+                    session.put("browserName", "chrome");
+                    value = session;
+                    break;
+                case "getCurrentWindowHandle":
+                    value = current;
+                    break;
+                case "getWindowHandles":
+                    value = new ArrayList<>(tabs.keySet());
+                    break;
+                case "switchToWindow":
+                    current = (String) params.get("handle");
+                    break;
+                case "newWindow":
+                    current = "tab-" + ++ids;
+                    tabs.put(current, new String[]{"default", "about:blank"});
+                    value = Map.of("handle", current, "type", "tab");
+                    break;
+                case "get":
+                    tabs.get(current)[1] = (String) params.get("url");
+                    break;
+                case "getCurrentUrl":
+                    value = tabs.get(current)[1];
+                    break;
+                case "close":
+                    tabs.remove(current);
+                    value = new ArrayList<>(tabs.keySet());
+                    break;
+                case "quit":
+                    quit = true;
+                    break;
+                case "executeCdpCommand":
+                    value = cdp((String) params.get("cmd"), (Map<?, ?>) params.get("params"));
+                    break;
+                default:
+                    // таймауты, размер окна
+                    break;
+            }
+            Response response = new Response(new SessionId("s1"));
+            response.setState("success");
+            response.setValue(value);
+            return response;
+        }
+
+        private Object cdp(String method, Map<?, ?> params) {
+            switch (method) {
+                case "Target.createBrowserContext":
+                    if (!contextsSupported) {
+                        throw new WebDriverException("'Target.createBrowserContext' wasn't found");
+                    }
+                    return Map.of("browserContextId", "ctx-" + ++ids);
+                case "Target.createTarget":
+                    String handle = "tab-" + ++ids;
+                    tabs.put(handle, new String[]{(String) params.get("browserContextId"), (String) params.get("url")});
+                    return Map.of("targetId", handle);
+                case "Target.disposeBrowserContext":
+                    String context = (String) params.get("browserContextId");
+                    disposed.add(context);
+                    tabs.values().removeIf(tab -> tab[0].equals(context));
+                    return Collections.emptyMap();
+                case "Storage.clearDataForOrigin":
+                    Assert.assertEquals(params.get("storageTypes"), "all");
+                    clearedOrigins.add((String) params.get("origin"));
+                    return Collections.emptyMap();
+                default:
+                    return Collections.emptyMap();
+            }
+        }
+    }
+}
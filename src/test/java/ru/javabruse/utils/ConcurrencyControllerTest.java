@@ -0,0 +1,59 @@
+package ru.javabruse.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+// Проверка логики AIMD без реальных браузеров
+public class ConcurrencyControllerTest {
+
+    @Test(description = "Лимит растёт на 1, пока растёт пропускная способность")
+    public void testAdditiveIncrease() {
+        Assert.assertEquals(ConcurrencyController.nextLimit(2, 10, 0, false, 1, 8), 3);
+        Assert.assertEquals(ConcurrencyController.nextLimit(3, 12, 10, false, 1, 8), 4);
+        Assert.assertEquals(ConcurrencyController.nextLimit(8, 20, 10, false, 1, 8), 8,
+                "Лимит не должен превышать максимум");
+    }
+
+    @Test(description = "Без заметного прироста лимит не меняется")
+    public void testHoldOnPlateau() {
+        Assert.assertEquals(ConcurrencyController.nextLimit(4, 10.2, 10, false, 1, 8), 4);
+        Assert.assertEquals(ConcurrencyController.nextLimit(4, 8, 10, false, 1, 8), 4);
+    }
+
+    @Test(description = "При перегрузке лимит уменьшается вдвое, но не ниже минимума")
+    public void testMultiplicativeDecrease() {
+        Assert.assertEquals(ConcurrencyController.nextLimit(6, 30, 10, true, 1, 8), 3);
+        Assert.assertEquals(ConcurrencyController.nextLimit(1, 30, 10, true, 1, 8), 1);
+    }
+
+    @Test(description = "Перцентиль времени загрузки")
+    public void testPercentile() {
+        ConcurrencyController controller = new ConcurrencyController(1, 1, 4, 3600, 100, 0, 60_000);
+        Assert.assertEquals(controller.pageLoadPercentile(0.9), 0);
+        for (long millis : new long[]{100, 500, 200, 400, 300, 600, 700, 800, 900, 1000}) {
+            controller.recordPageLoad(millis);
+        }
+        Assert.assertEquals(controller.pageLoadPercentile(0.9), 900, 900 * 0.02);
+    }
+
+    @Test(description = "Слоты выдаются не больше текущего лимита")
+    public void testAcquireRespectsLimit() throws InterruptedException {
+        ConcurrencyController controller = new ConcurrencyController(1, 1, 4, 3600, 100, 0, 60_000);
+        controller.acquire();
+
+        Thread waiter = new Thread(() -> {
+            try {
+                controller.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(300);
+        Assert.assertTrue(waiter.isAlive(), "Вторая сессия должна ждать освобождения слота");
+
+        controller.release(true);
+        waiter.join(2000);
+        Assert.assertFalse(waiter.isAlive(), "После освобождения слот должен достаться ожидающему");
+    }
+}
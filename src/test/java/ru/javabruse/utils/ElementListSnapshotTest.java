@@ -0,0 +1,54 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Снимок списка элементов: один поиск на состояние экрана
+public class ElementListSnapshotTest {
+
+    @Test(description = "Обращения к снимку не повторяют поиск до сброса")
+    public void testReuseUntilInvalidated() {
+        AtomicInteger findElements = new AtomicInteger();
+        List<WebElement> screen = new ArrayList<>();
+        screen.add(element());
+        screen.add(element());
+        ElementListSnapshot snapshot = new ElementListSnapshot(() -> {
+            findElements.incrementAndGet();
+            return screen;
+        });
+
+        Assert.assertFalse(snapshot.isEmpty());
+        Assert.assertEquals(snapshot.size(), 2);
+        Assert.assertSame(snapshot.get(1), screen.get(1));
+        Assert.assertEquals(findElements.get(), 1);
+
+        screen.add(element());
+        Assert.assertEquals(snapshot.size(), 2, "снимок не должен меняться до сброса");
+        snapshot.invalidate();
+        Assert.assertEquals(snapshot.size(), 3);
+        Assert.assertEquals(findElements.get(), 2);
+
+        Assert.assertEquals(snapshot.refresh().size(), 3);
+        Assert.assertEquals(snapshot.getLookups(), 3);
+        Assert.assertEquals(snapshot.getSavedLookups(), 3);
+    }
+
+    private static WebElement element() {
+        return (WebElement) Proxy.newProxyInstance(WebElement.class.getClassLoader(),
+                new Class<?>[]{WebElement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
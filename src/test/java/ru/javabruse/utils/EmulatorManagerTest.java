@@ -0,0 +1,107 @@
+package ru.javabruse.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Разбор вывода adb/консоли эмулятора и ожидание загрузки без устройства: adb подменяется функцией
+public class EmulatorManagerTest {
+
+    private static final String SERIAL = "emulator-5554";
+
+    @Test(description = "Устройство в сети только в состоянии device и с точным серийным номером")
+    public void testDeviceListParsing() {
+        String devices = "* daemon started successfully\n"
+                + "List of devices attached\n"
+                + "emulator-55540\tdevice\n"
+                + "emulator-5556\toffline\n"
+                + "emulator-5558\tunauthorized\n";
+        Assert.assertFalse(EmulatorManager.isDeviceOnline(devices, SERIAL));
+        Assert.assertFalse(EmulatorManager.isDeviceOnline(devices, "emulator-5556"));
+        Assert.assertFalse(EmulatorManager.isDeviceOnline(devices, "emulator-5558"));
+        Assert.assertTrue(EmulatorManager.isDeviceOnline(devices + "emulator-5554\tdevice\r\n", SERIAL));
+        Assert.assertTrue(EmulatorManager.isDeviceOnline("emulator-5554 device product:sdk model:sdk", SERIAL));
+        Assert.assertFalse(EmulatorManager.isDeviceOnline("", SERIAL));
+    }
+
+    @Test(description = "sys.boot_completed и ответ консоли эмулятора")
+    public void testBootAndConsoleParsing() {
+        Assert.assertTrue(EmulatorManager.isBootCompleted("1\r\n"));
+        Assert.assertFalse(EmulatorManager.isBootCompleted(""));
+        Assert.assertFalse(EmulatorManager.isBootCompleted("error: device offline"));
+
+        Assert.assertTrue(EmulatorManager.isConsoleOk("OK\n"));
+        Assert.assertFalse(EmulatorManager.isConsoleOk("KO: snapshot 'default_boot' not found\n"));
+        Assert.assertFalse(EmulatorManager.isConsoleOk("error: could not connect to TCP port 5554: OK?"));
+    }
+
+    @Test(description = "Ожидание загрузки завершается ошибкой по таймауту, если sys.boot_completed не стал 1")
+    public void testBootWaitTimesOut() {
+        AtomicInteger polls = new AtomicInteger();
+        EmulatorManager manager = manager(1, args -> {
+            polls.incrementAndGet();
+            return "";
+        });
+
+        long start = System.nanoTime();
+        RuntimeException error = Assert.expectThrows(RuntimeException.class, manager::waitForBootCompleted);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(error.getMessage().contains("не загрузился за 1 с"), error.getMessage());
+        Assert.assertTrue(elapsedMs >= 1000 && elapsedMs < 3000, "ожидание " + elapsedMs + " мс");
+        Assert.assertTrue(polls.get() >= 2, "опросов " + polls.get());
+    }
+
+    @Test(description = "Ожидание загрузки заканчивается, как только sys.boot_completed стал 1")
+    public void testBootWaitReturnsWhenCompleted() {
+        AtomicInteger polls = new AtomicInteger();
+        EmulatorManager manager = manager(10, args -> polls.incrementAndGet() < 3 ? "" : "1\n");
+
+        manager.waitForBootCompleted();
+
+        Assert.assertEquals(polls.get(), 3);
+    }
+
+    @Test(description = "Уже запущенный эмулятор используется как есть, испачканный - откатывается к снапшоту")
+    public void testOnlineDeviceAndSnapshotRestore() {
+        List<List<String>> calls = new CopyOnWriteArrayList<>();
+        EmulatorManager manager = manager(10, args -> {
+            calls.add(args);
+            if (args.equals(List.of("devices"))) {
+                return "List of devices attached\nemulator-5554\tdevice\n";
+            }
+            if (args.contains("snapshot")) {
+                return "OK\n";
+            }
+            return "1\n";
+        });
+
+        Assert.assertEquals(manager.awaitReady(), SERIAL);
+        Assert.assertFalse(calls.stream().anyMatch(args -> args.contains("snapshot")));
+
+        manager.markDirty();
+        Assert.assertEquals(manager.awaitReady(), SERIAL);
+        Assert.assertTrue(calls.contains(List.of("-s", SERIAL, "emu", "avd", "snapshot", "load", "default_boot")));
+
+        int before = calls.size();
+        manager.awaitReady();
+        Assert.assertEquals(calls.size(), before, "после отката снапшот не восстанавливается повторно");
+    }
+
+    @Test(description = "Ошибка консоли при откате снапшота не маскируется")
+    public void testSnapshotRestoreFailure() {
+        EmulatorManager manager = manager(10, args -> "KO: snapshot 'default_boot' not found\n");
+
+        RuntimeException error = Assert.expectThrows(RuntimeException.class, manager::restoreSnapshot);
+        Assert.assertTrue(error.getMessage().contains("not found"), error.getMessage());
+    }
+
+    private static EmulatorManager manager(long bootTimeoutSeconds, Function<List<String>, String> adb) {
+        return new EmulatorManager("test_avd", "default_boot", 5554, true, bootTimeoutSeconds, adb);
+    }
+}
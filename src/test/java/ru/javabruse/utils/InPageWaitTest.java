@@ -0,0 +1,158 @@
+package ru.javabruse.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Опрос и таймауты InPageWait на драйвере-заглушке: executeAsyncScript отвечает функция теста
+public class InPageWaitTest {
+
+    private static final By HEADING = By.cssSelector("#firstHeading");
+
+    @Test(description = "Ожидание длиннее куска делится на несколько вызовов скрипта, каждый не длиннее куска")
+    public void testLongWaitIsSplitIntoChunks() {
+        List<Long> chunks = new CopyOnWriteArrayList<>();
+        WebElement heading = element();
+        WebDriver driver = driver(args -> {
+            chunks.add((Long) args[3]);
+            return chunks.size() < 3 ? null : heading;
+        }, null);
+
+        WebElement found = new InPageWait(driver, Duration.ofSeconds(10), Duration.ofSeconds(2))
+                .visibilityOfElementLocated(HEADING);
+
+        Assert.assertSame(found, heading);
+        Assert.assertEquals(chunks.size(), 3);
+        Assert.assertTrue(chunks.stream().allMatch(chunk -> chunk > 0 && chunk <= 2000), "куски " + chunks);
+    }
+
+    @Test(description = "По таймауту в сообщении фактическое время, а не только запрошенное")
+    public void testTimeoutReportsElapsedTime() {
+        List<Long> chunks = new CopyOnWriteArrayList<>();
+        WebDriver driver = driver(args -> {
+            long chunk = (Long) args[3];
+            chunks.add(chunk);
+            sleep(chunk);
+            return null;
+        }, null);
+
+        long start = System.nanoTime();
+        TimeoutException error = Assert.expectThrows(TimeoutException.class,
+                () -> new InPageWait(driver, Duration.ofMillis(1200), Duration.ofMillis(500)).presenceOfElementLocated(HEADING));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsedMs >= 1200 && elapsedMs < 2500, "ожидание " + elapsedMs + " мс");
+        Assert.assertTrue(error.getMessage().contains("tried for 1."), error.getMessage());
+        Assert.assertEquals(chunks.subList(0, 2), List.of(500L, 500L));
+        Assert.assertTrue(chunks.get(chunks.size() - 1) <= 200, "последний кусок - остаток: " + chunks);
+    }
+
+    @Test(description = "Обрыв скрипта драйвером не заканчивает ожидание раньше запрошенного")
+    public void testDriverScriptTimeoutDoesNotCutWaitShort() {
+        WebDriver driver = driver(args -> {
+            // драйвер с script timeout 300 мс обрывает каждый вызов
+            sleep(300);
+            throw new ScriptTimeoutException("script timeout");
+        }, null);
+
+        long start = System.nanoTime();
+        Assert.expectThrows(TimeoutException.class,
+                () -> new InPageWait(driver, Duration.ofSeconds(1), Duration.ofSeconds(5)).elementToBeClickable(HEADING));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsedMs >= 1000, "ожидание оборвалось через " + elapsedMs + " мс");
+    }
+
+    @Test(description = "Ошибка скрипта (уход со страницы) - дальше опрос WebDriverWait на оставшееся время")
+    public void testScriptErrorFallsBackToPolling() {
+        WebElement heading = element();
+        List<Integer> lookups = new CopyOnWriteArrayList<>();
+        WebDriver driver = driver(args -> {
+            throw new JavascriptException("document unloaded");
+        }, locator -> {
+            lookups.add(1);
+            if (lookups.size() < 2) {
+                throw new NoSuchElementException("ещё нет");
+            }
+            return heading;
+        });
+
+        WebElement found = new InPageWait(driver, Duration.ofSeconds(5), Duration.ofSeconds(1))
+                .presenceOfElementLocated(HEADING);
+
+        Assert.assertSame(found, heading);
+        Assert.assertEquals(lookups.size(), 2);
+    }
+
+    @Test(description = "Готовность документа ждётся кусками до события load")
+    public void testDocumentCompleteWaitsInChunks() {
+        List<Long> chunks = new CopyOnWriteArrayList<>();
+        WebDriver driver = driver(args -> {
+            chunks.add((Long) args[0]);
+            return chunks.size() >= 2;
+        }, null);
+
+        new InPageWait(driver, Duration.ofSeconds(10), Duration.ofSeconds(3)).documentComplete();
+
+        Assert.assertEquals(chunks, List.of(3000L, 3000L));
+    }
+
+    // script - ответ executeAsyncScript по аргументам, find - ответ findElement (null - нет элементов)
+    private static WebDriver driver(Function<Object[], Object> script, Function<By, WebElement> find) {
+        return (WebDriver) Proxy.newProxyInstance(InPageWaitTest.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeAsyncScript":
+                            return script.apply((Object[]) args[1]);
+                        case "findElement":
+                            if (find == null) {
+                                throw new NoSuchElementException("нет элемента");
+                            }
+                            return find.apply((By) args[0]);
+                        case "findElements":
+                            return find == null ? List.of() : List.of(find.apply((By) args[0]));
+                        case "toString":
+                            return "stubDriver";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static WebElement element() {
+        return (WebElement) Proxy.newProxyInstance(InPageWaitTest.class.getClassLoader(),
+                new Class<?>[]{WebElement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isDisplayed":
+                        case "isEnabled":
+                            return true;
+                        case "toString":
+                            return "stubElement";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.javabruse.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Чтение /proc и итоги по тесту на каталоге-фикстуре вместо настоящего /proc
+public class ResourceSamplerTest {
+
+    @Test(description = "utime и stime берутся после имени процесса, даже если в нём пробелы и скобки")
+    public void testReadCpuTicks() throws Exception {
+        Path proc = Files.createTempDirectory("proc");
+        writeProcess(proc, 101, "chrome (renderer) x", 250, 30, 0);
+
+        Assert.assertEquals(ResourceSampler.readCpuTicks(proc, 101), 280);
+    }
+
+    @Test(description = "VmRSS читается из status, без строки - 0")
+    public void testReadRssKb() throws Exception {
+        Path proc = Files.createTempDirectory("proc");
+        writeProcess(proc, 101, "chromedriver", 0, 0, 20480);
+        Files.createDirectories(proc.resolve("102"));
+        Files.writeString(proc.resolve("102").resolve("status"), "Name:\tzombie\nState:\tZ (zombie)\n");
+
+        Assert.assertEquals(ResourceSampler.readRssKb(proc, 101), 20480);
+        Assert.assertEquals(ResourceSampler.readRssKb(proc, 102), 0);
+        Assert.assertEquals(ResourceSampler.readRssKb(proc, 103), 0);
+    }
+
+    @Test(description = "Замер складывает процессы дерева, итог теста - разница CPU, пик и среднее RSS")
+    public void testPerTestTotals() throws Exception {
+        Path proc = Files.createTempDirectory("proc");
+        ResourceSampler.SessionUsage usage = new ResourceSampler.SessionUsage("Tests.test", ProcessHandle.current());
+
+        writeProcess(proc, 101, "chromedriver", 10, 0, 10240);
+        writeProcess(proc, 102, "chrome", 100, 20, 102400);
+        ResourceSampler.addSample(usage, proc, Arrays.asList(101L, 102L), 0);
+
+        writeProcess(proc, 101, "chromedriver", 20, 0, 10240);
+        writeProcess(proc, 102, "chrome", 250, 50, 307200);
+        ResourceSampler.addSample(usage, proc, Arrays.asList(101L, 102L), 2_000_000_000L);
+
+        // 130 тиков -> 320 тиков: 1.9 с CPU за 2 с
+        Assert.assertEquals(usage.cpuSeconds(), 1.9, 1e-9);
+        Assert.assertEquals(usage.durationSeconds(), 2.0, 1e-9);
+        Assert.assertEquals(usage.meanCpuPercent(), 95.0, 1e-9);
+        Assert.assertEquals(usage.meanRssMb(), (110.0 + 310.0) / 2, 1e-9);
+        Assert.assertEquals(usage.toCsv(), "Tests.test,2,310.0,210.0,1.90,95.0,2.0");
+    }
+
+    @Test(description = "Завершившийся процесс не уменьшает накопленное CPU")
+    public void testCpuNeverDecreases() throws Exception {
+        Path proc = Files.createTempDirectory("proc");
+        ResourceSampler.SessionUsage usage = new ResourceSampler.SessionUsage("Tests.test", ProcessHandle.current());
+
+        writeProcess(proc, 101, "chrome", 100, 0, 1024);
+        writeProcess(proc, 102, "chrome", 100, 0, 1024);
+        ResourceSampler.addSample(usage, proc, Arrays.asList(101L, 102L), 0);
+        writeProcess(proc, 101, "chrome", 150, 0, 1024);
+        ResourceSampler.addSample(usage, proc, Arrays.asList(101L), 1_000_000_000L);
+
+        Assert.assertEquals(usage.cpuSeconds(), 0.0, 1e-9);
+    }
+
+    // формат /proc/<pid>/stat: pid (comm) state и дальше поля через пробел, utime и stime - 14 и 15
+    private static void writeProcess(Path proc, long pid, String name, long utime, long stime, long rssKb)
+            throws Exception {
+        Path dir = Files.createDirectories(proc.resolve(Long.toString(pid)));
+        Files.writeString(dir.resolve("stat"), pid + " (" + name + ") S 1 1 1 0 -1 4194560 100 0 0 0 "
+                + utime + " " + stime + " 0 0 20 0 1 0 100 1000000 200\n");
+        Files.writeString(dir.resolve("status"), "Name:\t" + name + "\nVmPeak:\t 99999 kB\nVmRSS:\t " + rssKb + " kB\n");
+    }
+}
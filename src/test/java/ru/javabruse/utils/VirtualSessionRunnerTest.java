@@ -0,0 +1,57 @@
+package ru.javabruse.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Ограничение живых сессий и выполнение всех сценариев независимо от типа потоков
+public class VirtualSessionRunnerTest {
+
+    @Test(description = "Живых сессий не больше лимита, все сценарии завершаются")
+    public void testLiveSessionsLimited() throws Exception {
+        VirtualSessionRunner runner = new VirtualSessionRunner(10);
+        List<Callable<Integer>> flows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int id = i;
+            flows.add(() -> {
+                Thread.sleep(20);
+                return id;
+            });
+        }
+
+        List<Future<Integer>> results = runner.runAll(flows);
+
+        Assert.assertEquals(results.size(), 200);
+        for (int i = 0; i < results.size(); i++) {
+            Assert.assertEquals(results.get(i).get().intValue(), i);
+        }
+        Assert.assertTrue(runner.getPeakLiveSessions() <= 10, "пик " + runner.getPeakLiveSessions());
+        Assert.assertTrue(runner.getPeakLiveSessions() > 1, "сценарии должны идти параллельно");
+    }
+
+    @Test(description = "Ошибка сценария не мешает остальным")
+    public void testFailedFlowIsReported() throws Exception {
+        List<Callable<String>> flows = new ArrayList<>();
+        flows.add(() -> "ok");
+        flows.add(() -> {
+            throw new IllegalStateException("сессия не создана");
+        });
+
+        List<Future<String>> results = new VirtualSessionRunner(1).runAll(flows);
+
+        Assert.assertEquals(results.get(0).get(), "ok");
+        Assert.assertThrows(ExecutionException.class, () -> results.get(1).get());
+    }
+
+    @Test(description = "Виртуальные потоки используются, когда JDK их поддерживает")
+    public void testThreadKindMatchesJdk() throws Exception {
+        Future<Boolean> virtual = SessionThreads.newPerTaskExecutor("probe")
+                .submit(() -> SessionThreads.isVirtual(Thread.currentThread()));
+        Assert.assertEquals(virtual.get().booleanValue(), SessionThreads.virtualThreadsAvailable());
+    }
+}
@@ -0,0 +1,65 @@
+package ru.javabruse.utils.appperf;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Сводка замеров запуска и поиск регрессий между сборками
+public class AppStartReportTest {
+
+    private static final String AM_START_OUTPUT = "Starting: Intent { cmp=org.wikipedia.alpha/org.wikipedia.main.MainActivity }\n"
+            + "Status: ok\n"
+            + "LaunchState: WARM\n"
+            + "Activity: org.wikipedia.alpha/org.wikipedia.main.MainActivity\n"
+            + "TotalTime: 412\n"
+            + "WaitTime: 420\n"
+            + "Complete\n";
+
+    @Test(description = "Вывод am start -W: TotalTime и фактический вид запуска")
+    public void testParseAmStart() {
+        Assert.assertEquals(AppStartBenchmark.parseTotalTime(AM_START_OUTPUT), 412);
+        Assert.assertEquals(AppStartBenchmark.parseLaunchState(AM_START_OUTPUT, AppStartBenchmark.StartMode.COLD), "WARM");
+        Assert.assertEquals(AppStartBenchmark.parseLaunchState("Status: ok", AppStartBenchmark.StartMode.HOT), "HOT");
+        Assert.assertEquals(AppStartBenchmark.parseTotalTime("Error: Activity not started"), -1);
+    }
+
+    @Test(description = "Медиана, перцентиль и разброс")
+    public void testStats() {
+        StartStats stats = new StartStats(Arrays.asList(900L, 1000L, 1100L, 1200L, 5000L));
+        Assert.assertEquals(stats.median(), 1100, 1e-9);
+        Assert.assertEquals(stats.percentile(0.9), 3480, 1e-9);
+        Assert.assertEquals(stats.min(), 900);
+        Assert.assertEquals(stats.mean(), 1840, 1e-9);
+    }
+
+    @Test(description = "Значимое замедление - регрессия, шум и небольшое изменение - нет")
+    public void testRegressionDetection() throws Exception {
+        Random random = new Random(42);
+        AppStartReport baseline = new AppStartReport("base.apk");
+        AppStartReport slower = new AppStartReport("slower.apk");
+        AppStartReport same = new AppStartReport("same.apk");
+        for (int i = 0; i < 15; i++) {
+            baseline.record("cold.total", 1000 + random.nextInt(200));
+            slower.record("cold.total", 1300 + random.nextInt(200));
+            same.record("cold.total", 1000 + random.nextInt(200));
+            baseline.record("hot.total", 100 + random.nextInt(20));
+            slower.record("hot.total", 104 + random.nextInt(20));
+        }
+
+        List<String> regressions = AppStartReport.regressions(baseline, slower, 0.1);
+        Assert.assertEquals(regressions.size(), 1, regressions.toString());
+        Assert.assertTrue(regressions.get(0).startsWith("cold.total"));
+        Assert.assertTrue(AppStartReport.regressions(baseline, same, 0.1).isEmpty());
+
+        Path file = Files.createTempDirectory("app-start").resolve("base.json");
+        baseline.save(file);
+        AppStartReport loaded = AppStartReport.load(file);
+        Assert.assertEquals(loaded.getLabel(), "base.apk");
+        Assert.assertEquals(loaded.stats().get("cold.total").median(), baseline.stats().get("cold.total").median(), 1e-9);
+    }
+}
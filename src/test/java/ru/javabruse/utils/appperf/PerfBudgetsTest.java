@@ -0,0 +1,86 @@
+package ru.javabruse.utils.appperf;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Разбор метрик приложения и проверка бюджетов по экранам
+public class PerfBudgetsTest {
+
+    private static final String GFXINFO = "Applications Graphics Acceleration Info:\n"
+            + "** Graphics info for pid 4242 [org.wikipedia.alpha] **\n"
+            + "Stats since: 1234567ns\n"
+            + "Total frames rendered: 182\n"
+            + "Janky frames: 37 (20.33%)\n"
+            + "50th percentile: 9ms\n"
+            + "90th percentile: 21ms\n"
+            + "95th percentile: 34ms\n";
+
+    @Test(description = "CPU, память и кадры из ответов Appium и dumpsys")
+    public void testParseMetrics() {
+        Map<String, Double> metrics = new HashMap<>();
+        AppMetrics.putCpu(metrics, AppMetrics.table(Arrays.asList(
+                Arrays.asList("user", "kernel"), Arrays.asList("12.5", "3.5"))));
+        AppMetrics.putMemory(metrics, AppMetrics.table(Arrays.asList(
+                Arrays.asList("totalPrivateDirty", "totalPss"), Arrays.asList("1000", "204800"))));
+        AppMetrics.putFrames(metrics, GFXINFO);
+
+        Assert.assertEquals(metrics.get(AppMetrics.CPU), 16.0, 1e-9);
+        Assert.assertEquals(metrics.get(AppMetrics.PSS_MB), 200.0, 1e-9);
+        Assert.assertEquals(metrics.get(AppMetrics.FRAMES), 182.0, 1e-9);
+        Assert.assertEquals(metrics.get(AppMetrics.JANKY_FRAMES), 37.0, 1e-9);
+        Assert.assertEquals(metrics.get(AppMetrics.JANKY_PERCENT), 20.33, 1e-9);
+        Assert.assertEquals(metrics.get(AppMetrics.P90_FRAME_MS), 21.0, 1e-9);
+    }
+
+    @Test(description = "Бюджет проверяется только на своём экране, недоступные метрики пропускаются")
+    public void testBudgetViolations() {
+        Map<String, Double> article = new HashMap<>();
+        article.put(AppMetrics.JANKY_FRAMES, 37.0);
+        article.put(AppMetrics.PSS_MB, 200.0);
+        Map<String, Double> search = new HashMap<>();
+        search.put(AppMetrics.JANKY_FRAMES, 50.0);
+        List<ScreenSample> samples = Arrays.asList(
+                new ScreenSample("search", 1000, search),
+                new ScreenSample("article", 2500, article),
+                new ScreenSample("back", 4000, Collections.emptyMap()));
+
+        List<String> violations = PerfBudgets.parse("article.jankyFrames<30, article.pssMb<=200, *.cpu<90")
+                .violations(samples);
+
+        Assert.assertEquals(violations.size(), 1, violations.toString());
+        Assert.assertTrue(violations.get(0).startsWith("article.jankyFrames = 37.0"), violations.get(0));
+    }
+
+    @Test(description = "Некорректное правило бюджета отклоняется", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBudget() {
+        PerfBudgets.parse("article.jankyFrames>30");
+    }
+
+    @Test(description = "Бюджет на неизвестную метрику отклоняется, а не пропускается молча")
+    public void testUnknownMetricRejected() {
+        IllegalArgumentException error = Assert.expectThrows(IllegalArgumentException.class,
+                () -> PerfBudgets.parse("article.jankyFrame<30"));
+        Assert.assertTrue(error.getMessage().contains("article.jankyFrame<30"), error.getMessage());
+    }
+
+    @Test(description = "Бюджеты без единого значения в замерах возвращаются как непроверенные")
+    public void testUnmeasuredBudgets() {
+        Map<String, Double> article = new HashMap<>();
+        article.put(AppMetrics.PSS_MB, 200.0);
+        article.put(AppMetrics.JANKY_FRAMES, -1.0);
+        List<ScreenSample> samples = Arrays.asList(
+                new ScreenSample("search", 1000, Collections.singletonMap(AppMetrics.CPU, 12.0)),
+                new ScreenSample("article", 2500, article));
+
+        PerfBudgets budgets = PerfBudgets.parse("article.jankyFrames<30, article.pssMb<=400, *.cpu<90, back.cpu<90");
+
+        Assert.assertEquals(budgets.unmeasured(samples), Arrays.asList("article.jankyFrames", "back.cpu"));
+        Assert.assertTrue(budgets.violations(samples).isEmpty());
+    }
+}
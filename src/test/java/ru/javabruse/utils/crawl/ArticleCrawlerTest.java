@@ -0,0 +1,170 @@
+package ru.javabruse.utils.crawl;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.JsonLines;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Обход локального сайта-фикстуры: статьи ссылаются друг на друга по кольцу и на соседей
+public class ArticleCrawlerTest {
+
+    private static final int ARTICLES = 120;
+    private static final Pattern LINK = Pattern.compile("href=\"(/wiki/[^\"#:]+)\"");
+
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private HttpServer site;
+    private String base;
+
+    @BeforeClass
+    public void startSite() throws Exception {
+        site = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        site.createContext("/wiki/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+            int n = Integer.parseInt(path.substring("/wiki/Article_".length()));
+            StringBuilder html = new StringBuilder("<h1 id=\"firstHeading\">Article " + n + "</h1>");
+            html.append("<a href=\"/wiki/Article_").append((n + 1) % ARTICLES).append("\">next</a>");
+            html.append("<a href=\"/wiki/Article_").append((n * 7) % ARTICLES).append("#section\">jump</a>");
+            html.append("<a href=\"/wiki/Special:Random\">random</a>");
+            // каждая десятая статья без категорий - нарушение инварианта
+            if (n % 10 != 0) {
+                html.append("<div id=\"catlinks\">Category</div>");
+            }
+            byte[] body = html.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        site.start();
+        base = "http://127.0.0.1:" + site.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopSite() {
+        site.stop(0);
+    }
+
+    @Test(description = "Каждая статья посещается ровно один раз, результаты пишутся в JSONL")
+    public void testCrawlVisitsEachArticleOnce() throws Exception {
+        hits.clear();
+        Path output = Files.createTempDirectory("crawl").resolve("results.jsonl");
+        ArticleCrawler crawler = new ArticleCrawler(FixtureSession::new, 4, 1000, 10_000, output);
+
+        CrawlReport report = crawler.crawl(Collections.singletonList(base + "/wiki/Article_0"));
+
+        Assert.assertEquals(report.getVisited(), ARTICLES);
+        Assert.assertEquals(report.getErrors(), 0);
+        Assert.assertEquals(report.getViolations(), ARTICLES / 10);
+        Assert.assertEquals(hits.size(), ARTICLES);
+        Assert.assertTrue(hits.values().stream().allMatch(count -> count.get() == 1), "повторные визиты: " + hits);
+
+        List<String> lines = Files.readAllLines(output);
+        Assert.assertEquals(lines.size(), ARTICLES);
+        Set<Object> urls = new HashSet<>();
+        for (String line : lines) {
+            urls.add(JsonLines.parse(line).get("url"));
+        }
+        Assert.assertEquals(urls.size(), ARTICLES);
+    }
+
+    @Test(description = "Лимит статей и ограниченная очередь соблюдаются")
+    public void testCrawlRespectsLimits() throws Exception {
+        Path output = Files.createTempDirectory("crawl").resolve("results.jsonl");
+        ArticleCrawler crawler = new ArticleCrawler(FixtureSession::new, 3, 1, 25, output);
+
+        CrawlReport report = crawler.crawl(Collections.singletonList(base + "/wiki/Article_0"));
+
+        Assert.assertTrue(report.getVisited() <= 25, "посещено " + report.getVisited());
+        Assert.assertTrue(report.getVisited() > 0);
+        Assert.assertEquals(Files.readAllLines(output).size(), report.getVisited());
+    }
+
+    @Test(description = "Ссылка, отброшенная из-за полной очереди, обходится, когда встречается снова")
+    public void testDroppedLinkIsCrawledLater() throws Exception {
+        Path output = Files.createTempDirectory("crawl").resolve("results.jsonl");
+        // одна сессия и очередь на один URL: со статьи A ссылка на C отбрасывается, со статьи B - ставится
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("A", Arrays.asList("B", "C"));
+        graph.put("B", Collections.singletonList("C"));
+        graph.put("C", Collections.emptyList());
+        ArticleCrawler crawler = new ArticleCrawler(() -> new GraphSession(graph), 1, 1, 10_000, output);
+
+        CrawlReport report = crawler.crawl(Collections.singletonList("A"));
+
+        Assert.assertEquals(report.getDroppedLinks(), 1);
+        Assert.assertEquals(report.getVisited(), 3);
+    }
+
+    // Сессия без браузера: страница фикстуры читается HTTP-клиентом
+    private final class FixtureSession implements CrawlSession {
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        @Override
+        public CrawledPage visit(String url) throws Exception {
+            String html = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            Matcher heading = Pattern.compile("<h1 id=\"firstHeading\">([^<]*)</h1>").matcher(html);
+            List<String> categories = html.contains("catlinks")
+                    ? Collections.singletonList("Category") : Collections.emptyList();
+            WikipediaPage.ArticleData article = new WikipediaPage.ArticleData("", url,
+                    heading.find() ? heading.group(1) : "", 0, 0, false, 0, categories);
+
+            List<String> links = new ArrayList<>();
+            Matcher link = LINK.matcher(html);
+            while (link.find()) {
+                links.add(base + link.group(1));
+            }
+            return new CrawledPage(article, links);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Сессия по заданному графу ссылок
+    private static final class GraphSession implements CrawlSession {
+        private final Map<String, List<String>> graph;
+
+        GraphSession(Map<String, List<String>> graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public CrawledPage visit(String url) {
+            WikipediaPage.ArticleData article = new WikipediaPage.ArticleData("", url, url, 0, 0, false, 0,
+                    Collections.singletonList("Category"));
+            return new CrawledPage(article, graph.get(url));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.javabruse.utils.crawl;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+// Фильтр Блума + множество хэшей: точность, доля ложных срабатываний и предел памяти
+public class VisitedSetTest {
+
+    @Test(description = "Пока таблица не заполнена, ответы точные")
+    public void testExactWhileUnderLimit() {
+        VisitedSet visited = new VisitedSet(200_000, 0.01, 16L * 1024 * 1024);
+        for (int i = 0; i < 200_000; i++) {
+            Assert.assertTrue(visited.add("Статья_" + i), "Статья_" + i);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            Assert.assertFalse(visited.add("Статья_" + i));
+            Assert.assertTrue(visited.contains("Статья_" + i));
+        }
+        for (int i = 200_000; i < 300_000; i++) {
+            Assert.assertFalse(visited.contains("Статья_" + i), "Статья_" + i);
+        }
+        Assert.assertTrue(visited.isExact());
+        Assert.assertEquals(visited.size(), 200_000);
+    }
+
+    @Test(description = "После насыщения таблицы ложные срабатывания в пределах заданной доли")
+    public void testFalsePositiveRateAfterSaturation() {
+        // 64 КБ таблицы - 4096 хэшей, дальше отвечает только фильтр
+        VisitedSet visited = new VisitedSet(100_000, 0.01, 64 * 1024);
+        for (int i = 0; i < 100_000; i++) {
+            visited.add("Статья_" + i);
+        }
+        Assert.assertFalse(visited.isExact());
+        for (int i = 0; i < 100_000; i++) {
+            Assert.assertTrue(visited.contains("Статья_" + i), "ложноотрицательный ответ для Статья_" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 100_000; i < 200_000; i++) {
+            if (visited.contains("Статья_" + i)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < 100_000 * 0.02, "ложных срабатываний " + falsePositives);
+    }
+
+    @Test(description = "Память ограничена фильтром и пределом таблицы")
+    public void testMemoryBounded() {
+        long maxExact = 1024 * 1024;
+        VisitedSet visited = new VisitedSet(1_000_000, 0.001, maxExact);
+        for (int i = 0; i < 1_000_000; i++) {
+            visited.addHash(i * 0x9e3779b97f4a7c15L + 1);
+        }
+        // ~1.8 МБ на фильтр при 0.1% на миллион ключей
+        Assert.assertTrue(visited.memoryBytes() <= maxExact + 2 * 1024 * 1024, "занято " + visited.memoryBytes());
+    }
+
+    @Test(description = "Множество long: ноль, повторы и рост таблицы")
+    public void testLongHashSet() {
+        LongHashSet set = new LongHashSet(4, 1024 * 1024);
+        Assert.assertTrue(set.add(0));
+        Assert.assertFalse(set.add(0));
+        for (long i = 1; i <= 10_000; i++) {
+            Assert.assertTrue(set.add(i * 31));
+        }
+        Assert.assertFalse(set.add(31));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertTrue(set.contains(310_000));
+        Assert.assertFalse(set.contains(32));
+        Assert.assertEquals(set.size(), 10_001);
+        Assert.assertFalse(set.isFull());
+    }
+}
@@ -0,0 +1,148 @@
+package ru.javabruse.utils.history;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.javabruse.web.WikipediaSnapshotTests;
+import ru.javabruse.web.WikipediaTests;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// История тестов и порядок "сначала вероятные и быстрые падения", остановка после N падений
+public class FailFastSchedulerTest {
+
+    @Test(description = "История затухает и переживает сохранение")
+    public void testHistoryDecayAndPersistence() throws Exception {
+        TestHistory history = new TestHistory();
+        history.record("WikipediaTests.testSearch", true, 10);
+        for (int i = 0; i < 5; i++) {
+            history.record("WikipediaTests.testSearch", false, 20);
+        }
+        TestRecord record = history.get("WikipediaTests.testSearch");
+        // падение шесть прогонов назад весит 0.8^5
+        Assert.assertEquals(record.getFailures(), Math.pow(TestRecord.DECAY, 5), 1e-9);
+        Assert.assertFalse(record.isLastFailed());
+        Assert.assertTrue(record.getMeanSeconds() > 10 && record.getMeanSeconds() < 20);
+
+        Path file = Files.createTempDirectory("history").resolve("test-history.json");
+        history.save(file);
+        TestRecord loaded = TestHistory.load(file).get("WikipediaTests.testSearch");
+        Assert.assertEquals(loaded.getRuns(), record.getRuns(), 1e-9);
+        Assert.assertEquals(loaded.getMeanSeconds(), record.getMeanSeconds(), 1e-9);
+
+        Files.writeString(file, "{не json");
+        Assert.assertEquals(TestHistory.load(file).size(), 0);
+    }
+
+    @Test(description = "Недавно падавший быстрый тест идёт раньше стабильного медленного, покрытие добавляет вес")
+    public void testScore() {
+        TestRecord flaky = new TestRecord();
+        flaky.record(false, 5);
+        flaky.record(true, 5);
+        TestRecord stable = new TestRecord();
+        for (int i = 0; i < 10; i++) {
+            stable.record(false, 60);
+        }
+        double flakyScore = FailFastScheduler.score(flaky, 0, 30);
+        double stableScore = FailFastScheduler.score(stable, 0, 30);
+        double unknownScore = FailFastScheduler.score(null, 0, 30);
+        Assert.assertTrue(flakyScore > unknownScore && unknownScore > stableScore,
+                flakyScore + " " + unknownScore + " " + stableScore);
+        Assert.assertEquals(FailFastScheduler.score(stable, 1, 30), 2 * stableScore, 1e-12);
+    }
+
+    @Test(description = "Падавший тест запускается первым, после порога остальные пропускаются без @BeforeMethod")
+    public void testReorderAndAbort() throws Exception {
+        Path file = Files.createTempDirectory("history").resolve("test-history.json");
+        TestHistory history = new TestHistory();
+        history.record("Sample.first", false, 1);
+        history.record("Sample.second", false, 1);
+        history.record("Sample.broken", true, 1);
+        history.save(file);
+
+        Sample.log.clear();
+        Sample.armed = true;
+        TestNG testng = new TestNG();
+        testng.setUseDefaultListeners(false);
+        testng.setVerbose(0);
+        testng.setTestClasses(new Class[]{Sample.class, Unscoped.class});
+        testng.addListener(new FailFastScheduler(true, 1, file, Sample.class::equals));
+        TestListenerAdapter results = new TestListenerAdapter();
+        testng.addListener(results);
+        try {
+            testng.run();
+        } finally {
+            Sample.armed = false;
+        }
+
+        // класс вне области планировщика идёт на своём месте и после порога
+        Assert.assertEquals(Sample.log, List.of("setUp", "broken", "unscoped"));
+        Assert.assertEquals(results.getFailedTests().size(), 1);
+        Assert.assertEquals(results.getSkippedTests().size(), 2);
+        Assert.assertEquals(results.getPassedTests().size(), 1);
+        for (ITestResult skipped : results.getSkippedTests()) {
+            Assert.assertTrue(skipped.getThrowable().getMessage().contains("failfast.max.failures"));
+        }
+        Assert.assertEquals(TestHistory.load(file).get("Sample.broken").getRuns(), 1 + TestRecord.DECAY, 1e-9);
+        Assert.assertNull(TestHistory.load(file).get("Unscoped.unscoped"));
+    }
+
+    @Test(description = "По умолчанию планировщик действует только на классы, подключившие его в @Listeners")
+    public void testScopedToDeclaringClasses() {
+        Assert.assertTrue(FailFastScheduler.declares(WikipediaTests.class, FailFastScheduler.class));
+        Assert.assertFalse(FailFastScheduler.declares(WikipediaSnapshotTests.class, FailFastScheduler.class));
+        Assert.assertFalse(FailFastScheduler.declares(Sample.class, FailFastScheduler.class));
+        Assert.assertFalse(FailFastScheduler.historyFile().startsWith("target"), "история не должна стираться mvn clean");
+    }
+
+    // surefire с -Dtest=FailFastSchedulerTest находит и вложенный класс - вне вложенного прогона он ничего не делает
+    public static class Sample {
+        static final List<String> log = Collections.synchronizedList(new ArrayList<>());
+        static volatile boolean armed;
+
+        @BeforeMethod
+        public void setUp() {
+            if (armed) {
+                log.add("setUp");
+            }
+        }
+
+        @Test(priority = 1)
+        public void first() {
+            if (armed) {
+                log.add("first");
+            }
+        }
+
+        @Test(priority = 2)
+        public void second() {
+            if (armed) {
+                log.add("second");
+            }
+        }
+
+        @Test(priority = 3)
+        public void broken() {
+            if (armed) {
+                log.add("broken");
+                Assert.fail("сломан");
+            }
+        }
+    }
+
+    public static class Unscoped {
+        @Test(priority = 4)
+        public void unscoped() {
+            if (Sample.armed) {
+                Sample.log.add("unscoped");
+            }
+        }
+    }
+}
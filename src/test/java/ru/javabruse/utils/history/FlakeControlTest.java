@@ -0,0 +1,159 @@
+package ru.javabruse.utils.history;
+
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+// Повтор в той же сессии, учёт нестабильности и линии карантина
+public class FlakeControlTest {
+
+    @Test(description = "В карантин после устойчивой нестабильности, обратно - когда доля падает ниже половины порога")
+    public void testQuarantineHysteresis() {
+        TestRecord record = new TestRecord();
+        record.record(false, true, 1);
+        record.record(false, true, 1);
+        Assert.assertFalse(record.isQuarantined(), "мало прогонов");
+        record.record(false, true, 1);
+        Assert.assertTrue(record.isQuarantined());
+        int clean = 0;
+        while (record.isQuarantined()) {
+            record.record(false, false, 1);
+            clean++;
+        }
+        Assert.assertTrue(record.getFlakeRate() < 0.15);
+        Assert.assertTrue(clean > 1, "между порогами тест остаётся в карантине");
+    }
+
+    @Test(description = "Упавший тест повторяется в той же сессии и записывается как нестабильный; карантин - отдельной линией")
+    public void testRetryInSameSessionAndLanes() throws Exception {
+        Path file = Files.createTempDirectory("history").resolve("test-history.json");
+        TestHistory history = new TestHistory();
+        for (int i = 0; i < 3; i++) {
+            history.record("Sample.quarantined", false, true, 1);
+        }
+        history.save(file);
+
+        TestListenerAdapter main = run("main", file);
+        Assert.assertEquals(Sample.log, List.of("new session", "flaky", "reused session", "flaky", "new session", "stable",
+                "unscoped"));
+        Assert.assertEquals(main.getPassedTests().size(), 2);
+        // класс без FlakeControl в области не получает повторов
+        Assert.assertEquals(main.getFailedTests().size(), 1);
+        Assert.assertEquals(main.getFailedTests().get(0).getMethod().getMethodName(), "unscoped");
+        TestRecord flaky = TestHistory.load(file).get("Sample.flaky");
+        Assert.assertEquals(flaky.getFlakes(), 1.0);
+        Assert.assertFalse(flaky.isLastFailed());
+
+        TestListenerAdapter quarantine = run("quarantine", file);
+        // линия не фильтрует классы вне области
+        Assert.assertEquals(Sample.log, List.of("new session", "quarantined", "unscoped"));
+        Assert.assertEquals(quarantine.getPassedTests().size(), 1);
+    }
+
+    @Test(description = "Повторяются только сбои среды, проваленная проверка - нет")
+    public void testOnlyTransientFailuresRetried() {
+        Assert.assertTrue(SessionRetry.isTransient(new StaleElementReferenceException("элемент перерисован")));
+        Assert.assertTrue(SessionRetry.isTransient(new NoSuchSessionException("сессия потеряна")));
+        Assert.assertTrue(SessionRetry.isTransient(new org.openqa.selenium.TimeoutException("ожидание истекло")));
+        Assert.assertTrue(SessionRetry.isTransient(
+                new RuntimeException("Не удалось настроить тестовую среду", new TimeoutException())));
+        Assert.assertFalse(SessionRetry.isTransient(new AssertionError("Главная страница должна загрузиться")));
+        Assert.assertFalse(SessionRetry.isTransient(new IllegalStateException("ошибка теста")));
+        Assert.assertFalse(SessionRetry.isTransient(null));
+    }
+
+    private static TestListenerAdapter run(String lane, Path file) {
+        Sample.log.clear();
+        Sample.flakyCalls = 0;
+        Unscoped.calls = 0;
+        Sample.armed = true;
+        System.setProperty("retry.max", "1");
+        try {
+            TestNG testng = new TestNG();
+            testng.setUseDefaultListeners(false);
+            testng.setVerbose(0);
+            testng.setTestClasses(new Class[]{Sample.class, Unscoped.class});
+            testng.addListener(new FlakeControl(lane, file, Sample.class::equals));
+            testng.addListener(new FailFastScheduler(false, 0, file, Sample.class::equals));
+            TestListenerAdapter results = new TestListenerAdapter();
+            testng.addListener(results);
+            testng.run();
+            return results;
+        } finally {
+            System.clearProperty("retry.max");
+            Sample.armed = false;
+        }
+    }
+
+    // surefire с -Dtest=FlakeControlTest находит и вложенный класс - вне вложенного прогона он ничего не делает
+    public static class Sample {
+        static final List<String> log = Collections.synchronizedList(new ArrayList<>());
+        static volatile boolean armed;
+        static int flakyCalls;
+        private boolean reuseSession;
+
+        @BeforeMethod
+        public void setUp() {
+            if (armed) {
+                log.add(reuseSession ? "reused session" : "new session");
+                reuseSession = false;
+            }
+        }
+
+        @AfterMethod
+        public void tearDown(ITestResult result) {
+            reuseSession = SessionRetry.willRetry(result);
+        }
+
+        @Test(priority = 1)
+        public void flaky() {
+            if (armed) {
+                log.add("flaky");
+                if (flakyCalls++ == 0) {
+                    throw new StaleElementReferenceException("первая попытка падает");
+                }
+            }
+        }
+
+        @Test(priority = 2)
+        public void stable() {
+            if (armed) {
+                log.add("stable");
+            }
+        }
+
+        @Test(priority = 3)
+        public void quarantined() {
+            if (armed) {
+                log.add("quarantined");
+            }
+        }
+    }
+
+    public static class Unscoped {
+        static int calls;
+
+        @Test(priority = 4)
+        public void unscoped() {
+            if (Sample.armed) {
+                Sample.log.add("unscoped");
+                if (calls++ == 0) {
+                    throw new StaleElementReferenceException("первая попытка падает");
+                }
+            }
+        }
+    }
+}
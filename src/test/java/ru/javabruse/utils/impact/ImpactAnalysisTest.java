@@ -0,0 +1,182 @@
+package ru.javabruse.utils.impact;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ru.javabruse.utils.ElementListSnapshot;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.web.WikipediaSnapshotTests;
+import ru.javabruse.web.WikipediaTests;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Выбор тестов по изменениям: методы в исходнике, разбор diff, карта "тест -> методы"
+public class ImpactAnalysisTest {
+
+    private static final String PAGE_PATH = "src/main/java/ru/javabruse/pages/AppPage.java";
+
+    private static final String PAGE_SOURCE = String.join("\n",
+            "package ru.javabruse.pages;",                                            // 1
+            "",                                                                       // 2
+            "public class AppPage {",                                                 // 3
+            "    private static final String CLOSE = \"id/close { }\";",              // 4
+            "",                                                                       // 5
+            "    // Универсальный метод для закрытия окон {",                         // 6
+            "    public void dismissAllPopups() {",                                   // 7
+            "        for (String selector : new String[]{CLOSE}) {",                  // 8
+            "            try {",                                                      // 9
+            "                click(selector);",                                       // 10
+            "            } catch (Exception e) {}",                                   // 11
+            "        }",                                                              // 12
+            "    }",                                                                  // 13
+            "",                                                                       // 14
+            "    @SuppressWarnings(\"unchecked\")",                                   // 15
+            "    public <T> T search(String query,",                                  // 16
+            "                        int limit) throws Exception {",                  // 17
+            "        Runnable later = () -> {",                                       // 18
+            "            click(query);",                                              // 19
+            "        };",                                                             // 20
+            "        new Thread(new Runnable() {",                                    // 21
+            "            public void run() { click(\"x\"); }",                        // 22
+            "        }).start();",                                                    // 23
+            "        return null;",                                                   // 24
+            "    }",                                                                  // 25
+            "",                                                                       // 26
+            "    private void click(String id) {",                                    // 27
+            "    }",                                                                  // 28
+            "}");                                                                     // 29
+
+    @Test(description = "Строки сопоставляются с ближайшим объявленным методом")
+    public void testMethodIndex() {
+        MethodIndex index = new MethodIndex(PAGE_SOURCE);
+        Assert.assertNull(index.methodAt(4));
+        Assert.assertEquals(index.methodAt(7), "dismissAllPopups");
+        Assert.assertEquals(index.methodAt(11), "dismissAllPopups");
+        Assert.assertEquals(index.methodAt(13), "dismissAllPopups");
+        Assert.assertNull(index.methodAt(14));
+        Assert.assertEquals(index.methodAt(15), "search");
+        Assert.assertEquals(index.methodAt(19), "search");
+        Assert.assertEquals(index.methodAt(22), "run");
+        Assert.assertEquals(index.methodAt(24), "search");
+        Assert.assertEquals(index.methodAt(27), "click");
+        Assert.assertNull(index.methodAt(29));
+    }
+
+    @Test(description = "diff -U0: добавленные, изменённые, удалённые строки и удалённые файлы")
+    public void testDiffParsing() {
+        SourceDiff diff = SourceDiff.parse(String.join("\n",
+                "diff --git a/" + PAGE_PATH + " b/" + PAGE_PATH,
+                "--- a/" + PAGE_PATH,
+                "+++ b/" + PAGE_PATH,
+                "@@ -10 +10 @@ public class AppPage {",
+                "-                click(selector);",
+                "+                click(selector.trim());",
+                "@@ -27,2 +26,0 @@",
+                "-    private void unused() {",
+                "-    }",
+                "diff --git a/src/main/java/ru/javabruse/utils/Old.java b/src/main/java/ru/javabruse/utils/Old.java",
+                "--- a/src/main/java/ru/javabruse/utils/Old.java",
+                "+++ /dev/null",
+                "@@ -1,3 +0,0 @@",
+                "-class Old {"));
+        Assert.assertEquals(diff.getChangedLines().get(PAGE_PATH), new TreeSet<>(Set.of(10, 26, 27)));
+        Assert.assertEquals(diff.getDeletedFiles(), Collections.singletonList("src/main/java/ru/javabruse/utils/Old.java"));
+    }
+
+    @Test(description = "Изменение метода выбирает только вызывавшие его тесты, изменение поля - весь класс, "
+            + "изменение класса вне карты - все тесты")
+    public void testSelection() {
+        Map<String, Set<String>> usage = new HashMap<>();
+        usage.put("WikipediaMobileTests.testPopups", Set.of("ru.javabruse.pages.AppPage#dismissAllPopups",
+                "ru.javabruse.pages.AppPage#click"));
+        usage.put("WikipediaMobileTests.testSearch", Set.of("ru.javabruse.pages.AppPage#search",
+                "ru.javabruse.pages.AppPage#click"));
+        usage.put("WikipediaTests.testMainPageLoad", Set.of("ru.javabruse.pages.WikipediaPage#openMainPage"));
+        ImpactAnalysis analysis = new ImpactAnalysis(usage);
+
+        ImpactAnalysis.Result popups = analysis.select(diff(11), path -> PAGE_SOURCE);
+        Assert.assertEquals(popups.getSelected().keySet(), Set.of("WikipediaMobileTests.testPopups"));
+
+        ImpactAnalysis.Result field = analysis.select(diff(4), path -> PAGE_SOURCE);
+        Assert.assertEquals(field.getSelected().keySet(),
+                Set.of("WikipediaMobileTests.testPopups", "WikipediaMobileTests.testSearch"));
+
+        ImpactAnalysis.Result untouched = analysis.select(SourceDiff.parse(String.join("\n",
+                "--- a/src/main/java/ru/javabruse/utils/soak/SoakReport.java",
+                "+++ b/src/main/java/ru/javabruse/utils/soak/SoakReport.java",
+                "@@ -5 +5 @@")), path -> null);
+        Assert.assertTrue(untouched.isRunAll(), "регрессия в хелпере вне карты должна запускать все тесты");
+        Assert.assertEquals(untouched.getUntouchedClasses(), Set.of("ru.javabruse.utils.soak.SoakReport"));
+        Assert.assertFalse(popups.isRunAll());
+        Assert.assertFalse(field.isRunAll());
+        Assert.assertTrue(analysis.isKnown("WikipediaTests.testMainPageLoad"));
+        Assert.assertFalse(analysis.isKnown("WikipediaTests.testNew"));
+    }
+
+    @Test(description = "Изменение тестового класса из карты запускает все тесты, класса вне карты - выбор не меняет")
+    public void testChangedTestClass() {
+        Map<String, Set<String>> usage = new HashMap<>();
+        usage.put("WikipediaTests.testMainPageLoad", Set.of("ru.javabruse.pages.WikipediaPage#openMainPage"));
+        ImpactAnalysis analysis = new ImpactAnalysis(usage);
+
+        ImpactAnalysis.Result known = analysis.select(SourceDiff.parse(String.join("\n",
+                "--- a/src/test/java/ru/javabruse/web/WikipediaTests.java",
+                "+++ b/src/test/java/ru/javabruse/web/WikipediaTests.java",
+                "@@ -40 +40 @@")), path -> null);
+        Assert.assertTrue(known.isRunAll(), "изменение теста из карты не должно давать пустой выбор");
+        Assert.assertEquals(known.getChangedTests(), Set.of("WikipediaTests"));
+
+        ImpactAnalysis.Result unit = analysis.select(SourceDiff.parse(String.join("\n",
+                "--- a/src/test/java/ru/javabruse/utils/impact/ImpactAnalysisTest.java",
+                "+++ b/src/test/java/ru/javabruse/utils/impact/ImpactAnalysisTest.java",
+                "@@ -40 +40 @@")), path -> null);
+        Assert.assertFalse(unit.isRunAll());
+        Assert.assertTrue(unit.getSelected().isEmpty());
+        Assert.assertTrue(unit.getChangedTests().isEmpty());
+    }
+
+    @Test(description = "Запись: кадры основного кода на стеке команды относятся к текущему тесту, карта сливается с файлом")
+    public void testRecordingAndMerge() throws Exception {
+        Assert.assertEquals(ImpactRecorder.methodKey("ru.javabruse.pages.WikipediaPage", "lambda$waitForPageLoad$3"),
+                "ru.javabruse.pages.WikipediaPage#waitForPageLoad");
+        Assert.assertEquals(ImpactRecorder.methodKey("ru.javabruse.pages.WikipediaPage$ArticleData", "getTitle"),
+                "ru.javabruse.pages.WikipediaPage#getTitle");
+
+        TestLogContext.start("ImpactAnalysisTest.recorded");
+        try {
+            // ElementListSnapshot.get - кадр основного кода, как page object в настоящей команде
+            new ElementListSnapshot(() -> {
+                ImpactRecorder.record();
+                return Collections.emptyList();
+            }).get();
+        } finally {
+            TestLogContext.clear();
+        }
+        Set<String> methods = ImpactRecorder.recorded().get("ImpactAnalysisTest.recorded");
+        Assert.assertEquals(methods, Set.of("ru.javabruse.utils.ElementListSnapshot#get"));
+
+        Path file = Files.createTempDirectory("impact").resolve("test-impact.json");
+        Files.writeString(file, "{\"WikipediaTests.testMainPageLoad\": [\"ru.javabruse.pages.WikipediaPage#openMainPage\"]}");
+        ImpactRecorder.save(file);
+        Map<String, Set<String>> merged = ImpactRecorder.load(file);
+        Assert.assertEquals(merged.get("WikipediaTests.testMainPageLoad"),
+                Set.of("ru.javabruse.pages.WikipediaPage#openMainPage"));
+        Assert.assertEquals(merged.get("ImpactAnalysisTest.recorded"), methods);
+    }
+
+    @Test(description = "Фильтр применяется только к классам, подключившим ImpactSelector")
+    public void testSelectorScope() {
+        Assert.assertTrue(ImpactSelector.declaresSelector(WikipediaTests.class));
+        Assert.assertFalse(ImpactSelector.declaresSelector(WikipediaSnapshotTests.class));
+    }
+
+    private static SourceDiff diff(int line) {
+        return SourceDiff.parse(String.join("\n", "--- a/" + PAGE_PATH, "+++ b/" + PAGE_PATH,
+                "@@ -" + line + " +" + line + " @@"));
+    }
+}
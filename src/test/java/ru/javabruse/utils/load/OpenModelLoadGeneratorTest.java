@@ -0,0 +1,137 @@
+package ru.javabruse.utils.load;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+// Генератор нагрузки против локального заменителя MediaWiki
+public class OpenModelLoadGeneratorTest {
+
+    private static final long SERVICE_MILLIS = 20;
+
+    private HttpServer mirror;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startMirror() throws Exception {
+        mirror = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mirror.createContext("/", exchange -> {
+            try {
+                Thread.sleep(SERVICE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (exchange.getRequestURI().getPath().endsWith("Special:Random")) {
+                exchange.getResponseHeaders().add("Location", "/wiki/Article_1");
+                exchange.sendResponseHeaders(302, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = "<html><h1 id=\"firstHeading\">Article</h1></html>".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        mirror.setExecutor(Executors.newFixedThreadPool(16));
+        mirror.start();
+        baseUrl = "http://127.0.0.1:" + mirror.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopMirror() {
+        mirror.stop(0);
+    }
+
+    @Test(description = "Пользователи приходят с заданной интенсивностью и проходят все шаги")
+    public void testArrivalRateAndSteps() throws Exception {
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(RampProfile.constant(20, 2),
+                () -> new HttpUserSession(baseUrl))
+                .poissonArrivals(false)
+                .maxConcurrentUsers(50);
+
+        LoadRecorder recorder = generator.run();
+
+        Assert.assertTrue(Math.abs(generator.getArrivals() - 40) <= 1, "пришло " + generator.getArrivals());
+        for (String step : new String[]{"http/main", "http/search", "http/random", "http/history", "http/flow"}) {
+            Assert.assertEquals(recorder.corrected(step).count(), generator.getArrivals(), step);
+            Assert.assertEquals(recorder.errors(step), 0, step);
+        }
+        Assert.assertTrue(recorder.corrected("http/main").percentileMillis(0.5) >= SERVICE_MILLIS);
+    }
+
+    @Test(description = "Очередь перед перегруженной системой видна в исправленных задержках")
+    public void testCoordinatedOmissionCorrection() throws Exception {
+        // один поток обслуживания на 10 пользователей в секунду по ~80 мс: система не успевает
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(RampProfile.constant(20, 1),
+                () -> new HttpUserSession(baseUrl))
+                .poissonArrivals(false)
+                .maxConcurrentUsers(1);
+
+        LoadRecorder recorder = generator.run();
+
+        double corrected = recorder.corrected("http/flow").percentileMillis(0.99);
+        double uncorrected = recorder.uncorrected("http/flow").percentileMillis(0.99);
+        Assert.assertTrue(corrected > uncorrected * 3,
+                "исправленный p99 " + corrected + " мс, неисправленный " + uncorrected + " мс");
+    }
+
+    @Test(description = "Разгон с нуля даёт ожидаемое число приходов в обоих режимах")
+    public void testArrivalsOnRampFromZero() {
+        RampProfile profile = RampProfile.parse("30s:0-10,120s:10,30s:10-0");
+        double expected = profile.expectedArrivals();
+
+        long uniform = countArrivals(new OpenModelLoadGenerator(profile, () -> null).poissonArrivals(false),
+                profile, new Random(1));
+        Assert.assertTrue(Math.abs(uniform - expected) <= 1, "равномерно пришло " + uniform + " из " + expected);
+
+        // пуассоновский поток: среднее по прогонам близко к площади под кривой, пустых прогонов нет
+        OpenModelLoadGenerator poisson = new OpenModelLoadGenerator(profile, () -> null);
+        Random random = new Random(42);
+        int runs = 200;
+        long total = 0;
+        for (int run = 0; run < runs; run++) {
+            long count = countArrivals(poisson, profile, random);
+            Assert.assertTrue(count > expected * 0.8, "прогон " + run + ": пришло " + count);
+            total += count;
+        }
+        double mean = (double) total / runs;
+        Assert.assertEquals(mean, expected, expected * 0.02, "среднее число приходов");
+    }
+
+    @Test(description = "Профиль: линейный разгон, полка и спад")
+    public void testRampProfile() {
+        RampProfile profile = RampProfile.parse("10s:0-10,1m:10,10s:10-0");
+
+        Assert.assertEquals(profile.durationSeconds(), 80, 1e-9);
+        Assert.assertEquals(profile.rateAt(5), 5, 1e-9);
+        Assert.assertEquals(profile.rateAt(30), 10, 1e-9);
+        Assert.assertEquals(profile.rateAt(75), 5, 1e-9);
+        Assert.assertEquals(profile.rateAt(100), 0, 1e-9);
+        Assert.assertEquals(profile.expectedArrivals(), 50 + 600 + 50, 1e-9);
+        Assert.assertEquals(profile.maxRate(), 10, 1e-9);
+        // площадь разгона до t равна t^2/2: 8 приходов к 4 с, 50 - к концу разгона
+        Assert.assertEquals(profile.timeOfArrivals(8), 4, 1e-9);
+        Assert.assertEquals(profile.timeOfArrivals(50), 10, 1e-9);
+        Assert.assertEquals(profile.timeOfArrivals(650), 70, 1e-9);
+        Assert.assertEquals(profile.timeOfArrivals(701), Double.POSITIVE_INFINITY);
+    }
+
+    // тот же цикл расписания, что в run(), но без ожидания и запуска пользователей
+    private static long countArrivals(OpenModelLoadGenerator generator, RampProfile profile, Random random) {
+        long arrived = 0;
+        double t = 0;
+        while ((t = generator.nextArrival(t, arrived, random)) < profile.durationSeconds()) {
+            arrived++;
+        }
+        return arrived;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.javabruse.utils.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Реестр метрик: запись из многих потоков, текстовый формат Prometheus, HTTP и снимок в файл
+public class MetricsRegistryTest {
+
+    @Test(description = "Счётчики и гистограммы не теряют записи при параллельной записи")
+    public void testConcurrentUpdates() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    registry.counter("test_events_total", "События", "kind", "a").inc();
+                    registry.histogram("test_wait_seconds", "Ожидания").observe(i % 2 == 0 ? 0.001 : 2);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(registry.counter("test_events_total", "События", "kind", "a").get(), 800_000);
+        Histogram histogram = registry.histogram("test_wait_seconds", "Ожидания");
+        Assert.assertEquals(histogram.count(), 800_000);
+        Assert.assertEquals(histogram.sum(), 400_000 * 0.001 + 400_000 * 2, 1e-3);
+    }
+
+    @Test(description = "Квантили с точностью около 1.5%, память не зависит от числа наблюдений")
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(histogram.percentileMillis(0.5), 0.0);
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.observeNanos(i * 100_000L);
+        }
+        Assert.assertEquals(histogram.count(), 10_000);
+        Assert.assertEquals(histogram.percentileMillis(0.50), 500, 500 * 0.02);
+        Assert.assertEquals(histogram.percentileMillis(0.99), 990, 990 * 0.02);
+        Assert.assertEquals(histogram.maxMillis(), 1000, 0.001);
+        Assert.assertEquals(histogram.meanMillis(), 500.05, 0.001);
+    }
+
+    @Test(description = "Выгрузка в текстовом формате: HELP/TYPE, метки, накопительные корзины")
+    public void testExposition() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("wiki_sessions_created_total", "Созданные сессии", "kind", "chrome").add(3);
+        registry.counter("wiki_app_popups_dismissed_total", "Окна", "popup", "say \"hi\"").inc();
+        AtomicLong live = new AtomicLong(2);
+        registry.gauge("wiki_sessions_active", "Живые сессии", live::get);
+        Histogram wait = registry.histogram("wiki_wait_seconds", "Ожидания", new double[]{0.1, 1}, "page", "web");
+        wait.observe(0.05);
+        wait.observe(0.5);
+        wait.observe(5);
+        live.set(5);
+
+        String text = registry.scrape();
+        Assert.assertTrue(text.contains("# TYPE wiki_sessions_created_total counter\n"), text);
+        Assert.assertTrue(text.contains("wiki_sessions_created_total{kind=\"chrome\"} 3\n"), text);
+        Assert.assertTrue(text.contains("wiki_app_popups_dismissed_total{popup=\"say \\\"hi\\\"\"} 1\n"), text);
+        Assert.assertTrue(text.contains("wiki_sessions_active 5\n"), text);
+        Assert.assertTrue(text.contains("# TYPE wiki_wait_seconds histogram\n"), text);
+        Assert.assertTrue(text.contains("wiki_wait_seconds_bucket{page=\"web\",le=\"0.1\"} 1\n"), text);
+        Assert.assertTrue(text.contains("wiki_wait_seconds_bucket{page=\"web\",le=\"1\"} 2\n"), text);
+        Assert.assertTrue(text.contains("wiki_wait_seconds_bucket{page=\"web\",le=\"+Inf\"} 3\n"), text);
+        Assert.assertTrue(text.contains("wiki_wait_seconds_sum{page=\"web\"} 5.55\n"), text);
+        Assert.assertTrue(text.contains("wiki_wait_seconds_count{page=\"web\"} 3\n"), text);
+        Assert.assertThrows(IllegalArgumentException.class, () -> registry.gauge("wiki_sessions_created_total", "x"));
+    }
+
+    @Test(description = "HTTP /metrics отдаёт текущие значения, снимок пишется в файл")
+    public void testEndpointAndSnapshot() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter retries = registry.counter("wiki_retry_attempts_total", "Повторы");
+        HttpServer server = SuiteMetrics.startEndpoint(registry, 0);
+        try {
+            retries.add(2);
+            HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + server.getAddress().getPort() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            Assert.assertEquals(response.statusCode(), 200);
+            Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            Assert.assertTrue(response.body().contains("wiki_retry_attempts_total 2\n"), response.body());
+        } finally {
+            server.stop(0);
+        }
+
+        Path dir = Files.createTempDirectory("metrics");
+        Path snapshot = dir.resolve("suite-metrics.prom");
+        retries.inc();
+        registry.writeSnapshot(snapshot);
+        Assert.assertTrue(Files.readString(snapshot).contains("wiki_retry_attempts_total 3\n"));
+        Assert.assertFalse(Files.exists(dir.resolve("suite-metrics.prom.tmp")));
+    }
+}
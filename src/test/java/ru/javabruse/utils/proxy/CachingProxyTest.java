@@ -0,0 +1,213 @@
+package ru.javabruse.utils.proxy;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Кэширование статики и ревалидация через локальные HTTP- и HTTPS-серверы
+public class CachingProxyTest {
+
+    // пароль keystore, с которым его читает ProxyCertificates
+    private static final String KEYSTORE_PASSWORD = "caching-proxy";
+
+    private final AtomicInteger assetRequests = new AtomicInteger();
+    private final AtomicInteger revalidatedRequests = new AtomicInteger();
+    private final AtomicInteger logoRequests = new AtomicInteger();
+    private final AtomicInteger secureRequests = new AtomicInteger();
+    private HttpServer origin;
+    private HttpsServer secureOrigin;
+    private Path cacheDir;
+    private CachingProxy proxy;
+    private HttpClient client;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        origin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        origin.createContext("/static/app.js", exchange -> {
+            assetRequests.incrementAndGet();
+            byte[] body = "console.log('wiki');".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=3600");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        origin.createContext("/static/style.css", exchange -> {
+            revalidatedRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = "body{}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        // сразу устаревает, после ревалидации свеж час
+        origin.createContext("/static/logo.svg", exchange -> {
+            logoRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", "\"logo\"");
+            if ("\"logo\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = "<svg/>".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Cache-Control", "max-age=0");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        origin.start();
+
+        // один сертификат на 127.0.0.1 и у HTTPS-сервера, и у прокси для терминации CONNECT
+        Path keystore = generateKeystore(Files.createTempDirectory("proxy-tls").resolve("keystore.p12"));
+        SSLContext tls = ProxyCertificates.serverContext(keystore);
+        SSLContext trust = trustContext(keystore);
+
+        secureOrigin = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        secureOrigin.setHttpsConfigurator(new HttpsConfigurator(tls));
+        secureOrigin.createContext("/static/secure.js", exchange -> {
+            secureRequests.incrementAndGet();
+            byte[] body = "console.log('tls');".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=3600");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        secureOrigin.start();
+
+        cacheDir = Files.createTempDirectory("proxy-cache");
+        proxy = new CachingProxy(0, new AssetCache(1024 * 1024, 1024 * 1024, cacheDir), tls,
+                HttpClient.newBuilder().sslContext(trust).build());
+        proxy.start();
+        client = HttpClient.newBuilder()
+                .proxy(proxySelector(proxy))
+                .sslContext(trust)
+                .build();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        proxy.close();
+        origin.stop(0);
+        secureOrigin.stop(0);
+    }
+
+    @Test(description = "Повторный запрос статики обслуживается из кэша")
+    public void testRepeatedAssetServedFromCache() throws Exception {
+        String first = get("/static/app.js");
+        String second = get("/static/app.js");
+
+        Assert.assertEquals(second, first);
+        Assert.assertEquals(assetRequests.get(), 1, "второй запрос не должен дойти до сервера");
+        Assert.assertTrue(proxy.getCache().getBytesFromCache() > 0);
+    }
+
+    @Test(description = "Ответ с no-cache и ETag ревалидируется условным запросом")
+    public void testNoCacheAssetIsRevalidated() throws Exception {
+        String first = get("/static/style.css");
+        String second = get("/static/style.css");
+
+        Assert.assertEquals(second, first);
+        Assert.assertEquals(revalidatedRequests.get(), 2, "каждый запрос ревалидируется");
+        Assert.assertTrue(proxy.getCache().hitRatio() > 0);
+    }
+
+    @Test(description = "HTTPS через CONNECT: TLS терминируется в прокси, повтор - из кэша")
+    public void testHttpsAssetServedFromCacheThroughConnect() throws Exception {
+        URI uri = URI.create("https://127.0.0.1:" + secureOrigin.getAddress().getPort() + "/static/secure.js");
+        String first = get(client, uri);
+        String second = get(client, uri);
+
+        Assert.assertEquals(first, "console.log('tls');");
+        Assert.assertEquals(second, first);
+        Assert.assertEquals(secureRequests.get(), 1, "второй запрос по туннелю не должен дойти до сервера");
+    }
+
+    @Test(description = "Срок свежести после 304 сохраняется на диск и переживает перезапуск")
+    public void testRevalidatedEntryPersistsToDisk() throws Exception {
+        get("/static/logo.svg");
+        get("/static/logo.svg");
+        Assert.assertEquals(logoRequests.get(), 2, "устаревшая запись ревалидируется");
+
+        // следующий прогон: новый кэш и прокси на том же каталоге
+        AssetCache restored = new AssetCache(1024 * 1024, 1024 * 1024, cacheDir);
+        try (CachingProxy restarted = new CachingProxy(0, restored, null)) {
+            restarted.start();
+            HttpClient restartedClient = HttpClient.newBuilder().proxy(proxySelector(restarted)).build();
+            Assert.assertEquals(get(restartedClient, originUri("/static/logo.svg")), "<svg/>");
+        }
+        Assert.assertEquals(logoRequests.get(), 2, "свежая после 304 запись отдаётся с диска без запроса");
+        Assert.assertTrue(restored.getBytesFromCache() > 0);
+    }
+
+    private String get(String path) throws Exception {
+        return get(client, originUri(path));
+    }
+
+    private URI originUri(String path) {
+        return URI.create("http://127.0.0.1:" + origin.getAddress().getPort() + path);
+    }
+
+    private static String get(HttpClient client, URI uri) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(response.statusCode(), 200);
+        return response.body();
+    }
+
+    private static ProxySelector proxySelector(CachingProxy proxy) {
+        String[] address = proxy.getAddress().split(":");
+        return ProxySelector.of(new InetSocketAddress(address[0], Integer.parseInt(address[1])));
+    }
+
+    // как ProxyCertificates, но с SAN для 127.0.0.1, чтобы HttpClient прошёл проверку имени
+    private static Path generateKeystore(Path keystore) throws Exception {
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", "proxy", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=127.0.0.1", "-ext", "SAN=ip:127.0.0.1",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", KEYSTORE_PASSWORD, "-keypass", KEYSTORE_PASSWORD)
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+        Assert.assertTrue(process.waitFor(60, TimeUnit.SECONDS) && process.exitValue() == 0, output);
+        return keystore;
+    }
+
+    private static SSLContext trustContext(Path keystore) throws Exception {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            store.load(in, KEYSTORE_PASSWORD.toCharArray());
+        }
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(store);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagers.getTrustManagers(), null);
+        return context;
+    }
+}
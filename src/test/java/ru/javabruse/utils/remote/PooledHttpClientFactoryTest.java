@@ -0,0 +1,124 @@
+package ru.javabruse.utils.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+// Заглушка grid-хаба: проверка переиспользования соединений, gzip и замеров по командам
+public class PooledHttpClientFactoryTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledHttpClientFactoryTest.class);
+
+    private static final int COMMANDS = 50;
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer grid;
+    private URI hubUri;
+
+    @BeforeClass
+    public void startGrid() throws IOException {
+        grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session", this::handle);
+        grid.start();
+        hubUri = URI.create("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopGrid() {
+        grid.stop(0);
+    }
+
+    @BeforeMethod
+    public void resetConnections() {
+        clientPorts.clear();
+    }
+
+    @Test(description = "Команды одной сессии идут через одно keep-alive соединение")
+    public void testCommandsReuseConnection() {
+        PooledHttpClientFactory factory = new PooledHttpClientFactory(Duration.ofSeconds(5));
+        long elapsed = runSession(factory);
+
+        Assert.assertEquals(clientPorts.size(), 1, "ожидалось одно соединение на всю сессию");
+        Assert.assertEquals(factory.getLatency().count("GET /session/{id}/title"), COMMANDS);
+        Assert.assertEquals(factory.getLatency().count("POST /session"), 1);
+        logger.info("Пул: {} команд за {} мс, соединений {}", COMMANDS + 2, elapsed, clientPorts.size());
+    }
+
+    @Test(description = "Сравнение с клиентом Selenium по умолчанию на заглушке хаба")
+    public void testCompareWithDefaultClient() {
+        long defaultElapsed = runSession(HttpClient.Factory.createDefault());
+        int defaultConnections = clientPorts.size();
+
+        clientPorts.clear();
+        long pooledElapsed = runSession(new PooledHttpClientFactory(Duration.ofSeconds(5)));
+
+        logger.info("Клиент по умолчанию: {} мс, соединений {}; пул: {} мс, соединений {}",
+                defaultElapsed, defaultConnections, pooledElapsed, clientPorts.size());
+        Assert.assertTrue(clientPorts.size() <= defaultConnections);
+    }
+
+    private long runSession(HttpClient.Factory factory) {
+        long started = System.nanoTime();
+        RemoteWebDriver driver = new RemoteWebDriver(new HttpCommandExecutor(Collections.emptyMap(),
+                PooledHttpClientFactory.clientConfig(hubUri), factory),
+                new ImmutableCapabilities("browserName", "chrome"));
+        for (int i = 0; i < COMMANDS; i++) {
+            Assert.assertEquals(driver.getTitle(), "Заглавная страница");
+        }
+        driver.quit();
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+
+        String path = exchange.getRequestURI().getPath();
+        String json;
+        if ("POST".equals(exchange.getRequestMethod()) && path.endsWith("/session")) {
+            json = "{\"value\":{\"sessionId\":\"s1\",\"capabilities\":{\"browserName\":\"chrome\"}}}";
+        } else if (path.endsWith("/title")) {
+            json = "{\"value\":\"Заглавная страница\"}";
+        } else {
+            json = "{\"value\":null}";
+        }
+
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package ru.javabruse.utils.snapshot;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Журнал снимков статей и инкрементальная проверка против локального заменителя API MediaWiki
+public class SnapshotStoreTest {
+
+    private static final String TOUCHED = "2026-10-01T00:00:00Z";
+
+    private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+    // touched сдвигается без новой ревизии, когда меняется шаблон статьи
+    private final Map<String, String> touched = new ConcurrentHashMap<>();
+    // заголовок-редирект -> целевая статья
+    private final Map<String, String> redirects = new ConcurrentHashMap<>();
+    private HttpServer api;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startApi() throws Exception {
+        api = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        api.createContext("/w/api.php", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            String titles = URLDecoder.decode(query.substring(query.indexOf("titles=") + 7), StandardCharsets.UTF_8);
+            StringBuilder pages = new StringBuilder();
+            StringBuilder resolved = new StringBuilder();
+            for (String title : titles.split("\\|")) {
+                if (query.contains("redirects=1") && redirects.containsKey(title)) {
+                    if (resolved.length() > 0) {
+                        resolved.append(',');
+                    }
+                    resolved.append("{\"from\":\"").append(title).append("\",\"to\":\"")
+                            .append(redirects.get(title)).append("\"}");
+                    title = redirects.get(title);
+                }
+                if (pages.length() > 0) {
+                    pages.append(',');
+                }
+                pages.append("{\"title\":\"").append(title).append("\",\"lastrevid\":")
+                        .append(revisions.getOrDefault(title, 1L)).append(",\"touched\":\"")
+                        .append(touched.getOrDefault(title, TOUCHED)).append("\"}");
+            }
+            byte[] body = ("{\"batchcomplete\":true,\"query\":{\"redirects\":[" + resolved + "],\"pages\":["
+                    + pages + "]}}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        api.start();
+        baseUrl = "http://127.0.0.1:" + api.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopApi() {
+        api.stop(0);
+    }
+
+    @Test(description = "Индекс восстанавливается из журнала, оборванная строка пропускается")
+    public void testReopenRestoresIndex() throws Exception {
+        Path file = Files.createTempDirectory("snapshots").resolve("snapshots.jsonl");
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            store.put(ArticleSnapshot.of("Математика", version(10), article("Математика", 3)));
+            store.put(ArticleSnapshot.of("История", version(20), article("История", 2)));
+            store.put(ArticleSnapshot.of("Математика", version(11), article("Математика", 4)));
+        }
+        Files.write(file, "{\"title\":\"Обры".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            Assert.assertEquals(store.size(), 2);
+            Assert.assertTrue(store.isCurrent("Математика", version(11)));
+            Assert.assertFalse(store.isCurrent("Математика", version(10)));
+            Assert.assertEquals(store.get("Математика").getValues().get("images"), 4L);
+            store.put(ArticleSnapshot.of("Биология", version(30), article("Биология", 1)));
+        }
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            Assert.assertEquals(store.size(), 3);
+            Assert.assertTrue(store.isCurrent("Биология", version(30)));
+        }
+    }
+
+    @Test(description = "Сжатие оставляет одну строку на статью и не теряет данных")
+    public void testCompaction() throws Exception {
+        Path file = Files.createTempDirectory("snapshots").resolve("snapshots.jsonl");
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            for (int i = 1; i <= 1500; i++) {
+                String title = "Статья " + (i % 10);
+                store.put(ArticleSnapshot.of(title, version(i), article(title, i)));
+            }
+            Assert.assertTrue(store.getLogLines() < 1000, "строк в журнале " + store.getLogLines());
+        }
+        long lines = Files.readAllLines(file, StandardCharsets.UTF_8).size();
+        Assert.assertTrue(lines < 1000, "строк в файле " + lines);
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            Assert.assertEquals(store.size(), 10);
+            Assert.assertTrue(store.isCurrent("Статья 0", version(1500)));
+            Assert.assertEquals(store.get("Статья 9").getValues().get("images"), 1499L);
+        }
+    }
+
+    @Test(description = "Повторный прогон открывает только статьи с новой ревизией")
+    public void testIncrementalValidation() throws Exception {
+        Path file = Files.createTempDirectory("snapshots").resolve("snapshots.jsonl");
+        List<String> titles = Arrays.asList("Математика", "История", "Биология");
+        List<String> read = new ArrayList<>();
+        int[] images = {3};
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            IncrementalValidator validator = new IncrementalValidator(store, new RevisionLookup(baseUrl), batch -> {
+                read.addAll(batch);
+                List<WikipediaPage.ArticleData> articles = new ArrayList<>();
+                for (String title : batch) {
+                    articles.add(article(title, title.equals("История") ? images[0] : 3));
+                }
+                return articles;
+            });
+
+            IncrementalValidator.Result first = validator.validate(titles);
+            Assert.assertEquals(read, titles);
+            Assert.assertTrue(first.getViolations().isEmpty(), first.getViolations().toString());
+
+            read.clear();
+            IncrementalValidator.Result second = validator.validate(titles);
+            Assert.assertTrue(read.isEmpty(), "открыты " + read);
+            Assert.assertEquals(second.getSkipped(), titles);
+
+            // правка без изменения проверяемого и правка с изменением
+            revisions.put("Математика", 2L);
+            revisions.put("История", 2L);
+            images[0] = 7;
+            read.clear();
+            IncrementalValidator.Result third = validator.validate(titles);
+            Assert.assertEquals(read, Arrays.asList("Математика", "История"));
+            Assert.assertEquals(third.getSkipped(), Collections.singletonList("Биология"));
+            Assert.assertEquals(third.getChangedFields().get("Математика"), Collections.emptyList());
+            Assert.assertEquals(third.getChangedFields().get("История"), Collections.singletonList("images"));
+            Assert.assertTrue(store.isCurrent("История", version(2)));
+        }
+    }
+
+    @Test(description = "Заголовок-редирект сравнивается по ревизии целевой статьи")
+    public void testRedirectTitleIsSkippedOnRerun() throws Exception {
+        Path file = Files.createTempDirectory("snapshots").resolve("snapshots.jsonl");
+        redirects.put("Матан", "Математический анализ");
+        revisions.put("Математический анализ", 42L);
+        List<String> read = new ArrayList<>();
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            IncrementalValidator validator = new IncrementalValidator(store, new RevisionLookup(baseUrl), batch -> {
+                read.addAll(batch);
+                List<WikipediaPage.ArticleData> articles = new ArrayList<>();
+                for (String title : batch) {
+                    // браузер показывает целевую статью и её wgRevisionId
+                    articles.add(new WikipediaPage.ArticleData("", "/wiki/" + title, "Математический анализ",
+                            3, 5, true, 8, Arrays.asList("Категория 1", "Категория 2"), 42L));
+                }
+                return articles;
+            });
+
+            validator.validate(Collections.singletonList("Матан"));
+            read.clear();
+            IncrementalValidator.Result second = validator.validate(Collections.singletonList("Матан"));
+
+            Assert.assertTrue(read.isEmpty(), "открыты " + read);
+            Assert.assertEquals(second.getSkipped(), Collections.singletonList("Матан"));
+        }
+    }
+
+    @Test(description = "Правка шаблона без новой ревизии: статья перечитывается по touched")
+    public void testTemplateChangeDetectedByTouched() throws Exception {
+        Path file = Files.createTempDirectory("snapshots").resolve("snapshots.jsonl");
+        List<String> titles = Arrays.asList("Физика", "Химия");
+        revisions.put("Физика", 5L);
+        revisions.put("Химия", 6L);
+        List<String> read = new ArrayList<>();
+        boolean[] templateEdited = {false};
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            IncrementalValidator validator = new IncrementalValidator(store, new RevisionLookup(baseUrl), batch -> {
+                read.addAll(batch);
+                List<WikipediaPage.ArticleData> articles = new ArrayList<>();
+                for (String title : batch) {
+                    // категория приходит из шаблона: видна на странице, а ревизия статьи та же
+                    List<String> categories = templateEdited[0] && title.equals("Физика")
+                            ? Arrays.asList("Категория 1", "Категория 2", "Категория из шаблона")
+                            : Arrays.asList("Категория 1", "Категория 2");
+                    articles.add(new WikipediaPage.ArticleData("", "/wiki/" + title, title,
+                            3, 5, true, 8, categories));
+                }
+                return articles;
+            });
+            validator.validate(titles);
+
+            templateEdited[0] = true;
+            touched.put("Физика", "2026-10-02T12:00:00Z");
+            read.clear();
+            IncrementalValidator.Result second = validator.validate(titles);
+
+            Assert.assertEquals(read, Collections.singletonList("Физика"));
+            Assert.assertEquals(second.getSkipped(), Collections.singletonList("Химия"));
+            Assert.assertEquals(second.getChangedFields().get("Физика"), Collections.singletonList("categories"));
+            Assert.assertTrue(store.isCurrent("Физика", new PageVersion(5, "2026-10-02T12:00:00Z")));
+        }
+    }
+
+    @Test(description = "Снимок без touched (старый формат или без API) статью не пропускает")
+    public void testSnapshotWithoutTouchedIsNotCurrent() throws Exception {
+        Path file = Files.createTempDirectory("snapshots").resolve("snapshots.jsonl");
+        Files.write(file, ("{\"title\":\"Химия\",\"revision\":6,\"hash\":\"x\",\"checkedAt\":1,"
+                + "\"values\":{\"images\":3}}\n").getBytes(StandardCharsets.UTF_8));
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            Assert.assertEquals(store.get("Химия").getRevisionId(), 6);
+            Assert.assertFalse(store.isCurrent("Химия", version(6)));
+            Assert.assertFalse(store.isCurrent("Химия", new PageVersion(6, null)));
+        }
+    }
+
+    private static PageVersion version(long revisionId) {
+        return new PageVersion(revisionId, TOUCHED);
+    }
+
+    private static WikipediaPage.ArticleData article(String title, int images) {
+        return new WikipediaPage.ArticleData("", "/wiki/" + title, title, images, 5, true, 8,
+                Arrays.asList("Категория 1", "Категория 2"));
+    }
+}
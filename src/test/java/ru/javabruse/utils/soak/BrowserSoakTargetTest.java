@@ -0,0 +1,78 @@
+package ru.javabruse.utils.soak;
+
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Замер JS-кучи для soak на модели Chromium: CDP-команды записываются, куча зависит от сборки мусора
+public class BrowserSoakTargetTest {
+
+    private static final long HEAP_WITH_GARBAGE = 80L << 20;
+    private static final long LIVE_HEAP = 30L << 20;
+
+    @Test(description = "Куча снимается после принудительной сборки мусора")
+    public void testHeapSampledAfterGarbageCollection() {
+        FakeCdp browser = new FakeCdp();
+        BrowserSoakTarget target = new BrowserSoakTarget(browser.driver(), Collections.emptyList(), 0);
+
+        Assert.assertEquals(target.jsHeapBytes(), LIVE_HEAP);
+        Assert.assertEquals(target.jsHeapBytes(), LIVE_HEAP);
+
+        Assert.assertEquals(browser.commands, List.of("Performance.enable",
+                "HeapProfiler.collectGarbage", "Performance.getMetrics",
+                "HeapProfiler.collectGarbage", "Performance.getMetrics"));
+    }
+
+    private static final class FakeCdp implements CommandExecutor {
+        private final List<String> commands = new ArrayList<>();
+        private boolean collected;
+
+        ChromiumDriver driver() {
+            return new ChromiumDriver(this, new ImmutableCapabilities("browserName", "chrome"), "goog:chromeOptions") {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Map<String, Object> executeCdpCommand(String commandName, Map<String, Object> parameters) {
+                    return (Map<String, Object>) execute("executeCdpCommand",
+                            Map.of("cmd", commandName, "params", parameters)).getValue();
+                }
+            };
+        }
+
+        @Override
+        public Response execute(Command command) {
+            Object value = null;
+            if ("newSession".equals(command.getName())) {
+                value = Map.of("browserName", "chrome");
+            } else if ("executeCdpCommand".equals(command.getName())) {
+                String cdp = (String) command.getParameters().get("cmd");
+                commands.add(cdp);
+                if ("HeapProfiler.collectGarbage".equals(cdp)) {
+                    collected = true;
+                } else if ("Performance.getMetrics".equals(cdp)) {
+                    Map<String, Object> metric = new HashMap<>();
+                    metric.put("name", "JSHeapUsedSize");
+                    metric.put("value", collected ? LIVE_HEAP : HEAP_WITH_GARBAGE);
+                    value = Map.of("metrics", List.of(metric));
+                    collected = false;
+                } else {
+                    value = Collections.emptyMap();
+                }
+            }
+            Response response = new Response(new SessionId("soak"));
+            response.setState("success");
+            response.setValue(value);
+            return response;
+        }
+    }
+}
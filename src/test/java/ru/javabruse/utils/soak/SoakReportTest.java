@@ -0,0 +1,77 @@
+package ru.javabruse.utils.soak;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Тренды soak и интервал пересоздания на синтетических данных
+public class SoakReportTest {
+
+    @Test(description = "Линейная утечка восстанавливается точно")
+    public void testLinearFit() {
+        double[] x = {0, 100, 200, 300};
+        double[] y = {50, 60, 70, 80};
+        LinearFit fit = LinearFit.of(x, y);
+        Assert.assertEquals(fit.slope(), 0.1, 1e-9);
+        Assert.assertEquals(fit.intercept(), 50, 1e-9);
+        Assert.assertEquals(fit.rSquared(), 1, 1e-9);
+    }
+
+    @Test(description = "Интервал пересоздания: sqrt(2R/b) и ограничение бюджетом памяти")
+    public void testRecycleInterval() {
+        // время навигации растёт на 0.01 мс за навигацию, RSS - на 0.5 МБ от 200 МБ
+        List<SoakSample> samples = new ArrayList<>();
+        samples.add(new SoakSample(0, 20, 200, Double.NaN));
+        for (int n = 100; n <= 2000; n += 100) {
+            samples.add(new SoakSample(n, 20 + n * 0.01, 200 + n * 0.5, 300 + n * 0.01));
+        }
+        // R = 2000 мс: sqrt(2 * 2000 / 0.01) = 632
+        Assert.assertEquals(new SoakReport(samples, 2000, 0).recommendedRecycleInterval(), 632);
+        // бюджет 400 МБ достигается на 400-й навигации
+        Assert.assertEquals(new SoakReport(samples, 2000, 400).recommendedRecycleInterval(), 400);
+    }
+
+    @Test(description = "Без роста пересоздание не рекомендуется; недоступные метрики пропускаются")
+    public void testNoGrowth() {
+        List<SoakSample> samples = new ArrayList<>();
+        for (int n = 0; n <= 1000; n += 100) {
+            samples.add(new SoakSample(n, -1, 150, 250));
+        }
+        SoakReport report = new SoakReport(samples, 2000, 400);
+        Assert.assertEquals(report.recommendedRecycleInterval(), -1);
+        Assert.assertEquals(report.getJsHeap().slope(), 0.0);
+    }
+
+    @Test(description = "Прогон снимает замеры с заданным шагом и переживает ошибки навигации")
+    public void testSessionSoakSamples() {
+        SoakTarget leaking = new SoakTarget() {
+            private long heap = 10L << 20;
+
+            @Override
+            public void navigate(int i) {
+                heap += 64 * 1024;
+                if (i == 7) {
+                    throw new IllegalStateException("таймаут");
+                }
+            }
+
+            @Override
+            public long jsHeapBytes() {
+                return heap;
+            }
+
+            @Override
+            public long rssBytes() {
+                return -1;
+            }
+        };
+        SessionSoak soak = new SessionSoak(leaking, 105, 20);
+        List<SoakSample> samples = soak.run();
+        Assert.assertEquals(samples.size(), 7);
+        Assert.assertEquals(samples.get(samples.size() - 1).getNavigation(), 105);
+        Assert.assertEquals(soak.getFailures(), 1);
+        Assert.assertEquals(new SoakReport(samples, 1000, 0).getJsHeap().slope(), 1.0 / 16, 1e-9);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.javabruse.utils.wire;
+
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+// Запись сессии через заглушку драйвера и воспроизведение без неё
+public class WireRecordReplayTest {
+
+    @Test(description = "Записанная сессия воспроизводится без драйвера с теми же ответами")
+    public void testRecordAndReplay() throws Exception {
+        Path file = Files.createTempDirectory("wire").resolve("session.wire.jsonl.gz");
+        WireRecorder recorder = new WireRecorder(file);
+
+        RemoteWebDriver recorded = new RemoteWebDriver(new HttpCommandExecutor(Collections.emptyMap(),
+                new URL("http://localhost:1"), recorder.wrap(config -> new StubDriverClient())),
+                new ImmutableCapabilities("browserName", "chrome"));
+        String recordedTitle = recorded.getTitle();
+        recorded.quit();
+        recorder.save();
+
+        Assert.assertEquals(recordedTitle, "Заглавная страница");
+        Assert.assertEquals(recorder.size(), 3, "new session, title и delete session");
+
+        WireReplay replay = WireReplay.load(file, 0);
+        RemoteWebDriver replayed = new RemoteWebDriver(new HttpCommandExecutor(Collections.emptyMap(),
+                WireTraffic.replayUrl(), replay), new ImmutableCapabilities("browserName", "chrome"));
+        Assert.assertEquals(replayed.getSessionId().toString(), "s1");
+        Assert.assertEquals(replayed.getTitle(), recordedTitle);
+        replayed.quit();
+    }
+
+    @Test(description = "Общий браузер: файл каждого теста начинается с пролога и воспроизводится отдельно")
+    public void testRestartKeepsPrologue() throws Exception {
+        Path dir = Files.createTempDirectory("wire");
+        WireRecorder recorder = new WireRecorder(dir.resolve("first.wire.jsonl.gz"));
+        RemoteWebDriver shared = new RemoteWebDriver(new HttpCommandExecutor(Collections.emptyMap(),
+                new URL("http://localhost:1"), recorder.wrap(config -> new StubDriverClient())),
+                new ImmutableCapabilities("browserName", "chrome"));
+        recorder.markPrologue();
+        shared.getTitle();
+        recorder.save();
+        Assert.assertFalse(recorder.hasUnsaved());
+
+        recorder.restart(dir.resolve("second.wire.jsonl.gz"));
+        Assert.assertEquals(recorder.size(), 1, "от первого теста остаётся только new session");
+        shared.getTitle();
+        shared.getTitle();
+        Assert.assertTrue(recorder.hasUnsaved());
+        recorder.save();
+
+        WireReplay replay = WireReplay.load(dir.resolve("second.wire.jsonl.gz"), 0);
+        RemoteWebDriver replayed = new RemoteWebDriver(new HttpCommandExecutor(Collections.emptyMap(),
+                WireTraffic.replayUrl(), replay), new ImmutableCapabilities("browserName", "chrome"));
+        Assert.assertEquals(replayed.getTitle(), "Заглавная страница");
+    }
+
+    // минимальный W3C-драйвер: новая сессия, заголовок страницы, закрытие
+    private static class StubDriverClient implements HttpClient {
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            String value;
+            if (request.getUri().equals("/session")) {
+                value = "{\"sessionId\":\"s1\",\"capabilities\":{\"browserName\":\"chrome\"}}";
+            } else if (request.getUri().endsWith("/title")) {
+                value = "\"Заглавная страница\"";
+            } else {
+                value = "null";
+            }
+            return new HttpResponse()
+                    .setStatus(200)
+                    .setHeader("Content-Type", "application/json; charset=utf-8")
+                    .setContent(Contents.utf8String("{\"value\":" + value + "}"));
+        }
+
+        @Override
+        public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
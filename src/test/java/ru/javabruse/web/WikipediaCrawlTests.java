@@ -0,0 +1,65 @@
+package ru.javabruse.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.crawl.ArticleCrawler;
+import ru.javabruse.utils.crawl.BrowserCrawlSession;
+import ru.javabruse.utils.crawl.CrawlReport;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Обход большого числа статей с проверкой инвариантов; запускается только с -Dcrawl.articles=N
+public class WikipediaCrawlTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WikipediaCrawlTests.class);
+
+    @Test(description = "Инварианты статей на обходе из случайных статей или заданных seed-статей")
+    public void testArticleInvariantsCrawl() throws Exception {
+        int articles = Integer.getInteger("crawl.articles", 0);
+        if (articles <= 0) {
+            throw new SkipException("Обход выключен, задайте -Dcrawl.articles=N");
+        }
+        TestLogContext.start(getClass().getSimpleName() + ".testArticleInvariantsCrawl");
+        try {
+            List<String> seeds = seeds();
+            ArticleCrawler crawler = new ArticleCrawler(BrowserCrawlSession::new,
+                    Integer.getInteger("crawl.sessions", 4),
+                    Integer.getInteger("crawl.frontier", 10_000),
+                    articles,
+                    Paths.get(System.getProperty("crawl.output", "target/crawl-results.jsonl")));
+
+            CrawlReport report = crawler.crawl(seeds);
+            logger.info("Итог обхода: {}", report);
+
+            double maxErrorRate = Double.parseDouble(System.getProperty("crawl.max.error.rate", "0.05"));
+            Assert.assertTrue(report.errorRate() <= maxErrorRate, "Слишком много ошибок: " + report);
+            Assert.assertEquals(report.getViolations(), 0, "Нарушены инварианты статей, см. crawl-results.jsonl");
+        } finally {
+            TestLogContext.clear();
+        }
+    }
+
+    // -Dcrawl.seeds=Заголовок1,Категория:Что-то; иначе несколько случайных статей
+    private static List<String> seeds() {
+        List<String> seeds = new ArrayList<>();
+        String configured = System.getProperty("crawl.seeds", "");
+        for (String title : configured.split(",")) {
+            if (!title.trim().isEmpty()) {
+                seeds.add(WikipediaPage.articleUrl(title));
+            }
+        }
+        if (seeds.isEmpty()) {
+            try (BrowserCrawlSession session = new BrowserCrawlSession()) {
+                seeds.addAll(session.randomSeeds(Integer.getInteger("crawl.random.seeds", 5)));
+            }
+        }
+        return seeds;
+    }
+}
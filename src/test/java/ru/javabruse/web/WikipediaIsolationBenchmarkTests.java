@@ -0,0 +1,124 @@
+package ru.javabruse.web;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.BrowserContextIsolation;
+import ru.javabruse.utils.ResourceSampler;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.WebDriverFactory;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+// Процесс на тест против контекста в общем браузере: RSS и время подготовки; только с -Disolation.benchmark.tests
+public class WikipediaIsolationBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WikipediaIsolationBenchmarkTests.class);
+
+    @Test(description = "Память и время подготовки теста: отдельный Chrome или контекст общего Chrome")
+    public void testContextIsolationSavings() throws Exception {
+        int tests = Integer.getInteger("isolation.benchmark.tests", 0);
+        if (tests <= 0) {
+            throw new SkipException("Замер выключен, задайте -Disolation.benchmark.tests=10");
+        }
+        String browser = System.getProperty("browser", "chrome").toLowerCase();
+        if (BrowserContextIsolation.isEnabled() || !("chrome".equals(browser) || "edge".equals(browser))) {
+            throw new SkipException("Замер сравнивает оба режима сам: нужен Chrome/Edge без -Disolation=context");
+        }
+        TestLogContext.start(getClass().getSimpleName() + ".testContextIsolationSavings");
+        try {
+            Usage process = run(tests, WebDriverFactory::createWebDriver);
+            Usage context;
+            try {
+                context = run(tests, () -> BrowserContextIsolation.openContext(
+                        () -> (ChromiumDriver) WebDriverFactory.createWebDriver()));
+            } finally {
+                BrowserContextIsolation.quitWorkerBrowser();
+            }
+
+            logger.info("Процесс на тест: {}", process);
+            logger.info("Контекст на тест: {}", context);
+            logger.info("Экономия: RSS в среднем {} МБ, подготовка теста {} мс",
+                    String.format(Locale.ROOT, "%.1f", process.meanRssMb() - context.meanRssMb()),
+                    String.format(Locale.ROOT, "%.0f", process.meanSetupMs() - context.meanSetupMs()));
+
+            Path report = Paths.get(System.getProperty("isolation.benchmark.report", "target/isolation-benchmark.csv"));
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+                writer.println("mode,tests,mean_setup_ms,mean_rss_mb,peak_rss_mb");
+                writer.println("process," + process.toCsv());
+                writer.println("context," + context.toCsv());
+            }
+
+            Assert.assertTrue(process.samples > 0 && context.samples > 0,
+                    "RSS браузера не замерен: процесс driver-сервиса не найден");
+        } finally {
+            TestLogContext.clear();
+        }
+    }
+
+    // tests одинаковых "тестов": подготовка драйвера, главная и случайная статья, замер RSS, закрытие
+    private static Usage run(int tests, Supplier<WebDriver> setup) {
+        Usage usage = new Usage(tests);
+        for (int i = 0; i < tests; i++) {
+            long start = System.nanoTime();
+            WebDriver driver = setup.get();
+            usage.setupNanos += System.nanoTime() - start;
+            try {
+                WikipediaPage page = new WikipediaPage(driver);
+                page.openMainPage();
+                page.goToRandomPage();
+                long rssKb = ResourceSampler.browserRssKb(driver);
+                if (rssKb > 0) {
+                    usage.samples++;
+                    usage.rssKbSum += rssKb;
+                    usage.peakRssKb = Math.max(usage.peakRssKb, rssKb);
+                }
+            } finally {
+                WebDriverFactory.quitDriver(driver);
+            }
+        }
+        return usage;
+    }
+
+    private static final class Usage {
+        private final int tests;
+        private long setupNanos;
+        private int samples;
+        private long rssKbSum;
+        private long peakRssKb;
+
+        Usage(int tests) {
+            this.tests = tests;
+        }
+
+        double meanSetupMs() {
+            return setupNanos / 1e6 / tests;
+        }
+
+        double meanRssMb() {
+            return samples == 0 ? 0 : rssKbSum / 1024.0 / samples;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%.0f,%.1f,%.1f", tests, meanSetupMs(), meanRssMb(), peakRssKb / 1024.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "подготовка %.0f мс, RSS браузера в среднем %.1f МБ, пик %.1f МБ (%d тестов)",
+                    meanSetupMs(), meanRssMb(), peakRssKb / 1024.0, tests);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.javabruse.web;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.load.BrowserUserSession;
+import ru.javabruse.utils.load.HttpUserSession;
+import ru.javabruse.utils.load.LoadRecorder;
+import ru.javabruse.utils.load.OpenModelLoadGenerator;
+import ru.javabruse.utils.load.RampProfile;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+// Нагрузочный прогон сценариев WikipediaPage по открытой модели; только с -Dload.profile
+public class WikipediaLoadTests {
+
+    @Test(description = "Нагрузка на зеркало MediaWiki: HTTP-пользователи и выборка браузеров")
+    public void testOpenModelLoad() throws Exception {
+        String profile = System.getProperty("load.profile", "");
+        if (profile.isEmpty()) {
+            throw new SkipException("Нагрузка выключена, задайте -Dload.profile=30s:0-10,120s:10,30s:10-0");
+        }
+        TestLogContext.start(getClass().getSimpleName() + ".testOpenModelLoad");
+        try {
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(RampProfile.parse(profile),
+                    () -> new HttpUserSession(WikipediaPage.getBaseUrl()))
+                    .maxConcurrentUsers(Integer.getInteger("load.max.users", 200))
+                    .queries(Arrays.asList(System.getProperty("load.queries", "Selenium,Java,Москва").split(",")));
+            double browserShare = Double.parseDouble(System.getProperty("load.browser.share", "0.05"));
+            if (browserShare > 0) {
+                generator.withBrowsers(BrowserUserSession::new, browserShare,
+                        Integer.getInteger("load.max.browsers", 2));
+            }
+
+            LoadRecorder recorder = generator.run();
+            recorder.writeCsv(Paths.get(System.getProperty("load.report", "target/load-report.csv")));
+
+            long errors = recorder.errors("http/flow") + recorder.errors("browser/flow");
+            double maxErrorRate = Double.parseDouble(System.getProperty("load.max.error.rate", "0.01"));
+            Assert.assertTrue(errors <= generator.getArrivals() * maxErrorRate,
+                    "Ошибок " + errors + " из " + generator.getArrivals() + " пользователей");
+        } finally {
+            TestLogContext.clear();
+        }
+    }
+}
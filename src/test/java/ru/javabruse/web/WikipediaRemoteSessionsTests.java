@@ -0,0 +1,68 @@
+package ru.javabruse.web;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.VirtualSessionRunner;
+import ru.javabruse.utils.WebDriverFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Много удалённых сессий на виртуальных потоках (JDK 21+); только с -Dremote.hub=<url>
+public class WikipediaRemoteSessionsTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WikipediaRemoteSessionsTests.class);
+
+    @Test(description = "Сценарий главная -> случайная статья в N удалённых сессиях")
+    public void testManyRemoteSessions() throws Exception {
+        String hub = System.getProperty("remote.hub", "");
+        if (hub.isEmpty()) {
+            throw new SkipException("Нет хаба, задайте -Dremote.hub=http://grid:4444");
+        }
+        int sessions = Integer.getInteger("remote.sessions", 100);
+        VirtualSessionRunner runner = new VirtualSessionRunner(Integer.getInteger("remote.max.live", 20));
+
+        List<Callable<String>> flows = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            flows.add(() -> {
+                DesiredCapabilities capabilities = new DesiredCapabilities();
+                capabilities.setBrowserName(System.getProperty("browser", "chrome"));
+                WebDriver driver = WebDriverFactory.createRemoteDriver(hub, capabilities);
+                try {
+                    WikipediaPage page = new WikipediaPage(driver);
+                    page.openMainPage();
+                    page.goToRandomPage();
+                    return page.getPageTitle();
+                } finally {
+                    WebDriverFactory.quitDriver(driver);
+                }
+            });
+        }
+
+        // сначала собираем все ошибки, иначе первая же остановит подсчёт
+        List<String> failures = new ArrayList<>();
+        for (Future<String> result : runner.runAll(flows)) {
+            try {
+                if (result.get().isEmpty()) {
+                    failures.add("Пустой заголовок статьи");
+                }
+            } catch (ExecutionException e) {
+                failures.add(String.valueOf(e.getCause().getMessage()));
+                logger.warn("Сценарий завершился с ошибкой: {}", e.getCause().getMessage());
+            }
+        }
+        logger.info("Сессий {}, ошибок {}, пик живых сессий {}", sessions, failures.size(),
+                runner.getPeakLiveSessions());
+        Assert.assertTrue(failures.isEmpty(), "Удалённых сценариев с ошибкой: " + failures.size()
+                + " из " + sessions + ", первая: " + (failures.isEmpty() ? "" : failures.get(0)));
+    }
+}
@@ -0,0 +1,54 @@
+package ru.javabruse.web;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.WebDriverFactory;
+import ru.javabruse.utils.snapshot.IncrementalValidator;
+import ru.javabruse.utils.snapshot.RevisionLookup;
+import ru.javabruse.utils.snapshot.SnapshotStore;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Ночная проверка статей только по изменившимся ревизиям; запускается только с -Dsnapshot.titles
+public class WikipediaSnapshotTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WikipediaSnapshotTests.class);
+
+    @Test(description = "Инварианты статей: перепроверяются только статьи с новой ревизией")
+    public void testIncrementalArticleChecks() throws Exception {
+        List<String> titles = new ArrayList<>();
+        for (String title : System.getProperty("snapshot.titles", "").split(",")) {
+            if (!title.trim().isEmpty()) {
+                titles.add(title.trim());
+            }
+        }
+        if (titles.isEmpty()) {
+            throw new SkipException("Проверка по снимкам выключена, задайте -Dsnapshot.titles=Математика,История");
+        }
+        TestLogContext.start(getClass().getSimpleName() + ".testIncrementalArticleChecks");
+        WebDriver driver = WebDriverFactory.createWebDriver();
+        try (SnapshotStore store = SnapshotStore.open(
+                Paths.get(System.getProperty("snapshot.file", ".snapshots/article-snapshots.jsonl")))) {
+            WikipediaPage page = new WikipediaPage(driver);
+            int tabs = Integer.getInteger("snapshot.tabs", 5);
+            IncrementalValidator validator = new IncrementalValidator(store,
+                    new RevisionLookup(WikipediaPage.getBaseUrl()), batch -> page.readArticlesInTabs(batch, tabs));
+
+            IncrementalValidator.Result result = validator.validate(titles);
+            logger.info("Итог проверки по снимкам: {}, изменения: {}", result, result.getChangedFields());
+
+            Assert.assertTrue(result.getViolations().isEmpty(), "Нарушены инварианты: " + result.getViolations());
+        } finally {
+            WebDriverFactory.quitDriver(driver);
+            TestLogContext.clear();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.javabruse.web;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.TestLogContext;
+import ru.javabruse.utils.WebDriverFactory;
+import ru.javabruse.utils.soak.BrowserSoakTarget;
+import ru.javabruse.utils.soak.SessionSoak;
+import ru.javabruse.utils.soak.SoakReport;
+import ru.javabruse.utils.soak.SoakSample;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+// Долгая сессия браузера: рост памяти и времени навигации; запускается только с -Dsoak.navigations
+public class WikipediaSoakTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(WikipediaSoakTests.class);
+
+    @Test(description = "Soak одной сессии: тренд памяти и рекомендуемый интервал пересоздания")
+    public void testSessionSoak() throws Exception {
+        int navigations = Integer.getInteger("soak.navigations", 0);
+        if (navigations <= 0) {
+            throw new SkipException("Soak выключен, задайте -Dsoak.navigations=2000");
+        }
+        TestLogContext.start(getClass().getSimpleName() + ".testSessionSoak");
+        // стоимость пересоздания сессии измеряется тут же: старт драйвера плюс первая загрузка
+        long start = System.nanoTime();
+        WebDriver driver = WebDriverFactory.createWebDriver();
+        try {
+            new WikipediaPage(driver).openMainPage();
+            double recycleCostMs = (System.nanoTime() - start) / 1e6;
+            List<String> queries = Arrays.asList(
+                    System.getProperty("soak.queries", "Java,Selenium,Москва,История,Математика").split(","));
+            SessionSoak soak = new SessionSoak(
+                    new BrowserSoakTarget(driver, queries, Integer.getInteger("soak.search.every", 10)),
+                    navigations, Integer.getInteger("soak.sample.every", 50));
+
+            List<SoakSample> samples = soak.run();
+            SoakReport report = new SoakReport(samples, recycleCostMs,
+                    Double.parseDouble(System.getProperty("soak.memory.budget.mb", "0")));
+            report.writeCsv(Paths.get(System.getProperty("soak.report", "target/soak-report.csv")));
+            logger.info("Итог soak: {}; неудачных навигаций: {}", report.summary(), soak.getFailures());
+        } finally {
+            WebDriverFactory.quitDriver(driver);
+            TestLogContext.clear();
+        }
+    }
+}
@@ -2,30 +2,48 @@ package ru.javabruse.web;
 
 import org.openqa.selenium.WebDriver;
 import org.testng.Assert;
+import org.testng.ITestResult;
 import org.testng.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.javabruse.pages.WikipediaPage;
+import ru.javabruse.utils.TestLogContext;
 import ru.javabruse.utils.WebDriverFactory;
+import ru.javabruse.utils.history.FailFastScheduler;
+import ru.javabruse.utils.history.FlakeControl;
+import ru.javabruse.utils.history.SessionRetry;
+import ru.javabruse.utils.impact.ImpactSelector;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // Тесты для веб-версии Википедии
+@Listeners({ImpactSelector.class, FlakeControl.class, FailFastScheduler.class})
 public class WikipediaTests {
 
     private static final Logger logger = LoggerFactory.getLogger(WikipediaTests.class);
 
     private WebDriver driver;
     private WikipediaPage wikipediaPage;
+    // сессия упавшей попытки, оставленная для повтора теста (SessionRetry)
+    private boolean reuseSession;
     private static final String BASE_URL = "https://ru.wikipedia.org/";
 
     @BeforeMethod
     public void setUp(Method method) {
+        TestLogContext.start(getClass().getSimpleName() + "." + method.getName());
         logger.info("Начало настройки теста: {}", method.getName());
 
         try {
-            driver = WebDriverFactory.createWebDriver();
+            if (reuseSession) {
+                reuseSession = false;
+                logger.info("Повтор теста в той же сессии браузера");
+            } else {
+                driver = WebDriverFactory.createWebDriver();
+            }
             wikipediaPage = new WikipediaPage(driver);
 
             logger.info("Открываем главную страницу Википедии");
@@ -40,7 +58,7 @@ public class WikipediaTests {
     }
 
     @AfterMethod
-    public void tearDown(Method method) {
+    public void tearDown(Method method, ITestResult result) {
         logger.info("Завершение теста: {}", method.getName());
 
         try {
@@ -49,11 +67,18 @@ public class WikipediaTests {
                     takeScreenshot(method.getName() + "_failed");
                 }
 
-                driver.quit();
-                logger.info("Драйвер закрыт для теста: {}", method.getName());
+                if (SessionRetry.willRetry(result) && wikipediaPage != null && wikipediaPage.softReset()) {
+                    reuseSession = true;
+                    logger.info("Сессия оставлена для повтора теста: {}", method.getName());
+                } else {
+                    WebDriverFactory.quitDriver(driver);
+                    logger.info("Драйвер закрыт для теста: {}", method.getName());
+                }
             }
         } catch (Exception e) {
             logger.warn("Ошибка при завершении теста {}: {}", method.getName(), e.getMessage());
+        } finally {
+            TestLogContext.clear();
         }
     }
 
@@ -321,6 +346,54 @@ public class WikipediaTests {
         logger.info("Комплексный тест выполнен успешно");
     }
 
+    @Test(priority = 12, description = "Пакетная проверка статей в параллельных вкладках")
+    public void testArticlesReadInTabs() {
+        logger.info("Тест: чтение нескольких статей во вкладках");
+
+        List<String> titles = new ArrayList<>();
+        for (Object[] row : provideSearchTestData()) {
+            titles.add((String) row[0]);
+        }
+
+        List<WikipediaPage.ArticleData> articles = wikipediaPage.readArticlesInTabs(titles, titles.size());
+        Assert.assertEquals(articles.size(), titles.size(), "Должны быть данные по каждой статье");
+
+        for (int i = 0; i < titles.size(); i++) {
+            WikipediaPage.ArticleData article = articles.get(i);
+            logger.info("Статья '{}': {}", titles.get(i), article);
+
+            Assert.assertTrue(article.isLoaded(),
+                    String.format("Статья '%s' должна загрузиться", titles.get(i)));
+            Assert.assertTrue(article.getTitle().toLowerCase().contains(titles.get(i).toLowerCase()),
+                    String.format("Заголовок должен содержать '%s'. Фактический: %s",
+                            titles.get(i), article.getTitle()));
+            Assert.assertFalse(article.getCategories().isEmpty(),
+                    String.format("Статья '%s' должна иметь категории", titles.get(i)));
+        }
+
+        Assert.assertTrue(wikipediaPage.isMainPageLoaded(),
+                "После пакетного чтения должна остаться открытой главная страница");
+    }
+
+    @Test(priority = 13, description = "Постраничный обход результатов поиска с предзагрузкой")
+    public void testSearchResultsPaging() {
+        logger.info("Тест: обход нескольких страниц результатов поиска");
+
+        List<WikipediaPage.SearchHit> hits;
+        try (Stream<WikipediaPage.SearchHit> results = wikipediaPage.searchResults("Москва", 20)) {
+            hits = results.limit(45).collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(hits.size(), 45, "Должны быть прочитаны три страницы результатов");
+        for (int i = 0; i < hits.size(); i++) {
+            Assert.assertEquals(hits.get(i).getPosition(), i, "Позиции результатов должны идти подряд");
+            Assert.assertFalse(hits.get(i).getTitle().isEmpty(),
+                    String.format("У результата %d должен быть заголовок", i));
+        }
+        Assert.assertTrue(wikipediaPage.isMainPageLoaded(),
+                "Вкладка теста не должна меняться при чтении результатов");
+    }
+
     @DataProvider(name = "searchTestData")
     public Object[][] provideSearchTestData() {
         return new Object[][] {